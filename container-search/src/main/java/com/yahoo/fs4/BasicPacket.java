@@ -91,7 +91,7 @@ public abstract class BasicPacket {
                                                 uncompressedSize, Optional.of(compressedSize));
             ByteBuffer bodyBuffer = ByteBuffer.wrap(body);
             length += uncompressedSize - (compressedSize + 4);
-            decodeBody(bodyBuffer);
+            decodeOwnedBody(bodyBuffer);
         } else {
             decodeBody(buffer);
         }
@@ -107,6 +107,16 @@ public abstract class BasicPacket {
         throw new UnsupportedOperationException("Decoding of " + this + " is not implemented");
     }
 
+    /**
+     * Decodes the body of this package from a byte buffer
+     * positioned at the first byte of the package, where the buffer is created for this package only.
+     * Packages may keep references to the content of such buffers instead of copying it.
+     * This default implementation calls {@link #decodeBody}.
+     */
+    protected void decodeOwnedBody(ByteBuffer buffer) {
+        decodeBody(buffer);
+    }
+
     /**
      * Called when the packet code is decoded.
      * This default implementation just throws an exception if the code
@@ -4,6 +4,7 @@ package com.yahoo.fs4;
 import com.yahoo.document.GlobalId;
 
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 /**
  * An "extended query result" packet. This is the query result
@@ -16,7 +17,10 @@ public class DocsumPacket extends Packet {
 
     private GlobalId globalId = new GlobalId(new byte[GlobalId.LENGTH]);
 
+    /** The array holding the data of this, which may contain other bytes before and after the data */
     private byte[] data;
+    private int dataOffset = 0;
+    private int dataLength = 0;
 
     private DocsumPacket() {
     }
@@ -26,6 +30,7 @@ public class DocsumPacket extends Packet {
      */
     public DocsumPacket(byte[] buffer) {
         data = buffer.clone();
+        dataLength = data.length;
     }
 
     public static DocsumPacket create() {
@@ -39,20 +44,54 @@ public class DocsumPacket extends Packet {
      * first byte of the packet
      */
     public void decodeBody(ByteBuffer buffer) {
+        decodeGlobalId(buffer);
+        data = new byte[getLength()-12-GlobalId.LENGTH];
+        dataOffset = 0;
+        dataLength = data.length;
+        buffer.get(data);
+    }
+
+    /** Decodes the body of this without copying the data if the buffer is backed by an array */
+    @Override
+    protected void decodeOwnedBody(ByteBuffer buffer) {
+        if ( ! buffer.hasArray()) {
+            decodeBody(buffer);
+            return;
+        }
+        decodeGlobalId(buffer);
+        data = buffer.array();
+        dataOffset = buffer.arrayOffset() + buffer.position();
+        dataLength = getLength()-12-GlobalId.LENGTH;
+        buffer.position(buffer.position() + dataLength);
+    }
+
+    private void decodeGlobalId(ByteBuffer buffer) {
         byte[] rawGid = new byte[GlobalId.LENGTH];
         buffer.get(rawGid);
         globalId = new GlobalId(rawGid);
-        data=new byte[getLength()-12-GlobalId.LENGTH];
-        buffer.get(data);
     }
 
     public GlobalId getGlobalId() { return globalId; }
 
-    public byte[] getData() { return data; }
+    /** Returns the data of this. Prefer {@link #getDataBuffer} as this may need to copy the data. */
+    public byte[] getData() {
+        if (data == null) return null;
+        if (dataOffset == 0 && dataLength == data.length) return data;
+        return Arrays.copyOfRange(data, dataOffset, dataOffset + dataLength);
+    }
+
+    /** Returns a view of the data of this, or null if this has no data. The content must not be modified. */
+    public ByteBuffer getDataBuffer() {
+        if (data == null) return null;
+        return ByteBuffer.wrap(data, dataOffset, dataLength).slice();
+    }
+
+    /** Returns the number of bytes of data in this */
+    public int getDataLength() { return dataLength; }
 
     public String toString() {
         return "docsum packet [globalId: " + globalId.toString() +
-               ", size: " + (data==null ? "(no data)" : data.length + " bytes") + " ]";
+               ", size: " + (data==null ? "(no data)" : dataLength + " bytes") + " ]";
     }
 
 }
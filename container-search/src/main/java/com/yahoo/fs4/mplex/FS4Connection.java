@@ -176,9 +176,9 @@ public class FS4Connection implements Connection
 
         do {
             try {
-                if (readBuffer == fixedReadBuffer) {
+                if (readBuffer.isDirect()) {
                     bytesRead = channel.read(readBuffer);
-                } else {
+                } else { // read through a direct buffer to avoid the temporary direct buffer allocated by nio
                     fixedReadBuffer.clear();
                     if (readBuffer.remaining() < fixedReadBuffer.capacity()) {
                         fixedReadBuffer.limit(readBuffer.remaining());
@@ -314,9 +314,9 @@ public class FS4Connection implements Connection
 
 
     /**
-     * Extend the readBuffer.  Make a new buffer of the requested size
-     * copy the contents of the readBuffer into it and assign reference
-     * to readBuffer instance variable.
+     * Extend the readBuffer.  Get a buffer of at least the requested size
+     * from the read buffer pool, copy the contents of the readBuffer into it
+     * and assign reference to readBuffer instance variable.
      *
      * <P>
      * <b>The readBuffer needs to be in "readable" (flipped) state before
@@ -340,16 +340,18 @@ public class FS4Connection implements Connection
             size = readBuffer.capacity() * 2;
         }
 
-        ByteBuffer tmp = ByteBuffer.allocate(size);
+        ByteBuffer tmp = ReadBufferPool.shared.acquire(size);
         tmp.put(readBuffer);
-        log.fine("Extended readBuffer to " + size + " bytes"
+        log.fine("Extended readBuffer to " + tmp.capacity() + " bytes"
                  + "from " + readBuffer.capacity() + " bytes");
+        if (readBuffer != fixedReadBuffer)
+            ReadBufferPool.shared.release(readBuffer);
         readBuffer = tmp;
     }
 
     /**
      * Clear the readBuffer, and if temporarily allocated bigger
-     * buffer is in use: ditch it and reset the reference to the
+     * buffer is in use: return it to the pool and reset the reference to the
      * fixed readBuffer.
      */
     private void resetReadBuffer () {
@@ -358,6 +360,7 @@ public class FS4Connection implements Connection
             return;
         }
         log.fine("Resetting readbuffer");
+        ReadBufferPool.shared.release(readBuffer);
         readBuffer = fixedReadBuffer;
     }
 
@@ -0,0 +1,89 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.fs4.mplex;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool of direct buffers used by connections to read packets which are larger than their fixed read buffer.
+ * Buffers have capacities which are powers of two. Buffers larger than the max pooled capacity are
+ * allocated on the heap and not pooled.
+ * <p>
+ * Buffers must not be used after they are released, so no references to the content of a buffer
+ * can be kept after it is released.
+ * <p>
+ * This class is multithread safe.
+ */
+class ReadBufferPool {
+
+    /** The pool used by all connections */
+    static final ReadBufferPool shared = new ReadBufferPool(1 << 19, 1 << 25, 64L << 20);
+
+    private final int minCapacity;
+    private final int maxPooledCapacity;
+    private final long maxPooledBytes;
+
+    /** The free buffers of each size class, where the size class of index i has capacity minCapacity*2^i */
+    private final ConcurrentLinkedQueue<ByteBuffer>[] free;
+
+    /** The number of bytes of the buffers currently in the free lists */
+    private final AtomicLong pooledBytes = new AtomicLong(0);
+
+    /**
+     * Creates a buffer pool
+     *
+     * @param minCapacity the smallest buffer capacity handed out. This is rounded up to a power of two.
+     * @param maxPooledCapacity the capacity of the largest buffers which are pooled
+     * @param maxPooledBytes the max total capacity of the free buffers kept by this
+     */
+    @SuppressWarnings("unchecked")
+    ReadBufferPool(int minCapacity, int maxPooledCapacity, long maxPooledBytes) {
+        this.minCapacity = roundUpToPowerOfTwo(minCapacity);
+        this.maxPooledCapacity = Math.max(this.minCapacity, maxPooledCapacity);
+        this.maxPooledBytes = maxPooledBytes;
+        int sizeClasses = sizeClass(roundUpToPowerOfTwo(this.maxPooledCapacity)) + 1;
+        this.free = new ConcurrentLinkedQueue[sizeClasses];
+        for (int i = 0; i < sizeClasses; i++)
+            free[i] = new ConcurrentLinkedQueue<>();
+    }
+
+    /** Returns a cleared buffer with at least the given capacity */
+    ByteBuffer acquire(int capacity) {
+        int roundedCapacity = roundUpToPowerOfTwo(Math.max(capacity, minCapacity));
+        if (roundedCapacity > maxPooledCapacity || roundedCapacity <= 0)
+            return ByteBuffer.allocate(capacity);
+
+        ByteBuffer buffer = free[sizeClass(roundedCapacity)].poll();
+        if (buffer == null) return ByteBuffer.allocateDirect(roundedCapacity);
+
+        pooledBytes.addAndGet(-buffer.capacity());
+        buffer.clear();
+        return buffer;
+    }
+
+    /** Returns a buffer acquired from this to the pool */
+    void release(ByteBuffer buffer) {
+        if ( ! buffer.isDirect()) return;
+        if (buffer.capacity() < minCapacity || buffer.capacity() > maxPooledCapacity) return;
+        if (Integer.bitCount(buffer.capacity()) != 1) return;
+        if (pooledBytes.addAndGet(buffer.capacity()) > maxPooledBytes) {
+            pooledBytes.addAndGet(-buffer.capacity());
+            return; // Pool is full: Leave this to the garbage collector
+        }
+        free[sizeClass(buffer.capacity())].add(buffer);
+    }
+
+    /** Returns the number of bytes in the free buffers of this */
+    long pooledBytes() { return pooledBytes.get(); }
+
+    private int sizeClass(int capacity) {
+        return Integer.numberOfTrailingZeros(capacity) - Integer.numberOfTrailingZeros(minCapacity);
+    }
+
+    private static int roundUpToPowerOfTwo(int value) {
+        if (value <= 1) return 1;
+        return Integer.highestOneBit(value - 1) << 1;
+    }
+
+}
@@ -2,9 +2,11 @@
 package com.yahoo.prelude;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.yahoo.search.Query;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static com.yahoo.text.Lowercase.toLowerCase;
 
@@ -60,6 +62,12 @@ public class IndexFacts {
     /** Whether this has (any) NGram indexes. Calculated at freeze time. */
     private boolean hasNGramIndices;
 
+    /** The max number of distinct source and restrict combinations to keep sessions for */
+    private static final int maxCachedSessions = 1000;
+
+    /** Sessions for the source and restrict combinations seen, which are reused once this is frozen */
+    private final Map<SessionKey, Session> sessions = new ConcurrentHashMap<>();
+
     public IndexFacts() {}
 
     @SuppressWarnings({"deprecation"})
@@ -198,13 +206,6 @@ public class IndexFacts {
         return sd.indices().values();
     }
 
-    /** Calls resolveDocumentTypes(query.getModel().getSources(), query.getModel().getRestrict()) */
-    private Set<String> resolveDocumentTypes(Query query) {
-        // Assumption: Search definition name equals document name.
-        return resolveDocumentTypes(query.getModel().getSources(), query.getModel().getRestrict(),
-                                    searchDefinitions.keySet());
-    }
-
     /**
      * Given a search list which is a mixture of document types and cluster
      * names, and a restrict list which is a list of document types, return a
@@ -279,7 +280,11 @@ public class IndexFacts {
      */
     public void freeze() {
         hasNGramIndices = hasNGramIndices();
-        // TODO: Freeze content!
+        // TODO: Freeze the content of search definitions
+        searchDefinitions = ImmutableMap.copyOf(searchDefinitions);
+        clusters = ImmutableMap.copyOf(clusters);
+        if (clusterByDocument != null)
+            clusterByDocument = ImmutableMap.copyOf(clusterByDocument);
         frozen = true;
     }
 
@@ -372,11 +377,24 @@ public class IndexFacts {
     }
 
     public Session newSession(Query query) {
-        return new Session(query);
+        return newSession(query.getModel().getSources(), query.getModel().getRestrict());
     }
 
+    /**
+     * Returns a session for the given sources and restrict lists.
+     * Sessions of frozen instances are reused for equal lists.
+     */
     public Session newSession(Collection<String> sources, Collection<String> restrict) {
-        return new Session(sources, restrict);
+        if ( ! frozen) return new Session(sources, restrict);
+
+        SessionKey key = new SessionKey(sources, restrict);
+        Session session = sessions.get(key);
+        if (session != null) return session;
+
+        session = new Session(sources, restrict);
+        if (sessions.size() < maxCachedSessions)
+            sessions.put(key, session);
+        return session;
     }
 
     public Session newSession(Collection<String> sources, Collection<String> restrict,
@@ -393,17 +411,47 @@ public class IndexFacts {
 
         private final List<String> documentTypes;
 
-        private Session(Query query) {
-            documentTypes = ImmutableList.copyOf(resolveDocumentTypes(query));
-        }
+        /**
+         * The indexes of the resolved document types by name and alias, where earlier document types take precedence,
+         * or null if lookups are resolved on each access. Sessions which may be reused resolve these up front.
+         */
+        private final Map<String, Index> indexes;
+
+        /** As indexes but by lower cased name and alias */
+        private final Map<String, Index> indexesByLowerCase;
 
         private Session(Collection<String> sources, Collection<String> restrict) {
             // Assumption: Search definition name equals document name.
-            documentTypes = ImmutableList.copyOf(resolveDocumentTypes(sources, restrict, searchDefinitions.keySet()));
+            this(sources, restrict, searchDefinitions.keySet(), frozen);
         }
 
         private Session(Collection<String> sources, Collection<String> restrict, Set<String> candidateDocumentTypes) {
+            this(sources, restrict, candidateDocumentTypes, false);
+        }
+
+        private Session(Collection<String> sources, Collection<String> restrict, Set<String> candidateDocumentTypes,
+                        boolean resolveIndexes) {
             documentTypes = ImmutableList.copyOf(resolveDocumentTypes(sources, restrict, candidateDocumentTypes));
+            if (resolveIndexes && isInitialized()) {
+                indexes = new HashMap<>();
+                indexesByLowerCase = new HashMap<>();
+                if (documentTypes.isEmpty()) {
+                    indexes.putAll(unionSearchDefinition.indices());
+                    indexesByLowerCase.putAll(unionSearchDefinition.indicesByLowerCase());
+                }
+                else {
+                    for (String documentType : documentTypes) {
+                        SearchDefinition searchDefinition = searchDefinitions.get(documentType);
+                        if (searchDefinition == null) continue;
+                        searchDefinition.indices().forEach(indexes::putIfAbsent);
+                        searchDefinition.indicesByLowerCase().forEach(indexesByLowerCase::putIfAbsent);
+                    }
+                }
+            }
+            else {
+                indexes = null;
+                indexesByLowerCase = null;
+            }
         }
 
         /**
@@ -415,7 +463,12 @@ public class IndexFacts {
          *         (never null) if none is found
          */
         public Index getIndex(String indexName) {
-            return IndexFacts.this.getIndexFromDocumentTypes(indexName, documentTypes);
+            if (indexes == null)
+                return IndexFacts.this.getIndexFromDocumentTypes(indexName, documentTypes);
+            if (indexName == null || indexName.isEmpty())
+                indexName = "default";
+            Index index = indexes.get(indexName);
+            return index != null ? index : Index.nullIndex;
         }
 
         /** Returns an index given from a given search definition */
@@ -440,7 +493,10 @@ public class IndexFacts {
          * @param indexName index name or alias
          */
         public String getCanonicName(String indexName) {
-            return IndexFacts.this.getCanonicNameFromDocumentTypes(indexName, documentTypes);
+            if (indexesByLowerCase == null)
+                return IndexFacts.this.getCanonicNameFromDocumentTypes(indexName, documentTypes);
+            Index index = indexesByLowerCase.get(toLowerCase(indexName));
+            return index != null ? index.getName() : indexName;
         }
 
         /**
@@ -449,7 +505,9 @@ public class IndexFacts {
          * @param indexName index name candidate
          */
         public boolean isIndex(String indexName) {
-            return IndexFacts.this.isIndexFromDocumentTypes(indexName, documentTypes);
+            if (indexes == null)
+                return IndexFacts.this.isIndexFromDocumentTypes(indexName, documentTypes);
+            return indexes.containsKey(indexName);
         }
 
         /** Returns an immutable list of the document types this has resolved to */
@@ -462,4 +520,30 @@ public class IndexFacts {
 
     }
 
+    /** The source and restrict lists of a session, compared as sets */
+    private static final class SessionKey {
+
+        private final Set<String> sources;
+        private final Set<String> restrict;
+        private final int hashCode;
+
+        SessionKey(Collection<String> sources, Collection<String> restrict) {
+            this.sources = sources == null ? Collections.emptySet() : new HashSet<>(sources);
+            this.restrict = restrict == null ? Collections.emptySet() : new HashSet<>(restrict);
+            this.hashCode = 31 * this.sources.hashCode() + this.restrict.hashCode();
+        }
+
+        @Override
+        public int hashCode() { return hashCode; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) return true;
+            if ( ! (o instanceof SessionKey)) return false;
+            SessionKey other = (SessionKey)o;
+            return this.sources.equals(other.sources) && this.restrict.equals(other.restrict);
+        }
+
+    }
+
 }
@@ -82,6 +82,11 @@ public class SearchDefinition {
         return lowerCase.get(name);
     }
 
+    /** Returns the indices of this by lower cased name or alias */
+    Map<String, Index> indicesByLowerCase() {
+        return lowerCase;
+    }
+
     /** Returns the indices of this as a map */
     public Map<String, Index> indices() {
         return indices;
@@ -23,7 +23,6 @@ public class CacheControl {
     /** Whether this CacheControl actually should cache hits at all. */
     private final boolean activeCache;
 
-    /** Direct unsychronized cache access */
     private final PacketCache packetCache;
 
     public CacheControl(int sizeMegaBytes, double cacheTimeOutSeconds) {
@@ -40,6 +39,21 @@ public class CacheControl {
         return packetCache.getCapacity();
     }
 
+    /** Returns the number of lookups which found a valid entry in the packet cache */
+    public long hits() {
+        return activeCache ? packetCache.hits() : 0;
+    }
+
+    /** Returns the number of lookups which did not find a valid entry in the packet cache */
+    public long misses() {
+        return activeCache ? packetCache.misses() : 0;
+    }
+
+    /** Returns the number of entries evicted from the packet cache to make room for others */
+    public long evictions() {
+        return activeCache ? packetCache.evictions() : 0;
+    }
+
     public final boolean useCache(Query query) {
         return (activeCache && !query.getNoCache());
     }
@@ -47,9 +61,7 @@ public class CacheControl {
     public final PacketWrapper lookup(CacheKey key, Query query) {
         if ((key != null) && useCache(query)) {
             long now = System.currentTimeMillis();
-            synchronized (packetCache) {
-                return packetCache.get(key, now);
-            }
+            return packetCache.get(key, now);
         }
         return null;
     }
@@ -67,9 +79,7 @@ public class CacheControl {
         oldTimestamp = wrapper.getTimestamp();
         wrapper = (PacketWrapper) wrapper.clone();
         wrapper.addResultPacket(resultPacket);
-        synchronized (packetCache) {
-            packetCache.put(key, wrapper, oldTimestamp);
-        }
+        packetCache.put(key, wrapper, oldTimestamp);
     }
 
     // updates phases after first phase phase in multi phase search
@@ -81,9 +91,7 @@ public class CacheControl {
 
         wrapper = (PacketWrapper) wrapper.clone();
         wrapper.addDocsums(packetKeys, packets);
-        synchronized (packetCache) {
-            packetCache.put(key, wrapper, wrapper.getTimestamp());
-        }
+        packetCache.put(key, wrapper, wrapper.getTimestamp());
     }
 
     void cache(CacheKey key, Query query, DocsumPacketKey[] packetKeys, Packet[] packets, Optional<Integer> distributionKey) {
@@ -96,16 +104,12 @@ public class CacheControl {
         if (wrapper == null) {
             wrapper = new PacketWrapper(key, packetKeys, packets, distributionKey);
             long now = System.currentTimeMillis();
-            synchronized (packetCache) {
-                packetCache.put(key, wrapper, now);
-            }
+            packetCache.put(key, wrapper, now);
         } else {
             wrapper = (PacketWrapper) wrapper.clone();
             wrapper.addResultPacket((QueryResultPacket) packets[0]);
             wrapper.addDocsums(packetKeys, packets, 1);
-            synchronized (packetCache) {
-                packetCache.put(key, wrapper, wrapper.getTimestamp());
-            }
+            packetCache.put(key, wrapper, wrapper.getTimestamp());
         }
     }
 
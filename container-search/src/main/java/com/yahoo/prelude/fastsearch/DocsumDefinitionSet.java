@@ -9,6 +9,7 @@ import com.yahoo.data.access.slime.SlimeAdapter;
 import com.yahoo.prelude.ConfigurationException;
 import com.yahoo.container.search.LegacyEmulationConfig;
 
+import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.ArrayList;
@@ -72,6 +73,7 @@ public final class DocsumDefinitionSet {
 
     /**
      * Makes data available for decoding for the given hit.
+     * The data is decoded when the hit is accessed, so it must not be modified after this is called.
      *
      * @param summaryClass the requested summary class
      * @param data docsum data from backend
@@ -80,13 +82,32 @@ public final class DocsumDefinitionSet {
      * @throws ConfigurationException if the summary class of this hit is missing
      */
     public final String lazyDecode(String summaryClass, byte[] data, FastHit hit) {
-        ByteBuffer buffer = ByteBuffer.wrap(data);
+        return lazyDecode(summaryClass, ByteBuffer.wrap(data), hit);
+    }
+
+    /**
+     * Makes data available for decoding for the given hit.
+     * The data is decoded when the hit is accessed, so it must not be modified after this is called.
+     *
+     * @param summaryClass the requested summary class
+     * @param data docsum data from backend, from the position to the limit of this buffer, which must have an array
+     * @param hit the Hit corresponding to this document summary
+     * @return Error message or null on success.
+     * @throws ConfigurationException if the summary class of this hit is missing
+     */
+    public final String lazyDecode(String summaryClass, ByteBuffer data, FastHit hit) {
+        ByteBuffer buffer = data.duplicate();
         buffer.order(ByteOrder.LITTLE_ENDIAN);
         long docsumClassId = buffer.getInt();
         if (docsumClassId != SLIME_MAGIC_ID) {
             throw new IllegalArgumentException("Only expecting SchemaLess docsums - summary class:" + summaryClass + " hit:" + hit);
         }
         DocsumDefinition docsumDefinition = getDocsum(summaryClass);
+        if (isObject(buffer.duplicate())) { // decode when accessed
+            hit.addSummary(docsumDefinition,
+                           new LazySlimeInspector(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining()));
+            return null;
+        }
         Slime value = BinaryFormat.decode(buffer.array(), buffer.arrayOffset()+buffer.position(), buffer.remaining());
         Inspector docsum = new SlimeAdapter(value.get());
         if (docsum.type() != OBJECT) {
@@ -96,6 +117,37 @@ public final class DocsumDefinitionSet {
         return null;
     }
 
+    /**
+     * Returns whether the root value of the binary slime in the given buffer is an object, by skipping
+     * the symbol table and reading the type of the root value. Returns false if the data is not well formed.
+     */
+    static boolean isObject(ByteBuffer slime) {
+        try {
+            long symbolCount = readCompressedLong(slime);
+            for (long i = 0; i < symbolCount; i++) {
+                long symbolLength = readCompressedLong(slime);
+                if (symbolLength > slime.remaining()) return false;
+                slime.position(slime.position() + (int)symbolLength);
+            }
+            return (slime.get() & 0x7) == com.yahoo.slime.Type.OBJECT.ID;
+        }
+        catch (BufferUnderflowException e) {
+            return false;
+        }
+    }
+
+    private static long readCompressedLong(ByteBuffer buffer) {
+        long next = buffer.get();
+        long value = (next & 0x7f);
+        int shift = 7;
+        while ((next & 0x80) != 0) {
+            next = buffer.get();
+            value |= ((next & 0x7f) << shift);
+            shift += 7;
+        }
+        return value;
+    }
+
     public String toString() {
         StringBuilder sb = new StringBuilder();
         for (Map.Entry<String, DocsumDefinition> e : definitionsByName.entrySet() ) {
@@ -28,6 +28,7 @@ import com.yahoo.search.dispatch.SearchCluster;
 import com.yahoo.search.grouping.GroupingRequest;
 import com.yahoo.search.grouping.request.GroupingOperation;
 import com.yahoo.search.query.Ranking;
+import com.yahoo.search.result.Coverage;
 import com.yahoo.search.result.ErrorMessage;
 import com.yahoo.search.result.Hit;
 import com.yahoo.search.result.HitGroup;
@@ -35,7 +36,9 @@ import com.yahoo.search.searchchain.Execution;
 import edu.umd.cs.findbugs.annotations.NonNull;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.logging.Level;
 
 import static com.yahoo.container.util.Util.quote;
@@ -175,10 +178,18 @@ public class FastSearcher extends VespaBackEndSearcher {
     public Result doSearch2(Query query, QueryPacket queryPacket, CacheKey cacheKey, Execution execution) {
         if (dispatcher.searchCluster().groupSize() == 1)
             forceSinglePassGrouping(query);
-        try(CloseableChannel channel = getChannel(query)) {
-            channel.setQuery(query);
-
-            Result result = searchTwoPhase(channel, query, queryPacket, cacheKey);
+        try {
+            Result result;
+            Optional<List<CloseableChannel>> groupChannels = getGroupChannels(query);
+            if (groupChannels.isPresent()) {
+                result = searchGroup(groupChannels.get(), query);
+            }
+            else {
+                try (CloseableChannel channel = getChannel(query)) {
+                    channel.setQuery(query);
+                    result = searchTwoPhase(channel, query, queryPacket, cacheKey);
+                }
+            }
 
             if (query.properties().getBoolean(Ranking.RANKFEATURES, false)) {
                 // There is currently no correct choice for which
@@ -242,6 +253,139 @@ public class FastSearcher extends VespaBackEndSearcher {
                 directDispatchRecipient.get().fs4port(), Optional.of(directDispatchRecipient.get().key())));
     }
 
+    /**
+     * Returns channels to all the search nodes of a group if this query should be sent to them directly
+     * and the results merged here, or empty if this query should be sent to a single node or dispatch node.
+     * Queries can only be merged here when their hits can be merged by relevance
+     * and filled over RPC from the node which produced them.
+     */
+    private Optional<List<CloseableChannel>> getGroupChannels(Query query) {
+        if ( ! query.properties().getBoolean(dispatchInternal, false)) return Optional.empty();
+        if (dispatcher.searchCluster().groupSize() <= 1) return Optional.empty();
+        if ( ! query.getSelect().getGrouping().isEmpty()) return Optional.empty();
+        if (query.getRanking().getSorting() != null) return Optional.empty();
+        if (query.properties().getBoolean(com.yahoo.search.query.Model.ESTIMATE)) return Optional.empty();
+        if ( ! fillsOverRpc(query)) return Optional.empty();
+        return dispatcher.getDispatchBackends(query);
+    }
+
+    /**
+     * Sends the query to all the given search nodes in parallel and merges the hits they return.
+     * Nodes which cannot be reached, do not respond in time or respond with an error are left out, and reflected
+     * in the coverage of the returned result. Errors are also added to the result.
+     */
+    private Result searchGroup(List<CloseableChannel> channels, Query query) throws IOException {
+        try {
+            List<QueryPacket> queryPackets = sendToGroup(channels, query);
+
+            Result result = new Result(query);
+            int missingNodes = 0;
+            int failedNodes = 0;
+            long activeDocumentsInRespondingNodes = 0;
+            for (int i = 0; i < channels.size(); i++) {
+                QueryResultPacket resultPacket;
+                try {
+                    resultPacket = receiveFromNode(channels.get(i), queryPackets.get(i), query);
+                }
+                catch (TimeoutException e) {
+                    resultPacket = null;
+                }
+                catch (IOException e) {
+                    result.hits().addError(ErrorMessage.createBackendCommunicationError(
+                            "Error response from node " + channels.get(i).distributionKey() + ": " + e.getMessage()));
+                    failedNodes++;
+                    resultPacket = null;
+                }
+                if (resultPacket == null) {
+                    missingNodes++;
+                    continue;
+                }
+
+                Result nodeResult = new Result(query);
+                addMetaInfo(query, queryPackets.get(i).getQueryPacketData(), resultPacket, nodeResult, false);
+                addUnfilledHits(nodeResult, resultPacket.getDocuments(), false,
+                                queryPackets.get(i).getQueryPacketData(), null, channels.get(i).distributionKey());
+                result.mergeWith(nodeResult);
+                result.hits().addAll(nodeResult.hits().asList());
+                activeDocumentsInRespondingNodes += resultPacket.getActiveDocs();
+            }
+
+            if (missingNodes == channels.size()) {
+                if (failedNodes == 0)
+                    return new Result(query, ErrorMessage.createTimeout("No search nodes in " + getName() + " responded in time"));
+                return result;
+            }
+            if (missingNodes > 0) {
+                // Assume missing nodes have the same number of documents as those which responded
+                long activeDocumentsPerNode = activeDocumentsInRespondingNodes / (channels.size() - missingNodes);
+                result.getCoverage(true).merge(new Coverage(0, activeDocumentsPerNode * missingNodes, 0)
+                                                       .setNodesTried(missingNodes)
+                                                       .setDegradedReason(missingNodes > failedNodes ? Coverage.DEGRADED_BY_TIMEOUT : 0));
+            }
+
+            if (query.getPresentation().getSummary() == null)
+                query.getPresentation().setSummary(getDefaultDocsumClass());
+            result.hits().sort();
+            result.hits().trim(query.getOffset(), query.getHits());
+            return result;
+        }
+        finally {
+            for (CloseableChannel channel : channels)
+                channel.close();
+        }
+    }
+
+    /**
+     * Sends the query to each of the given channels. As each node returns its own best hits, they are asked for
+     * all hits up to the end of the requested window.
+     *
+     * @return the packet sent to each channel, with null for the channels the query could not be sent to
+     */
+    private List<QueryPacket> sendToGroup(List<CloseableChannel> channels, Query query) {
+        List<QueryPacket> queryPackets = new ArrayList<>(channels.size());
+        int offset = query.getOffset();
+        int hits = query.getHits();
+        query.setWindow(0, offset + hits);
+        try {
+            for (CloseableChannel channel : channels) {
+                channel.setQuery(query);
+                QueryPacket queryPacket = QueryPacket.create(query);
+                int compressionLimit = query.properties().getInteger(PACKET_COMPRESSION_LIMIT, 0);
+                queryPacket.setCompressionLimit(compressionLimit);
+                if (compressionLimit != 0)
+                    queryPacket.setCompressionType(query.properties().getString(PACKET_COMPRESSION_TYPE, "lz4"));
+                try {
+                    queryPackets.add(channel.sendPacket(queryPacket) ? queryPacket : null);
+                } catch (InvalidChannelException | IllegalStateException | IOException e) {
+                    if (isLoggingFine())
+                        getLogger().fine("Could not send query to " + channel.distributionKey() + ": " + e.getMessage());
+                    queryPackets.add(null);
+                }
+            }
+        }
+        finally {
+            query.setWindow(offset, hits);
+        }
+        return queryPackets;
+    }
+
+    /**
+     * Returns the result packet received on the given channel, or null if the node did not respond in time
+     *
+     * @throws IOException if the node responded with an error
+     */
+    private QueryResultPacket receiveFromNode(CloseableChannel channel, QueryPacket sentPacket, Query query) throws IOException {
+        if (sentPacket == null) return null;
+        try {
+            BasicPacket[] basicPackets = channel.receivePackets(Math.max(0, query.getTimeLeft()), 1);
+            if (basicPackets.length == 0) return null;
+            ensureInstanceOf(QueryResultPacket.class, basicPackets[0], getName());
+            return (QueryResultPacket) basicPackets[0];
+        } catch (ChannelTimeoutException | InvalidChannelException e) {
+            return null;
+        }
+    }
+
     /**
      * Perform a partial docsum fill for a temporary result
      * representing a partition of the complete fill request.
@@ -255,12 +399,7 @@ public class FastSearcher extends VespaBackEndSearcher {
         Query query = result.getQuery();
         traceQuery(getName(), "fill", query, query.getOffset(), query.getHits(), 1, quotedSummaryClass(summaryClass));
 
-        if (query.properties().getBoolean(dispatchSummaries, true)
-            && ! summaryNeedsQuery(query)
-            && query.getRanking().getLocation() == null
-            && ! cacheControl.useCache(query)
-            && ! legacyEmulationConfigIsSet(getDocumentDatabase(query))) {
-
+        if (fillsOverRpc(query)) {
             CompressionType compression =
                 CompressionType.valueOf(query.properties().getString(dispatchCompression, "LZ4").toUpperCase());
             dispatcher.fill(result, summaryClass, getDocumentDatabase(query), compression);
@@ -350,6 +489,15 @@ public class FastSearcher extends VespaBackEndSearcher {
         }
     }
 
+    /** Returns whether summaries for this query are filled by the dispatcher over RPC */
+    private boolean fillsOverRpc(Query query) {
+        return query.properties().getBoolean(dispatchSummaries, true)
+               && ! summaryNeedsQuery(query)
+               && query.getRanking().getLocation() == null
+               && ! cacheControl.useCache(query)
+               && ! legacyEmulationConfigIsSet(getDocumentDatabase(query));
+    }
+
     private boolean legacyEmulationConfigIsSet(DocumentDatabase db) {
         LegacyEmulationConfig config = db.getDocsumDefinitionSet().legacyEmulationConfig();
         if (config.forceFillEmptyFields()) return true;
@@ -0,0 +1,122 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.prelude.fastsearch;
+
+import com.yahoo.data.access.ArrayTraverser;
+import com.yahoo.data.access.Inspector;
+import com.yahoo.data.access.ObjectTraverser;
+import com.yahoo.data.access.Type;
+import com.yahoo.data.access.slime.SlimeAdapter;
+import com.yahoo.slime.BinaryFormat;
+
+import java.util.Map;
+
+/**
+ * An inspector of binary slime data which is not decoded until the content is inspected.
+ * This allows hits to be filled with docsums which are never accessed without paying the cost of decoding them.
+ * <p>
+ * This is multithread safe.
+ */
+class LazySlimeInspector implements Inspector {
+
+    /** The data to decode, or null when decoded */
+    private byte[] data;
+    private final int offset;
+    private final int length;
+
+    private volatile Inspector decoded = null;
+
+    /** Creates a lazy inspector of a binary slime in the given range. The data array must not be modified. */
+    LazySlimeInspector(byte[] data, int offset, int length) {
+        this.data = data;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /** Returns whether the content of this is decoded */
+    boolean isDecoded() { return decoded != null; }
+
+    private Inspector decoded() {
+        Inspector inspector = decoded;
+        if (inspector != null) return inspector;
+        synchronized (this) {
+            if (decoded == null) {
+                decoded = new SlimeAdapter(BinaryFormat.decode(data, offset, length).get());
+                data = null; // no longer needed
+            }
+            return decoded;
+        }
+    }
+
+    @Override
+    public Inspector inspect() { return this; }
+
+    @Override
+    public boolean valid() { return decoded().valid(); }
+
+    @Override
+    public Type type() { return decoded().type(); }
+
+    @Override
+    public int entryCount() { return decoded().entryCount(); }
+
+    @Override
+    public int fieldCount() { return decoded().fieldCount(); }
+
+    @Override
+    public boolean asBool() { return decoded().asBool(); }
+
+    @Override
+    public long asLong() { return decoded().asLong(); }
+
+    @Override
+    public double asDouble() { return decoded().asDouble(); }
+
+    @Override
+    public String asString() { return decoded().asString(); }
+
+    @Override
+    public byte[] asUtf8() { return decoded().asUtf8(); }
+
+    @Override
+    public byte[] asData() { return decoded().asData(); }
+
+    @Override
+    public boolean asBool(boolean defaultValue) { return decoded().asBool(defaultValue); }
+
+    @Override
+    public long asLong(long defaultValue) { return decoded().asLong(defaultValue); }
+
+    @Override
+    public double asDouble(double defaultValue) { return decoded().asDouble(defaultValue); }
+
+    @Override
+    public String asString(String defaultValue) { return decoded().asString(defaultValue); }
+
+    @Override
+    public byte[] asUtf8(byte[] defaultValue) { return decoded().asUtf8(defaultValue); }
+
+    @Override
+    public byte[] asData(byte[] defaultValue) { return decoded().asData(defaultValue); }
+
+    @Override
+    public void traverse(ArrayTraverser at) { decoded().traverse(at); }
+
+    @Override
+    public void traverse(ObjectTraverser ot) { decoded().traverse(ot); }
+
+    @Override
+    public Inspector entry(int idx) { return decoded().entry(idx); }
+
+    @Override
+    public Inspector field(String name) { return decoded().field(name); }
+
+    @Override
+    public Iterable<Inspector> entries() { return decoded().entries(); }
+
+    @Override
+    public Iterable<Map.Entry<String, Inspector>> fields() { return decoded().fields(); }
+
+    @Override
+    public String toString() { return decoded().toString(); }
+
+}
@@ -4,6 +4,12 @@ package com.yahoo.prelude.fastsearch;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Logger;
 
 import com.yahoo.log.LogLevel;
@@ -12,33 +18,55 @@ import com.yahoo.log.LogLevel;
 /**
  * An LRU cache using number of hits cached inside the results as
  * size limiting factor. Directly modelled after com.yahoo.collections.Cache.
+ * <p>
+ * The cache is split into shards by key hash, each having an equal share of the capacity and its own lock,
+ * such that concurrent writes to different shards do not contend. Reads do not take any lock:
+ * Entries are looked up in a concurrent map, and the access is recorded in a buffer which is applied
+ * to the LRU order of the shard on the next write, or when the buffer grows large.
+ * Accesses may be dropped from the buffer when it is full and the shard is busy, which only makes
+ * the eviction order slightly less exact.
+ * <p>
+ * This class is multithread safe.
  *
  * @author Steinar Knutsen
  * @author bratseth
  */
 // TODO: Remove packet cache as it timed out a long time ago.
 // 1 - It does not work with grouping, 2 the packet protocol is eroding away.
-public class PacketCache extends LinkedHashMap<CacheKey, PacketWrapper> {
+public class PacketCache {
 
-    private static final long serialVersionUID = -7403077211906108356L;
+    /** The max number of shards to split a cache into */
+    private static final int maxShards = 16;
 
-    /** The <i>current</i> number of bytes of packets in this cache */
-    private int totalSize;
+    /** The min capacity of each shard, which limits the number of shards of small caches */
+    private static final int minShardCapacity = 1 << 20;
+
+    /** The number of recorded reads in a shard which will make a reader try to apply them */
+    private static final int readBufferDrainThreshold = 64;
+
+    /** The max number of recorded reads in a shard, above which reads are not recorded if the shard is busy */
+    private static final int readBufferMaxSize = 1024;
 
     /** The maximum number of bytes of packets in this cache */
     private final int capacity;
 
     /** The max size of a cached item compared to the total size */
-    private int maxCacheItemPercentage = 1;
+    private volatile int maxCacheItemPercentage = 1;
 
     /** The max age for a valid cache entry, 0 mean infinite */
     private final long maxAge;
 
+    private final Shard[] shards;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
     private static final Logger log = Logger.getLogger(PacketCache.class.getName());
 
     public void clear() {
-        super.clear();
-        totalSize = 0;
+        for (Shard shard : shards)
+            shard.clear();
     }
 
     /**
@@ -58,9 +86,6 @@ public class PacketCache extends LinkedHashMap<CacheKey, PacketWrapper> {
      * @param maxAge seconds a cache entry is valid, 0 or less are illegal arguments
      */
     public PacketCache(int capacityMegaBytes,int capacityBytes,double maxAge) {
-        // hardcoded inital entry capacity, won't matter much anyway
-        // after a while
-        super(12500, 1.0f, true);
         if (maxAge <= 0.0d) {
             throw new IllegalArgumentException("maxAge <= 0 not legal on 5.1, use some very large number for no timeout.");
         }
@@ -74,32 +99,16 @@ public class PacketCache extends LinkedHashMap<CacheKey, PacketWrapper> {
             throw new IllegalArgumentException("Total cache size set to 0 or less bytes. If no caching is desired, avoid creating this object instead.");
         }
         this.maxAge = (long) (maxAge * 1000.0d);
-    }
 
-    /**
-     * Overrides LinkedHashMap.removeEldestEntry as suggested to implement LRU cache.
-     */
-    protected boolean removeEldestEntry(Map.Entry<CacheKey, PacketWrapper> eldest)
-    {
-        if (totalSize > capacity) {
-            totalSize -= eldest.getValue().getPacketsSize();
-            return true;
-        }
-        return false;
+        int shardCount = Integer.highestOneBit(Math.max(1, Math.min(maxShards, capacity / minShardCapacity)));
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++)
+            shards[i] = new Shard(capacity / shardCount);
     }
 
-    private void removeOverflow() {
-        if (totalSize < capacity) return;
-
-        for (Iterator<PacketWrapper> i = values().iterator(); i.hasNext();) {
-            PacketWrapper eldestEntry = i.next();
-            totalSize -= eldestEntry.getPacketsSize();
-
-            i.remove();
-            if (totalSize < capacity) {
-                break;
-            }
-        }
+    private Shard shardOf(CacheKey key) {
+        int hash = key.hashCode();
+        return shards[(hash ^ (hash >>> 16)) & (shards.length - 1)];
     }
 
     public int getCapacity() {
@@ -110,6 +119,9 @@ public class PacketCache extends LinkedHashMap<CacheKey, PacketWrapper> {
         return capacity;
     }
 
+    /** Returns the number of shards this cache is split into */
+    public int shardCount() { return shards.length; }
+
     /**
      * Adds a PacketWrapper object to this cache,
      * unless the size is more than maxCacheItemPercentage of the total size
@@ -132,22 +144,13 @@ public class PacketCache extends LinkedHashMap<CacheKey, PacketWrapper> {
             result.setTimestamp(timestamp);
         }
 
+        Shard shard = shardOf(key);
         // don't insert if it is too big
-        if (size * 100 > capacity * maxCacheItemPercentage) {
+        if ((long)size * 100 > (long)capacity * maxCacheItemPercentage || size > shard.capacity) {
             // removeField the old one since that is now stale.
-            return remove(key);
-        }
-
-        totalSize += size;
-        PacketWrapper previous = super.put(key, result);
-        if (previous != null) {
-            totalSize -= previous.getPacketsSize();
-        }
-        if (totalSize > (capacity * 1.1)) {
-            removeOverflow();
+            return shard.remove(key);
         }
-
-        return previous;
+        return shard.put(key, result);
     }
 
     public PacketWrapper get(CacheKey key) {
@@ -155,33 +158,178 @@ public class PacketCache extends LinkedHashMap<CacheKey, PacketWrapper> {
     }
 
     public PacketWrapper get(CacheKey key, long now) {
-        PacketWrapper result = super.get(key);
+        Shard shard = shardOf(key);
+        PacketWrapper result = shard.get(key);
 
         if (result == null) {
-            return result;
+            misses.increment();
+            return null;
         }
 
         long timestamp = result.getTimestamp();
 
         if ((now - timestamp) > maxAge) {
-            remove(key);
+            shard.remove(key, result);
+            misses.increment();
             return null;
         } else {
+            hits.increment();
             return result;
         }
     }
 
     public PacketWrapper remove(CacheKey key) {
-        PacketWrapper removed = super.remove(key);
+        return shardOf(key).remove(key);
+    }
 
-        if (removed != null) {
-            totalSize -= removed.getPacketsSize();
-        }
-        return removed;
+    /** Returns the number of entries in this cache */
+    public int size() {
+        int size = 0;
+        for (Shard shard : shards)
+            size += shard.entries.size();
+        return size;
     }
 
     public int totalPacketSize() {
+        int totalSize = 0;
+        for (Shard shard : shards)
+            totalSize += shard.totalSize;
         return totalSize;
     }
 
+    /** Returns the number of lookups which found a valid entry in this cache */
+    public long hits() { return hits.sum(); }
+
+    /** Returns the number of lookups which did not find a valid entry in this cache */
+    public long misses() { return misses.sum(); }
+
+    /** Returns the number of entries removed from this cache to make room for others */
+    public long evictions() { return evictions.sum(); }
+
+    /** A part of the cache, having its own capacity, lock and LRU order */
+    private final class Shard {
+
+        private final int capacity;
+
+        /** The entries of this, for lock free reads */
+        private final Map<CacheKey, PacketWrapper> entries = new ConcurrentHashMap<>();
+
+        /** The same entries as above, in access order. All access to this must hold the lock. */
+        private final LinkedHashMap<CacheKey, PacketWrapper> lruOrder = new LinkedHashMap<>(16, 0.75f, true);
+
+        /** Keys read since the last time reads were applied to the lru order */
+        private final Queue<CacheKey> readBuffer = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger readBufferSize = new AtomicInteger(0);
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        /** The <i>current</i> number of bytes of packets in this shard. Only written while holding the lock. */
+        private volatile int totalSize = 0;
+
+        Shard(int capacity) {
+            this.capacity = capacity;
+        }
+
+        PacketWrapper get(CacheKey key) {
+            PacketWrapper result = entries.get(key);
+            if (result != null)
+                recordRead(key);
+            return result;
+        }
+
+        private void recordRead(CacheKey key) {
+            int bufferSize = readBufferSize.get();
+            if (bufferSize >= readBufferDrainThreshold && lock.tryLock()) {
+                try {
+                    drainReadBuffer();
+                }
+                finally {
+                    lock.unlock();
+                }
+            }
+            if (bufferSize >= readBufferMaxSize) return; // Busy: Drop this read
+
+            readBuffer.add(key);
+            readBufferSize.incrementAndGet();
+        }
+
+        /** Applies recorded reads to the lru order. Must be called while holding the lock. */
+        private void drainReadBuffer() {
+            CacheKey key;
+            while (null != (key = readBuffer.poll())) {
+                readBufferSize.decrementAndGet();
+                lruOrder.get(key); // moves it last if present
+            }
+        }
+
+        PacketWrapper put(CacheKey key, PacketWrapper value) {
+            lock.lock();
+            try {
+                drainReadBuffer();
+                int newTotalSize = totalSize + value.getPacketsSize();
+                PacketWrapper previous = lruOrder.put(key, value);
+                entries.put(key, value);
+                if (previous != null)
+                    newTotalSize -= previous.getPacketsSize();
+
+                for (Iterator<Map.Entry<CacheKey, PacketWrapper>> i = lruOrder.entrySet().iterator();
+                     newTotalSize > capacity && i.hasNext(); ) {
+                    Map.Entry<CacheKey, PacketWrapper> eldest = i.next();
+                    if (eldest.getKey().equals(key)) continue;
+                    newTotalSize -= eldest.getValue().getPacketsSize();
+                    entries.remove(eldest.getKey());
+                    i.remove();
+                    evictions.increment();
+                }
+                totalSize = newTotalSize;
+                return previous;
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+
+        PacketWrapper remove(CacheKey key) {
+            lock.lock();
+            try {
+                PacketWrapper removed = lruOrder.remove(key);
+                if (removed != null) {
+                    entries.remove(key);
+                    totalSize = totalSize - removed.getPacketsSize();
+                }
+                return removed;
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+
+        /** Removes the given key only if it still maps to the given value */
+        void remove(CacheKey key, PacketWrapper value) {
+            lock.lock();
+            try {
+                if (lruOrder.get(key) != value) return;
+                remove(key);
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+
+        void clear() {
+            lock.lock();
+            try {
+                readBuffer.clear();
+                readBufferSize.set(0);
+                lruOrder.clear();
+                entries.clear();
+                totalSize = 0;
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+
+    }
+
 }
@@ -234,7 +234,7 @@ public class PacketWrapper implements Cloneable {
                 DocsumPacket dp = (DocsumPacket) packets[i];
 
                 if (packetKeys[i].getGlobalId().equals(dp.getGlobalId())
-                    && dp.getData().length > 0)
+                    && dp.getDataLength() > 0)
                 {
                     this.packets.put(packetKeys[i], packets[i]);
                     log.fine("addDocsums " + i + " globalId: " + dp.getGlobalId());
@@ -42,11 +42,17 @@ import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
 
 /**
  * Superclass for backend searchers.
+ * <p>
+ * Identical queries which may be cached are coalesced: When a query arrives while an identical one is being searched,
+ * it waits for that search to complete and uses the result it cached instead of also searching the backend.
  *
  * @author  baldersheim
  */
@@ -75,6 +81,12 @@ public abstract class VespaBackEndSearcher extends PingableSearcher {
     /** Cache wrapper */
     protected CacheControl cacheControl = null;
 
+    /**
+     * The cacheable queries which are currently being searched by this, each with a latch which is released
+     * when that search completes
+     */
+    private final ConcurrentHashMap<CacheKey, CountDownLatch> queriesInFlight = new ConcurrentHashMap<>();
+
     protected final String getName()          { return name; }
     protected final String getDefaultDocsumClass() { return defaultDocsumClass; }
 
@@ -228,8 +240,26 @@ public abstract class VespaBackEndSearcher extends PingableSearcher {
             result = getCached(cacheKey, queryPacket.getQueryPacketData(), query);
         }
 
+        CountDownLatch inFlight = null;
+        if (result == null && cacheKey != null) {
+            inFlight = new CountDownLatch(1);
+            CountDownLatch identicalInFlight = queriesInFlight.putIfAbsent(cacheKey, inFlight);
+            if (identicalInFlight != null) {
+                inFlight = null;
+                result = awaitIdenticalQuery(identicalInFlight, cacheKey, queryPacket.getQueryPacketData(), query);
+            }
+        }
+
         if (result == null) {
-            result = doSearch2(query, queryPacket, cacheKey, execution);
+            try {
+                result = doSearch2(query, queryPacket, cacheKey, execution);
+            }
+            finally {
+                if (inFlight != null) {
+                    queriesInFlight.remove(cacheKey, inFlight);
+                    inFlight.countDown();
+                }
+            }
             if (isLoggingFine())
                 getLogger().fine("Result NOT retrieved from cache");
 
@@ -240,6 +270,26 @@ public abstract class VespaBackEndSearcher extends PingableSearcher {
         return result;
     }
 
+    /**
+     * Waits for an identical query which is already being searched to complete, and returns the result it cached.
+     *
+     * @return the cached result, a timeout error result if the query timed out while waiting,
+     *         or null if the identical query did not cache a result which can be used for this query
+     */
+    private Result awaitIdenticalQuery(CountDownLatch identicalInFlight, CacheKey cacheKey,
+                                       QueryPacketData queryPacketData, Query query) {
+        if (query.getTraceLevel() >= 2)
+            query.trace(getName() + " waiting for an identical query to complete", false, 2);
+        try {
+            if ( ! identicalInFlight.await(query.getTimeLeft(), TimeUnit.MILLISECONDS))
+                return new Result(query, ErrorMessage.createTimeout("Timeout while waiting for " + getName()));
+        }
+        catch (InterruptedException e) {
+            return new Result(query, ErrorMessage.createTimeout("Interrupted while waiting for " + getName()));
+        }
+        return getCached(cacheKey, queryPacketData, query);
+    }
+
     /**
      * Returns a cached result, or null if no result was cached for this key
      *
@@ -442,9 +492,8 @@ public abstract class VespaBackEndSearcher extends PingableSearcher {
     }
     private FillHitResult fillHit(FastHit hit, DocsumPacket packet, String summaryClass) {
         if (packet != null) {
-            byte[] docsumdata = packet.getData();
-            if (docsumdata.length > 0) {
-                return new FillHitResult(true, decodeSummary(summaryClass, hit, docsumdata));
+            if (packet.getDataLength() > 0) {
+                return new FillHitResult(true, decodeSummary(summaryClass, hit, packet.getDataBuffer()));
             }
         }
         return new FillHitResult(false);
@@ -529,10 +578,8 @@ public abstract class VespaBackEndSearcher extends PingableSearcher {
             DocsumPacket docsum = (DocsumPacket) packetWrapper.getPacket(document.getGlobalId(), document.getPartId(), summaryClass);
 
             if (docsum != null) {
-                byte[] docsumdata = docsum.getData();
-
-                if (docsumdata.length > 0) {
-                    String error = decodeSummary(summaryClass, hit, docsumdata);
+                if (docsum.getDataLength() > 0) {
+                    String error = decodeSummary(summaryClass, hit, docsum.getDataBuffer());
                     if (error != null) {
                         filledAllOfEm = false;
                     }
@@ -595,13 +642,13 @@ public abstract class VespaBackEndSearcher extends PingableSearcher {
         return db.getDocsumDefinitionSet();
     }
 
-    private String decodeSummary(String summaryClass, FastHit hit, byte[] docsumdata) {
+    private String decodeSummary(String summaryClass, FastHit hit, ByteBuffer docsumdata) {
         DocumentDatabase db = getDocumentDatabase(hit.getQuery());
         hit.setField(Hit.SDDOCNAME_FIELD, db.getName());
         return decodeSummary(summaryClass, hit, docsumdata, db.getDocsumDefinitionSet());
     }
 
-    private String decodeSummary(String summaryClass, FastHit hit, byte[] docsumdata, DocsumDefinitionSet docsumSet) {
+    private String decodeSummary(String summaryClass, FastHit hit, ByteBuffer docsumdata, DocsumDefinitionSet docsumSet) {
         String error = docsumSet.lazyDecode(summaryClass, docsumdata, hit);
         if (error == null) {
             hit.setFilled(summaryClass);
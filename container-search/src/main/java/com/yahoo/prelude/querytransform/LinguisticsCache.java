@@ -0,0 +1,56 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.prelude.querytransform;
+
+import com.yahoo.jdisc.Metric;
+import com.yahoo.language.Linguistics;
+import com.yahoo.language.process.CachingLinguistics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The caching linguistics of a searcher, which reports the number of cache hits and misses
+ * since the last report as the metrics <code>&lt;name&gt;_hits</code> and <code>&lt;name&gt;_misses</code>.
+ */
+class LinguisticsCache {
+
+    private final CachingLinguistics linguistics;
+
+    private final Metric metric;
+    private final String hitsMetricName;
+    private final String missesMetricName;
+
+    private final AtomicLong reportedHits = new AtomicLong(0);
+    private final AtomicLong reportedMisses = new AtomicLong(0);
+
+    /**
+     * Creates a linguistics cache
+     *
+     * @param linguistics the linguistics to cache the operations of
+     * @param name the prefix of the metric names of this
+     * @param metric the receiver of the metrics of this, or null to not report metrics
+     */
+    LinguisticsCache(Linguistics linguistics, String name, Metric metric) {
+        this.linguistics = linguistics instanceof CachingLinguistics ? (CachingLinguistics)linguistics
+                                                                     : new CachingLinguistics(linguistics);
+        this.metric = metric;
+        this.hitsMetricName = name + "_hits";
+        this.missesMetricName = name + "_misses";
+    }
+
+    /** Returns the caching linguistics to use */
+    Linguistics linguistics() { return linguistics; }
+
+    /** Reports the hits and misses since the last report */
+    void reportMetrics() {
+        if (metric == null) return;
+        report(hitsMetricName, linguistics.hits(), reportedHits);
+        report(missesMetricName, linguistics.misses(), reportedMisses);
+    }
+
+    private void report(String name, long current, AtomicLong reported) {
+        long previous = reported.getAndAccumulate(current, Math::max);
+        if (current > previous)
+            metric.add(name, current - previous, null);
+    }
+
+}
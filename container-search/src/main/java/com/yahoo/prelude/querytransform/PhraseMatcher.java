@@ -2,6 +2,7 @@
 package com.yahoo.prelude.querytransform;
 
 import com.yahoo.fsa.FSA;
+import com.yahoo.fsa.FSARegistry;
 import com.yahoo.prelude.query.*;
 
 import java.util.ArrayList;
@@ -53,7 +54,7 @@ public class PhraseMatcher {
      */
     public PhraseMatcher(String phraseAutomatonFile,boolean ignorePluralForm) {
         this.ignorePluralForm=ignorePluralForm;
-        phraseFSA=new FSA(phraseAutomatonFile);
+        phraseFSA=FSARegistry.get(phraseAutomatonFile);
     }
 
     /**
@@ -151,8 +152,9 @@ public class PhraseMatcher {
         if (owner instanceof NotItem)
             checkItemCount=1; // Skip negatives
 
+        FSA.State state = phraseFSA.getState();
         while (i<checkItemCount) {
-            int largestFoundLength=findPhrasesAtStartpoint(i,owner,phrases);
+            int largestFoundLength=findPhrasesAtStartpoint(i,owner,state,phrases);
 
             if (largestFoundLength==0 || matchAll) {
                 recursivelyMatchPhrases(owner.getItem(i),phrases);
@@ -172,8 +174,7 @@ public class PhraseMatcher {
      *
      * @return the length of the largest phrase found at this starting point, or 0 if none
      */
-    private int findPhrasesAtStartpoint(int startIndex,CompositeItem owner,MatchedPhrases phrases) {
-        FSA.State state = phraseFSA.getState();
+    private int findPhrasesAtStartpoint(int startIndex,CompositeItem owner,FSA.State state,MatchedPhrases phrases) {
         int currentIndex=startIndex;
         Phrase phrase=null;
         List<String> replaceList=null;
@@ -5,6 +5,7 @@ import com.google.inject.Inject;
 import com.yahoo.component.ComponentId;
 import com.yahoo.component.chain.dependencies.After;
 import com.yahoo.component.chain.dependencies.Provides;
+import com.yahoo.jdisc.Metric;
 import com.yahoo.language.Language;
 import com.yahoo.language.Linguistics;
 import com.yahoo.language.process.StemMode;
@@ -39,16 +40,31 @@ public class StemmingSearcher extends Searcher {
 
     public static final String STEMMING = "Stemming";
     public static final CompoundName DISABLE = new CompoundName("nostemming");
+
+    /** The name prefix of the hit and miss metrics of the stem cache of this */
+    public static final String STEM_CACHE_METRIC = "stemming_cache";
+
+    private final LinguisticsCache cache;
     private final Linguistics linguistics;
 
     public StemmingSearcher(Linguistics linguistics) {
-        this.linguistics = linguistics;
+        this(linguistics, null);
+    }
+
+    public StemmingSearcher(Linguistics linguistics, Metric metric) {
+        this.cache = new LinguisticsCache(linguistics, STEM_CACHE_METRIC, metric);
+        this.linguistics = cache.linguistics();
     }
 
-    @Inject
     public StemmingSearcher(ComponentId id, Linguistics linguistics) {
+        this(id, linguistics, null);
+    }
+
+    @Inject
+    public StemmingSearcher(ComponentId id, Linguistics linguistics, Metric metric) {
         super(id);
-        this.linguistics = linguistics;
+        this.cache = new LinguisticsCache(linguistics, STEM_CACHE_METRIC, metric);
+        this.linguistics = cache.linguistics();
     }
 
     @Override
@@ -60,6 +76,7 @@ public class StemmingSearcher extends Searcher {
         query.getModel().getQueryTree().setRoot(newRoot);
 
         query.trace(getFunctionName(), true, 2);
+        cache.reportMetrics();
 
         Highlight highlight = query.getPresentation().getHighlight();
         if (highlight != null) {
@@ -115,7 +115,7 @@ public class BlendingSearcher extends Searcher {
     private Result sortAndTrimResults(Result result, Query q, int offset, int hits, Execution execution) {
         if (q.getRanking().getSorting() != null) {
             execution.fillAttributes(result); // Always correct as we can only sort on attributes
-            result.hits().sort();
+            result.hits().sort(); // Cheap, as the hits of each source are already ordered
         }
         result.hits().trim(offset, hits);
         return result;
@@ -10,16 +10,29 @@ import com.yahoo.search.Query;
 import com.yahoo.search.Result;
 import com.yahoo.search.Searcher;
 import com.yahoo.processing.request.CompoundName;
+import com.yahoo.search.result.ErrorMessage;
 import com.yahoo.search.result.Hit;
 import com.yahoo.search.searchchain.Execution;
 import com.yahoo.search.searchchain.PhaseNames;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 
 /**
  * A searcher which does parametrized collapsing.
+ * <p>
+ * If the collapse field is an attribute, setting <code>collapse.attributes=true</code> makes this fill
+ * only attributes to collapse, and fetch as many hits as recent queries needed per collapsed hit in the first
+ * query, such that more queries are rarely needed. Any further pages needed are then fetched in parallel.
  *
  * @author Steinar Knutsen
  */
@@ -32,6 +45,10 @@ public class FieldCollapsingSearcher extends Searcher {
     private static final CompoundName collapsefield=new CompoundName("collapsefield");
     private static final CompoundName collapsesize=new CompoundName("collapsesize");
     private static final CompoundName collapseSummaryName=new CompoundName("collapse.summary");
+    private static final CompoundName collapseAttributes=new CompoundName("collapse.attributes");
+
+    /** The max number of hits to fetch per hit to return, when learned from previous queries */
+    private static final double maxOverfetchFactor = 100.0;
 
     /** Maximum number of queries to send next searcher */
     private int maxQueries = 4;
@@ -49,6 +66,12 @@ public class FieldCollapsingSearcher extends Searcher {
      */
     private double extraFactor;
 
+    /**
+     * The number of hits which were fetched per hit remaining after collapsing, in recent queries
+     * collapsing on attributes. Updates may race, which just loses some of the observations.
+     */
+    private volatile double overfetchFactor;
+
     /** Create this searcher using default values for all settings */
     public FieldCollapsingSearcher() {
         this((String) null);
@@ -88,6 +111,7 @@ public class FieldCollapsingSearcher extends Searcher {
     private void init(int collapseSize, double extraFactor) {
         this.defaultCollapseSize = collapseSize;
         this.extraFactor = extraFactor;
+        this.overfetchFactor = extraFactor;
     }
 
     /**
@@ -104,6 +128,21 @@ public class FieldCollapsingSearcher extends Searcher {
         int collapseSize = query.properties().getInteger(collapsesize,defaultCollapseSize);
         query.properties().set(collapse, "0");
 
+        Result result;
+        if (query.properties().getBoolean(collapseAttributes, false) && query.getHits() != 0)
+            result = collapseOnAttribute(query, execution, collapseField, collapseSize);
+        else
+            result = collapseOnSummary(query, execution, collapseField, collapseSize);
+
+        // Keep only (offset,.. offset+hits) hits
+        result.hits().trim(query.getOffset(), query.getHits());
+        // Mark query as query with collapsing
+        query.properties().set(collapse, "1");
+        return result;
+    }
+
+    /** Collapses by fetching and filling summaries of increasingly larger pages of hits until there are enough */
+    private Result collapseOnSummary(Query query, Execution execution, String collapseField, int collapseSize) {
         int hitsToRequest = query.getHits() != 0 ? (int) Math.ceil((query.getOffset() + query.getHits() + 1) * extraFactor) : 0;
         int nextOffset = 0;
         int hitsAfterCollapse;
@@ -139,13 +178,105 @@ public class FieldCollapsingSearcher extends Searcher {
 
         // Set correct meta information
         result.mergeWith(resultSource);
-        // Keep only (offset,.. offset+hits) hits
-        result.hits().trim(query.getOffset(), query.getHits());
-        // Mark query as query with collapsing
-        query.properties().set(collapse, "1");
         return result;
     }
 
+    /**
+     * Collapses by fetching and filling attributes of as many hits as the overfetch factor indicates are needed.
+     * If those are too few, the number of hits still needed is estimated from the hits collapsed so far,
+     * and the pages containing those are fetched in parallel.
+     */
+    private Result collapseOnAttribute(Query query, Execution execution, String collapseField, int collapseSize) {
+        int wantedHits = query.getOffset() + query.getHits();
+        int pageSize = (int) Math.ceil((wantedHits + 1) * overfetchFactor);
+        Map<String, Integer> knownCollapses = new java.util.HashMap<>();
+        Result result = new Result(query);
+
+        List<Result> pages = Collections.singletonList(search(query.clone(), execution, 0, pageSize));
+        execution.fillAttributes(pages.get(0));
+        int fetchedHits = pageSize;
+        int performedQueries = 1;
+        while (true) {
+            for (Result page : pages)
+                collapse(result, knownCollapses, page, collapseField, collapseSize);
+            Result lastPage = pages.get(pages.size() - 1);
+
+            int hitsAfterCollapse = result.getHitCount();
+            long hitsAvailable = lastPage.getTotalHitCount() - fetchedHits;
+            if (hitsAfterCollapse >= wantedHits || hitsAvailable <= 0 || performedQueries > maxQueries) {
+                result.mergeWith(lastPage);
+                if (hitsAfterCollapse > 0)
+                    learnOverfetchFactor(Math.min(fetchedHits, lastPage.getTotalHitCount()) / (double) hitsAfterCollapse);
+                return result;
+            }
+
+            double fetchedPerCollapsed = fetchedHits / (double) Math.max(hitsAfterCollapse, 1);
+            long hitsNeeded = (long) Math.ceil((wantedHits - hitsAfterCollapse + 1) * fetchedPerCollapsed);
+            long pageCount = (Math.min(hitsNeeded, hitsAvailable) + pageSize - 1) / pageSize;
+            pageCount = Math.min(pageCount, maxQueries + 1 - performedQueries);
+            pages = searchAndFillAttributes(query, execution, fetchedHits, pageSize, (int) pageCount);
+            fetchedHits += pageCount * pageSize;
+            performedQueries += pageCount;
+        }
+    }
+
+    /**
+     * Fetches and fills the attributes of the given number of consecutive pages of hits in parallel.
+     * Pages are fetched in this thread if the executor of the execution is overloaded, as they are needed anyway.
+     */
+    private List<Result> searchAndFillAttributes(Query query, Execution execution, int offset, int pageSize, int pageCount) {
+        List<FutureTask<Result>> pages = new ArrayList<>(pageCount);
+        for (int i = 0; i < pageCount; i++) {
+            Query pageQuery = query.clone();
+            Execution pageExecution = new Execution(execution);
+            int pageOffset = offset + i * pageSize;
+            FutureTask<Result> page = new FutureTask<>(() -> {
+                Result result = search(pageQuery, pageExecution, pageOffset, pageSize);
+                pageExecution.fillAttributes(result);
+                return result;
+            });
+            pages.add(page);
+            try {
+                if (i < pageCount - 1)
+                    execution.context().getAsyncExecutor().execute(page);
+                else
+                    page.run();
+            }
+            catch (RejectedExecutionException e) {
+                page.run();
+            }
+        }
+
+        List<Result> results = new ArrayList<>(pageCount);
+        for (FutureTask<Result> page : pages)
+            results.add(getPage(page, query));
+        return results;
+    }
+
+    private Result getPage(FutureTask<Result> page, Query query) {
+        try {
+            return page.get(Math.max(query.getTimeLeft(), 0), TimeUnit.MILLISECONDS);
+        }
+        catch (TimeoutException e) {
+            page.cancel(true);
+            return new Result(query, ErrorMessage.createTimeout("Timed out fetching hits to collapse"));
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Result(query, ErrorMessage.createTimeout("Interrupted while fetching hits to collapse"));
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error) throw (Error) e.getCause();
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private void learnOverfetchFactor(double observedFactor) {
+        double factor = 0.9 * overfetchFactor + 0.1 * observedFactor;
+        overfetchFactor = Math.max(1.0, Math.min(maxOverfetchFactor, factor));
+    }
+
     private Result search(Query query, Execution execution, int offset , int hits) {
         query.setOffset(offset);
         query.setHits(hits);
@@ -64,6 +64,9 @@ public class RuleBase {
     /** Should we allow stemmed matches? */
     private boolean stemming=true;
 
+    /** Should we only evaluate the rules which may match a query, as looked up in the rule index? */
+    private boolean ruleIndexing=true;
+
     /** Creates an empty rule base. TODO: Disallow */
     public RuleBase() {
     }
@@ -108,6 +111,15 @@ public class RuleBase {
     /** Returns whether stemmed matches are allowed. True by default */
     public boolean getStemming() { return stemming; }
 
+    /**
+     * Set to false to evaluate every rule on every query instead of looking up the rules
+     * which may match it by the terms it contains. This does not change the outcome. True by default
+     */
+    public void setRuleIndexing(boolean ruleIndexing) { this.ruleIndexing=ruleIndexing; }
+
+    /** Returns whether only the rules which may match a query are evaluated. True by default */
+    public boolean getRuleIndexing() { return ruleIndexing; }
+
     /**
      * <p>Include another rule base into this. This <b>transfers ownership</b>
      * of the given rule base - it can not be subsequently used for any purpose
@@ -302,6 +314,7 @@ public class RuleBase {
     public void initialize() {
         inlineIncluded();
         makeReferences();
+        analyzer.indexRules();
     }
 
     /**
@@ -5,9 +5,11 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.net.URLEncoder;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.Iterator;
+import java.util.List;
 
 import com.yahoo.search.Query;
 import com.yahoo.prelude.semantics.RuleBase;
@@ -34,21 +36,33 @@ public class RuleBaseBenchmark {
         while((line=reader.readLine())!=null){
             queries.add(line);
         }
+        time(ruleBase, queries, iterations, false); // warm up
+        time(ruleBase, queries, iterations, true);
+        long sequential = time(ruleBase, queries, iterations, false);
+        long indexed = time(ruleBase, queries, iterations, true);
+        System.out.print("BENCHMARK: rulebase=" + ruleBaseFile +
+                "\n           fsa=" + fsaFile +
+                "\n           queries=" + queryFile +
+                "\n           iterations=" + iterations +
+                "\n           rules=" + ruleBase.rules().size() +
+                "\n           elapsed (all rules)=" + sequential + "ms" +
+                "\n           elapsed (indexed rules)=" + indexed + "ms\n");
+    }
+
+    /** Returns the milliseconds spent analyzing the given queries the given number of times */
+    private long time(RuleBase ruleBase, List<String> queries, int iterations, boolean ruleIndexing)
+            throws IOException {
+        ruleBase.setRuleIndexing(ruleIndexing);
         Date start = new Date();
         for (int i=0;i<iterations;i++){
             for (Iterator<String> iter = queries.iterator(); iter.hasNext(); ){
                 String queryString = iter.next();
-                Query query = new Query("?query="+queryString);
+                Query query = new Query("?query="+URLEncoder.encode(queryString, "utf-8"));
                 ruleBase.analyze(query,0);
             }
         }
         Date end = new Date();
-        long elapsed = end.getTime()-start.getTime();
-        System.out.print("BENCHMARK: rulebase=" + ruleBaseFile +
-                "\n           fsa=" + fsaFile +
-                "\n           queries=" + queryFile +
-                "\n           iterations=" + iterations +
-                "\n           elapsed=" + elapsed + "ms\n");
+        return end.getTime()-start.getTime();
     }
 
 
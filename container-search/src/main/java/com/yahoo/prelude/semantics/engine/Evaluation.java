@@ -110,6 +110,14 @@ public class Evaluation {
 
     public int getQuerySize() { return flattenedItems.size(); }
 
+    /** Returns the string values of the items which rules may match, as of the last reset */
+    Set<String> getTermStrings() {
+        Set<String> termStrings=new HashSet<>();
+        for (FlattenedItem item : flattenedItems)
+            termStrings.add(item.getItem().stringValue());
+        return termStrings;
+    }
+
     /** Advances to the next item as current item */
     public void next() {
         currentIndex++;
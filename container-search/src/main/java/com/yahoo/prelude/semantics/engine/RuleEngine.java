@@ -7,6 +7,8 @@ import com.yahoo.prelude.semantics.RuleBase;
 import com.yahoo.prelude.semantics.RuleBaseException;
 import com.yahoo.prelude.semantics.rule.ProductionRule;
 
+import java.util.BitSet;
+import java.util.List;
 import java.util.ListIterator;
 
 /**
@@ -19,10 +21,28 @@ public class RuleEngine {
 
     private RuleBase rules;
 
+    /** The index of the rules of the rule base, or null if not created yet */
+    private volatile RuleIndex index=null;
+
     public RuleEngine(RuleBase rules) {
         this.rules=rules;
     }
 
+    /**
+     * Indexes the rules of the rule base by the terms they require. This is done on the first
+     * evaluation after rules are added if not called, but must be called if rules are changed otherwise.
+     */
+    public synchronized void indexRules() {
+        index=new RuleIndex(rules.rules());
+    }
+
+    private RuleIndex index() {
+        RuleIndex index=this.index;
+        if (index!=null && index.rules().size()==rules.rules().size()) return index;
+        indexRules();
+        return this.index;
+    }
+
     /**
      * Evaluates a rule base over a query
      *
@@ -32,20 +52,16 @@ public class RuleEngine {
      *         If there is an error, this query is destroyed (unusable)
      */
     public String evaluate(Query query,int traceLevel) {
-        // TODO: This is O(query size*rule base size). We'll eventually need to create indices
-        //       on rules to look up rule candidates per term to make it O(query size) instead
-        //       Probably create indices on the first term like Prolog implementations use to
-
-        boolean matchedAnything=false;
         Evaluation evaluation=new Evaluation(query,traceLevel);
         evaluation.setStemming(rules.getStemming());
         evaluation.trace(2,"Evaluating query '" + evaluation.getQuery().getModel().getQueryTree().getRoot() + "':");
-        for (ListIterator<ProductionRule> i=rules.ruleIterator(); i.hasNext(); ) {
-            evaluation.reset();
-            ProductionRule rule=i.next();
-            boolean matched=matchRuleAtAllStartPoints(evaluation,rule);
-            matchedAnything|=matched;
-        }
+
+        // Rule tracing from level 2 reports every rule which did not match, so all rules are evaluated then
+        boolean matchedAnything;
+        if (rules.getRuleIndexing() && traceLevel<2)
+            matchedAnything=evaluateCandidateRules(evaluation);
+        else
+            matchedAnything=evaluateAllRules(evaluation);
 
         if (!matchedAnything) return null;
 
@@ -57,6 +73,44 @@ public class RuleEngine {
         return error;
     }
 
+    private boolean evaluateAllRules(Evaluation evaluation) {
+        boolean matchedAnything=false;
+        for (ListIterator<ProductionRule> i=rules.ruleIterator(); i.hasNext(); ) {
+            evaluation.reset();
+            ProductionRule rule=i.next();
+            boolean matched=matchRuleAtAllStartPoints(evaluation,rule);
+            matchedAnything|=matched;
+        }
+        return matchedAnything;
+    }
+
+    /**
+     * Evaluates the rules which may match the query in rule base order, with the same outcome as
+     * evaluating all rules. The candidates are looked up again when a rule has changed the query.
+     */
+    private boolean evaluateCandidateRules(Evaluation evaluation) {
+        RuleIndex index=index();
+        List<ProductionRule> indexedRules=index.rules();
+        BitSet candidates=index.candidates(evaluation.getTermStrings());
+
+        boolean matchedAnything=false;
+        int lastMatched=-2;
+        for (int i=candidates.nextSetBit(0); i>=0; i=candidates.nextSetBit(i+1)) {
+            // The skipped rules would have reset the evaluation, which we only need to do once more
+            // after the reset done below, since resets without query changes in between are idempotent
+            if (i!=lastMatched+1)
+                evaluation.reset();
+            boolean matched=matchRuleAtAllStartPoints(evaluation,indexedRules.get(i));
+            if (matched) {
+                matchedAnything=true;
+                lastMatched=i;
+                evaluation.reset(); // the reset of the next rule, done now to see the changed query
+                candidates=index.candidates(evaluation.getTermStrings());
+            }
+        }
+        return matchedAnything;
+    }
+
     /** Match a rule at any starting point in the query */
     private boolean matchRuleAtAllStartPoints(Evaluation evaluation, ProductionRule rule) {
         boolean matchedAtLeastOnce=false;
@@ -0,0 +1,65 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.prelude.semantics.engine;
+
+import com.yahoo.prelude.semantics.rule.ProductionRule;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An index of the rules of a rule base by the terms their conditions require a query to contain.
+ * This is used to look up the rules which may match a query instead of trying all of them.
+ * Rules which may match without any particular term are candidates for every query.
+ * <p>
+ * This is immutable, and reflects the rules at the time it was created.
+ */
+final class RuleIndex {
+
+    private final List<ProductionRule> rules;
+
+    /** The positions of the rules which are candidates for every query */
+    private final BitSet unindexedRules=new BitSet();
+
+    /** The positions of the rules which may match a query containing the key term, in increasing order */
+    private final Map<String, int[]> rulesByTerm=new HashMap<>();
+
+    RuleIndex(List<ProductionRule> rules) {
+        this.rules=Collections.unmodifiableList(new ArrayList<>(rules));
+
+        Map<String, List<Integer>> positions=new HashMap<>();
+        for (int i=0; i<this.rules.size(); i++) {
+            ProductionRule rule=this.rules.get(i);
+            Set<String> terms=rule.getCondition()==null ? null : rule.getCondition().getIndexTerms();
+            if (terms==null) {
+                unindexedRules.set(i);
+                continue;
+            }
+            for (String term : terms)
+                positions.computeIfAbsent(term, __ -> new ArrayList<>()).add(i);
+        }
+        for (Map.Entry<String, List<Integer>> entry : positions.entrySet())
+            rulesByTerm.put(entry.getKey(), entry.getValue().stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    /** Returns the rules indexed by this, in rule base order */
+    List<ProductionRule> rules() { return rules; }
+
+    /** Returns the positions in rules() of the rules which may match a query containing the given terms */
+    BitSet candidates(Collection<String> terms) {
+        BitSet candidates=(BitSet)unindexedRules.clone();
+        for (String term : terms) {
+            int[] positions=rulesByTerm.get(term);
+            if (positions==null) continue;
+            for (int position : positions)
+                candidates.set(position);
+        }
+        return candidates;
+    }
+
+}
@@ -1,7 +1,9 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.prelude.semantics.rule;
 
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Set;
 
 import com.yahoo.prelude.semantics.engine.RuleEvaluation;
 
@@ -26,6 +28,18 @@ public class ChoiceCondition extends CompositeCondition {
         return false;
     }
 
+    /** Returns the union of the index terms of the alternatives, or null if any alternative has none */
+    @Override
+    public Set<String> getIndexTerms() {
+        Set<String> union=new HashSet<>();
+        for (Iterator<Condition> i=conditionIterator(); i.hasNext(); ) {
+            Set<String> terms=i.next().getIndexTerms();
+            if (terms==null) return null;
+            union.addAll(terms);
+        }
+        return union.isEmpty() ? null : union;
+    }
+
     protected String toInnerString() {
          return toInnerString(", ");
      }
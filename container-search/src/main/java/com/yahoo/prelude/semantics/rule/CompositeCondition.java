@@ -3,6 +3,7 @@ package com.yahoo.prelude.semantics.rule;
 
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 
 import com.yahoo.prelude.semantics.RuleBase;
 import com.yahoo.prelude.semantics.engine.RuleEvaluation;
@@ -89,6 +90,21 @@ public abstract class CompositeCondition extends Condition {
         }
     }
 
+    /**
+     * Returns the smallest set of index terms of any subcondition, as all subconditions must match for this to match.
+     * Override in composites which match if only some of their subconditions do.
+     */
+    @Override
+    public Set<String> getIndexTerms() {
+        Set<String> smallest=null;
+        for (Iterator<Condition> i=conditionIterator(); i.hasNext(); ) {
+            Set<String> terms=i.next().getIndexTerms();
+            if (terms!=null && (smallest==null || terms.size()<smallest.size()))
+                smallest=terms;
+        }
+        return smallest;
+    }
+
     /** Whether this should be output with parentheses, default is parent!=null */
     protected boolean useParentheses() {
         return getParent()!=null;
@@ -6,6 +6,8 @@ import com.yahoo.prelude.semantics.RuleBase;
 import com.yahoo.prelude.semantics.engine.FlattenedItem;
 import com.yahoo.prelude.semantics.engine.RuleEvaluation;
 
+import java.util.Set;
+
 /**
  * Superclass of all kinds of conditions of production rules
  *
@@ -211,6 +213,13 @@ public abstract class Condition {
     /** Override if references needs to be set in this condition of its children */
     public void makeReferences(RuleBase rules) { }
 
+    /**
+     * Returns the terms of which a query must contain at least one for this condition to match it,
+     * or null if this may match queries without any particular term.
+     * Returns null by default, override in conditions which can only match specific terms.
+     */
+    public Set<String> getIndexTerms() { return null; }
+
     protected String getLabelString() {
         if (label==null) return "";
         return label + ":";
@@ -12,6 +12,7 @@ import com.yahoo.prelude.semantics.engine.RuleEvaluation;
 import com.yahoo.protect.Validator;
 
 import java.util.Map;
+import java.util.Set;
 
 /**
  * A reference to a named condition
@@ -35,6 +36,9 @@ public class ConditionReference extends Condition {
      */
     private boolean automataLookup=false;
 
+    /** True while the index terms of this are computed, to stop at recursive references */
+    private boolean resolvingIndexTerms=false;
+
     public ConditionReference(String conditionName) {
         this(null,conditionName);
     }
@@ -118,6 +122,19 @@ public class ConditionReference extends Condition {
         return getContextName()==null || getContextName().equals(conditionName);
     }
 
+    /** Returns the index terms of the referenced condition, or null if this is an automata lookup */
+    @Override
+    public Set<String> getIndexTerms() {
+        if (namedCondition==null || resolvingIndexTerms) return null;
+        try {
+            resolvingIndexTerms=true;
+            return namedCondition.getCondition().getIndexTerms();
+        }
+        finally {
+            resolvingIndexTerms=false;
+        }
+    }
+
     protected String toInnerString() {
         return "[" + conditionName + "]";
     }
@@ -5,6 +5,9 @@ import com.yahoo.prelude.query.TermItem;
 import com.yahoo.prelude.semantics.engine.NameSpace;
 import com.yahoo.prelude.semantics.engine.RuleEvaluation;
 
+import java.util.HashSet;
+import java.util.Set;
+
 /**
  * A term in a rule
  *
@@ -85,6 +88,19 @@ public class TermCondition extends Condition {
         return false;
     }
 
+    /** Returns this term and the variants it may match with stemming, unless this is a name space condition */
+    @Override
+    public Set<String> getIndexTerms() {
+        if (term==null || getNameSpace()!=null) return null;
+
+        Set<String> terms=new HashSet<>();
+        terms.add(term);
+        terms.add(termPlusS);
+        if (term.endsWith("s"))
+            terms.add(term.substring(0,term.length()-1));
+        return terms;
+    }
+
     public String toInnerString() {
         return getLabelString() + term;
     }
@@ -9,6 +9,8 @@ import com.yahoo.search.result.*;
 import com.yahoo.search.statistics.ElapsedTime;
 
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
 /**
  * The Result contains all the data produced by executing a Query: Some very limited global information, and
@@ -227,6 +229,12 @@ public final class Result extends com.yahoo.processing.Response implements Clone
         Result resultClone = (Result) super.clone();
 
         resultClone.hits = hits.clone();
+        if (headers != null) {
+            resultClone.headers = new ListMap<>();
+            for (Map.Entry<String, List<String>> header : headers.entrySet())
+                for (String value : header.getValue())
+                    resultClone.headers.put(header.getKey(), value);
+        }
 
         resultClone.getTemplating().setRenderer(null); // TODO: Kind of wrong
         resultClone.setElapsedTime(new ElapsedTime());
@@ -0,0 +1,153 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.cache;
+
+import com.yahoo.search.Result;
+import com.yahoo.search.result.Hit;
+import com.yahoo.search.result.HitGroup;
+
+import java.time.Clock;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A cache of results, bounded by an estimate of the number of bytes used by the cached results.
+ * Each entry has its own time to live, and the least recently used entries are evicted when the cache is full.
+ * <p>
+ * Results are stored and returned as-is: The caller owns cloning results before putting them in the cache,
+ * and before modifying results returned from it.
+ * <p>
+ * This class is multithread safe.
+ */
+public class ResultCache {
+
+    /** The max number of bytes of results in this */
+    private final long capacity;
+
+    /** The max size of a single entry, in percent of the capacity */
+    private final int maxEntryPercentage;
+
+    private final Clock clock;
+
+    /** The entries of this in access order. Access to this must synchronize on this. */
+    private final LinkedHashMap<ResultCacheKey, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /** The estimated number of bytes of the entries of this. Access to this must synchronize on this. */
+    private long byteSize = 0;
+
+    /**
+     * Creates a result cache
+     *
+     * @param capacity the max number of bytes of results in this
+     * @param maxEntryPercentage the max size of a single result, in percent of the capacity.
+     *        Larger results are not cached.
+     * @param clock the clock used to determine when entries expire
+     */
+    public ResultCache(long capacity, int maxEntryPercentage, Clock clock) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("The capacity of a result cache must be positive, not " + capacity);
+        this.capacity = capacity;
+        this.maxEntryPercentage = maxEntryPercentage;
+        this.clock = clock;
+    }
+
+    /** Returns the cached result of the given key, or null if there is no unexpired entry for it */
+    public synchronized Result get(ResultCacheKey key) {
+        Entry entry = entries.get(key);
+        if (entry == null) return null;
+        if (entry.expiresAt <= clock.millis()) {
+            remove(key);
+            return null;
+        }
+        return entry.result;
+    }
+
+    /**
+     * Adds a result to this cache, replacing any previous result for the same key.
+     *
+     * @param key the key of the result
+     * @param result the result to cache. This should not be modified after being added
+     * @param timeToLiveMillis the time this entry is valid, in milliseconds
+     * @return whether the result was added. Results which are too large are not added
+     */
+    public boolean put(ResultCacheKey key, Result result, long timeToLiveMillis) {
+        long size = key.byteSize() + byteSizeOf(result.hits());
+        if (size * 100 > capacity * maxEntryPercentage) return false;
+
+        long expiresAt = clock.millis() + timeToLiveMillis;
+        synchronized (this) {
+            Entry previous = entries.put(key, new Entry(result, size, expiresAt));
+            if (previous != null)
+                byteSize -= previous.byteSize;
+            byteSize += size;
+
+            for (Iterator<Map.Entry<ResultCacheKey, Entry>> i = entries.entrySet().iterator(); byteSize > capacity && i.hasNext(); ) {
+                Entry eldest = i.next().getValue();
+                byteSize -= eldest.byteSize;
+                i.remove();
+            }
+        }
+        return true;
+    }
+
+    /** Removes the entry of the given key, if any */
+    public synchronized void remove(ResultCacheKey key) {
+        Entry removed = entries.remove(key);
+        if (removed != null)
+            byteSize -= removed.byteSize;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        byteSize = 0;
+    }
+
+    /** Returns the number of results in this */
+    public synchronized int size() { return entries.size(); }
+
+    /** Returns the estimated number of bytes used by the results in this */
+    public synchronized long byteSize() { return byteSize; }
+
+    /** Returns the max number of bytes of results in this */
+    public long capacity() { return capacity; }
+
+    /** Returns an estimate of the number of bytes used by the given hits */
+    static long byteSizeOf(HitGroup hits) {
+        long size = 128;
+        for (Hit hit : hits.asList()) {
+            if (hit instanceof HitGroup)
+                size += byteSizeOf((HitGroup) hit);
+            else
+                size += byteSizeOf(hit);
+        }
+        return size;
+    }
+
+    private static long byteSizeOf(Hit hit) {
+        long size = 128;
+        for (Map.Entry<String, Object> field : hit.fields().entrySet()) {
+            size += 32 + 2 * field.getKey().length();
+            Object value = field.getValue();
+            if (value instanceof CharSequence)
+                size += 40 + 2 * ((CharSequence)value).length();
+            else
+                size += 32;
+        }
+        return size;
+    }
+
+    private static class Entry {
+
+        final Result result;
+        final long byteSize;
+        final long expiresAt;
+
+        Entry(Result result, long byteSize, long expiresAt) {
+            this.result = result;
+            this.byteSize = byteSize;
+            this.expiresAt = expiresAt;
+        }
+
+    }
+
+}
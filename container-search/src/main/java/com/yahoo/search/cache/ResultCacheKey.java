@@ -0,0 +1,125 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.cache;
+
+import com.google.common.collect.ImmutableList;
+import com.yahoo.search.Query;
+import com.yahoo.search.query.Model;
+import com.yahoo.search.query.Presentation;
+import com.yahoo.search.query.Ranking;
+import com.yahoo.search.query.profile.QueryProfileProperties;
+import com.yahoo.search.query.profile.compiled.CompiledQueryProfile;
+import com.yahoo.search.query.properties.RequestContextProperties;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * The key of a cached result: The parts of a query which determine the result returned for it,
+ * in canonical form.
+ * <p>
+ * This consists of the query tree after parsing and transformation, the ranking and presentation
+ * settings, the hit window, and the values of the query profile dimensions which the query profile
+ * of the query depends on. Requests which differ only in properties which do not influence any of these
+ * (such as different query strings which parse to the same tree) will share the same key.
+ * <p>
+ * Keys are immutable.
+ */
+public final class ResultCacheKey {
+
+    /** The canonical textual parts of this */
+    private final ImmutableList<String> textParts;
+
+    /** The parts of this which are compared by their own equals implementation */
+    private final ImmutableList<Object> valueParts;
+
+    private final int hashCode;
+
+    private ResultCacheKey(List<String> textParts, List<Object> valueParts) {
+        this.textParts = ImmutableList.copyOf(textParts);
+        this.valueParts = ImmutableList.copyOf(valueParts);
+        this.hashCode = Objects.hash(this.textParts, this.valueParts);
+    }
+
+    /** Creates the key of the given query. The query must be fully parsed and transformed. */
+    public static ResultCacheKey from(Query query) {
+        ImmutableList.Builder<String> text = new ImmutableList.Builder<>();
+        ImmutableList.Builder<Object> values = new ImmutableList.Builder<>();
+
+        Model model = query.getModel();
+        text.add(model.getQueryTree().toString());
+        text.add(new TreeSet<>(model.getSources()).toString());
+        text.add(new TreeSet<>(model.getRestrict()).toString());
+
+        Ranking ranking = query.getRanking();
+        text.add(ranking.getProfile());
+        text.add(String.valueOf(ranking.getSorting()));
+        text.add(String.valueOf(ranking.getLocation()));
+        text.add(ranking.getFeatures().toString());
+        text.add(ranking.getProperties().toString());
+        text.add(String.valueOf(ranking.getListFeatures()));
+        text.add(ranking.getFreshness() == null ? "" : String.valueOf(ranking.getFreshness().getRefTime()));
+        values.add(ranking.getMatchPhase().clone());
+        values.add(ranking.getMatching().clone());
+        values.add(ranking.getSoftTimeout().clone());
+
+        Presentation presentation = query.getPresentation();
+        text.add(String.valueOf(presentation.getSummary()));
+        text.add(String.valueOf(presentation.getBolding()));
+        text.add(new TreeSet<>(presentation.getSummaryFields()).toString());
+        text.add(String.valueOf(presentation.getFormat()));
+
+        text.add(String.valueOf(query.getOffset()));
+        text.add(String.valueOf(query.getHits()));
+
+        text.add(queryProfileDimensions(query));
+
+        return new ResultCacheKey(text.build(), values.build());
+    }
+
+    /** Returns the query profile of this query and the values of the dimensions it depends on, as a string */
+    private static String queryProfileDimensions(Query query) {
+        QueryProfileProperties profileProperties = query.properties().getInstance(QueryProfileProperties.class);
+        if (profileProperties == null) return "";
+        CompiledQueryProfile profile = profileProperties.getQueryProfile();
+        if (profile.getDimensions().isEmpty()) return profile.getId().toString();
+
+        // Values are resolved in the context of the request properties, while dimension values may also be
+        // set by searchers, so include both
+        RequestContextProperties requestProperties = query.properties().getInstance(RequestContextProperties.class);
+        Map<String, String> context = requestProperties != null ? requestProperties.getRequestMap() : null;
+        Map<String, String> dimensionValues = new TreeMap<>();
+        for (String dimension : profile.getDimensions())
+            dimensionValues.put(dimension, query.properties().getString(dimension) + "/" +
+                                           (context != null ? context.get(dimension) : null));
+        return profile.getId() + dimensionValues.toString();
+    }
+
+    /** Returns an estimate of the number of bytes used by this key */
+    public int byteSize() {
+        int size = 64 + 32 * valueParts.size();
+        for (String part : textParts)
+            size += 40 + 2 * part.length();
+        return size;
+    }
+
+    @Override
+    public int hashCode() { return hashCode; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) return true;
+        if ( ! (o instanceof ResultCacheKey)) return false;
+        ResultCacheKey other = (ResultCacheKey)o;
+        if (this.hashCode != other.hashCode) return false;
+        return this.textParts.equals(other.textParts) && this.valueParts.equals(other.valueParts);
+    }
+
+    @Override
+    public String toString() {
+        return "result cache key " + textParts;
+    }
+
+}
@@ -0,0 +1,135 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.cache;
+
+import com.google.inject.Inject;
+import com.yahoo.component.chain.dependencies.After;
+import com.yahoo.component.chain.dependencies.Before;
+import com.yahoo.metrics.simple.Counter;
+import com.yahoo.metrics.simple.MetricReceiver;
+import com.yahoo.search.Query;
+import com.yahoo.search.Result;
+import com.yahoo.search.Searcher;
+import com.yahoo.search.grouping.GroupingRequest;
+import com.yahoo.search.result.Coverage;
+import com.yahoo.search.searchchain.Execution;
+import com.yahoo.search.searchchain.PhaseNames;
+import com.yahoo.search.searchers.CacheControlSearcher;
+
+import java.time.Clock;
+import java.util.List;
+
+/**
+ * Returns cached results for queries which are equivalent to a recent query, and caches the results of
+ * other queries. Results are filled with the summary class requested by the query before being cached.
+ * <p>
+ * Equivalence is determined by {@link ResultCacheKey}, so this must be placed after all searchers
+ * which may change the query tree or the other properties making up the key, and before any searcher
+ * whose output should not be cached.
+ * <p>
+ * This honors the same request properties as {@link CacheControlSearcher}: Queries setting
+ * <code>noCache</code> or <code>cachecontrol.nocache</code> are neither looked up nor cached,
+ * and <code>cachecontrol.maxage</code> lowers the time the result is cached.
+ * Results carrying a <code>Cache-Control</code> header are treated likewise.
+ * Results with errors or degraded coverage, and queries with grouping or tracing are never cached.
+ * <p>
+ * Metrics: This emits the counts <code>result_cache_hits</code> and <code>result_cache_misses</code>.
+ */
+@After(PhaseNames.TRANSFORMED_QUERY)
+@Before(PhaseNames.BLENDED_RESULT)
+public class ResultCacheSearcher extends Searcher {
+
+    private static final String hitsMetricName = "result_cache_hits";
+    private static final String missesMetricName = "result_cache_misses";
+
+    /** The cache of this, or null if caching is disabled */
+    private final ResultCache cache;
+
+    private final long timeToLiveMillis;
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+
+    @Inject
+    public ResultCacheSearcher(ResultCacheConfig config, MetricReceiver metrics) {
+        this(config, metrics, Clock.systemUTC());
+    }
+
+    /** For testing */
+    ResultCacheSearcher(ResultCacheConfig config, MetricReceiver metrics, Clock clock) {
+        if (config.sizeMegaBytes() > 0 && config.timeToLive() > 0)
+            this.cache = new ResultCache(((long)config.sizeMegaBytes()) << 20, config.maxEntryPercentage(), clock);
+        else
+            this.cache = null;
+        this.timeToLiveMillis = (long)(config.timeToLive() * 1000);
+        this.hitCounter = metrics.declareCounter(hitsMetricName);
+        this.missCounter = metrics.declareCounter(missesMetricName);
+    }
+
+    @Override
+    public Result search(Query query, Execution execution) {
+        if (cache == null || ! isCacheable(query)) return execution.search(query);
+
+        ResultCacheKey key = ResultCacheKey.from(query);
+        Result cached = cache.get(key);
+        if (cached != null) {
+            hitCounter.add();
+            Result result = cached.clone();
+            result.setQuery(query);
+            return result;
+        }
+
+        missCounter.add();
+        Result result = execution.search(query);
+        long timeToLive = timeToLive(query, result);
+        if (timeToLive <= 0 || ! isCacheable(result)) return result;
+
+        execution.fill(result, query.getPresentation().getSummary());
+        if (isCacheable(result))
+            cache.put(key, result.clone(), timeToLive);
+        return result;
+    }
+
+    /** Returns the cache of this, or null if caching is disabled */
+    ResultCache cache() { return cache; }
+
+    private boolean isCacheable(Query query) {
+        if (query.getNoCache()) return false;
+        if (query.properties().getBoolean(CacheControlSearcher.cachecontrolNocache, false)) return false;
+        if (query.getTraceLevel() > 0) return false;
+        if ( ! GroupingRequest.getRequests(query).isEmpty()) return false;
+        return true;
+    }
+
+    private boolean isCacheable(Result result) {
+        if (result.hits().getErrorHit() != null) return false;
+        Coverage coverage = result.getCoverage(false);
+        if (coverage != null && coverage.isDegraded()) return false;
+        return true;
+    }
+
+    /** Returns the number of milliseconds to cache the given result, or 0 or less if it should not be cached */
+    private long timeToLive(Query query, Result result) {
+        long timeToLive = timeToLiveMillis;
+
+        int maxAge = query.properties().getInteger(CacheControlSearcher.cachecontrolMaxage, -1);
+        if (maxAge > 0)
+            timeToLive = Math.min(timeToLive, maxAge * 1000L);
+
+        if (result.getHeaders(false) == null) return timeToLive;
+        List<String> cacheControlHeaders = result.getHeaders(false).get(CacheControlSearcher.CACHE_CONTROL_HEADER);
+        if (cacheControlHeaders == null) return timeToLive;
+        for (String header : cacheControlHeaders) {
+            if (header.equals("no-cache")) return 0;
+            if (header.startsWith("max-age=")) {
+                try {
+                    timeToLive = Math.min(timeToLive, Long.parseLong(header.substring("max-age=".length()).trim()) * 1000);
+                }
+                catch (NumberFormatException e) {
+                    // Not set by us; ignore
+                }
+            }
+        }
+        return timeToLive;
+    }
+
+}
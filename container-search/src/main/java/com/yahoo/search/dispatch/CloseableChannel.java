@@ -10,12 +10,31 @@ import com.yahoo.search.Query;
 import java.io.Closeable;
 import java.io.IOException;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public class CloseableChannel implements Closeable {
     private FS4Channel channel;
 
+    /** Called with this when this is closed, or null if nothing should be done on close */
+    private final Consumer<CloseableChannel> teardown;
+
+    /** The time the first packet was sent over this channel, or -1 if none has been sent */
+    private long sendTime = -1;
+
+    /** The time from the first packet was sent until the first packets were received, or -1 if none was received */
+    private long responseTimeMillis = -1;
+
     public CloseableChannel(Backend backend) {
+        this(backend, null);
+    }
+
+    /**
+     * Creates a channel which will pass itself to the given teardown function when closed,
+     * after the underlying channel is closed
+     */
+    public CloseableChannel(Backend backend, Consumer<CloseableChannel> teardown) {
         this.channel = backend.openChannel();
+        this.teardown = teardown;
     }
 
     public void setQuery(Query query) {
@@ -23,22 +42,38 @@ public class CloseableChannel implements Closeable {
     }
 
     public boolean sendPacket(BasicPacket packet) throws InvalidChannelException, IOException {
+        if (sendTime < 0)
+            sendTime = System.currentTimeMillis();
         return channel.sendPacket(packet);
     }
 
     public BasicPacket[] receivePackets(long timeout, int packetCount) throws InvalidChannelException, ChannelTimeoutException {
-        return channel.receivePackets(timeout, packetCount);
+        BasicPacket[] packets = channel.receivePackets(timeout, packetCount);
+        if (responseTimeMillis < 0 && sendTime >= 0)
+            responseTimeMillis = System.currentTimeMillis() - sendTime;
+        return packets;
     }
 
     public Optional<Integer> distributionKey() {
         return channel.distributionKey();
     }
 
+    /** Returns whether a response has been received over this channel */
+    public boolean hasResponse() { return responseTimeMillis >= 0; }
+
+    /**
+     * Returns the time in milliseconds from the first packet was sent until the first response was received,
+     * or -1 if no response has been received
+     */
+    public long responseTimeMillis() { return responseTimeMillis; }
+
     @Override
     public void close() {
         if (channel != null) {
             channel.close();
             channel = null;
+            if (teardown != null)
+                teardown.accept(this);
         }
     }
 }
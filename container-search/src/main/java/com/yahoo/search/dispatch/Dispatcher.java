@@ -12,6 +12,7 @@ import com.yahoo.prelude.fastsearch.DocumentDatabase;
 import com.yahoo.slime.ArrayTraverser;
 import com.yahoo.data.access.slime.SlimeAdapter;
 import com.yahoo.fs4.mplex.Backend;
+import com.yahoo.jdisc.Metric;
 import com.yahoo.prelude.fastsearch.FS4ResourcePool;
 import com.yahoo.prelude.fastsearch.FastHit;
 import com.yahoo.prelude.fastsearch.TimeoutException;
@@ -26,6 +27,9 @@ import com.yahoo.slime.Cursor;
 import com.yahoo.slime.Slime;
 import com.yahoo.vespa.config.search.DispatchConfig;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -33,14 +37,21 @@ import java.util.Optional;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * A dispatcher communicates with search nodes to perform queries and fill hits.
  *
- * This is currently not functionally complete: Queries can only be dispatched to a single node,
- * and summaries can only be requested when they do not need the query.
+ * This is currently not functionally complete: Queries can only be dispatched to groups when they do not
+ * require merging of grouping or sort data, and summaries can only be requested when they do not need the query.
+ *
+ * When each group consists of a single node and summaryHedgingPercentile is configured, summary requests
+ * which are not responded to within that percentile of recent response times are also sent to a node in another group,
+ * and the first response is used. This emits the counts <code>dispatch_summary_hedges</code> (requests hedged) and
+ * <code>dispatch_summary_hedges_won</code> (hedged requests where the response from the other group was used).
  *
  * This class is multithread safe.
  *
@@ -48,6 +59,9 @@ import java.util.logging.Logger;
  */
 public class Dispatcher extends AbstractComponent {
 
+    static final String HEDGES_METRIC = "dispatch_summary_hedges";
+    static final String HEDGES_WON_METRIC = "dispatch_summary_hedges_won";
+
     private final static Logger log = Logger.getLogger(Dispatcher.class.getName());
     private final Client client;
 
@@ -62,12 +76,22 @@ public class Dispatcher extends AbstractComponent {
     private final LoadBalancer loadBalancer;
     private final FS4ResourcePool fs4ResourcePool;
 
+    /** The policy deciding when to hedge summary requests, or null if they should not be hedged */
+    private final HedgingPolicy hedgingPolicy;
+
+    private final Metric metric;
+
     public Dispatcher(DispatchConfig dispatchConfig, FS4ResourcePool fs4ResourcePool,
-                      int containerClusterSize, VipStatus vipStatus) {
+                      int containerClusterSize, VipStatus vipStatus, Metric metric) {
         this.client = new RpcClient();
         this.searchCluster = new SearchCluster(dispatchConfig, fs4ResourcePool, containerClusterSize, vipStatus);
         this.fs4ResourcePool = fs4ResourcePool;
-        this.loadBalancer = new LoadBalancer(searchCluster);
+        this.loadBalancer = new LoadBalancer(searchCluster, metric);
+        this.metric = metric;
+        if (dispatchConfig.summaryHedgingPercentile() > 0 && searchCluster.groupSize() == 1 && searchCluster.groups().size() > 1)
+            this.hedgingPolicy = new HedgingPolicy(dispatchConfig.summaryHedgingPercentile(), 1000, 100);
+        else
+            this.hedgingPolicy = null;
 
         // Create node rpc connections, indexed by the node distribution key
         ImmutableMap.Builder<Integer, Client.NodeConnection> nodeConnectionsBuilder = new ImmutableMap.Builder<>();
@@ -79,16 +103,27 @@ public class Dispatcher extends AbstractComponent {
 
     /** For testing */
     public Dispatcher(Map<Integer, Client.NodeConnection> nodeConnections, Client client) {
-        this.searchCluster = null;
+        this(null, nodeConnections, client, null, null);
+    }
+
+    /** For testing */
+    Dispatcher(SearchCluster searchCluster, Map<Integer, Client.NodeConnection> nodeConnections, Client client,
+               HedgingPolicy hedgingPolicy, Metric metric) {
+        this.searchCluster = searchCluster;
         this.nodeConnections = ImmutableMap.copyOf(nodeConnections);
         this.client = client;
         this.fs4ResourcePool = null;
-        this.loadBalancer = new LoadBalancer(searchCluster);
+        this.loadBalancer = new LoadBalancer(searchCluster, metric);
+        this.hedgingPolicy = hedgingPolicy;
+        this.metric = metric;
     }
     
     /** Returns the search cluster this dispatches to */
     public SearchCluster searchCluster() { return searchCluster; }
 
+    /** Returns the load balancer selecting the group each query is dispatched to */
+    public LoadBalancer loadBalancer() { return loadBalancer; }
+
     /** Fills the given summary class by sending RPC requests to the right search nodes */
     public void fill(Result result, String summaryClass, DocumentDatabase documentDb, CompressionType compression) {
         try {
@@ -101,6 +136,10 @@ public class Dispatcher extends AbstractComponent {
             for (Map.Entry<Integer, List<FastHit>> nodeHits : hitsByNode.entrySet()) {
                 sendGetDocsumsRequest(nodeHits.getKey(), nodeHits.getValue(), summaryClass, compression, result, responseReceiver);
             }
+            if (hedgingPolicy != null) {
+                responseReceiver.hedge(hitsByNode.values(), hedgingPolicy, metric,
+                                       hits -> sendHedgedGetDocsumsRequest(hits, summaryClass, compression, result, responseReceiver));
+            }
             responseReceiver.processResponses(result.getQuery(), summaryClass, documentDb);
             result.hits().setSorted(false);
             result.analyzeHits();
@@ -144,6 +183,47 @@ public class Dispatcher extends AbstractComponent {
                           serializedSlime.length, compressionResult.data(), responseReceiver, timeoutSeconds);
     }
 
+    /**
+     * Sends a getDocsums request for the given hits to a node in another group than the one they are from.
+     * Responses will be added to the given receiver with a copy of the given hit list as the hits context.
+     *
+     * @return the hits context of the request sent, or null if there is no node to send it to
+     */
+    private List<FastHit> sendHedgedGetDocsumsRequest(List<FastHit> hits, String summaryClass, CompressionType compression,
+                                                      Result result, GetDocsumsResponseReceiver responseReceiver) {
+        Optional<Integer> replica = replicaOf(hits.get(0).getDistributionKey());
+        if ( ! replica.isPresent()) return null;
+
+        List<FastHit> hedgedHits = new ArrayList<>(hits);
+        if (result.getQuery().getTraceLevel() >= 3)
+            result.getQuery().trace("Hedging summary request for " + hits.size() + " hits to node " + replica.get(), 3);
+        sendGetDocsumsRequest(replica.get(), hedgedHits, summaryClass, compression, result, responseReceiver);
+        return hedgedHits;
+    }
+
+    /**
+     * Returns the key of a working node in another group than the given node, which has a copy of all its documents,
+     * or empty if none. This is only correct when each group consists of a single node.
+     */
+    private Optional<Integer> replicaOf(int nodeKey) {
+        if (searchCluster == null) return Optional.empty();
+        List<SearchCluster.Group> groups = new ArrayList<>(searchCluster.groups().values());
+        int groupIndex = -1;
+        for (int i = 0; i < groups.size() && groupIndex < 0; i++) {
+            for (SearchCluster.Node node : groups.get(i).nodes())
+                if (node.key() == nodeKey) groupIndex = i;
+        }
+        if (groupIndex < 0) return Optional.empty();
+
+        for (int i = 1; i < groups.size(); i++) { // search the groups following the node's group
+            for (SearchCluster.Node node : groups.get((groupIndex + i) % groups.size()).nodes()) {
+                if (node.isWorking() && nodeConnections.containsKey(node.key()))
+                    return Optional.of(node.key());
+            }
+        }
+        return Optional.empty();
+    }
+
     static private Slime toSlime(String rankProfile, String summaryClass, String docType, SessionId sessionId, List<FastHit> hits) {
         Slime slime = new Slime();
         Cursor root = slime.setObject();
@@ -185,13 +265,31 @@ public class Dispatcher extends AbstractComponent {
         /** The number of responses we should receive (and process) before this is complete */
         private int outstandingResponses;
 
+        /** The hedging state of this, or null if requests are not hedged */
+        private Hedging hedging = null;
+
         public GetDocsumsResponseReceiver(int requestCount, Compressor compressor, Result result) {
             this.compressor = compressor;
-            responses = new LinkedBlockingQueue<>(requestCount);
+            responses = new LinkedBlockingQueue<>();
             outstandingResponses = requestCount;
             this.result = result;
         }
 
+        /**
+         * Hedges the given requests, when they are not responded to within the delay given by the hedging policy.
+         * This must be called after the requests are sent and before processing responses.
+         *
+         * @param requests the hits of the requests sent, which are the hits contexts of their responses
+         * @param hedgingPolicy the policy deciding when to hedge, which is given the response times of requests
+         * @param metric the metric receiver of the hedging counts, or null to not count
+         * @param hedger sends a request for the given hits to a replica, and returns the new hits context
+         *               of the responses, or null if the request could not be sent
+         */
+        void hedge(Collection<List<FastHit>> requests, HedgingPolicy hedgingPolicy, Metric metric,
+                   Function<List<FastHit>, List<FastHit>> hedger) {
+            this.hedging = new Hedging(requests, hedgingPolicy, metric, hedger);
+        }
+
         /** Called by a thread belonging to the client when a valid response becomes available */
         public void receive(Client.GetDocsumsResponseOrError response) {
             responses.add(response);
@@ -213,9 +311,16 @@ public class Dispatcher extends AbstractComponent {
                     if (timeLeftMs <= 0) {
                         throwTimeout();
                     }
-                    Client.GetDocsumsResponseOrError response = responses.poll(timeLeftMs, TimeUnit.MILLISECONDS);
-                    if (response == null)
+                    long waitMs = hedging != null ? Math.min(timeLeftMs, hedging.timeToHedgeMillis()) : timeLeftMs;
+                    Client.GetDocsumsResponseOrError response = responses.poll(waitMs, TimeUnit.MILLISECONDS);
+                    if (response == null) {
+                        if (waitMs < timeLeftMs) {
+                            hedging.hedgeOutstanding();
+                            continue;
+                        }
                         throwTimeout();
+                    }
+                    if (hedging != null && ! hedging.use(response)) continue;
                     skippedHits += processResponse(response, summaryClass, documentDb);
                     outstandingResponses--;
                 }
@@ -282,21 +387,143 @@ public class Dispatcher extends AbstractComponent {
             return skippedHits;
         }
 
+        /** The state of hedging the requests of a receiver. This is only accessed by the thread processing responses. */
+        private static class Hedging {
+
+            private final HedgingPolicy policy;
+            private final Metric metric;
+            private final Function<List<FastHit>, List<FastHit>> hedger;
+
+            private final long sendTime = System.currentTimeMillis();
+            private final long hedgeDelay;
+            private boolean hedged = false;
+
+            /** The original request of each request sent, by the identity of the hits context of the request */
+            private final Map<List<FastHit>, List<FastHit>> originalRequests = new IdentityHashMap<>();
+
+            /** The number of outstanding attempts of each original request which is not completed */
+            private final Map<List<FastHit>, Integer> outstandingAttempts = new IdentityHashMap<>();
+
+            Hedging(Collection<List<FastHit>> requests, HedgingPolicy policy, Metric metric,
+                    Function<List<FastHit>, List<FastHit>> hedger) {
+                this.policy = policy;
+                this.metric = metric;
+                this.hedger = hedger;
+                this.hedgeDelay = policy.hedgeDelayMillis();
+                for (List<FastHit> request : requests) {
+                    originalRequests.put(request, request);
+                    outstandingAttempts.put(request, 1);
+                }
+            }
+
+            /** Returns the time until outstanding requests should be hedged, or Long.MAX_VALUE if they should not */
+            long timeToHedgeMillis() {
+                if (hedged || hedgeDelay < 0) return Long.MAX_VALUE;
+                return Math.max(0, sendTime + hedgeDelay - System.currentTimeMillis());
+            }
+
+            /** Sends the outstanding requests to replicas */
+            void hedgeOutstanding() {
+                hedged = true;
+                for (List<FastHit> request : new ArrayList<>(outstandingAttempts.keySet())) {
+                    List<FastHit> hedgedRequest = hedger.apply(request);
+                    if (hedgedRequest == null) continue;
+                    originalRequests.put(hedgedRequest, request);
+                    outstandingAttempts.merge(request, 1, Integer::sum);
+                    if (metric != null)
+                        metric.add(HEDGES_METRIC, 1, null);
+                }
+            }
+
+            /**
+             * Returns whether the given response should be used. It should not if another response to the same
+             * request is already used, or if it is an error and there is still another attempt outstanding.
+             */
+            boolean use(Client.GetDocsumsResponseOrError response) {
+                if (response.hitsContext() == null) return true; // unknown request
+                List<FastHit> request = originalRequests.get(response.hitsContext());
+                if (request == null) return true; // unknown request
+                Integer attempts = outstandingAttempts.get(request);
+                if (attempts == null) return false; // already completed
+                if (response.error().isPresent() && attempts > 1) {
+                    outstandingAttempts.put(request, attempts - 1);
+                    return false;
+                }
+
+                outstandingAttempts.remove(request);
+                long elapsed = System.currentTimeMillis() - sendTime;
+                if (response.hitsContext() != request) {
+                    if (metric != null)
+                        metric.add(HEDGES_WON_METRIC, 1, null);
+                    // The original would have taken at least this long. Leaving it out would lower the
+                    // percentile, making us hedge more and leave out more slow responses
+                    policy.responseTime(Math.max(elapsed, hedgeDelay));
+                }
+                else if ( ! response.error().isPresent()) {
+                    policy.responseTime(elapsed);
+                }
+                return true;
+            }
+
+        }
+
     }
 
+    /**
+     * Returns a channel to a search node selected by the load balancer, or empty if this query should not
+     * be dispatched from this. This is only available when each group consists of a single node.
+     * The group of the returned channel is released when the channel is closed.
+     */
     public Optional<CloseableChannel> getDispatchBackend(Query query) {
-        Optional<SearchCluster.Group> groupInCluster = loadBalancer.getGroupForQuery(query);
+        if (searchCluster.groupSize() != 1) return Optional.empty();
 
-        return groupInCluster.flatMap(group -> {
-            if(group.nodes().size() == 1) {
-                return Optional.of(group.nodes().get(0));
-            } else {
-                return Optional.empty();
-            }
-        }).map(node -> {
-            query.trace(false, 2, "Dispatching directly (anywhere) to ", node);
+        return getDispatchBackends(query).map(channels -> channels.get(0));
+    }
+
+    /**
+     * Returns a channel to each of the nodes in a group selected by the load balancer, to be used to
+     * send a query to all the nodes of the group in parallel, or empty if this query should not be dispatched
+     * from this. The group is released when all the returned channels are closed.
+     */
+    public Optional<List<CloseableChannel>> getDispatchBackends(Query query) {
+        Optional<SearchCluster.Group> groupInCluster = loadBalancer.takeGroupForQuery(query);
+        if ( ! groupInCluster.isPresent()) return Optional.empty();
+
+        SearchCluster.Group group = groupInCluster.get();
+        query.trace(false, 2, "Dispatching internally to ", group, " (", group.nodes().size(), " nodes)");
+        GroupRelease release = new GroupRelease(group, group.nodes().size());
+        List<CloseableChannel> channels = new ArrayList<>(group.nodes().size());
+        for (SearchCluster.Node node : group.nodes()) {
             Backend backend = fs4ResourcePool.getBackend(node.hostname(), node.fs4port(), Optional.of(node.key()));
-            return new CloseableChannel(backend);
-        });
+            channels.add(new CloseableChannel(backend, release));
+        }
+        return Optional.of(channels);
+    }
+
+    /** Releases a group in the load balancer when all the channels to its nodes are closed */
+    private class GroupRelease implements Consumer<CloseableChannel> {
+
+        private final SearchCluster.Group group;
+
+        private int openChannels;
+        private boolean success = true;
+        private long searchTimeMillis = 0;
+
+        GroupRelease(SearchCluster.Group group, int channelCount) {
+            this.group = group;
+            this.openChannels = channelCount;
+        }
+
+        @Override
+        public void accept(CloseableChannel channel) {
+            synchronized (this) {
+                success &= channel.hasResponse();
+                searchTimeMillis = Math.max(searchTimeMillis, channel.responseTimeMillis());
+                if (--openChannels > 0) return;
+            }
+            loadBalancer.releaseGroup(group, success, searchTimeMillis);
+        }
+
     }
+
 }
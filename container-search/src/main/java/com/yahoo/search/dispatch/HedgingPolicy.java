@@ -0,0 +1,67 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import java.util.Arrays;
+
+/**
+ * Decides when a request which has not yet been responded to should be hedged, that is, also sent to
+ * a replica, by keeping a window of recent response times and computing a percentile of them.
+ * <p>
+ * This is multithread safe.
+ */
+class HedgingPolicy {
+
+    private final double percentile;
+    private final int minSamples;
+
+    /** The most recent response times in a ring buffer. Access to this must synchronize on this. */
+    private final long[] responseTimes;
+    private int nextIndex = 0;
+    private int samples = 0;
+    private int samplesSinceUpdate = 0;
+
+    /** The current hedge delay, or -1 if it is not known yet */
+    private volatile long hedgeDelayMillis = -1;
+
+    /**
+     * Creates a hedging policy
+     *
+     * @param percentile the percentile of recent response times after which requests should be hedged, in (0, 100]
+     * @param windowSize the number of recent response times to compute the percentile from
+     * @param minSamples the number of response times needed before requests are hedged
+     */
+    HedgingPolicy(double percentile, int windowSize, int minSamples) {
+        if (percentile <= 0 || percentile > 100)
+            throw new IllegalArgumentException("Hedging percentile must be in (0, 100], not " + percentile);
+        this.percentile = percentile;
+        this.minSamples = Math.max(1, Math.min(minSamples, windowSize));
+        this.responseTimes = new long[windowSize];
+    }
+
+    /**
+     * Records the response time of a request, or a lower bound of it if the request was hedged and the response
+     * from the replica was used
+     */
+    synchronized void responseTime(long millis) {
+        responseTimes[nextIndex] = millis;
+        nextIndex = (nextIndex + 1) % responseTimes.length;
+        if (samples < responseTimes.length)
+            samples++;
+        if (samples < minSamples) return;
+
+        // Sorting the window on every sample is wasteful: Update when some part of the window is replaced
+        if (hedgeDelayMillis >= 0 && ++samplesSinceUpdate < Math.max(1, responseTimes.length / 10)) return;
+        samplesSinceUpdate = 0;
+        long[] sorted = Arrays.copyOf(responseTimes, samples);
+        Arrays.sort(sorted);
+        int index = (int)Math.ceil(percentile / 100 * samples) - 1;
+        hedgeDelayMillis = sorted[Math.max(0, Math.min(index, samples - 1))];
+    }
+
+    /**
+     * Returns the number of milliseconds after sending a request that it should be hedged if there is no response,
+     * or -1 if requests should not be hedged because there are not yet enough response times to decide
+     */
+    long hedgeDelayMillis() { return hedgeDelayMillis; }
+
+}
@@ -1,27 +1,178 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.search.dispatch;
 
+import com.google.common.collect.ImmutableList;
+import com.yahoo.jdisc.Metric;
 import com.yahoo.search.Query;
 import com.yahoo.search.dispatch.SearchCluster.Group;
+import com.yahoo.search.dispatch.SearchCluster.Node;
 
+import java.util.Collections;
 import java.util.Optional;
+import java.util.Random;
 
+/**
+ * Selects the group a query should be dispatched to.
+ *
+ * Groups are picked randomly with a probability which is inversely proportional to the number of
+ * queries currently in flight to the group times an exponentially decaying average of its recent
+ * search times. Groups which are slow or busy will therefore quickly receive less traffic, while
+ * still receiving enough queries for their average to recover once they are healthy again.
+ *
+ * This class is multithread safe.
+ */
 public class LoadBalancer {
 
-    private final SearchCluster searchCluster;
+    /** The search time assumed for a group before we have measured any queries to it, in milliseconds */
+    private static final double INITIAL_SEARCH_TIME = 5.0;
 
-    public LoadBalancer(SearchCluster searchCluster) {
-        this.searchCluster = searchCluster;
+    /** The lowest search time we let a single query contribute, to avoid extreme weights, in milliseconds */
+    private static final double MIN_SEARCH_TIME = 0.1;
+
+    /** The number of queries contributing to the decaying search time average in steady state */
+    private static final int SEARCH_TIME_DECAY_RATE = 100;
+
+    static final String QUERIES_IN_FLIGHT_METRIC = "dispatch_group_queries_in_flight";
+    static final String SEARCH_TIME_METRIC = "dispatch_group_search_time";
+    static final String QUERIES_METRIC = "dispatch_group_queries";
+
+    private final ImmutableList<GroupStatus> scoreboard;
+    private final Random random;
+
+    public LoadBalancer(SearchCluster searchCluster, Metric metric) {
+        this(searchCluster, metric, new Random());
+    }
+
+    /** For testing */
+    LoadBalancer(SearchCluster searchCluster, Metric metric, Random random) {
+        this.random = random;
+        if (searchCluster == null) {
+            this.scoreboard = ImmutableList.of();
+            return;
+        }
+        ImmutableList.Builder<GroupStatus> scoreboardBuilder = new ImmutableList.Builder<>();
+        for (Group group : searchCluster.groups().values())
+            scoreboardBuilder.add(new GroupStatus(group, metric));
+        this.scoreboard = scoreboardBuilder.build();
+    }
+
+    /**
+     * Selects and allocates a group for the given query. A group returned from this must be
+     * released by calling {@link #releaseGroup} when the query has completed.
+     *
+     * @return the selected group, or empty if the query should not be dispatched internally
+     */
+    public synchronized Optional<Group> takeGroupForQuery(Query query) {
+        GroupStatus selected = selectGroup();
+        if (selected == null) return Optional.empty();
+        selected.allocate();
+        return Optional.of(selected.group);
+    }
+
+    /**
+     * Releases a group previously allocated by {@link #takeGroupForQuery}.
+     *
+     * @param group the group to release
+     * @param success whether the group responded to the query. The search time is ignored if this is false
+     * @param searchTimeMillis the time it took the group to respond to the query
+     */
+    public synchronized void releaseGroup(Group group, boolean success, double searchTimeMillis) {
+        for (GroupStatus status : scoreboard) {
+            if (status.group.id() == group.id()) {
+                status.release(success, searchTimeMillis);
+                return;
+            }
+        }
+    }
+
+    /** Returns the current (decaying) average search time of the given group in milliseconds, or 0 if it is unknown */
+    public synchronized double averageSearchTime(Group group) {
+        for (GroupStatus status : scoreboard)
+            if (status.group.id() == group.id())
+                return status.averageSearchTime;
+        return 0;
+    }
+
+    /** Returns the number of queries currently in flight to the given group */
+    public synchronized int queriesInFlight(Group group) {
+        for (GroupStatus status : scoreboard)
+            if (status.group.id() == group.id())
+                return status.allocated;
+        return 0;
+    }
+
+    /** Returns a random group among the ones able to serve a query, weighted by their score, or null if none */
+    private GroupStatus selectGroup() {
+        double scoreSum = 0;
+        for (GroupStatus status : scoreboard)
+            if (status.isAvailable())
+                scoreSum += status.score();
+        if (scoreSum == 0) return null;
+
+        double needle = random.nextDouble() * scoreSum;
+        GroupStatus lastAvailable = null;
+        for (GroupStatus status : scoreboard) {
+            if ( ! status.isAvailable()) continue;
+            needle -= status.score();
+            if (needle < 0) return status;
+            lastAvailable = status;
+        }
+        return lastAvailable; // rounding errors
     }
 
-    public Optional<Group> getGroupForQuery(Query query) {
-        if (searchCluster.groups().size() == 1) {
-            for(Group group: searchCluster.groups().values()) {
-                // since the number of groups is 1, this will run only once
-                if(group.nodes().size() == 1) {
-                    return Optional.of(group);
-                }
+    /** The load balancing state of a group. Access to this must be synchronized on the owning load balancer. */
+    private static class GroupStatus {
+
+        private final Group group;
+        private final Metric metric;
+        private final Metric.Context metricContext;
+
+        /** The number of queries currently in flight to this group */
+        private int allocated = 0;
+
+        /** The number of successful queries to this group we have measured the search time of */
+        private long queries = 0;
+
+        /** The exponentially decaying average search time of this group in milliseconds */
+        private double averageSearchTime = INITIAL_SEARCH_TIME;
+
+        GroupStatus(Group group, Metric metric) {
+            this.group = group;
+            this.metric = metric;
+            this.metricContext = metric.createContext(Collections.singletonMap("group", String.valueOf(group.id())));
+        }
+
+        /** Returns whether this group can currently be chosen for a query */
+        boolean isAvailable() {
+            if ( ! group.hasSufficientCoverage()) return false;
+            for (Node node : group.nodes())
+                if ( ! node.isWorking()) return false;
+            return true;
+        }
+
+        /** Returns the relative desirability of sending the next query to this group */
+        double score() {
+            return 1.0 / ((allocated + 1) * averageSearchTime);
+        }
+
+        void allocate() {
+            allocated++;
+            metric.set(QUERIES_IN_FLIGHT_METRIC, allocated, metricContext);
+        }
+
+        void release(boolean success, double searchTimeMillis) {
+            allocated--;
+            if (success) {
+                // Let the first queries count more to converge quickly from the initial value
+                double decayRate = Math.min(queries + 1, SEARCH_TIME_DECAY_RATE);
+                averageSearchTime = (Math.max(searchTimeMillis, MIN_SEARCH_TIME) + (decayRate - 1) * averageSearchTime) / decayRate;
+                queries++;
+                metric.set(SEARCH_TIME_METRIC, averageSearchTime, metricContext);
+                metric.add(QUERIES_METRIC, 1, metricContext);
             }
+            metric.set(QUERIES_IN_FLIGHT_METRIC, allocated, metricContext);
         }
-        return Optional.empty();
+
     }
+
 }
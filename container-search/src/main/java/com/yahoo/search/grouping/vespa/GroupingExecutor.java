@@ -4,10 +4,17 @@ package com.yahoo.search.grouping.vespa;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.Logger;
 
 import com.yahoo.component.ComponentId;
@@ -36,6 +43,9 @@ import com.yahoo.vespa.objects.ObjectPredicate;
  * Executes the {@link GroupingRequest grouping requests} set up by other searchers. This does the necessary
  * transformation from the abstract request to Vespa grouping expressions (using {@link RequestBuilder}), and the
  * corresponding transformation of results (using {@link ResultBuilder}).
+ * <p>
+ * Large grouping results are merged and converted in parallel by the async executor of the execution,
+ * and the results of the passes of multi-pass grouping are cached to be reused when paging with continuations.
  *
  * @author Simon Thoresen Hult
  */
@@ -50,6 +60,11 @@ public class GroupingExecutor extends Searcher {
     private final static CompoundName PROP_GROUPINGLIST = newCompoundName(GROUPING_LIST);
     private final static Logger log = Logger.getLogger(GroupingExecutor.class.getName());
 
+    /** The number of groups in the grouping results of a query above which they are merged and converted in parallel */
+    private final static int PARALLEL_GROUP_COUNT = 1000;
+
+    private final GroupingPassCache passCache = new GroupingPassCache(1000, 10 * 1000);
+
     /**
      * Constructs a new instance of this searcher without configuration.
      * This makes the searcher completely useless for searching purposes,
@@ -85,14 +100,25 @@ public class GroupingExecutor extends Searcher {
         if (groupingMap.isEmpty()) return execution.search(query);
 
         // Perform the necessary passes to execute grouping.
-        Result result = performSearch(query, execution, groupingMap);
+        Set<Integer> pagedGroupingIds = new HashSet<>();
+        for (RequestContext context : requestContextList) {
+            if ( ! context.request.continuations().isEmpty())
+                pagedGroupingIds.addAll(context.idList);
+        }
+        Result result = performSearch(query, execution, groupingMap, pagedGroupingIds);
 
         // Convert Vespa style results to hits.
         HitConverter hitConverter = new HitConverter(this, query);
+        List<RootGroup> groups = new ArrayList<>(Collections.nCopies(requestContextList.size(), null));
+        List<Runnable> conversions = new ArrayList<>();
+        int requestIndex = 0;
         for (RequestContext context : requestContextList) {
-            RootGroup group = convertResult(context, groupingMap, hitConverter);
-            result.hits().add(group);
+            int index = requestIndex++;
+            conversions.add(() -> groups.set(index, convertResult(context, groupingMap, hitConverter)));
         }
+        runAll(conversions, countGroups(groupingMap.values()) >= PARALLEL_GROUP_COUNT, execution);
+        for (RootGroup group : groups)
+            result.hits().add(group);
         return result;
     }
 
@@ -197,9 +223,11 @@ public class GroupingExecutor extends Searcher {
      * @param query       The query to execute.
      * @param execution   The execution context used to run the queries.
      * @param groupingMap The map of grouping requests to perform.
+     * @param pagedGroupingIds The ids of the grouping requests which have continuations.
      * @return The search result to pass back from this searcher.
      */
-    private Result performSearch(Query query, Execution execution, Map<Integer, Grouping> groupingMap) {
+    private Result performSearch(Query query, Execution execution, Map<Integer, Grouping> groupingMap,
+                                 Set<Integer> pagedGroupingIds) {
         // Determine how many passes to perform.
         int lastPass = 0;
         for (Grouping grouping : groupingMap.values()) {
@@ -219,12 +247,20 @@ public class GroupingExecutor extends Searcher {
         if (query.isTraceable(3) && query.getGroupingSessionCache()) {
             query.trace("Grouping in " + (lastPass + 1) + " passes. SessionId='" + query.getSessionId(true) + "'.", 3);
         }
+        // Only requests paging with continuations reuse pass results, so other requests neither read nor fill the cache
+        boolean usePassCache = lastPass > 0 && ! query.getNoCache() && ! pagedGroupingIds.isEmpty();
+        byte[] encodedQuery = usePassCache ? GroupingPassCache.encodeQuery(query) : null;
         for (int pass = 0; pass <= lastPass; ++pass) {
             boolean firstPass = (pass == 0);
             List<Grouping> passList = getGroupingListForPassN(groupingMap, pass);
             if (passList.isEmpty()) {
                 throw new RuntimeException("No grouping request for pass " + pass + ", bug!");
             }
+            Map<Integer, GroupingPassCache.Key> passKeys = new HashMap<>();
+            if (usePassCache) {
+                useCachedPassResults(query, passList, pass, encodedQuery, pagedGroupingIds, passKeys);
+                if (passList.isEmpty() && ! firstPass) continue;
+            }
             if (log.isLoggable(LogLevel.DEBUG)) {
                 for (Grouping grouping : passList) {
                     log.log(LogLevel.DEBUG, "Pass(" + pass + "), Grouping(" + grouping.getId() + "): " + grouping);
@@ -257,7 +293,9 @@ public class GroupingExecutor extends Searcher {
                     return passResult;
                 }
             }
-            Map<Integer, Grouping> passGroupingMap = mergeGroupingResults(passResult);
+            Map<Integer, Grouping> passGroupingMap = mergeGroupingResults(passResult, execution);
+            if ( ! passKeys.isEmpty())
+                cachePassResults(passResult, passGroupingMap, passKeys);
             mergeGroupingMaps(groupingMap, passGroupingMap);
             if (firstPass) {
                 ret = passResult;
@@ -271,6 +309,45 @@ public class GroupingExecutor extends Searcher {
         return ret;
     }
 
+    /**
+     * Merges the cached results of the given pass into the grouping requests of paged groupings, and removes those
+     * requests from the pass list. The cache keys of the paged requests which remain to be searched are added
+     * to passKeys.
+     */
+    private void useCachedPassResults(Query query, List<Grouping> passList, int pass, byte[] encodedQuery,
+                                      Set<Integer> pagedGroupingIds, Map<Integer, GroupingPassCache.Key> passKeys) {
+        for (Iterator<Grouping> i = passList.iterator(); i.hasNext(); ) {
+            Grouping grouping = i.next();
+            if (grouping.useSinglePass()) continue;
+            if ( ! pagedGroupingIds.contains(grouping.getId())) continue;
+
+            GroupingPassCache.Key key = passCache.keyOf(encodedQuery, grouping);
+            Grouping cached = passCache.get(key);
+            if (cached == null) {
+                passKeys.put(grouping.getId(), key);
+                continue;
+            }
+            grouping.merge(cached);
+            i.remove();
+            if (query.isTraceable(4)) {
+                query.trace("Using cached result of pass #" + pass + " of grouping " + grouping.getId() + ".", 4);
+            }
+        }
+    }
+
+    /** Caches the grouping results of a pass which completed without errors and with full coverage */
+    private void cachePassResults(Result passResult, Map<Integer, Grouping> passGroupingMap,
+                                  Map<Integer, GroupingPassCache.Key> passKeys) {
+        if (passResult.hits().getError() != null) return;
+        if (passResult.getCoverage(false) != null && ! passResult.getCoverage(false).getFull()) return;
+
+        for (Grouping grouping : passGroupingMap.values()) {
+            GroupingPassCache.Key key = passKeys.get(grouping.getId());
+            if (key != null)
+                passCache.put(key, grouping);
+        }
+    }
+
     /**
      * Merges the content of result into state. This needs to be done in order to conserve the context objects contained
      * in the state as they are not part of the serialized object representation.
@@ -322,33 +399,104 @@ public class GroupingExecutor extends Searcher {
      * Merges the grouping content of the given result object. The first grouping hit found by iterating over the result
      * content is kept, and all consecutive matching hits are merged into this.
      *
+     * The groupings of each id are merged in parallel if the result is large.
+     *
      * @param result The result to traverse.
+     * @param execution The execution providing the executor for parallel merging.
      * @return A map of merged grouping objects.
      */
-    private Map<Integer, Grouping> mergeGroupingResults(Result result) {
-        Map<Integer, Grouping> ret = new HashMap<>();
+    private Map<Integer, Grouping> mergeGroupingResults(Result result, Execution execution) {
+        Map<Integer, List<Grouping>> groupingsById = new LinkedHashMap<>();
+        Map<Grouping, Hit> contexts = new IdentityHashMap<>(); // Grouping equality is by value
         for (Iterator<Hit> i = result.hits().unorderedIterator(); i.hasNext(); ) {
             Hit hit = i.next();
             if (hit instanceof GroupingListHit) {
-                ContextInjector injector = new ContextInjector(hit);
                 for (Grouping grp : ((GroupingListHit)hit).getGroupingList()) {
-                    grp.select(injector, injector);
-                    Grouping old = ret.get(grp.getId());
-                    if (old != null) {
-                        old.merge(grp);
-                    } else {
-                        ret.put(grp.getId(), grp);
-                    }
+                    groupingsById.computeIfAbsent(grp.getId(), id -> new ArrayList<>()).add(grp);
+                    contexts.put(grp, hit);
                 }
                 i.remove();
             }
         }
-        for (Grouping grouping : ret.values()) {
-            grouping.postMerge();
+
+        List<Runnable> merges = new ArrayList<>();
+        for (List<Grouping> groupings : groupingsById.values()) {
+            merges.add(() -> {
+                Grouping merged = groupings.get(0);
+                for (Grouping grp : groupings) {
+                    ContextInjector injector = new ContextInjector(contexts.get(grp));
+                    grp.select(injector, injector);
+                    if (grp != merged)
+                        merged.merge(grp);
+                }
+                merged.postMerge();
+            });
         }
+        int groupCount = 0;
+        for (List<Grouping> groupings : groupingsById.values())
+            groupCount += countGroups(groupings);
+        runAll(merges, groupCount >= PARALLEL_GROUP_COUNT, execution);
+
+        Map<Integer, Grouping> ret = new HashMap<>();
+        for (Map.Entry<Integer, List<Grouping>> entry : groupingsById.entrySet())
+            ret.put(entry.getKey(), entry.getValue().get(0));
         return ret;
     }
 
+    /** Returns the number of groups below the roots of the given groupings */
+    private static int countGroups(Iterable<Grouping> groupings) {
+        int count = 0;
+        for (Grouping grouping : groupings)
+            count += countGroups(grouping.getRoot());
+        return count;
+    }
+
+    private static int countGroups(com.yahoo.searchlib.aggregation.Group group) {
+        int count = group.getChildren().size();
+        for (com.yahoo.searchlib.aggregation.Group child : group.getChildren())
+            count += countGroups(child);
+        return count;
+    }
+
+    /**
+     * Runs the given independent tasks and returns when all are completed. If parallel is true and there are
+     * several tasks, all but one are run by the async executor of the given execution, unless it is overloaded.
+     */
+    private static void runAll(List<Runnable> tasks, boolean parallel, Execution execution) {
+        if ( ! parallel || tasks.size() < 2) {
+            tasks.forEach(Runnable::run);
+            return;
+        }
+
+        List<FutureTask<?>> futures = new ArrayList<>();
+        for (Runnable task : tasks.subList(1, tasks.size())) {
+            FutureTask<?> future = new FutureTask<>(task, null);
+            try {
+                execution.context().getAsyncExecutor().execute(future);
+            }
+            catch (RejectedExecutionException e) {
+                future.run();
+            }
+            futures.add(future);
+        }
+        tasks.get(0).run();
+
+        for (FutureTask<?> future : futures) {
+            try {
+                future.get();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for grouping results", e);
+            }
+            catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) throw (RuntimeException)e.getCause();
+                if (e.getCause() instanceof Error) throw (Error)e.getCause();
+                throw new RuntimeException(e.getCause());
+            }
+        }
+    }
+
     /**
      * Returns the list of {@link Grouping} objects assigned to the given query. If no list has been assigned, this
      * method returns an empty list.
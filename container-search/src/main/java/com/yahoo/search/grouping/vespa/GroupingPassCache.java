@@ -0,0 +1,177 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.grouping.vespa;
+
+import com.yahoo.io.GrowableByteBuffer;
+import com.yahoo.prelude.query.Item;
+import com.yahoo.search.Query;
+import com.yahoo.searchlib.aggregation.Grouping;
+import com.yahoo.searchlib.aggregation.GroupingLevel;
+import com.yahoo.searchlib.aggregation.Hit;
+import com.yahoo.vespa.objects.BufferSerializer;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * A cache of the results of the passes of multi-pass grouping. Paging through the groups or hits of one level
+ * using continuations only changes the requests of the passes of that level and the levels below it, so the
+ * results of the passes above it can be reused from the previous page instead of being searched for again.
+ * <p>
+ * Results are keyed by the parts of the query which they depend on, and by the request of the pass down to the level
+ * it collects. Results containing hits are not cached, as those hits belong to the query which returned them.
+ * A cached result is used until its time to live expires, so it may lag behind the feed by that long.
+ * When full, the least recently used results are evicted.
+ * <p>
+ * This is multithread safe.
+ */
+final class GroupingPassCache {
+
+    private final long timeToLiveMillis;
+
+    /** The cached results, in access order. Access is synchronized on this map */
+    private final Map<Key, Entry> entries;
+
+    /**
+     * Creates a grouping pass cache
+     *
+     * @param maxEntries the max number of pass results to keep
+     * @param timeToLiveMillis the time after which a cached result is no longer used
+     */
+    GroupingPassCache(int maxEntries, long timeToLiveMillis) {
+        this.timeToLiveMillis = timeToLiveMillis;
+        this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the encoding of the parts of the given query which the grouping results of a pass depend on:
+     * The query tree, ranking, model and the sources and restrict of the query
+     */
+    static byte[] encodeQuery(Query query) {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        while (true) {
+            try {
+                Item.putString(query.getRanking().getProfile(), buffer);
+                query.encodeAsProperties(buffer, true);
+                if (query.getRanking().getSorting() != null)
+                    query.getRanking().getSorting().encode(buffer);
+                if (query.getRanking().getLocation() != null)
+                    query.getRanking().getLocation().encode(buffer);
+                query.encode(buffer);
+                Item.putString(new TreeSet<>(query.getModel().getSources()).toString(), buffer);
+                Item.putString(new TreeSet<>(query.getModel().getRestrict()).toString(), buffer);
+                return Arrays.copyOf(buffer.array(), buffer.position());
+            }
+            catch (BufferOverflowException e) {
+                buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+            }
+        }
+    }
+
+    /**
+     * Returns the key of the result of the given grouping request in its current pass
+     *
+     * @param encodedQuery the query encoded by {@link #encodeQuery}
+     * @param grouping the grouping request, with the first and last level set for the pass
+     */
+    Key keyOf(byte[] encodedQuery, Grouping grouping) {
+        BufferSerializer buffer = new BufferSerializer(new GrowableByteBuffer());
+        buffer.putByte(null, grouping.getAll() ? (byte)1 : (byte)0);
+        buffer.putLong(null, grouping.getTopN());
+        buffer.putInt(null, grouping.getFirstLevel());
+        buffer.putInt(null, grouping.getLastLevel());
+        // The levels below the last level of this pass may differ between pages without changing its result
+        int levelCount = Math.min(grouping.getLastLevel(), grouping.getLevels().size());
+        for (GroupingLevel level : grouping.getLevels().subList(0, levelCount))
+            level.serializeWithId(buffer);
+        grouping.getRoot().serializeWithId(buffer);
+        buffer.getBuf().flip();
+        byte[] encodedGrouping = new byte[buffer.getBuf().limit()];
+        buffer.getBuf().get(encodedGrouping);
+        return new Key(encodedQuery, encodedGrouping);
+    }
+
+    /** Returns a copy of the cached result of the pass having the given key, or null if none */
+    Grouping get(Key key) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry == null) return null;
+            if (entry.expiresAt < System.currentTimeMillis()) {
+                entries.remove(key);
+                return null;
+            }
+        }
+        return entry.result.clone();
+    }
+
+    /** Caches a copy of the given result of the pass having the given key, unless it contains hits */
+    void put(Key key, Grouping result) {
+        if (containsHits(result)) return;
+        Entry entry = new Entry(result.clone(), System.currentTimeMillis() + timeToLiveMillis);
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+    }
+
+    /** Returns the number of results in this */
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private static boolean containsHits(Grouping result) {
+        boolean[] found = new boolean[1];
+        result.select(object -> object instanceof Hit, object -> found[0] = true);
+        return found[0];
+    }
+
+    static final class Key {
+
+        private final byte[] encodedQuery;
+        private final byte[] encodedGrouping;
+        private final int hashCode;
+
+        private Key(byte[] encodedQuery, byte[] encodedGrouping) {
+            this.encodedQuery = encodedQuery;
+            this.encodedGrouping = encodedGrouping;
+            this.hashCode = 31 * Arrays.hashCode(encodedQuery) + Arrays.hashCode(encodedGrouping);
+        }
+
+        @Override
+        public int hashCode() { return hashCode; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) return true;
+            if ( ! (o instanceof Key)) return false;
+            Key other = (Key)o;
+            return this.hashCode == other.hashCode &&
+                   Arrays.equals(this.encodedGrouping, other.encodedGrouping) &&
+                   Arrays.equals(this.encodedQuery, other.encodedQuery);
+        }
+
+    }
+
+    private static final class Entry {
+
+        final Grouping result;
+        final long expiresAt;
+
+        Entry(Grouping result, long expiresAt) {
+            this.result = result;
+            this.expiresAt = expiresAt;
+        }
+
+    }
+
+}
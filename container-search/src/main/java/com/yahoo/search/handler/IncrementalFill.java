@@ -0,0 +1,126 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.handler;
+
+import com.yahoo.search.Result;
+import com.yahoo.search.result.ErrorHit;
+import com.yahoo.search.result.ErrorMessage;
+import com.yahoo.search.result.Hit;
+import com.yahoo.search.result.HitGroup;
+import com.yahoo.search.searchchain.Execution;
+import com.yahoo.yolean.Exceptions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Fills a result in the background such that it can be rendered while it is being filled.
+ * <p>
+ * The top level hits of the result are split into parts: Each hit group is one part, and consecutive
+ * hits make up parts of at most {@link #batchSize} hits. All parts are filled concurrently.
+ * The hits of the result are replaced by an incomplete hit group to which each part is added, in the original order,
+ * as soon as it and all parts before it are filled. An asynchronous renderer can then render each part as it arrives.
+ */
+class IncrementalFill {
+
+    /** The max number of consecutive hits which are filled together */
+    static final int batchSize = 100;
+
+    private final Execution execution;
+    private final String summaryClass;
+
+    /** The group receiving the filled parts */
+    private final HitGroup target;
+
+    private final List<Result> parts = new ArrayList<>();
+
+    /** Which parts are filled. Access to this must synchronize on this. */
+    private final boolean[] filled;
+
+    /** The index of the next part to add to the target. Access to this must synchronize on this. */
+    private int nextPart = 0;
+
+    private IncrementalFill(Result result, String summaryClass, Execution execution) {
+        this.execution = execution;
+        this.summaryClass = summaryClass;
+
+        HitGroup hits = result.hits();
+        target = HitGroup.createAsync(hits.getId().toString());
+        target.setRelevance(hits.getRelevance());
+        target.setSource(hits.getSource());
+        target.setQuery(hits.getQuery());
+        target.setOrdered(true); // the hits are added in their current order
+        hits.fields().forEach(target::setField);
+        ErrorHit errors = hits.getErrorHit();
+        if (errors != null)
+            target.add((Hit)errors);
+
+        Result part = null;
+        for (Hit hit : hits.asList()) {
+            if (hit == errors) continue;
+            if (part == null || hit instanceof HitGroup || part.hits().size() >= batchSize || isGroupPart(part)) {
+                part = new Result(result.getQuery());
+                parts.add(part);
+            }
+            part.hits().add(hit);
+        }
+        this.filled = new boolean[parts.size()];
+        result.setHits(target);
+    }
+
+    private boolean isGroupPart(Result part) {
+        return part.hits().size() == 1 && part.hits().get(0) instanceof HitGroup;
+    }
+
+    /**
+     * Starts filling the given result. The hits of the result are replaced by a hit group which is
+     * completed when all hits are filled. This must be called before rendering of the result starts.
+     *
+     * @param result the result to fill
+     * @param summaryClass the summary class to fill
+     * @param execution the execution which produced the result
+     */
+    static void start(Result result, String summaryClass, Execution execution) {
+        new IncrementalFill(result, summaryClass, execution).start();
+    }
+
+    private void start() {
+        if (parts.isEmpty())
+            target.incoming().markComplete();
+        for (int i = 0; i < parts.size(); i++) {
+            int index = i;
+            try {
+                execution.context().getAsyncExecutor().execute(() -> fill(index));
+            }
+            catch (RejectedExecutionException e) {
+                fill(index); // overloaded: Fill in this thread instead
+            }
+        }
+    }
+
+    private void fill(int index) {
+        Result part = parts.get(index);
+        try {
+            new Execution(execution).fill(part, summaryClass);
+        }
+        catch (RuntimeException e) {
+            part.hits().addError(ErrorMessage.createUnspecifiedError("Failed filling: " + Exceptions.toMessageString(e), e));
+        }
+        finally {
+            filled(index);
+        }
+    }
+
+    private synchronized void filled(int index) {
+        filled[index] = true;
+        for (; nextPart < parts.size() && filled[nextPart]; nextPart++) {
+            Result part = parts.get(nextPart);
+            List<Hit> hits = new ArrayList<>(part.hits().asUnorderedHits());
+            if (nextPart == parts.size() - 1)
+                target.incoming().addLast(hits);
+            else
+                target.incoming().add(hits);
+        }
+    }
+
+}
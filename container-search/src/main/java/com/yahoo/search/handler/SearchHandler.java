@@ -28,6 +28,7 @@ import com.yahoo.net.HostName;
 import com.yahoo.net.UriTools;
 import com.yahoo.prelude.IndexFacts;
 import com.yahoo.prelude.IndexModel;
+import com.yahoo.prelude.query.Item;
 import com.yahoo.prelude.query.QueryException;
 import com.yahoo.prelude.query.parser.ParseException;
 import com.yahoo.prelude.query.parser.SpecialTokenRegistry;
@@ -40,15 +41,19 @@ import com.yahoo.yolean.Exceptions;
 import com.yahoo.search.Query;
 import com.yahoo.search.Result;
 import com.yahoo.search.Searcher;
+import com.yahoo.search.config.AsyncExecutionConfig;
 import com.yahoo.search.config.IndexInfoConfig;
+import com.yahoo.search.query.parser.ParsedQueryCache;
 import com.yahoo.search.query.profile.QueryProfileRegistry;
 import com.yahoo.search.query.profile.compiled.CompiledQueryProfile;
 import com.yahoo.search.query.profile.compiled.CompiledQueryProfileRegistry;
 import com.yahoo.search.query.profile.config.QueryProfileConfigurer;
 import com.yahoo.search.query.profile.config.QueryProfilesConfig;
 import com.yahoo.search.query.properties.DefaultProperties;
+import com.yahoo.search.rendering.JsonRenderer;
 import com.yahoo.search.rendering.RendererRegistry;
 import com.yahoo.search.result.ErrorMessage;
+import com.yahoo.search.searchchain.AsyncExecutor;
 import com.yahoo.search.searchchain.Execution;
 import com.yahoo.search.searchchain.SearchChainRegistry;
 import com.yahoo.search.statistics.ElapsedTime;
@@ -110,6 +115,12 @@ public class SearchHandler extends LoggingRequestHandler {
     
     /** If present, responses from this will set the HTTP response header with this key to the host name of this */
     private final Optional<String> hostResponseHeaderKey;
+
+    /** The executor of asynchronous executions started by queries to this */
+    private final AsyncExecutor asyncExecutor;
+
+    /** The cache of query trees parsed by queries to this */
+    private final ParsedQueryCache<Item> parsedQueryCache;
     
     private final String selfHostname = HostName.getLocalhost();
 
@@ -140,7 +151,8 @@ public class SearchHandler extends LoggingRequestHandler {
             final AccessLog accessLog,
             final QueryProfilesConfig queryProfileConfig,
             final ComponentRegistry<Searcher> searchers,
-            final ContainerHttpConfig containerHttpConfig) {
+            final ContainerHttpConfig containerHttpConfig,
+            final AsyncExecutionConfig asyncExecutionConfig) {
         super(executor, accessLog, metric, true);
         log.log(LogLevel.DEBUG, "SearchHandler.init " + System.identityHashCode(this));
         searchChainRegistry = new SearchChainRegistry(searchers);
@@ -163,6 +175,30 @@ public class SearchHandler extends LoggingRequestHandler {
         
         this.hostResponseHeaderKey = containerHttpConfig.hostResponseHeaderKey().equals("") ?
                                      Optional.empty() : Optional.of( containerHttpConfig.hostResponseHeaderKey());
+        this.asyncExecutor = new AsyncExecutor(asyncExecutionConfig, metric);
+        this.parsedQueryCache = new ParsedQueryCache<>(10000, "query_parse_cache", metric);
+    }
+
+    /** @deprecated use the constructor with AsyncExecutionConfig */
+    // TODO: Remove on Vespa 7
+    @Deprecated
+    public SearchHandler(
+            final ChainsConfig chainsConfig,
+            final IndexInfoConfig indexInfo,
+            final QrSearchersConfig clusters,
+            final SpecialtokensConfig specialtokens,
+            final Statistics statistics,
+            final Linguistics linguistics,
+            final Metric metric,
+            final ComponentRegistry<Renderer> renderers,
+            final Executor executor,
+            final AccessLog accessLog,
+            final QueryProfilesConfig queryProfileConfig,
+            final ComponentRegistry<Searcher> searchers,
+            final ContainerHttpConfig containerHttpConfig) {
+        this (chainsConfig, indexInfo, clusters, specialtokens, statistics, linguistics, metric, renderers, executor,
+              accessLog, queryProfileConfig, searchers, containerHttpConfig,
+              new AsyncExecutionConfig(new AsyncExecutionConfig.Builder()));
     }
 
     /** @deprecated use the constructor with ContainerHttpConfig */
@@ -211,6 +247,7 @@ public class SearchHandler extends LoggingRequestHandler {
     protected void destroy() {
         super.destroy();
         rendererRegistry.deconstruct();
+        asyncExecutor.shutdown();
     }
 
     private void setupSearchChainRegistry(ComponentRegistry<Searcher> searchers, ChainsConfig chainsConfig) {
@@ -305,6 +342,8 @@ public class SearchHandler extends LoggingRequestHandler {
             searchChain = nameAndChain.second;
         }
 
+        boolean incremental = searchChain != null && isIncremental(query, benchmarkOutput);
+
         // Create the result
         Result result;
         if (invalidReason != null) {
@@ -319,7 +358,7 @@ public class SearchHandler extends LoggingRequestHandler {
                     ErrorMessage.createInvalidQueryParameter("No search chain named '" + searchChainName + "' was found"));
         } else {
             String pathAndQuery = UriTools.rawRequest(request.getUri());
-            result = search(pathAndQuery, query, searchChain, searchChainRegistry);
+            result = search(pathAndQuery, query, searchChain, searchChainRegistry, ! incremental);
         }
 
         Renderer renderer;
@@ -341,9 +380,23 @@ public class SearchHandler extends LoggingRequestHandler {
             VespaHeaders.benchmarkOutput(response.headers(), benchmarkCoverage, response.getTiming(),
                                          response.getHitCounts(), getErrors(result), response.getCoverage());
 
+        if (incremental && query.getModel().getExecution() != null)
+            IncrementalFill.start(result, result.getQuery().getPresentation().getSummary(), query.getModel().getExecution());
+
         return response;
     }
 
+    /**
+     * Returns whether the result of this query should be filled while it is rendered, rather than before.
+     * This is requested by setting {@link JsonRenderer#INCREMENTAL_RENDERING}, and is only done when rendering
+     * with the json renderer and no trace or benchmark information, which is only complete after filling, is requested.
+     */
+    private boolean isIncremental(Query query, boolean benchmarkOutput) {
+        if ( ! query.properties().getBoolean(JsonRenderer.INCREMENTAL_RENDERING, false)) return false;
+        if (benchmarkOutput || query.getTraceLevel() > 0) return false;
+        return rendererRegistry.getRenderer(query.getPresentation().getRenderer()) instanceof JsonRenderer;
+    }
+
     private static int getErrors(Result result) {
         return result.hits().getErrorHit() == null ? 0 : 1;
     }
@@ -371,6 +424,11 @@ public class SearchHandler extends LoggingRequestHandler {
 
     /** Used from container SDK, for internal use only */
     public Result searchAndFill(Query query, Chain<? extends Searcher> searchChain, SearchChainRegistry registry) {
+        return searchAndFill(query, searchChain, registry, true);
+    }
+
+    private Result searchAndFill(Query query, Chain<? extends Searcher> searchChain, SearchChainRegistry registry,
+                                 boolean fill) {
         Result errorResult = validateQuery(query);
         if (errorResult != null) return errorResult;
 
@@ -381,8 +439,10 @@ public class SearchHandler extends LoggingRequestHandler {
         if (query.getPresentation().getSummary() == null && renderer instanceof com.yahoo.search.rendering.Renderer)
             query.getPresentation().setSummary(((com.yahoo.search.rendering.Renderer) renderer).getDefaultSummaryClass());
 
-        Execution execution = new Execution(searchChain,
-                                            new Execution.Context(registry, indexFacts, specialTokens, rendererRegistry, linguistics));
+        Execution.Context context = new Execution.Context(registry, indexFacts, specialTokens, rendererRegistry, linguistics);
+        context.setAsyncExecutor(asyncExecutor);
+        context.setParsedQueryCache(parsedQueryCache);
+        Execution execution = new Execution(searchChain, context);
         query.getModel().setExecution(execution);
         execution.trace().setForceTimestamps(query.properties().getBoolean(FORCE_TIMESTAMPS, false));
         if (query.properties().getBoolean(DETAILED_TIMING_LOGGING, false)) {
@@ -395,7 +455,8 @@ public class SearchHandler extends LoggingRequestHandler {
             result.getTemplating().setRenderer(renderer);
 
         ensureQuerySet(result, query);
-        execution.fill(result, result.getQuery().getPresentation().getSummary());
+        if (fill)
+            execution.fill(result, result.getQuery().getPresentation().getSummary());
 
         traceExecutionTimes(query, result);
         traceVespaVersion(query);
@@ -435,7 +496,8 @@ public class SearchHandler extends LoggingRequestHandler {
         }
     }
 
-    private Result search(String request, Query query, Chain<Searcher> searchChain, SearchChainRegistry registry) {
+    private Result search(String request, Query query, Chain<Searcher> searchChain, SearchChainRegistry registry,
+                          boolean fill) {
         if (query.getTraceLevel() >= 2) {
             query.trace("Invoking " + searchChain, false, 2);
         }
@@ -448,7 +510,7 @@ public class SearchHandler extends LoggingRequestHandler {
                     new IllegalStateException("searchConnections reference is null."));
         }
         try {
-            return searchAndFill(query, searchChain, registry);
+            return searchAndFill(query, searchChain, registry, fill);
         } catch (ParseException e) {
             ErrorMessage error = ErrorMessage.createIllegalQuery("Could not parse query [" + request + "]: "
                                                                  + Exceptions.toMessageString(e));
@@ -11,7 +11,7 @@ import com.yahoo.prelude.query.textualrepresentation.TextualQueryRepresentation;
 import com.yahoo.processing.request.CompoundName;
 import com.yahoo.search.Query;
 import com.yahoo.search.query.parser.Parsable;
-import com.yahoo.search.query.parser.Parser;
+import com.yahoo.search.query.parser.ParsedQueryCache;
 import com.yahoo.search.query.parser.ParserEnvironment;
 import com.yahoo.search.query.parser.ParserFactory;
 import com.yahoo.search.query.profile.types.FieldDescription;
@@ -256,8 +256,7 @@ public class Model implements Cloneable {
      */
     public QueryTree getQueryTree() {
         if (queryTree == null) {
-            Parser parser = ParserFactory.newInstance(type, ParserEnvironment.fromExecutionContext(execution.context()));
-            queryTree = parser.parse(Parsable.fromQueryModel(this));
+            queryTree = parseQueryTree();
             if (parent.getTraceLevel() >= 2) {
                 parent.trace("Query parsed to: " + parent.yqlRepresentation(), 2);
             }
@@ -265,6 +264,22 @@ public class Model implements Cloneable {
         return queryTree;
     }
 
+    private QueryTree parseQueryTree() {
+        ParserEnvironment environment = ParserEnvironment.fromExecutionContext(execution.context());
+        Parsable parsable = Parsable.fromQueryModel(this);
+        ParsedQueryCache<Item> cache = execution.context().getParsedQueryCache();
+        if (cache == null || type == Query.Type.SELECT)
+            return ParserFactory.newInstance(type, environment).parse(parsable);
+
+        ParsedQueryCache.Key key = ParsedQueryCache.Key.from(type.toString(), parsable, environment, encoding);
+        Item cachedRoot = cache.get(key);
+        if (cachedRoot != null) return new QueryTree(cachedRoot.clone());
+
+        QueryTree parsed = ParserFactory.newInstance(type, environment).parse(parsable);
+        cache.put(key, parsed.getRoot().clone());
+        return parsed;
+    }
+
     /**
      * Clears the parsed query such that it will be created anew from the textual representation (a query string or
      * select.where expression) on the next access.
@@ -0,0 +1,200 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.query.parser;
+
+import com.yahoo.jdisc.Metric;
+import com.yahoo.language.Language;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded cache of parsed queries, keyed by everything which determines the outcome of parsing.
+ * The least recently used entries are evicted when the cache is full.
+ * <p>
+ * Values are stored and returned as-is, so they must not be modified after being added,
+ * and callers must copy values returned from this before modifying them.
+ * <p>
+ * Metrics: This counts the lookups which found an entry in <code>&lt;name&gt;_hits</code>
+ * and the lookups which did not in <code>&lt;name&gt;_misses</code>.
+ * <p>
+ * This class is multithread safe.
+ *
+ * @param <VALUE> the type of the parsed queries cached
+ */
+public final class ParsedQueryCache<VALUE> {
+
+    private static final int shardCount = 16;
+
+    private final Shard<VALUE>[] shards;
+
+    private final String hitsMetricName;
+    private final String missesMetricName;
+    private final Metric metric;
+
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong misses = new AtomicLong(0);
+
+    /**
+     * Creates a parsed query cache
+     *
+     * @param maxEntries the max number of entries in this
+     * @param name the name of this, used as prefix of its metric names
+     * @param metric the receiver of the metrics of this, or null to not emit metrics
+     */
+    @SuppressWarnings("unchecked")
+    public ParsedQueryCache(int maxEntries, String name, Metric metric) {
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++)
+            shards[i] = new Shard<>(Math.max(1, maxEntries / shardCount));
+        this.hitsMetricName = name + "_hits";
+        this.missesMetricName = name + "_misses";
+        this.metric = metric;
+    }
+
+    /** Returns the value cached for the given key, or null if none */
+    public VALUE get(Key key) {
+        VALUE value = shard(key).getValue(key);
+        if (value != null) {
+            hits.incrementAndGet();
+            if (metric != null) metric.add(hitsMetricName, 1, null);
+        }
+        else {
+            misses.incrementAndGet();
+            if (metric != null) metric.add(missesMetricName, 1, null);
+        }
+        return value;
+    }
+
+    /** Adds a value to this, which must not be modified after this call */
+    public void put(Key key, VALUE value) {
+        shard(key).putValue(key, value);
+    }
+
+    /** Returns the number of entries in this */
+    public int size() {
+        int size = 0;
+        for (Shard<VALUE> shard : shards)
+            size += shard.entryCount();
+        return size;
+    }
+
+    /** Returns the number of lookups which found an entry since this was created */
+    public long hits() { return hits.get(); }
+
+    /** Returns the number of lookups which did not find an entry since this was created */
+    public long misses() { return misses.get(); }
+
+    private Shard<VALUE> shard(Key key) {
+        return shards[Math.abs(key.hashCode() % shardCount)];
+    }
+
+    private static class Shard<VALUE> extends LinkedHashMap<Key, VALUE> {
+
+        private final int maxEntries;
+
+        Shard(int maxEntries) {
+            super(16, 0.75f, true);
+            this.maxEntries = maxEntries;
+        }
+
+        synchronized VALUE getValue(Key key) { return get(key); }
+
+        synchronized void putValue(Key key, VALUE value) { put(key, value); }
+
+        synchronized int entryCount() { return size(); }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, VALUE> eldest) {
+            return size() > maxEntries;
+        }
+
+    }
+
+    /**
+     * The key of a parsed query. Two keys are equal if parsing them produces the same result:
+     * The textual input and settings of the parsable are compared by value,
+     * while the index facts, linguistics and special tokens of the environment are compared by identity.
+     */
+    public static final class Key {
+
+        private final String syntax;
+        private final String query;
+        private final String filter;
+        private final String defaultIndexName;
+        private final Language language;
+        private final Language explicitLanguage;
+        private final String encoding;
+        private final TreeSet<String> sources;
+        private final TreeSet<String> restrict;
+        private final Object indexFacts;
+        private final Object linguistics;
+        private final Object specialTokens;
+
+        private final int hashCode;
+
+        private Key(String syntax, Parsable parsable, ParserEnvironment environment, String encoding) {
+            this.syntax = syntax;
+            this.query = parsable.getQuery();
+            this.filter = parsable.getFilter();
+            this.defaultIndexName = parsable.getDefaultIndexName();
+            this.language = parsable.getLanguage();
+            this.explicitLanguage = parsable.getExplicitLanguage().orElse(null);
+            this.encoding = encoding;
+            this.sources = new TreeSet<>(parsable.getSources());
+            this.restrict = new TreeSet<>(parsable.getRestrict());
+            this.indexFacts = environment.getIndexFacts();
+            this.linguistics = environment.getLinguistics();
+            this.specialTokens = environment.getSpecialTokens();
+            this.hashCode = Objects.hash(syntax, query, filter, defaultIndexName, language, explicitLanguage, encoding,
+                                         sources, restrict,
+                                         System.identityHashCode(indexFacts),
+                                         System.identityHashCode(linguistics),
+                                         System.identityHashCode(specialTokens));
+        }
+
+        /**
+         * Creates the key of parsing the given parsable in the given environment
+         *
+         * @param syntax the syntax the parsable is parsed as, such as the name of the query type
+         * @param parsable the parsable to parse. Parsables with a select are not supported.
+         * @param environment the environment used by the parser
+         * @param encoding the encoding of the query string, which is used to determine its language, or null if none
+         */
+        public static Key from(String syntax, Parsable parsable, ParserEnvironment environment, String encoding) {
+            return new Key(syntax, parsable, environment, encoding);
+        }
+
+        @Override
+        public int hashCode() { return hashCode; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) return true;
+            if ( ! (o instanceof Key)) return false;
+            Key other = (Key)o;
+            if (this.hashCode != other.hashCode) return false;
+            return this.indexFacts == other.indexFacts &&
+                   this.linguistics == other.linguistics &&
+                   this.specialTokens == other.specialTokens &&
+                   this.language == other.language &&
+                   this.explicitLanguage == other.explicitLanguage &&
+                   Objects.equals(this.syntax, other.syntax) &&
+                   Objects.equals(this.query, other.query) &&
+                   Objects.equals(this.filter, other.filter) &&
+                   Objects.equals(this.defaultIndexName, other.defaultIndexName) &&
+                   Objects.equals(this.encoding, other.encoding) &&
+                   this.sources.equals(other.sources) &&
+                   this.restrict.equals(other.restrict);
+        }
+
+        @Override
+        public String toString() {
+            return "parsed query key for " + syntax + " query '" + query + "'";
+        }
+
+    }
+
+}
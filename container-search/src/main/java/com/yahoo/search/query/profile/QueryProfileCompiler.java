@@ -57,8 +57,22 @@ public class QueryProfileCompiler {
                 unoverridables.put(variant.path().append(name), variant.binding(), Boolean.TRUE); // Used as a set; value is ignored
         }
 
+        DimensionalMap<CompoundName, Object> compiledValues = values.build();
+        DimensionalMap<CompoundName, QueryProfileType> compiledTypes = types.build();
+        DimensionalMap<CompoundName, Object> compiledReferences = references.build();
+        DimensionalMap<CompoundName, Object> compiledUnoverridables = unoverridables.build();
+
+        // Resolve lookup tables up front for the dimension values we know will be seen
+        for (DimensionBindingForPath variant : variants) {
+            Map<String, String> context = variant.binding().getContext();
+            compiledValues.prepare(context);
+            compiledTypes.prepare(context);
+            compiledReferences.prepare(context);
+            compiledUnoverridables.prepare(context);
+        }
+
         return new CompiledQueryProfile(in.getId(), in.getType(),
-                                        values.build(), types.build(), references.build(), unoverridables.build(),
+                                        compiledValues, compiledTypes, compiledReferences, compiledUnoverridables,
                                         registry);
     }
 
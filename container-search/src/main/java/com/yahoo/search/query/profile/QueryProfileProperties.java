@@ -34,6 +34,9 @@ public class QueryProfileProperties extends Properties {
     /** Query profile references which has been overridden at runtime, or null if none. Earlier values has precedence */
     private List<Pair<CompoundName, CompiledQueryProfile>> references = null;
 
+    /** The profile resolved for the last context used, as lookups in a query are mostly in the same context */
+    private CompiledQueryProfile.Resolved resolvedProfile = null;
+
     /** Creates an instance from a profile, throws an exception if the given profile is null */
     public QueryProfileProperties(CompiledQueryProfile profile) {
         Validator.ensureNotNull("The profile wrapped by this cannot be null", profile);
@@ -58,7 +61,7 @@ public class QueryProfileProperties extends Properties {
         }
 
         if (value == null)
-            value = profile.get(name, context, substitution);
+            value = resolvedProfile(context).get(name, context, substitution);
         if (value == null)
             value = super.get(name, context, substitution);
         return value;
@@ -78,7 +81,7 @@ public class QueryProfileProperties extends Properties {
             if (context == null)
                 context = Collections.emptyMap();
 
-            if ( ! profile.isOverridable(name, context)) return;
+            if ( ! resolvedProfile(context).isOverridable(name)) return;
 
             // Check runtime references
             Pair<CompoundName, CompiledQueryProfile> runtimeReference = findReference(name);
@@ -88,7 +91,7 @@ public class QueryProfileProperties extends Properties {
             // Check types
             if ( ! profile.getTypes().isEmpty()) {
                 for (int i = 0; i<name.size(); i++) {
-                    QueryProfileType type = profile.getType(name.first(i), context);
+                    QueryProfileType type = resolvedProfile(context).getType(name.first(i));
                     if (type == null) continue;
                     String localName = name.get(i);
                     FieldDescription fieldDescription = type.getField(localName);
@@ -236,7 +239,7 @@ public class QueryProfileProperties extends Properties {
 
         CompoundName unaliasedName = name;
         for (int i = 0; i<name.size(); i++) {
-            QueryProfileType type = profile.getType(name.first(i), context);
+            QueryProfileType type = resolvedProfile(context).getType(name.first(i));
             if (type == null) continue;
             if (type.aliases() == null) continue; // TODO: Make never null
             if (type.aliases().isEmpty()) continue;
@@ -247,6 +250,16 @@ public class QueryProfileProperties extends Properties {
         return unaliasedName;
     }
 
+    /** Returns the profile of this resolved for the given context */
+    private CompiledQueryProfile.Resolved resolvedProfile(Map<String, String> context) {
+        CompiledQueryProfile.Resolved resolved = resolvedProfile;
+        if (resolved == null || ! resolved.isResolvedFor(context)) {
+            resolved = profile.resolve(context);
+            resolvedProfile = resolved;
+        }
+        return resolved;
+    }
+
     @Override
     public QueryProfileProperties clone() {
         QueryProfileProperties clone = (QueryProfileProperties)super.clone();
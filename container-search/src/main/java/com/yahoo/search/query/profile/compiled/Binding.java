@@ -6,7 +6,10 @@ import com.yahoo.search.query.profile.DimensionBinding;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * An immutable binding of a set of dimensions to values.
@@ -75,6 +78,15 @@ public class Binding implements Comparable<Binding> {
         this.hashCode = bindingHash;
     }
 
+    /** Returns the names of the dimensions this binds a value for */
+    public List<String> dimensions() { return Collections.unmodifiableList(Arrays.asList(dimensions)); }
+
+    /** Adds the value this binds for each of its dimensions to the given sets of values by dimension */
+    void addDimensionValuesTo(Map<String, Set<String>> valuesByDimension) {
+        for (int i = 0; i < dimensions.length; i++)
+            valuesByDimension.computeIfAbsent(dimensions[i], dimension -> new HashSet<>()).add(dimensionValues[i]);
+    }
+
     /** Returns true only if this binding is null (contains no values for its dimensions (if any) */
     public boolean isNull() { return dimensions.length == 0; }
 
@@ -1,6 +1,7 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.search.query.profile.compiled;
 
+import com.google.common.collect.ImmutableSet;
 import com.yahoo.component.AbstractComponent;
 import com.yahoo.component.ComponentId;
 import com.yahoo.processing.request.CompoundName;
@@ -13,6 +14,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -42,6 +44,9 @@ public class CompiledQueryProfile extends AbstractComponent implements Cloneable
     /** Values which are not overridable in this. Used as a set. */
     private final DimensionalMap<CompoundName, Object> unoverridables;
 
+    /** The names of the dimensions which may influence the content of this */
+    private final Set<String> dimensions;
+
     /**
      * Creates a new query profile from an id.
      */
@@ -60,6 +65,11 @@ public class CompiledQueryProfile extends AbstractComponent implements Cloneable
         this.types = types;
         this.references = references;
         this.unoverridables = unoverridables;
+        this.dimensions = ImmutableSet.<String>builder().addAll(entries.dimensions())
+                                                        .addAll(types.dimensions())
+                                                        .addAll(references.dimensions())
+                                                        .addAll(unoverridables.dimensions())
+                                                        .build();
         if ( ! id.isAnonymous())
             validateName(id.getName());
     }
@@ -96,6 +106,12 @@ public class CompiledQueryProfile extends AbstractComponent implements Cloneable
     /** Returns the references reachable from this, or an empty map (never null) if none */
     public DimensionalMap<CompoundName, Object> getReferences() { return references; }
 
+    /**
+     * Returns the names of the dimensions which may influence the values of this.
+     * Two requests having the same values for these will resolve to the same values in this.
+     */
+    public Set<String> getDimensions() { return dimensions; }
+
     /**
      * Return all objects that start with the given prefix path using no context. Use "" to list all.
      * <p>
@@ -157,6 +173,14 @@ public class CompiledQueryProfile extends AbstractComponent implements Cloneable
         return substitute(entries.get(name, context), context, substitution);
     }
 
+    /**
+     * Returns the values of this resolved for the given context.
+     * Callers making many lookups in the same context should resolve it once and look up in the returned instance.
+     */
+    public Resolved resolve(Map<String, String> context) {
+        return new Resolved(context);
+    }
+
     private Object substitute(Object value, Map<String, String> context, Properties substitution) {
         if (value == null) return value;
         if (substitution == null) return value;
@@ -181,4 +205,42 @@ public class CompiledQueryProfile extends AbstractComponent implements Cloneable
         return "query profile '" + getId()  + "'" + (type!=null ? " of type '" + type.getId() + "'" : "");
     }
 
+    /** The content of a compiled query profile resolved for a context */
+    public final class Resolved {
+
+        private final DimensionalMap<CompoundName, Object>.Resolved entries;
+        private final DimensionalMap<CompoundName, QueryProfileType>.Resolved types;
+        private final DimensionalMap<CompoundName, Object>.Resolved unoverridables;
+
+        private Resolved(Map<String, String> context) {
+            this.entries = CompiledQueryProfile.this.entries.resolve(context);
+            this.types = CompiledQueryProfile.this.types.resolve(context);
+            this.unoverridables = CompiledQueryProfile.this.unoverridables.resolve(context);
+        }
+
+        /** Returns whether this holds the content of the profile resolved for the given context */
+        public boolean isResolvedFor(Map<String, String> context) {
+            return entries.isResolvedFor(context) && types.isResolvedFor(context) && unoverridables.isResolvedFor(context);
+        }
+
+        /**
+         * Same as {@link CompiledQueryProfile#get(CompoundName, Map, Properties)}.
+         * The given context must be one this is resolved for.
+         */
+        public Object get(CompoundName name, Map<String, String> context, Properties substitution) {
+            return substitute(entries.get(name), context, substitution);
+        }
+
+        /** Same as {@link CompiledQueryProfile#isOverridable} in the contexts this is resolved for */
+        public boolean isOverridable(CompoundName name) {
+            return unoverridables.get(name) == null;
+        }
+
+        /** Same as {@link CompiledQueryProfile#getType(CompoundName, Map)} in the contexts this is resolved for */
+        public QueryProfileType getType(CompoundName name) {
+            return types.get(name);
+        }
+
+    }
+
 }
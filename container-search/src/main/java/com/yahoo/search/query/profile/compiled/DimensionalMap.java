@@ -2,33 +2,132 @@
 package com.yahoo.search.query.profile.compiled;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.yahoo.search.query.profile.DimensionBinding;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A map which may return different values depending on the values given in a context
  * supplied with the key on all operations.
  * <p>
- * Dimensional maps are immutable and created through a DimensionalMap.Builder
+ * Dimensional maps are immutable and created through a DimensionalMap.Builder.
+ * Lookups are served from arrays of values resolved for the dimension values of a context,
+ * which are created on first use and kept for a bounded number of distinct contexts.
+ * Dimension values which are not used in any binding are ignored, as they resolve like a missing value.
  *
  * @author bratseth
  */
 public class DimensionalMap<KEY, VALUE> {
 
+    /** The max number of distinct contexts to keep resolved values for */
+    private static final int maxResolvedContexts = 256;
+
     private final Map<KEY, DimensionalValue<VALUE>> values;
 
+    /** The index of each key into the arrays of resolved values */
+    private final Map<KEY, Integer> indexes;
+
+    /** The variants of each key, by index */
+    private final List<DimensionalValue<VALUE>> variants;
+
+    /** The dimensions the values of this depend on, in a fixed order */
+    private final String[] dimensions;
+
+    /** The values of each dimension which are used in some binding, by dimension index */
+    private final List<Set<String>> boundValues;
+
+    /** The values of this resolved for a context having no bound dimension values */
+    private final Resolved unbound;
+
+    /** Values resolved for the dimension values of contexts seen, where the key holds one value per dimension */
+    private final Map<List<String>, Resolved> resolvedValues = new ConcurrentHashMap<>();
+
     private DimensionalMap(Map<KEY, DimensionalValue<VALUE>> values) {
         this.values = ImmutableMap.copyOf(values);
+
+        ImmutableMap.Builder<KEY, Integer> indexes = new ImmutableMap.Builder<>();
+        List<DimensionalValue<VALUE>> variants = new ArrayList<>(values.size());
+        for (Map.Entry<KEY, DimensionalValue<VALUE>> entry : this.values.entrySet()) {
+            indexes.put(entry.getKey(), variants.size());
+            variants.add(entry.getValue());
+        }
+        this.indexes = indexes.build();
+        this.variants = variants;
+
+        Map<String, Set<String>> valuesByDimension = new HashMap<>();
+        for (DimensionalValue<VALUE> value : this.values.values())
+            value.addDimensionValuesTo(valuesByDimension);
+        this.dimensions = new TreeSet<>(valuesByDimension.keySet()).toArray(new String[0]);
+        List<Set<String>> boundValues = new ArrayList<>(dimensions.length);
+        for (String dimension : dimensions)
+            boundValues.add(ImmutableSet.copyOf(valuesByDimension.get(dimension)));
+        this.boundValues = boundValues;
+
+        this.unbound = new Resolved(new String[dimensions.length], resolveValues(Collections.emptyMap()));
     }
 
     /** Returns the value for this key matching a context, or null if none */
     public VALUE get(KEY key, Map<String, String> context) {
-        DimensionalValue<VALUE> variants = values.get(key);
-        if (variants == null) return null;
-        return variants.get(context);
+        return resolve(context).get(key);
+    }
+
+    /**
+     * Resolves and keeps the values of this for the dimension values of the given context,
+     * such that later lookups in matching contexts are cheap.
+     */
+    public void prepare(Map<String, String> context) {
+        resolve(context);
+    }
+
+    /**
+     * Returns the values of this resolved for the given context.
+     * Callers making many lookups in the same context should resolve it once and look up in the returned instance.
+     */
+    public Resolved resolve(Map<String, String> context) {
+        if (dimensions.length == 0 || context == null) return unbound;
+
+        String[] dimensionValues = boundValuesOf(context);
+        if (dimensionValues == null) return unbound;
+        List<String> contextKey = Arrays.asList(dimensionValues);
+
+        Resolved resolved = resolvedValues.get(contextKey);
+        if (resolved != null) return resolved;
+
+        resolved = new Resolved(dimensionValues, resolveValues(context));
+        if (resolvedValues.size() < maxResolvedContexts) // only bound values are kept, so this is rarely reached
+            resolvedValues.put(contextKey, resolved);
+        return resolved;
+    }
+
+    /** Returns the bound value of each dimension in the given context, or null if it has none */
+    private String[] boundValuesOf(Map<String, String> context) {
+        String[] dimensionValues = null;
+        for (int i = 0; i < dimensions.length; i++) {
+            String value = context.get(dimensions[i]);
+            if (value == null || ! boundValues.get(i).contains(value)) continue;
+            if (dimensionValues == null)
+                dimensionValues = new String[dimensions.length];
+            dimensionValues[i] = value;
+        }
+        return dimensionValues;
+    }
+
+    private Object[] resolveValues(Map<String, String> context) {
+        Object[] resolved = new Object[variants.size()];
+        for (int i = 0; i < resolved.length; i++)
+            resolved[i] = variants.get(i).get(context);
+        return resolved;
     }
 
     /** Returns the set of dimensional entries across all contexts. */
@@ -36,6 +135,14 @@ public class DimensionalMap<KEY, VALUE> {
         return values.entrySet();
     }
 
+    /** Returns the names of all the dimensions which may influence the values of this */
+    public Set<String> dimensions() {
+        Set<String> dimensions = new HashSet<>();
+        for (DimensionalValue<VALUE> value : values.values())
+            value.addDimensionsTo(dimensions);
+        return dimensions;
+    }
+
     /** Returns true if this is empty for all contexts. */
     public boolean isEmpty() {
         return values.isEmpty();
@@ -65,4 +172,39 @@ public class DimensionalMap<KEY, VALUE> {
 
     }
 
+    /** The values of a dimensional map resolved for the bound dimension values of a context */
+    public final class Resolved {
+
+        /** The bound value of each dimension of the map this is resolved for, or null if not bound */
+        private final String[] dimensionValues;
+
+        /** The value of each key, by index */
+        private final Object[] values;
+
+        private Resolved(String[] dimensionValues, Object[] values) {
+            this.dimensionValues = dimensionValues;
+            this.values = values;
+        }
+
+        /** Returns the value for this key in the context this is resolved for, or null if none */
+        @SuppressWarnings("unchecked")
+        public VALUE get(KEY key) {
+            Integer index = indexes.get(key);
+            if (index == null) return null;
+            return (VALUE)values[index];
+        }
+
+        /** Returns whether this holds the values resolved for the given context */
+        public boolean isResolvedFor(Map<String, String> context) {
+            for (int i = 0; i < dimensions.length; i++) {
+                String value = context == null ? null : context.get(dimensions[i]);
+                if (value != null && ! boundValues.get(i).contains(value))
+                    value = null;
+                if ( ! Objects.equals(value, dimensionValues[i])) return false;
+            }
+            return true;
+        }
+
+    }
+
 }
@@ -48,6 +48,18 @@ public class DimensionalValue<VALUE> {
 
     public boolean isEmpty() { return values.isEmpty(); }
 
+    /** Adds the names of the dimensions any of the variants of this depends on to the given set */
+    void addDimensionsTo(Set<String> dimensions) {
+        for (Value<VALUE> value : values)
+            dimensions.addAll(value.binding().dimensions());
+    }
+
+    /** Adds the values any of the variants of this binds for each dimension to the given sets of values by dimension */
+    void addDimensionValuesTo(Map<String, Set<String>> valuesByDimension) {
+        for (Value<VALUE> value : values)
+            value.binding().addDimensionValuesTo(valuesByDimension);
+    }
+
     @Override
     public String toString() {
         return values.toString();
@@ -21,6 +21,9 @@ public class RequestContextProperties extends Properties {
         this.requestMap = properties;
     }
 
+    /** Returns the request properties which are used as context when no other context is given */
+    public Map<String, String> getRequestMap() { return requestMap; }
+
     @Override
     public Object get(CompoundName name,Map<String,String> context,
                       com.yahoo.processing.request.Properties substitution) {
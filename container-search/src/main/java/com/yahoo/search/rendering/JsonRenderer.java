@@ -79,6 +79,12 @@ public class JsonRenderer extends AsynchronousSectionedRenderer<Result> {
     private static final CompoundName DEBUG_RENDERING_KEY = new CompoundName("renderer.json.debug");
     private static final CompoundName JSON_CALLBACK = new CompoundName("jsoncallback");
 
+    /**
+     * Set this to true to request that hits are filled while the result is rendered, such that the response
+     * can be written as hit groups are filled rather than after the entire result is filled.
+     */
+    public static final CompoundName INCREMENTAL_RENDERING = new CompoundName("renderer.json.incremental");
+
     // if this must be optimized, simply use com.fasterxml.jackson.core.SerializableString
     private static final String BUCKET_LIMITS = "limits";
     private static final String BUCKET_TO = "to";
@@ -127,6 +133,8 @@ public class JsonRenderer extends AsynchronousSectionedRenderer<Result> {
     private JsonGenerator generator;
     private FieldConsumer fieldConsumer;
     private Deque<Integer> renderedChildren;
+    /** For each list being rendered, whether it was incomplete when rendering of it started */
+    private Deque<Boolean> incrementalLists;
     private boolean debugRendering;
     private LongSupplier timeSource;
     private OutputStream stream;
@@ -300,6 +308,7 @@ public class JsonRenderer extends AsynchronousSectionedRenderer<Result> {
         debugRendering = false;
         setGenerator(null, debugRendering);
         renderedChildren = null;
+        incrementalLists = null;
         timeSource = System::currentTimeMillis;
         stream = null;
     }
@@ -309,7 +318,12 @@ public class JsonRenderer extends AsynchronousSectionedRenderer<Result> {
         beginJsonCallback(stream);
         debugRendering = getDebugRendering(getResult().getQuery());
         setGenerator(generatorFactory.createGenerator(stream, JsonEncoding.UTF8), debugRendering);
+        // Generator content is flushed to the stream as hits arrive, while the stream is flushed by the superclass
+        // when it runs out of data to render. Avoid also flushing the stream each time the generator is flushed.
+        if ( ! getResult().hits().complete().isDone())
+            generator.disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
         renderedChildren = new ArrayDeque<>();
+        incrementalLists = new ArrayDeque<>();
         generator.writeStartObject();
         renderTrace(getExecution().trace());
         renderTiming();
@@ -362,7 +376,11 @@ public class JsonRenderer extends AsynchronousSectionedRenderer<Result> {
                                     "Expected subclass of com.yahoo.search.result.HitGroup, got %s.",
                                     list.getClass());
         moreChildren();
+        // If the list is not complete its hits will be added during rendering, possibly with errors
+        incrementalLists.push( ! list.complete().isDone());
         renderHitGroupHead((HitGroup) list);
+        if (isIncremental())
+            generator.flush();
     }
 
     protected void moreChildren() throws IOException {
@@ -378,6 +396,11 @@ public class JsonRenderer extends AsynchronousSectionedRenderer<Result> {
         renderedChildren.push(renderedChildren.pop() + 1);
     }
 
+    /** Returns whether the list currently being rendered is rendered incrementally */
+    private boolean isIncremental() {
+        return Boolean.TRUE.equals(incrementalLists.peek());
+    }
+
     private void lessChildren() throws IOException {
         int lastRenderedChildren = renderedChildren.pop();
         if (lastRenderedChildren > 0) {
@@ -392,11 +415,16 @@ public class JsonRenderer extends AsynchronousSectionedRenderer<Result> {
         if (getRecursionLevel() == 1)
             renderCoverage();
 
+        if ( ! isIncremental())
+            renderErrors(hitGroup);
+
+        // the framework will invoke begin methods as needed from here
+    }
+
+    private void renderErrors(HitGroup hitGroup) throws IOException {
         ErrorHit errorHit = hitGroup.getErrorHit();
         if (errorHit != null)
             renderErrors(errorHit.errors());
-
-        // the framework will invoke begin methods as needed from here
     }
 
     private void renderErrors(Set<ErrorMessage> errors) throws IOException {
@@ -578,11 +606,15 @@ public class JsonRenderer extends AsynchronousSectionedRenderer<Result> {
                                     "Expected subclass of com.yahoo.search.result.Hit, got %s.",
                                     data.getClass());
         renderHit((Hit) data);
+        if (isIncremental())
+            generator.flush();
     }
 
     @Override
     public void endList(DataList<?> list) throws IOException {
         lessChildren();
+        if (Boolean.TRUE.equals(incrementalLists.poll()))
+            renderErrors((HitGroup) list);
         generator.writeEndObject();
     }
 
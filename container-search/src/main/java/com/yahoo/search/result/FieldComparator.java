@@ -4,6 +4,7 @@ package com.yahoo.search.result;
 import com.yahoo.search.query.Sorting;
 
 import java.util.Comparator;
+import java.util.List;
 
 /**
  * Comparator used for ordering hits using the field values and a sorting specification.
@@ -62,16 +63,40 @@ public class FieldComparator extends ChainableComparator {
             // result is filled.
             if ((a == null) || (b == null)) return 0;
 
-            int x = compareValues(a, b, fieldOrder.getSorter());
-            if (x != 0) {
-                if (fieldOrder.getSortOrder() == Sorting.Order.DESCENDING)
-                    x *= -1;
-                return x;
-            }
+            int x = compareValues(a, b, fieldOrder);
+            if (x != 0) return x;
         }
         return super.compare(first,second);
     }
 
+    /** Returns the number of sort values of each hit, as written by {@link #getSortValues} */
+    int getSortValueCount() {
+        return sorting.fieldOrders().size();
+    }
+
+    /** Writes the values of the fields of the given hit which this sorts by into values, starting at offset */
+    void getSortValues(Hit hit, Object[] values, int offset) {
+        for (Sorting.FieldOrder fieldOrder : sorting.fieldOrders())
+            values[offset++] = getField(hit, fieldOrder.getFieldName());
+    }
+
+    /**
+     * Compares the hits having the sort values starting at the two given offsets in values,
+     * in the same way as {@link #compare} compares the hits, except that the secondary comparator is not used.
+     */
+    int compareSortValues(Object[] values, int firstOffset, int secondOffset) {
+        List<Sorting.FieldOrder> fieldOrders = sorting.fieldOrders();
+        for (int i = 0; i < fieldOrders.size(); i++) {
+            Object a = values[firstOffset + i];
+            Object b = values[secondOffset + i];
+            if ((a == null) || (b == null)) return 0;
+
+            int x = compareValues(a, b, fieldOrders.get(i));
+            if (x != 0) return x;
+        }
+        return 0;
+    }
+
     public Object getField(Hit hit,String key) {
         if ("[relevance]".equals(key)) return hit.getRelevance();
         if ("[rank]".equals(key)) return hit.getRelevance();
@@ -79,6 +104,11 @@ public class FieldComparator extends ChainableComparator {
         return hit.getField(key);
     }
 
+    private int compareValues(Object first, Object second, Sorting.FieldOrder fieldOrder) {
+        int x = compareValues(first, second, fieldOrder.getSorter());
+        return fieldOrder.getSortOrder() == Sorting.Order.DESCENDING ? -x : x;
+    }
+
     @SuppressWarnings("rawtypes")
     private int compareValues(Object first, Object second, Sorting.AttributeSorter s) {
         if (first.getClass().isInstance(second)
@@ -493,10 +493,14 @@ public class HitGroup extends Hit implements DataList<Hit>, Cloneable, Iterable<
      */
     public void trim(int offset, int numHits) {
         updateHits();
-        ensureSorted();
-
         int highBound = numHits + offset; // Largest offset +1
 
+        // Only the hits which are kept need to be ordered when the hits removed are all concrete
+        if (highBound >= 0 && highBound < hits.size() && needsSorting() && ! containsAuxiliaryHits())
+            sort(highBound);
+        else
+            ensureSorted();
+
         int currentIndex = -1;
 
         for (Iterator<Hit> i = hits.iterator(); i.hasNext();) {
@@ -578,18 +582,30 @@ public class HitGroup extends Hit implements DataList<Hit>, Cloneable, Iterable<
      * the hits have changed their internal state in a way that should change ordering
      */
     public void sort() {
+        sort(hits.size());
+    }
+
+    /** Sorts such that the first count hits are in order, the order of the hits after those is not defined */
+    private void sort(int count) {
         if (hitOrderer == null) {
-            Collections.sort(hits);
+            HitSorter.sortByRelevance(hits, count);
             hitsSorted = true;
         } else {
             // This may or may not lead to a sorted result set, but it's a best effort
-            hitOrderer.order(hits);
+            hitOrderer.orderFirst(hits, count);
             if (likelyHitsHaveCorrectValueForSortFields()) {
                 hitsSorted = true;
             }
         }
     }
 
+    private boolean containsAuxiliaryHits() {
+        for (Hit hit : hits) {
+            if (hit.isAuxiliary()) return true;
+        }
+        return false;
+    }
+
     private boolean likelyHitsHaveCorrectValueForSortFields() {
         if (hitOrderer == null) {
             return true;
@@ -632,11 +648,15 @@ public class HitGroup extends Hit implements DataList<Hit>, Cloneable, Iterable<
 
     /** Called before hit lists or positions are used */
     private void ensureSorted() {
-        if ( ! orderedHits && ! hitsSorted && likelyHitsHaveCorrectValueForSortFields()) {
+        if (needsSorting()) {
             sort();
         }
     }
 
+    private boolean needsSorting() {
+        return ! orderedHits && ! hitsSorted && likelyHitsHaveCorrectValueForSortFields();
+    }
+
     /**
      * Returns true if all the hits recursively contained in this
      * is cached
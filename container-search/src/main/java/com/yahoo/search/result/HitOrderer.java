@@ -15,6 +15,16 @@ public abstract class HitOrderer {
     /** Orders the given list of hits */
     public abstract void order(List<Hit> hits);
 
+    /**
+     * Orders the given list of hits such that the first count hits are the first hits of the complete ordering,
+     * while the hits after those may be in any order.
+     * <p>
+     * This default implementation orders the entire list.
+     */
+    public void orderFirst(List<Hit> hits, int count) {
+        order(hits);
+    }
+
     /**
      * Returns the Comparator that this HitOrderer uses internally to
      * sort hits. Returns null if no Comparator is used.
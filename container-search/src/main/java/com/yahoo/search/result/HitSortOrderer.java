@@ -17,12 +17,16 @@ public class HitSortOrderer extends HitOrderer {
 
     private final Comparator<Hit> fieldComparator;
 
+    /** The comparator of the sorting of this, or null if this was created from a comparator */
+    private final FieldComparator sortingComparator;
+
     /** Create a sort order from a sorting */
     public HitSortOrderer(Sorting sorting) {
+        sortingComparator = new FieldComparator(sorting);
         fieldComparator =
                 new MetaHitsFirstComparator(
                         new HitGroupsLastComparator(
-                                new FieldComparator(sorting)));
+                                sortingComparator));
     }
 
     /**
@@ -31,6 +35,7 @@ public class HitSortOrderer extends HitOrderer {
      */
     public HitSortOrderer(Comparator<Hit> comparator) {
         fieldComparator = new MetaHitsFirstComparator(new HitGroupsLastComparator(comparator));
+        sortingComparator = null;
     }
 
     /**
@@ -40,7 +45,41 @@ public class HitSortOrderer extends HitOrderer {
      * ordering. The sorting is stable.
      */
     public void order(List<Hit> hits) {
-        Collections.sort(hits, fieldComparator);
+        orderFirst(hits, hits.size());
+    }
+
+    /**
+     * Orders the first count hits of the given list according to the sorting given at construction.
+     * When created from a sorting, the values of the sort fields are looked up once per hit.
+     */
+    @Override
+    public void orderFirst(List<Hit> hits, int count) {
+        if (hits.size() < 2) return;
+        if (sortingComparator == null && count >= hits.size()) {
+            Collections.sort(hits, fieldComparator);
+            return;
+        }
+
+        Hit[] array = hits.toArray(new Hit[hits.size()]);
+        if (sortingComparator == null) {
+            HitSorter.sort(hits, array, count, (first, second) -> fieldComparator.compare(array[first], array[second]));
+            return;
+        }
+
+        // Meta hits first, then other hits, then groups: The order of MetaHitsFirst- and HitGroupsLastComparator
+        byte[] kinds = new byte[array.length];
+        int valueCount = sortingComparator.getSortValueCount();
+        Object[] values = new Object[array.length * valueCount];
+        for (int i = 0; i < array.length; i++) {
+            kinds[i] = array[i].isMeta() ? 0 : array[i] instanceof HitGroup ? (byte)2 : (byte)1;
+            if (kinds[i] != 0)
+                sortingComparator.getSortValues(array[i], values, i * valueCount);
+        }
+        HitSorter.sort(hits, array, count, (first, second) -> {
+            if (kinds[first] != kinds[second]) return kinds[first] - kinds[second];
+            if (kinds[first] == 0) return 0;
+            return sortingComparator.compareSortValues(values, first * valueCount, second * valueCount);
+        });
     }
 
     public Comparator<Hit> getComparator() {
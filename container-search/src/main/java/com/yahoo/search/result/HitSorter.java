@@ -0,0 +1,233 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.result;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Sorts lists of hits using sort keys which are extracted from each hit once, into arrays indexed by
+ * the position of the hit in the list, instead of on each comparison.
+ * <p>
+ * The sort is stable, and takes advantage of runs of hits which are already ordered, such that a list made
+ * by adding k ordered lists (e.g one from each source of a federated query) is merged in n log k time.
+ * When only the first hits are needed in order, the others are not ordered.
+ */
+final class HitSorter {
+
+    /** Returns whether the hit class overrides the relevance order defined by {@link Hit#compareTo} */
+    private static final ClassValue<Boolean> overridesCompareTo = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            try {
+                return type.getMethod("compareTo", Hit.class).getDeclaringClass() != Hit.class;
+            }
+            catch (NoSuchMethodException e) {
+                return true;
+            }
+        }
+    };
+
+    /** Compares two hits given by their positions in the list before it is sorted */
+    interface PositionComparator {
+
+        int compare(int first, int second);
+
+    }
+
+    private HitSorter() {}
+
+    /**
+     * Sorts hits in the order defined by {@link Hit#compareTo}, by decreasing relevance.
+     *
+     * @param hits the hits to sort
+     * @param count the number of hits which must be ordered. The hits after these are in no particular order
+     */
+    static void sortByRelevance(List<Hit> hits, int count) {
+        int size = hits.size();
+        if (size < 2) return;
+
+        double[] scores = new double[size];
+        int[] addNumbers = new int[size];
+        Hit[] array = new Hit[size];
+        for (int i = 0; i < size; i++) {
+            Hit hit = hits.get(i);
+            if (overridesCompareTo.get(hit.getClass())) {
+                Collections.sort(hits);
+                return;
+            }
+            array[i] = hit;
+            scores[i] = hit.getRelevance().getScore();
+            addNumbers[i] = hit.getAddNumber();
+        }
+        sort(hits, array, count, (first, second) -> {
+            int result = compareScores(scores[second], scores[first]);
+            if (result != 0) return result;
+            result = addNumbers[first] - addNumbers[second];
+            if (result != 0) return result;
+            return array[first].compareTo(array[second]);
+        });
+    }
+
+    /** Compares relevance scores as {@link Relevance#compareTo} */
+    private static int compareScores(double first, double second) {
+        if (Double.isNaN(first)) return Double.isNaN(second) ? 0 : -1;
+        if (Double.isNaN(second)) return 1;
+        return Double.compare(first, second);
+    }
+
+    /**
+     * Sorts hits using the given comparator.
+     *
+     * @param hits the hits to sort
+     * @param array the hits of the list in the order they have before sorting
+     * @param count the number of hits which must be ordered. The hits after these are in no particular order
+     * @param comparator the comparator of the hits in the array by their positions
+     */
+    static void sort(List<Hit> hits, Hit[] array, int count, PositionComparator comparator) {
+        int size = array.length;
+        if (size < 2) return;
+
+        // Break ties by position, which makes any order we produce stable
+        PositionComparator stableComparator = (first, second) -> {
+            int result = comparator.compare(first, second);
+            return result != 0 ? result : Integer.compare(first, second);
+        };
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++)
+            order[i] = i;
+        if (count < size / 2)
+            orderFirst(order, Math.max(count, 0), stableComparator);
+        else
+            mergeSort(order, stableComparator);
+
+        // Does not notify listeners of the list, as no hits are added
+        int[] position = new int[1];
+        hits.replaceAll(hit -> array[order[position[0]++]]);
+    }
+
+    /** Sorts by merging runs of positions which are already ordered */
+    private static void mergeSort(int[] order, PositionComparator comparator) {
+        int size = order.length;
+        int[] runs = new int[size + 1];
+        int runCount = 0;
+        for (int start = 0; start < size; ) {
+            int end = start + 1;
+            if (end < size && comparator.compare(order[end], order[start]) < 0) {
+                while (end < size && comparator.compare(order[end], order[end - 1]) < 0)
+                    end++;
+                reverse(order, start, end);
+            }
+            else {
+                while (end < size && comparator.compare(order[end], order[end - 1]) >= 0)
+                    end++;
+            }
+            runs[runCount++] = start;
+            start = end;
+        }
+        runs[runCount] = size;
+
+        int[] buffer = new int[size];
+        while (runCount > 1) {
+            int mergedCount = 0;
+            for (int i = 0; i < runCount; i += 2) {
+                if (i + 1 < runCount)
+                    merge(order, buffer, runs[i], runs[i + 1], runs[i + 2], comparator);
+                runs[mergedCount++] = runs[i];
+            }
+            runs[mergedCount] = size;
+            runCount = mergedCount;
+        }
+    }
+
+    private static void merge(int[] order, int[] buffer, int start, int middle, int end, PositionComparator comparator) {
+        System.arraycopy(order, start, buffer, start, middle - start);
+        int left = start;
+        int right = middle;
+        int target = start;
+        while (left < middle && right < end) {
+            if (comparator.compare(order[right], buffer[left]) < 0)
+                order[target++] = order[right++];
+            else
+                order[target++] = buffer[left++];
+        }
+        while (left < middle)
+            order[target++] = buffer[left++];
+    }
+
+    private static void reverse(int[] order, int start, int end) {
+        for (int i = start, j = end - 1; i < j; i++, j--) {
+            int position = order[i];
+            order[i] = order[j];
+            order[j] = position;
+        }
+    }
+
+    /**
+     * Orders the first count positions by selecting them using a heap having the last of them on top,
+     * and puts the remaining positions after them.
+     */
+    private static void orderFirst(int[] order, int count, PositionComparator comparator) {
+        if (count == 0) return;
+
+        int size = order.length;
+        int[] heap = new int[count];
+        int heapSize = 0;
+        for (int position = 0; position < size; position++) {
+            if (heapSize < count) {
+                heap[heapSize] = position;
+                siftUp(heap, heapSize++, comparator);
+            }
+            else if (comparator.compare(position, heap[0]) < 0) {
+                heap[0] = position;
+                siftDown(heap, 0, heapSize, comparator);
+            }
+        }
+
+        boolean[] selected = new boolean[size];
+        for (int i = 0; i < count; i++)
+            selected[heap[i]] = true;
+        for (int end = count - 1; end > 0; end--) { // Heap sort the selected positions in place
+            int last = heap[0];
+            heap[0] = heap[end];
+            heap[end] = last;
+            siftDown(heap, 0, end, comparator);
+        }
+        System.arraycopy(heap, 0, order, 0, count);
+        int next = count;
+        for (int position = 0; position < size; position++) {
+            if ( ! selected[position])
+                order[next++] = position;
+        }
+    }
+
+    private static void siftUp(int[] heap, int index, PositionComparator comparator) {
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (comparator.compare(heap[index], heap[parent]) <= 0) return;
+            swap(heap, index, parent);
+            index = parent;
+        }
+    }
+
+    private static void siftDown(int[] heap, int index, int heapSize, PositionComparator comparator) {
+        while (true) {
+            int largest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < heapSize && comparator.compare(heap[left], heap[largest]) > 0)
+                largest = left;
+            if (right < heapSize && comparator.compare(heap[right], heap[largest]) > 0)
+                largest = right;
+            if (largest == index) return;
+            swap(heap, index, largest);
+            index = largest;
+        }
+    }
+
+    private static void swap(int[] heap, int i, int j) {
+        int position = heap[i];
+        heap[i] = heap[j];
+        heap[j] = position;
+    }
+
+}
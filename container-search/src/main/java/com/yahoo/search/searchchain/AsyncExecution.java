@@ -2,15 +2,18 @@
 package com.yahoo.search.searchchain;
 
 import com.yahoo.component.chain.Chain;
-import com.yahoo.concurrent.ThreadFactoryFactory;
 import com.yahoo.search.Query;
 import com.yahoo.search.Result;
 import com.yahoo.search.Searcher;
+import com.yahoo.search.result.ErrorMessage;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
-import java.util.concurrent.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 /**
  * Provides asynchronous execution of searchchains.
@@ -39,25 +42,16 @@ import java.util.concurrent.*;
  * created for each AsyncExecution instance.
  * </p>
  *
+ * <p>
+ * Executions are run by the {@link AsyncExecutor} of the execution context. If it is
+ * overloaded, the returned future will immediately hold a result containing an error.
+ * </p>
+ *
  * @see com.yahoo.search.searchchain.Execution
  * @author Arne Bergene Fossaa
  */
 public class AsyncExecution {
 
-    private static final ThreadFactory threadFactory = ThreadFactoryFactory.getThreadFactory("search");
-
-    private static final Executor executorMain = createExecutor();
-
-    private static Executor createExecutor() {
-        ThreadPoolExecutor executor = new ThreadPoolExecutor(100, Integer.MAX_VALUE, 1L, TimeUnit.SECONDS,
-                                                            new SynchronousQueue<>(false), threadFactory);
-        // Prestart needed, if not all threads will be created by the fist N tasks and hence they might also
-        // get the dreaded thread locals initialized even if they will never run.
-        // That counters what we we want to achieve with the Q that will prefer thread locality.
-        executor.prestartAllCoreThreads();
-        return executor;
-    }
-
     /** The execution this executes */
     private final Execution execution;
 
@@ -118,7 +112,7 @@ public class AsyncExecution {
      * @see com.yahoo.search.searchchain.Execution
      */
     public FutureResult search(Query query) {
-        return getFutureResult(() -> execution.search(query), query);
+        return getFutureResult(() -> execution.search(query), error -> new Result(query, error), query);
     }
 
     public FutureResult searchAndFill(Query query) {
@@ -126,11 +120,7 @@ public class AsyncExecution {
             Result result = execution.search(query);
             execution.fill(result, query.getPresentation().getSummary());
             return result;
-        }, query);
-    }
-
-    private static Executor getExecutor() {
-        return executorMain;
+        }, error -> new Result(query, error), query);
     }
 
     /**
@@ -142,27 +132,33 @@ public class AsyncExecution {
         return getFutureResult(() -> {
             execution.fill(result, summaryClass);
             return result;
+        }, error -> {
+            result.hits().addError(error);
+            return result;
         }, result.getQuery());
 
     }
 
-    private static <T> Future<T> getFuture(Callable<T> callable) {
-        final FutureTask<T> future = new FutureTask<>(callable);
-        getExecutor().execute(future);
+    /**
+     * Returns a future result executing the given callable, or if the executor is overloaded,
+     * an already completed future holding the result of calling the given rejection function with an error
+     */
+    private FutureResult getFutureResult(Callable<Result> callable, Function<ErrorMessage, Result> rejected, Query query) {
+        FutureResult future = new FutureResult(callable, execution, query);
+        try {
+            execution.context().getAsyncExecutor().execute(future);
+        }
+        catch (RejectedExecutionException e) {
+            ErrorMessage error = createOverloadError();
+            future = new FutureResult(() -> rejected.apply(error), execution, query);
+            future.run();
+        }
         return future;
     }
 
-    private static Future<Void> runTask(Runnable runnable) {
-        return getFuture(() -> {
-            runnable.run();
-            return null;
-        });
-    }
-
-    private FutureResult getFutureResult(Callable<Result> callable, Query query) {
-        FutureResult future = new FutureResult(callable, execution, query);
-        getExecutor().execute(future);
-        return future;
+    private ErrorMessage createOverloadError() {
+        return new ErrorMessage(503, "Service unavailable",
+                                "Could not execute '" + execution + "': Too many concurrent executions in this container");
     }
 
     /*
@@ -176,13 +172,11 @@ public class AsyncExecution {
     public static List<Result> waitForAll(Collection<FutureResult> tasks, long timeoutMs) {
         // Copy the list in case it is modified while we are waiting
         List<FutureResult> workingTasks = new ArrayList<>(tasks);
-        try {
-            runTask(() -> {
-                for (FutureResult task : workingTasks)
-                    task.get();
-            }).get(timeoutMs, TimeUnit.MILLISECONDS);
-        } catch (TimeoutException | InterruptedException | ExecutionException e) {
-            // Handle timeouts below
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        for (FutureResult task : workingTasks) {
+            long timeLeft = deadline - System.currentTimeMillis();
+            if (timeLeft <= 0) break;
+            task.getIfAvailable(timeLeft, TimeUnit.MILLISECONDS); // Handle timeouts below
         }
 
         List<Result> results = new ArrayList<>(tasks.size());
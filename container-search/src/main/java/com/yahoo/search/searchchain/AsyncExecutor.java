@@ -0,0 +1,150 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.searchchain;
+
+import com.yahoo.concurrent.ThreadFactoryFactory;
+import com.yahoo.jdisc.Metric;
+import com.yahoo.search.config.AsyncExecutionConfig;
+
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The thread pool used by {@link AsyncExecution}s. This has a bounded number of threads and a bounded queue,
+ * and rejects tasks by throwing a RejectedExecutionException when both are exhausted.
+ * <p>
+ * Metrics: This sets the gauges <code>search_async_queue_size</code>, <code>search_async_active_threads</code>
+ * and <code>search_async_wait_time</code> (the milliseconds the last task waited for a thread),
+ * and counts rejected tasks in <code>search_async_rejected</code>.
+ *
+ * @see AsyncExecution
+ */
+public class AsyncExecutor implements Executor {
+
+    static final String QUEUE_SIZE_METRIC = "search_async_queue_size";
+    static final String ACTIVE_THREADS_METRIC = "search_async_active_threads";
+    static final String WAIT_TIME_METRIC = "search_async_wait_time";
+    static final String REJECTED_METRIC = "search_async_rejected";
+
+    private static final Object defaultExecutorLock = new Object();
+
+    /** The executor used by executions which are not given one, created on first use */
+    private static AsyncExecutor defaultExecutor = null;
+
+    private final ThreadPoolExecutor executor;
+    private final BlockingQueue<Runnable> queue;
+    private final Metric metric;
+
+    private final AtomicInteger activeThreads = new AtomicInteger(0);
+
+    public AsyncExecutor(AsyncExecutionConfig config, Metric metric) {
+        this(config.threads(), config.maxThreads(), config.queueSize(), metric);
+    }
+
+    /**
+     * Creates an executor
+     *
+     * @param threads the number of threads which are always kept alive
+     * @param maxThreads the max number of threads
+     * @param queueSize the max number of tasks waiting for a thread. If this is larger than 0,
+     *                  threads in addition to the given number of threads are only created when the queue is full
+     * @param metric the metric receiver of this, or null to not emit metrics
+     */
+    public AsyncExecutor(int threads, int maxThreads, int queueSize, Metric metric) {
+        if (threads < 0 || maxThreads < 1 || threads > maxThreads || queueSize < 0)
+            throw new IllegalArgumentException("Illegal async execution thread pool size: threads: " + threads +
+                                               ", maxThreads: " + maxThreads + ", queueSize: " + queueSize);
+        this.queue = queueSize == 0 ? new SynchronousQueue<>(false) : new LinkedBlockingQueue<>(queueSize);
+        this.executor = new ThreadPoolExecutor(threads, maxThreads, 1L, TimeUnit.SECONDS, queue,
+                                               ThreadFactoryFactory.getThreadFactory("search"));
+        // Prestart needed, if not all threads will be created by the fist N tasks and hence they might also
+        // get the dreaded thread locals initialized even if they will never run.
+        // That counters what we we want to achieve with the Q that will prefer thread locality.
+        executor.prestartAllCoreThreads();
+        this.metric = metric != null ? metric : new NullMetric();
+    }
+
+    /**
+     * Executes the given task in a thread of this
+     *
+     * @throws RejectedExecutionException if all threads are busy and the queue is full
+     */
+    @Override
+    public void execute(Runnable task) {
+        try {
+            executor.execute(new MeasuredTask(task));
+        }
+        catch (RejectedExecutionException e) {
+            metric.add(REJECTED_METRIC, 1, null);
+            throw e;
+        }
+    }
+
+    /** Returns the number of tasks currently waiting for a thread */
+    public int queueSize() { return queue.size(); }
+
+    /** Returns the number of tasks currently executing */
+    public int activeThreads() { return activeThreads.get(); }
+
+    /** Stops accepting new tasks. Tasks already accepted will be completed. */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /** Returns the executor to use when no executor is assigned to an execution context */
+    static AsyncExecutor defaultExecutor() {
+        synchronized (defaultExecutorLock) {
+            if (defaultExecutor == null) {
+                AsyncExecutionConfig config = new AsyncExecutionConfig(new AsyncExecutionConfig.Builder());
+                defaultExecutor = new AsyncExecutor(config, null);
+            }
+            return defaultExecutor;
+        }
+    }
+
+    /** A task which records the time it spent waiting for a thread */
+    private class MeasuredTask implements Runnable {
+
+        private final Runnable task;
+        private final long submitTime = System.currentTimeMillis();
+
+        MeasuredTask(Runnable task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            int active = activeThreads.incrementAndGet();
+            metric.set(WAIT_TIME_METRIC, System.currentTimeMillis() - submitTime, null);
+            metric.set(ACTIVE_THREADS_METRIC, active, null);
+            metric.set(QUEUE_SIZE_METRIC, queue.size(), null);
+            try {
+                task.run();
+            }
+            finally {
+                activeThreads.decrementAndGet();
+            }
+        }
+
+    }
+
+    private static class NullMetric implements Metric {
+
+        @Override
+        public void set(String key, Number val, Context ctx) { }
+
+        @Override
+        public void add(String key, Number val, Context ctx) { }
+
+        @Override
+        public Context createContext(Map<String, ?> properties) { return null; }
+
+    }
+
+}
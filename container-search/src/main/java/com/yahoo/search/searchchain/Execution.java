@@ -7,6 +7,7 @@ import com.yahoo.log.LogLevel;
 import com.yahoo.prelude.IndexFacts;
 import com.yahoo.prelude.Ping;
 import com.yahoo.prelude.Pong;
+import com.yahoo.prelude.query.Item;
 import com.yahoo.prelude.query.parser.SpecialTokenRegistry;
 import com.yahoo.processing.Processor;
 import com.yahoo.processing.Request;
@@ -16,6 +17,7 @@ import com.yahoo.search.Query;
 import com.yahoo.search.Result;
 import com.yahoo.search.Searcher;
 import com.yahoo.search.cluster.PingableSearcher;
+import com.yahoo.search.query.parser.ParsedQueryCache;
 import com.yahoo.search.rendering.RendererRegistry;
 import com.yahoo.search.statistics.TimeTracker;
 
@@ -94,6 +96,12 @@ public class Execution extends com.yahoo.processing.execution.Execution {
          */
         private Linguistics linguistics = null;
 
+        /** The executor of asynchronous executions, or null to use the default */
+        private AsyncExecutor asyncExecutor = null;
+
+        /** The cache of parsed query trees, or null to not cache them */
+        private ParsedQueryCache<Item> parsedQueryCache = null;
+
         /** Always set if this context belongs to an execution, never set if it does not. */
         private final Execution owner;
 
@@ -191,6 +199,12 @@ public class Execution extends com.yahoo.processing.execution.Execution {
             if (linguistics == null) {
                 linguistics = sourceContext.linguistics;
             }
+            if (asyncExecutor == null) {
+                asyncExecutor = sourceContext.asyncExecutor;
+            }
+            if (parsedQueryCache == null) {
+                parsedQueryCache = sourceContext.parsedQueryCache;
+            }
         }
 
         /**
@@ -206,6 +220,8 @@ public class Execution extends com.yahoo.processing.execution.Execution {
             detailedDiagnostics = other.detailedDiagnostics;
             breakdown = other.breakdown;
             linguistics = other.linguistics;
+            asyncExecutor = other.asyncExecutor;
+            parsedQueryCache = other.parsedQueryCache;
         }
 
         public boolean equals(Context other) {
@@ -217,7 +233,9 @@ public class Execution extends com.yahoo.processing.execution.Execution {
                     && other.searchChainRegistry == searchChainRegistry
                     && other.detailedDiagnostics == detailedDiagnostics
                     && other.breakdown == breakdown
-                    && other.linguistics == linguistics;
+                    && other.linguistics == linguistics
+                    && other.asyncExecutor == asyncExecutor
+                    && other.parsedQueryCache == parsedQueryCache;
         }
 
         @Override
@@ -225,7 +243,7 @@ public class Execution extends com.yahoo.processing.execution.Execution {
             return java.util.Objects.hash(indexFacts,
                                           rendererRegistry, tokenRegistry, searchChainRegistry,
                                           detailedDiagnostics, breakdown,
-                                          linguistics);
+                                          linguistics, asyncExecutor, parsedQueryCache);
         }
 
         @Override
@@ -374,6 +392,25 @@ public class Execution extends com.yahoo.processing.execution.Execution {
             this.linguistics = linguistics;
         }
 
+        /**
+         * Returns the executor used by asynchronous executions started from this context.
+         * This is never null: A default executor is returned if none is set.
+         */
+        public AsyncExecutor getAsyncExecutor() {
+            return asyncExecutor != null ? asyncExecutor : AsyncExecutor.defaultExecutor();
+        }
+
+        public void setAsyncExecutor(AsyncExecutor asyncExecutor) {
+            this.asyncExecutor = asyncExecutor;
+        }
+
+        /** Returns the cache of query trees parsed from query strings, or null if query trees should not be cached */
+        public ParsedQueryCache<Item> getParsedQueryCache() { return parsedQueryCache; }
+
+        public void setParsedQueryCache(ParsedQueryCache<Item> parsedQueryCache) {
+            this.parsedQueryCache = parsedQueryCache;
+        }
+
         /** Creates a child trace if this has an owner, or a root trace otherwise */
         private Trace createChildTrace() {
             return owner!=null ? owner.trace().createChild() : Trace.createRoot(0);
@@ -32,9 +32,9 @@ import com.yahoo.search.searchchain.Execution;
  */
 public class CacheControlSearcher extends Searcher {
 
-    private static final CompoundName cachecontrolNocache=new CompoundName("cachecontrol.nocache");
-    private static final CompoundName cachecontrolMaxage=new CompoundName("cachecontrol.maxage");
-    private static final CompoundName cachecontrolStaleage=new CompoundName("cachecontrol.staleage");
+    public static final CompoundName cachecontrolNocache=new CompoundName("cachecontrol.nocache");
+    public static final CompoundName cachecontrolMaxage=new CompoundName("cachecontrol.maxage");
+    public static final CompoundName cachecontrolStaleage=new CompoundName("cachecontrol.staleage");
 
     public static final String CACHE_CONTROL_HEADER = "Cache-Control";
 
@@ -2,13 +2,15 @@
 package com.yahoo.search.yql;
 
 import com.google.common.annotations.Beta;
+import com.google.inject.Inject;
+import com.yahoo.jdisc.Metric;
 import com.yahoo.search.Query;
 import com.yahoo.search.Result;
 import com.yahoo.search.Searcher;
 import com.yahoo.processing.request.CompoundName;
 import com.yahoo.search.grouping.GroupingRequest;
-import com.yahoo.search.query.QueryTree;
 import com.yahoo.search.query.parser.Parsable;
+import com.yahoo.search.query.parser.ParsedQueryCache;
 import com.yahoo.search.query.parser.ParserEnvironment;
 import com.yahoo.search.query.parser.ParserFactory;
 import com.yahoo.search.result.ErrorMessage;
@@ -36,7 +38,20 @@ public class MinimalQueryInserter extends Searcher {
     private static final CompoundName MAX_HITS = new CompoundName("maxHits");
     private static final CompoundName MAX_OFFSET = new CompoundName("maxOffset");
 
+    private final ParsedQueryCache<ParsedYql> cache;
+
     public MinimalQueryInserter() {
+        this(null);
+    }
+
+    /**
+     * Creates a query inserter which caches parsed YQL+ programs
+     *
+     * @param metric the receiver of the hit and miss counts of the cache of this, or null to not emit these
+     */
+    @Inject
+    public MinimalQueryInserter(Metric metric) {
+        this.cache = new ParsedQueryCache<>(1000, "yql_parse_cache", metric);
     }
 
     @Override
@@ -45,53 +60,58 @@ public class MinimalQueryInserter extends Searcher {
             return execution.search(query);
         }
         ParserEnvironment env = ParserEnvironment.fromExecutionContext(execution.context());
-        YqlParser parser = (YqlParser) ParserFactory.newInstance(Query.Type.YQL, env);
-        parser.setQueryParser(false);
-        parser.setUserQuery(query);
-        QueryTree newTree;
-        try {
-            newTree = parser.parse(Parsable.fromQueryModel(query.getModel())
-                                           .setQuery(query.properties().getString(YQL)));
-        } catch (RuntimeException e) {
-            return new Result(query, ErrorMessage.createInvalidQueryParameter(
-                              "Could not instantiate query from YQL", e));
+        Parsable parsable = Parsable.fromQueryModel(query.getModel()).setQuery(query.properties().getString(YQL));
+        ParsedQueryCache.Key key = ParsedQueryCache.Key.from(Query.Type.YQL.toString(), parsable, env, null);
+        ParsedYql parsed = cache.get(key);
+        if (parsed == null) {
+            YqlParser parser = (YqlParser) ParserFactory.newInstance(Query.Type.YQL, env);
+            parser.setQueryParser(false);
+            parser.setUserQuery(query);
+            try {
+                parsed = new ParsedYql(parser.parse(parsable).getRoot(), parser);
+            } catch (RuntimeException e) {
+                return new Result(query, ErrorMessage.createInvalidQueryParameter(
+                                  "Could not instantiate query from YQL", e));
+            }
+            if ( ! parser.usesUserQuery()) // otherwise the outcome depends on more than the key
+                cache.put(key, parsed);
         }
-        if (parser.getOffset() != null) {
+        if (parsed.offset() != null) {
             int maxHits = query.properties().getInteger(MAX_HITS);
             int maxOffset = query.properties().getInteger(MAX_OFFSET);
-            if (parser.getOffset() > maxOffset) {
-                return new Result(query, ErrorMessage.createInvalidQueryParameter("Requested offset " + parser.getOffset()
+            if (parsed.offset() > maxOffset) {
+                return new Result(query, ErrorMessage.createInvalidQueryParameter("Requested offset " + parsed.offset()
                                                                                   + ", but the max offset allowed is " + 
                                                                                   maxOffset + "."));
             }
-            if (parser.getHits() > maxHits) {
-                return new Result(query, ErrorMessage.createInvalidQueryParameter("Requested " + parser.getHits()
+            if (parsed.hits() > maxHits) {
+                return new Result(query, ErrorMessage.createInvalidQueryParameter("Requested " + parsed.hits()
                                                                                   + " hits returned, but max hits allowed is " 
                                                                                   + maxHits + "."));
 
             }
         }
-        query.getModel().getQueryTree().setRoot(newTree.getRoot());
-        query.getPresentation().getSummaryFields().addAll(parser.getYqlSummaryFields());
-        for (VespaGroupingStep step : parser.getGroupingSteps()) {
+        query.getModel().getQueryTree().setRoot(parsed.root());
+        query.getPresentation().getSummaryFields().addAll(parsed.summaryFields());
+        for (VespaGroupingStep step : parsed.groupingSteps()) {
             GroupingRequest.newInstance(query)
                            .setRootOperation(step.getOperation())
                            .continuations().addAll(step.continuations());
         }
-        if (parser.getYqlSources().size() == 0) {
+        if (parsed.sources().size() == 0) {
             query.getModel().getSources().clear();
         } else {
-            query.getModel().getSources().addAll(parser.getYqlSources());
+            query.getModel().getSources().addAll(parsed.sources());
         }
-        if (parser.getOffset() != null) {
-            query.setOffset(parser.getOffset());
-            query.setHits(parser.getHits());
+        if (parsed.offset() != null) {
+            query.setOffset(parsed.offset());
+            query.setHits(parsed.hits());
         }
-        if (parser.getTimeout() != null) {
-            query.setTimeout(parser.getTimeout().longValue());
+        if (parsed.timeout() != null) {
+            query.setTimeout(parsed.timeout().longValue());
         }
-        if (parser.getSorting() != null) {
-            query.getRanking().setSorting(parser.getSorting());
+        if (parsed.sorting() != null) {
+            query.getRanking().setSorting(parsed.sorting());
         }
         query.trace("YQL+ query parsed", true, 2);
         return execution.search(query);
@@ -0,0 +1,75 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.yql;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.yahoo.prelude.query.Item;
+import com.yahoo.search.grouping.Continuation;
+import com.yahoo.search.query.Sorting;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The outcome of parsing a YQL+ program, which can be cached and applied to any number of queries.
+ * This is immutable: Accessors of mutable parts return copies.
+ */
+class ParsedYql {
+
+    private final Item root;
+    private final ImmutableSet<String> summaryFields;
+    private final ImmutableList<VespaGroupingStep> groupingSteps;
+    private final ImmutableSet<String> sources;
+    private final Integer offset;
+    private final Integer hits;
+    private final Integer timeout;
+    private final Sorting sorting;
+
+    /** Creates the outcome of the parse done last by the given parser, which returned the given root */
+    ParsedYql(Item root, YqlParser parser) {
+        this.root = root.clone();
+        this.summaryFields = ImmutableSet.copyOf(parser.getYqlSummaryFields());
+        this.groupingSteps = ImmutableList.copyOf(copy(parser.getGroupingSteps()));
+        this.sources = ImmutableSet.copyOf(parser.getYqlSources());
+        this.offset = parser.getOffset();
+        this.hits = parser.getHits();
+        this.timeout = parser.getTimeout();
+        this.sorting = parser.getSorting() == null ? null : parser.getSorting().clone();
+    }
+
+    /** Returns a copy of the query tree root */
+    Item root() { return root.clone(); }
+
+    Set<String> summaryFields() { return summaryFields; }
+
+    /** Returns copies of the grouping steps */
+    List<VespaGroupingStep> groupingSteps() { return copy(groupingSteps); }
+
+    /** Returns the sources selected in the program, which is empty if all sources are selected */
+    Set<String> sources() { return sources; }
+
+    /** Returns the offset set in the program, or null if none */
+    Integer offset() { return offset; }
+
+    /** Returns the hits set in the program, or null if none */
+    Integer hits() { return hits; }
+
+    /** Returns the timeout set in the program, or null if none */
+    Integer timeout() { return timeout; }
+
+    /** Returns a copy of the sorting set in the program, or null if none */
+    Sorting sorting() { return sorting == null ? null : sorting.clone(); }
+
+    private static List<VespaGroupingStep> copy(List<VespaGroupingStep> steps) {
+        List<VespaGroupingStep> copies = new ArrayList<>(steps.size());
+        for (VespaGroupingStep step : steps) {
+            VespaGroupingStep copy = new VespaGroupingStep(step.getOperation().copy(null));
+            for (Continuation continuation : step.continuations())
+                copy.continuations().add(continuation.copy());
+            copies.add(copy);
+        }
+        return copies;
+    }
+
+}
@@ -196,6 +196,7 @@ public class YqlParser implements Parser {
     private Integer offset;
     private Integer timeout;
     private Query userQuery;
+    private boolean usesUserQuery = false;
     private Parsable currentlyParsing;
     private IndexFacts.Session indexFactsSession;
     private IndexNameExpander indexNameExpander = new IndexNameExpander();
@@ -258,6 +259,7 @@ public class YqlParser implements Parser {
         offset = null;
         timeout = null;
         // userQuery set prior to calling this
+        usesUserQuery = false;
         currentlyParsing = query;
         docTypes = null;
         sorting = null;
@@ -673,6 +675,7 @@ public class YqlParser implements Parser {
         Preconditions.checkState(userQuery != null,
                                  "User query must be set before trying to build complete query "
                                  + "tree including user query.");
+        usesUserQuery = true;
         return userQuery.getModel().getQueryTree().getRoot();
     }
 
@@ -726,6 +729,7 @@ public class YqlParser implements Parser {
             case VARREF:
                 Preconditions.checkState(userQuery != null,
                                          "properties must be available when trying to fetch user input");
+                usesUserQuery = true;
                 return userQuery.properties().getString(propertySniffer.getArgument(0, String.class));
             default:
                 throw newUnexpectedArgumentException(propertySniffer.getOperator(),
@@ -1501,6 +1505,13 @@ public class YqlParser implements Parser {
     @Beta
     public void setUserQuery(@NonNull Query userQuery) { this.userQuery = userQuery; }
 
+    /**
+     * Returns whether the query last parsed depends on the user query set in this, that is,
+     * whether it includes the user query or reads query properties.
+     */
+    @Beta
+    public boolean usesUserQuery() { return usesUserQuery; }
+
     @Beta
     public Set<String> getYqlSummaryFields() { return yqlSummaryFields; }
 
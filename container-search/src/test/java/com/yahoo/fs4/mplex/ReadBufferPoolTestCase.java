@@ -0,0 +1,60 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.fs4.mplex;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the pool of connection read buffers
+ */
+public class ReadBufferPoolTestCase {
+
+    @Test
+    public void testBuffersAreRoundedUpAndReused() {
+        ReadBufferPool pool = new ReadBufferPool(1000, 8192, 100000);
+        ByteBuffer buffer = pool.acquire(1500);
+        assertTrue(buffer.isDirect());
+        assertEquals(2048, buffer.capacity());
+
+        buffer.put((byte)1);
+        pool.release(buffer);
+        assertEquals(2048, pool.pooledBytes());
+
+        ByteBuffer reused = pool.acquire(2000);
+        assertSame(buffer, reused);
+        assertEquals(0, reused.position());
+        assertEquals(2048, reused.limit());
+        assertEquals(0, pool.pooledBytes());
+
+        assertEquals(1024, pool.acquire(10).capacity());
+    }
+
+    @Test
+    public void testLargeBuffersAreNotPooled() {
+        ReadBufferPool pool = new ReadBufferPool(1024, 8192, 100000);
+        ByteBuffer buffer = pool.acquire(8193);
+        assertFalse(buffer.isDirect());
+        assertEquals(8193, buffer.capacity());
+        pool.release(buffer);
+        assertEquals(0, pool.pooledBytes());
+    }
+
+    @Test
+    public void testPoolIsBounded() {
+        ReadBufferPool pool = new ReadBufferPool(1024, 8192, 10000);
+        ByteBuffer first = pool.acquire(8192);
+        ByteBuffer second = pool.acquire(8192);
+        pool.release(first);
+        pool.release(second);
+        assertEquals(8192, pool.pooledBytes());
+        assertSame(first, pool.acquire(8192));
+        assertFalse(second == pool.acquire(8192));
+    }
+
+}
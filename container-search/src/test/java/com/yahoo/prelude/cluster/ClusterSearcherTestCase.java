@@ -18,6 +18,7 @@ import com.yahoo.prelude.fastsearch.VespaBackEndSearcher;
 import com.yahoo.search.Query;
 import com.yahoo.search.config.ClusterConfig;
 import com.yahoo.search.result.Hit;
+import com.yahoo.search.searchers.test.MockMetric;
 import com.yahoo.search.searchchain.Execution;
 import com.yahoo.container.handler.VipStatus;
 import com.yahoo.container.protect.Error;
@@ -537,7 +538,7 @@ public class ClusterSearcherTestCase {
         ClusterSearcher searcher = new ClusterSearcher(id, qrsCfg, clusterCfg, documentDbCfg, emulationCfg, monitorCfg, 
                                                        new DispatchConfig(new DispatchConfig.Builder()), 
                                                        createClusterInfoConfig(),
-                                                       statistics, fs4ResourcePool, new VipStatus());
+                                                       statistics, fs4ResourcePool, new VipStatus(), new MockMetric());
         return searcher;
     }
 
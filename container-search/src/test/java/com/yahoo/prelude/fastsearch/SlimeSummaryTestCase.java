@@ -14,6 +14,7 @@ import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
@@ -100,6 +101,26 @@ public class SlimeSummaryTestCase {
                      docsum.lazyDecode("default", timeoutSummary(), hit));
     }
 
+    @Test
+    public void testDocsumsAreDecodedWhenAccessed() {
+        Slime slime = new Slime();
+        Cursor docsum = slime.setObject();
+        docsum.setLong("integer_field", 4);
+        docsum.setString("string_field", "string_value");
+        byte[] data = BinaryFormat.encode(slime);
+        assertTrue(DocsumDefinitionSet.isObject(ByteBuffer.wrap(data)));
+        assertFalse(DocsumDefinitionSet.isObject(ByteBuffer.wrap(Arrays.copyOf(data, 3))));
+
+        LazySlimeInspector inspector = new LazySlimeInspector(data, 0, data.length);
+        assertFalse(inspector.isDecoded());
+        assertEquals("string_value", inspector.field("string_field").asString());
+        assertTrue(inspector.isDecoded());
+        assertEquals(4, inspector.field("integer_field").asLong());
+
+        byte[] empty = BinaryFormat.encode(new Slime());
+        assertFalse(DocsumDefinitionSet.isObject(ByteBuffer.wrap(empty)));
+    }
+
     @Test
     public void testDecoding() {
         Tensor tensor1 = Tensor.from("tensor(x{},y{}):{{x:foo,y:bar}:0.1}");
@@ -42,6 +42,9 @@ import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -154,6 +157,136 @@ public class FastSearcherTestCase {
         }
     }
 
+    @Test
+    public void testInternalDispatchToMultiNodeGroup() {
+        List<SearchCluster.Node> nodes = new ArrayList<>();
+        nodes.add(new SearchCluster.Node(0, "host1", 5000, 0));
+        nodes.add(new SearchCluster.Node(1, "host2", 5000, 0));
+
+        MockFS4ResourcePool mockFs4ResourcePool = new MockFS4ResourcePool();
+        FastSearcher fastSearcher = createGroupDispatchingFastSearcher(nodes, mockFs4ResourcePool);
+
+        Query query = new Query("?query=sddocname:a&dispatch.internal&summary=simple&ranking=simpler");
+        Result result = doSearch(fastSearcher, query, 0, 3);
+        assertNull(result.hits().getError());
+        assertEquals("Each node was queried directly", 1, mockFs4ResourcePool.requestCount("host1", 5000));
+        assertEquals("Each node was queried directly", 1, mockFs4ResourcePool.requestCount("host2", 5000));
+        assertEquals(4, result.getTotalHitCount());
+        assertEquals(3, result.getHitCount());
+        assertEquals(2003.0, result.hits().get(0).getRelevance().getScore(), 0.001);
+        assertEquals(2003.0, result.hits().get(1).getRelevance().getScore(), 0.001);
+        assertEquals(1855.0, result.hits().get(2).getRelevance().getScore(), 0.001);
+        assertNotEquals("Hits are filled from the node which produced them",
+                        ((FastHit)result.hits().get(0)).getDistributionKey(),
+                        ((FastHit)result.hits().get(1)).getDistributionKey());
+        assertEquals(0, query.getOffset());
+        assertEquals(3, query.getHits());
+    }
+
+    @Test
+    public void testInternalDispatchToMultiNodeGroupWithNonRespondingNode() {
+        List<SearchCluster.Node> nodes = new ArrayList<>();
+        nodes.add(new SearchCluster.Node(0, "host1", 5000, 0));
+        nodes.add(new SearchCluster.Node(1, "host2", 5000, 0));
+
+        MockFS4ResourcePool mockFs4ResourcePool = new MockFS4ResourcePool();
+        mockFs4ResourcePool.setResponding("host2", false);
+        FastSearcher fastSearcher = createGroupDispatchingFastSearcher(nodes, mockFs4ResourcePool);
+
+        Result result = doSearch(fastSearcher,
+                                 new Query("?query=sddocname:a&dispatch.internal&summary=simple&ranking=simpler"), 0, 1);
+        assertNull(result.hits().getError());
+        assertEquals(1, result.getHitCount());
+        assertEquals(2003.0, result.hits().get(0).getRelevance().getScore(), 0.001);
+        assertEquals(1, result.getCoverage(true).getNodesTried());
+        assertTrue(result.getCoverage(true).isDegradedByTimeout());
+    }
+
+    @Test
+    public void testInternalDispatchToMultiNodeGroupWithFailingNode() {
+        List<SearchCluster.Node> nodes = new ArrayList<>();
+        nodes.add(new SearchCluster.Node(0, "host1", 5000, 0));
+        nodes.add(new SearchCluster.Node(1, "host2", 5000, 0));
+
+        MockFS4ResourcePool mockFs4ResourcePool = new MockFS4ResourcePool();
+        mockFs4ResourcePool.setFailing("host2", true);
+        FastSearcher fastSearcher = createGroupDispatchingFastSearcher(nodes, mockFs4ResourcePool);
+
+        Result result = doSearch(fastSearcher,
+                                 new Query("?query=sddocname:a&dispatch.internal&summary=simple&ranking=simpler"), 0, 1);
+        assertNotNull(result.hits().getError());
+        assertTrue(result.hits().getError().getDetailedMessage().contains("Mock error"));
+        assertEquals(1, result.getConcreteHitCount());
+        assertEquals(2003.0, result.hits().asList().stream().filter(hit -> ! hit.isAuxiliary()).findFirst().get()
+                                   .getRelevance().getScore(), 0.001);
+        assertEquals(1, result.getCoverage(true).getNodesTried());
+        assertFalse(result.getCoverage(true).isDegradedByTimeout());
+    }
+
+    @Test
+    public void testInternalDispatchToMultiNodeGroupIsNotUsedForGrouping() {
+        List<SearchCluster.Node> nodes = new ArrayList<>();
+        nodes.add(new SearchCluster.Node(0, "host1", 5000, 0));
+        nodes.add(new SearchCluster.Node(1, "host2", 5000, 0));
+
+        MockFS4ResourcePool mockFs4ResourcePool = new MockFS4ResourcePool();
+        FastSearcher fastSearcher = createGroupDispatchingFastSearcher(nodes, mockFs4ResourcePool);
+
+        Query query = new Query("?query=sddocname:a&dispatch.internal&summary=simple&ranking=simpler");
+        GroupingRequest.newInstance(query).setRootOperation(GroupingOperation.fromString("all(group(foo) each(output(count())))"));
+        doSearch(fastSearcher, query, 0, 10);
+        assertEquals(0, mockFs4ResourcePool.requestCount("host1", 5000));
+        assertEquals(0, mockFs4ResourcePool.requestCount("host2", 5000));
+    }
+
+    private FastSearcher createGroupDispatchingFastSearcher(List<SearchCluster.Node> nodes,
+                                                             MockFS4ResourcePool mockFs4ResourcePool) {
+        DocumentdbInfoConfig documentdbConfigWithOneDb =
+                new DocumentdbInfoConfig(new DocumentdbInfoConfig.Builder().documentdb(new DocumentdbInfoConfig.Documentdb.Builder()
+                        .name("testDb")
+                        .summaryclass(new DocumentdbInfoConfig.Documentdb.Summaryclass.Builder().name("simple").id(7))
+                        .rankprofile(new DocumentdbInfoConfig.Documentdb.Rankprofile.Builder()
+                                .name("simpler").hasRankFeatures(false).hasSummaryFeatures(false))));
+        return new FastSearcher(new MockBackend(),
+                                mockFs4ResourcePool,
+                                new MockDispatcher(nodes, mockFs4ResourcePool, 1, new VipStatus()),
+                                new SummaryParameters(null),
+                                new ClusterParams("testhittype"),
+                                new CacheParams(0, 0),
+                                documentdbConfigWithOneDb);
+    }
+
+    @Test
+    public void testIdenticalQueriesInFlightAreCoalesced() throws InterruptedException {
+        mockBackend = new MockBackend();
+        ConfigGetter<DocumentdbInfoConfig> getter = new ConfigGetter<>(DocumentdbInfoConfig.class);
+        DocumentdbInfoConfig config = getter.getConfig("file:src/test/java/com/yahoo/prelude/fastsearch/test/documentdb-info.cfg");
+        MockFSChannel.resetDocstamp();
+        BlockingFastSearcher fastSearcher = new BlockingFastSearcher(mockBackend, config);
+
+        AtomicReference<Result> firstResult = new AtomicReference<>();
+        AtomicReference<Result> secondResult = new AtomicReference<>();
+        Thread first = new Thread(() -> firstResult.set(doSearch(fastSearcher, new Query("?query=ignored&timeout=20s"), 0, 10)));
+        Thread second = new Thread(() -> secondResult.set(doSearch(fastSearcher, new Query("?query=ignored&timeout=20s"), 0, 10)));
+        first.start();
+        assertTrue(fastSearcher.searching.await(20, TimeUnit.SECONDS));
+        second.start();
+        while (second.getState() != Thread.State.TIMED_WAITING) // waiting for the first query
+            Thread.sleep(1);
+        fastSearcher.release.countDown();
+        first.join();
+        second.join();
+
+        assertEquals(1, fastSearcher.backendSearches.get());
+        assertEquals(2, firstResult.get().getHitCount());
+        assertEquals(2, secondResult.get().getHitCount());
+        assertTrue(secondResult.get().hits().get(0).isCached());
+        assertNotSame(firstResult.get().hits().get(0), secondResult.get().hits().get(0));
+
+        doSearch(fastSearcher, new Query("?query=other"), 0, 10);
+        assertEquals(2, fastSearcher.backendSearches.get());
+    }
+
     @Test
     public void testQueryWithRestrict() {
         mockBackend = new MockBackend();
@@ -346,6 +479,33 @@ public class FastSearcherTestCase {
         assertArrayEquals(expected, actual);
     }
 
+    /** A fast searcher where the first search to the backend blocks until released */
+    private static class BlockingFastSearcher extends FastSearcher {
+
+        final CountDownLatch searching = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger backendSearches = new AtomicInteger(0);
+
+        BlockingFastSearcher(MockBackend backend, DocumentdbInfoConfig config) {
+            super(backend, new FS4ResourcePool(1), new MockDispatcher(Collections.emptyList()),
+                  new SummaryParameters(null), new ClusterParams("testhittype"), new CacheParams(100, 1e64), config);
+        }
+
+        @Override
+        public Result doSearch2(Query query, QueryPacket queryPacket, CacheKey cacheKey, Execution execution) {
+            backendSearches.incrementAndGet();
+            searching.countDown();
+            try {
+                release.await();
+            }
+            catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            return super.doSearch2(query, queryPacket, cacheKey, execution);
+        }
+
+    }
+
     private FastSearcher createFastSearcher() {
         mockBackend = new MockBackend();
         ConfigGetter<DocumentdbInfoConfig> getter = new ConfigGetter<>(DocumentdbInfoConfig.class);
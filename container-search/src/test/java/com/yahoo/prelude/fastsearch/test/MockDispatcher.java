@@ -6,6 +6,7 @@ import com.yahoo.prelude.fastsearch.FS4ResourcePool;
 import com.yahoo.search.Result;
 import com.yahoo.search.dispatch.Dispatcher;
 import com.yahoo.search.dispatch.SearchCluster;
+import com.yahoo.search.searchers.test.MockMetric;
 import com.yahoo.vespa.config.search.DispatchConfig;
 
 import java.util.Collections;
@@ -18,16 +19,16 @@ class MockDispatcher extends Dispatcher {
     }
 
     public MockDispatcher(List<SearchCluster.Node> nodes) {
-        super(toDispatchConfig(nodes), new FS4ResourcePool(1), 1, new VipStatus());
+        super(toDispatchConfig(nodes), new FS4ResourcePool(1), 1, new VipStatus(), new MockMetric());
     }
 
     public MockDispatcher(List<SearchCluster.Node> nodes, VipStatus vipStatus) {
-        super(toDispatchConfig(nodes), new FS4ResourcePool(1), 1, vipStatus);
+        super(toDispatchConfig(nodes), new FS4ResourcePool(1), 1, vipStatus, new MockMetric());
     }
 
     public MockDispatcher(List<SearchCluster.Node> nodes, FS4ResourcePool fs4ResourcePool, 
                           int containerClusterSize, VipStatus vipStatus) {
-        super(toDispatchConfig(nodes), fs4ResourcePool, containerClusterSize, vipStatus);
+        super(toDispatchConfig(nodes), fs4ResourcePool, containerClusterSize, vipStatus, new MockMetric());
     }
 
     private static DispatchConfig toDispatchConfig(List<SearchCluster.Node> nodes) {
@@ -12,10 +12,17 @@ import com.yahoo.prelude.fastsearch.PacketWrapper;
 import org.junit.Test;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Tests the packet cache. Also tested in FastSearcherTestCase.
@@ -171,6 +178,67 @@ public class PacketCacheTestCase {
         assertEquals(Integer.MAX_VALUE, cache.getByteCapacity());
     }
 
+    @Test
+    public void testCounters() throws BufferTooSmallException {
+        // room for two entries
+        PacketCache cache = new PacketCache(0, length * 3 - 1, 1e64);
+        cache.setMaxCacheItemPercentage(50);
+
+        cache.put(key1, createCacheEntry());
+        cache.put(key2, createCacheEntry());
+        assertNotNull(cache.get(key1));
+        assertNotNull(cache.get(key2));
+        assertNull(cache.get(key3));
+        cache.put(key3, createCacheEntry());
+        assertNull(cache.get(key1));
+        assertEquals(2, cache.hits());
+        assertEquals(2, cache.misses());
+        assertEquals(1, cache.evictions());
+    }
+
+    @Test
+    public void testShardCount() {
+        assertEquals(1, new PacketCache(0, 1024, 1e64).shardCount());
+        assertEquals(1, new PacketCache(1, 0, 1e64).shardCount());
+        assertEquals(4, new PacketCache(5, 0, 1e64).shardCount());
+        assertEquals(16, new PacketCache(100, 0, 1e64).shardCount());
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        PacketCache cache = new PacketCache(0, length * 500, 1e64); // room for half the keys
+        cache.setMaxCacheItemPercentage(50);
+        List<CacheKey> keys = new ArrayList<>();
+        for (int i = 0; i < 1000; i++)
+            keys.add(new CacheKey(QueryPacket.create(new Query("/?query=key" + i))));
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 20000; i++) {
+                        CacheKey key = keys.get((i * 7 + thread * 13) % keys.size());
+                        if (cache.get(key) == null)
+                            cache.put(key, createCacheEntry());
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures)
+                future.get(60, TimeUnit.SECONDS);
+        }
+        finally {
+            executor.shutdown();
+        }
+
+        assertTrue(cache.totalPacketSize() <= cache.getByteCapacity());
+        assertEquals(length * cache.size(), cache.totalPacketSize());
+        assertEquals(8 * 20000, cache.hits() + cache.misses());
+        assertTrue(cache.evictions() > 0);
+    }
+
     /** Creates a 64-byte packet in an array wrapped in a PacketWrapper */
     private PacketWrapper createCacheEntry(CacheKey key) throws BufferTooSmallException {
         ByteBuffer data = ByteBuffer.allocate(length);
@@ -0,0 +1,37 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.prelude.fastsearch.test.fs4mock;
+
+import com.yahoo.fs4.BasicPacket;
+import com.yahoo.fs4.PacketDecoder;
+import com.yahoo.fs4.QueryPacket;
+import com.yahoo.fs4.mplex.Backend;
+import com.yahoo.text.Utf8;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A channel which responds to queries with an error packet
+ */
+public class ErrorMockFSChannel extends MockFSChannel {
+
+    public ErrorMockFSChannel(Backend backend) {
+        super(backend);
+    }
+
+    @Override
+    public BasicPacket[] receivePackets(long timeout, int packetCount) {
+        if ( ! (getLastReceived() instanceof QueryPacket)) return super.receivePackets(timeout, packetCount);
+
+        byte[] message = Utf8.toBytes("Mock error");
+        ByteBuffer buffer = ByteBuffer.allocate(20 + message.length);
+        buffer.putInt(16 + message.length); // length
+        buffer.putInt(203); // error packet code
+        buffer.putInt(0); // channel
+        buffer.putInt(1); // error code
+        buffer.putInt(message.length);
+        buffer.put(message);
+        buffer.position(0);
+        return new BasicPacket[] { PacketDecoder.decode(buffer) };
+    }
+
+}
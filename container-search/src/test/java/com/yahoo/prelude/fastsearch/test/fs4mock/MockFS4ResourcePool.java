@@ -2,6 +2,7 @@
 package com.yahoo.prelude.fastsearch.test.fs4mock;
 
 import com.yahoo.fs4.mplex.Backend;
+import com.yahoo.fs4.mplex.FS4Channel;
 import com.yahoo.prelude.fastsearch.FS4ResourcePool;
 
 import java.util.HashMap;
@@ -17,6 +18,7 @@ public class MockFS4ResourcePool extends FS4ResourcePool {
 
     private final Map<String, Integer> requestsPerBackend = new HashMap<>();
     private final Set<String> nonRespondingBackends = new HashSet<>();
+    private final Set<String> failingBackends = new HashSet<>();
     private final Map<String, Long> activeDocumentsInBackend = new HashMap<>();    
     private final long testingThreadId;
     
@@ -30,6 +32,11 @@ public class MockFS4ResourcePool extends FS4ResourcePool {
         countRequest(hostname + ":" + port);
         if (nonRespondingBackends.contains(hostname))
             return new MockBackend(distributionKey, hostname, 0L, false);
+        else if (failingBackends.contains(hostname))
+            return new MockBackend(distributionKey, hostname, 0L, true) {
+                @Override
+                public FS4Channel openChannel() { return new ErrorMockFSChannel(this); }
+            };
         else
             return new MockBackend(distributionKey, hostname, activeDocumentsInBackend.getOrDefault(hostname, 0L), true);
     }
@@ -61,4 +68,12 @@ public class MockFS4ResourcePool extends FS4ResourcePool {
             nonRespondingBackends.add(hostname);
     }
 
+    /** Sets whether the given host responds to queries with an error */
+    public void setFailing(String hostname, boolean failing) {
+        if (failing)
+            failingBackends.add(hostname);
+        else
+            failingBackends.remove(hostname);
+    }
+
 }
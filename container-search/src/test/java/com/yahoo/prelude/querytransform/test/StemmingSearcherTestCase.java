@@ -15,6 +15,7 @@ import com.yahoo.search.Query;
 import com.yahoo.search.Searcher;
 import com.yahoo.search.config.IndexInfoConfig;
 import com.yahoo.search.searchchain.Execution;
+import com.yahoo.search.searchers.test.MockMetric;
 
 import com.yahoo.search.test.QueryTestCase;
 import org.junit.Test;
@@ -130,6 +131,19 @@ public class StemmingSearcherTestCase {
         assertTrue("Did not find original word form in query.", foundExpectedBaseForm);
     }
 
+    @Test
+    public void testStemCacheMetrics() {
+        MockMetric metric = new MockMetric();
+        Chain<Searcher> chain = new Chain<>(new StemmingSearcher(linguistics, metric));
+        for (int i = 0; i < 2; i++) {
+            Query query = new Query(QueryTestCase.httpEncode("/search?query=Holes in CVS&language=en"));
+            new Execution(chain, newExecutionContext()).search(query);
+            assertEquals("AND hole in cvs", query.getModel().getQueryTree().getRoot().toString());
+        }
+        assertEquals(3.0, metric.values(null).get(StemmingSearcher.STEM_CACHE_METRIC + "_misses"));
+        assertEquals(3.0, metric.values(null).get(StemmingSearcher.STEM_CACHE_METRIC + "_hits"));
+    }
+
     private Execution.Context newExecutionContext() {
         return new Execution.Context(null, indexFacts, null, null, linguistics);
     }
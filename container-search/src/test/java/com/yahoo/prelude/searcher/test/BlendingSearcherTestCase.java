@@ -316,6 +316,23 @@ public class BlendingSearcherTestCase {
         assertEquals(102, ((int) br.hits().get(5).getRelevance().getScore()));
     }
 
+    @Test
+    public void testBlendingWithSortSpecAndHitsFilledWithDifferentSummaries() {
+        Query q = new Query("/search?query=banana+&sorting=%2Bfoobar");
+        BlendingSearcherWrapper blender = new BlendingSearcherWrapper();
+        blender.addChained(new SummarySourceSearcher("summary1", 101, "3", 102, "6", 103, "2"), "chainedone");
+        blender.addChained(new SummarySourceSearcher("summary2", 201, "5", 202, "1", 203, "4"), "chainedtwo");
+        blender.initialize();
+        q.setWindow(0, 10);
+        Result br = new Execution(blender, Execution.Context.createContextStub()).search(q);
+        assertEquals(202, ((int) br.hits().get(0).getRelevance().getScore()));
+        assertEquals(103, ((int) br.hits().get(1).getRelevance().getScore()));
+        assertEquals(101, ((int) br.hits().get(2).getRelevance().getScore()));
+        assertEquals(203, ((int) br.hits().get(3).getRelevance().getScore()));
+        assertEquals(201, ((int) br.hits().get(4).getRelevance().getScore()));
+        assertEquals(102, ((int) br.hits().get(5).getRelevance().getScore()));
+    }
+
     /**
      * Disabled because the document source searcher does not handle being asked for
      * document sumaries for hits it did not create (it will insert the wrong values).
@@ -487,4 +504,34 @@ public class BlendingSearcherTestCase {
                      e.getDetailedMessage());
     }
 
+    /** Returns hits having the given relevance and foobar values, filled with the given summary class */
+    private static class SummarySourceSearcher extends Searcher {
+
+        private final String summaryClass;
+        private final Object[] relevanceAndFoobar;
+
+        SummarySourceSearcher(String summaryClass, Object ... relevanceAndFoobar) {
+            this.summaryClass = summaryClass;
+            this.relevanceAndFoobar = relevanceAndFoobar;
+        }
+
+        @Override
+        public Result search(Query query, Execution execution) {
+            Result result = new Result(query);
+            for (int i = 0; i < relevanceAndFoobar.length; i += 2) {
+                Hit hit = new Hit("http://host" + i + ".com/relevancy" + relevanceAndFoobar[i], (Integer)relevanceAndFoobar[i]);
+                hit.setField("foobar", relevanceAndFoobar[i + 1]);
+                hit.setFillable();
+                hit.setFilled(summaryClass);
+                result.hits().add(hit);
+            }
+            result.setTotalHitCount(result.hits().size());
+            return result;
+        }
+
+        @Override
+        public void fill(Result result, String summaryClass, Execution execution) { } // foobar is already set
+
+    }
+
 }
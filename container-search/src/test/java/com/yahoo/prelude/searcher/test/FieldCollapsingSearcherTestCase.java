@@ -25,6 +25,9 @@ import com.yahoo.search.searchchain.testutil.DocumentSourceSearcher;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -287,6 +290,82 @@ public class FieldCollapsingSearcherTestCase {
         assertHit("http://acme.org/c.html",10,0,r.hits().get(1));
     }
 
+    @Test
+    public void testCollapsingOnAttributeFetchesPagesInParallel() {
+        Map<Searcher, Searcher> chained = new HashMap<>();
+        FieldCollapsingSearcher collapse = new FieldCollapsingSearcher(4,2.0,"amid");
+        PageRecorder recorder = new PageRecorder();
+        DocumentSourceSearcher docsource = new DocumentSourceSearcher();
+        chained.put(collapse, recorder);
+        chained.put(recorder, docsource);
+
+        Query q = new Query("?query=test_collapse&collapsesize=1&collapsefield=amid&collapse.attributes=true");
+        q.properties().set("collapse", "0");
+        Result r = new Result(q);
+        for (int i = 0; i < 30; i++)
+            r.hits().add(createHit("http://acme.org/" + i + ".html", 100 - i, i < 20 ? 0 : i - 19));
+        r.setTotalHitCount(30);
+        docsource.addResult(q, r);
+
+        q = new Query("?query=test_collapse&collapsesize=1&collapsefield=amid&collapse.attributes=true");
+        r = doSearch(collapse, q, 0, 2, chained);
+
+        assertEquals(2, r.getHitCount());
+        assertHit("http://acme.org/0.html", 100, 0, r.hits().get(0));
+        assertHit("http://acme.org/20.html", 80, 1, r.hits().get(1));
+        assertTrue(r.isFilled(Execution.ATTRIBUTEPREFETCH));
+        // The first page, then two pages in parallel twice, estimated from the hits collapsed so far
+        assertEquals(Arrays.asList("0+6", "6+6", "12+6", "18+6", "24+6"), recorder.sortedPages());
+    }
+
+    @Test
+    public void testCollapsingOnAttributeLearnsHowManyHitsToFetch() {
+        Map<Searcher, Searcher> chained = new HashMap<>();
+        FieldCollapsingSearcher collapse = new FieldCollapsingSearcher(4,2.0,"amid");
+        PageRecorder recorder = new PageRecorder();
+        DocumentSourceSearcher docsource = new DocumentSourceSearcher();
+        chained.put(collapse, recorder);
+        chained.put(recorder, docsource);
+
+        Query q = new Query("?query=test_collapse&collapsesize=1&collapsefield=amid&collapse.attributes=true");
+        q.properties().set("collapse", "0");
+        Result r = new Result(q);
+        for (int i = 0; i < 400; i++)
+            r.hits().add(createHit("http://acme.org/" + i + ".html", 1000 - i, i / 4));
+        r.setTotalHitCount(400);
+        docsource.addResult(q, r);
+
+        for (int i = 0; i < 50; i++) {
+            recorder.pages.clear();
+            q = new Query("?query=test_collapse&collapsesize=1&collapsefield=amid&collapse.attributes=true");
+            r = doSearch(collapse, q, 0, 10, chained);
+            assertEquals(10, r.getHitCount());
+        }
+        // Each collapsed hit takes 4 hits, so at least 4 * 10 hits are fetched, in a single query
+        assertEquals(1, recorder.pages.size());
+        String page = recorder.pages.get(0);
+        assertTrue(page, page.startsWith("0+") && Integer.parseInt(page.substring(2)) >= 40);
+    }
+
+    /** Records the offset and hits of the queries passing through it, possibly from multiple threads */
+    private static class PageRecorder extends Searcher {
+
+        final List<String> pages = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public Result search(Query query, Execution execution) {
+            pages.add(query.getOffset() + "+" + query.getHits());
+            return execution.search(query);
+        }
+
+        List<String> sortedPages() {
+            List<String> sorted = new ArrayList<>(pages);
+            sorted.sort(Comparator.comparing(page -> Integer.parseInt(page.substring(0, page.indexOf('+')))));
+            return sorted;
+        }
+
+    }
+
     public static class QueryMessupSearcher extends Searcher {
         public Result search(com.yahoo.search.Query query, Execution execution) {
             AndItem a = new AndItem();
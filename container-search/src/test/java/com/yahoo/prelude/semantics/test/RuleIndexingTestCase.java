@@ -0,0 +1,72 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.prelude.semantics.test;
+
+import com.yahoo.prelude.semantics.RuleBase;
+import com.yahoo.prelude.semantics.RuleImporter;
+import com.yahoo.prelude.semantics.rule.Condition;
+import com.yahoo.search.Query;
+import com.yahoo.search.test.QueryTestCase;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests that evaluating only the rules looked up in the rule index gives the same result as evaluating all rules
+ */
+public class RuleIndexingTestCase {
+
+    private static final String root = "src/test/java/com/yahoo/prelude/semantics/test/rulebases/";
+
+    @Test
+    public void testIndexTermsOfConditions() throws Exception {
+        RuleBase rules = new RuleImporter().importString("a b -> c;\n" +
+                                                         "[x] -> y;\n" +
+                                                         "[x] :- p, q r;\n" +
+                                                         "... -> z;\n" +
+                                                         "!a -> z;\n" +
+                                                         "a, ... -> z;\n" +
+                                                         "cars -> vehicle;\n",
+                                                         null, "test");
+        assertEquals("[a, as]", indexTerms(rules, 0));
+        assertEquals("[p, ps, q, qs]", indexTerms(rules, 1));
+        assertNull(rules.rules().get(2).getCondition().getIndexTerms());
+        assertNull(rules.rules().get(3).getCondition().getIndexTerms());
+        assertNull(rules.rules().get(4).getCondition().getIndexTerms());
+        assertEquals("[car, cars, carss]", indexTerms(rules, 5));
+    }
+
+    @Test
+    public void testIndexedEvaluationEqualsEvaluatingAllRules() throws Exception {
+        List<String> queries = Arrays.asList("sony", "digital camera sony", "restaurant in geary street san francisco",
+                                             "lotr", "bar", "word", "pariss to texass", "the strokes be", "cars -s",
+                                             "i:cars -i:s", "i:horse -i:s", "i:as -i:s", "foo bar baz", "nothing here",
+                                             "a b c d e f", "java coffee", "typechange doors", "hamlet to be or not to be");
+        for (String ruleBase : Arrays.asList("rules.sr", "stemming.sr", "ellipsis.sr", "not.sr", "anchor.sr",
+                                             "comparison.sr", "backtrackingrules.sr", "orphrase.sr", "matchall.sr")) {
+            RuleBase rules = RuleBase.createFromFile(root + ruleBase, null);
+            for (String query : queries)
+                assertEquals("Evaluating '" + query + "' over " + ruleBase,
+                             analyze(rules, query, false), analyze(rules, query, true));
+        }
+    }
+
+    private String indexTerms(RuleBase rules, int ruleIndex) {
+        Condition condition = rules.rules().get(ruleIndex).getCondition();
+        Set<String> terms = condition.getIndexTerms();
+        return terms == null ? null : new TreeSet<>(terms).toString();
+    }
+
+    private String analyze(RuleBase rules, String queryString, boolean ruleIndexing) {
+        rules.setRuleIndexing(ruleIndexing);
+        Query query = new Query("?query=" + QueryTestCase.httpEncode(queryString) + "&language=und");
+        String error = rules.analyze(query, 0);
+        return query.getModel().getQueryTree().getRoot() + (error == null ? "" : " " + error);
+    }
+
+}
@@ -326,4 +326,37 @@ public class IndexFactsTestCase {
         assertEquals("url:\"https foo bar\"", query2.getModel().getQueryTree().toString());
     }
     
+    @Test
+    public void testFrozenSessionsAreReusedAndResolveAsUnfrozen() {
+        IndexFacts unfrozen = createIndexFacts();
+        IndexFacts frozen = createIndexFacts();
+        frozen.freeze();
+
+        List<List<String>> sourceLists = Arrays.asList(Collections.emptyList(),
+                                                       Collections.singletonList("one"),
+                                                       Collections.singletonList("clusterTwo"),
+                                                       Arrays.asList("two", "three"),
+                                                       Arrays.asList("three", "two"),
+                                                       Collections.singletonList("nosuchsource"));
+        List<List<String>> restrictLists = Arrays.asList(Collections.emptyList(),
+                                                         Collections.singletonList("three"));
+        List<String> names = Arrays.asList("a", "A", "b", "c", "d", "e", "twewm", "TWEWM",
+                                           "default", "", null, "anythingelse");
+        for (List<String> sources : sourceLists) {
+            for (List<String> restrict : restrictLists) {
+                IndexFacts.Session expected = unfrozen.newSession(sources, restrict);
+                IndexFacts.Session session = frozen.newSession(sources, restrict);
+                assertSame(session, frozen.newSession(new ArrayList<>(sources), new ArrayList<>(restrict)));
+                assertEquals(expected.documentTypes(), session.documentTypes());
+                for (String name : names) {
+                    String message = "'" + name + "' in " + sources + " restricted to " + restrict;
+                    assertEquals(message, expected.getIndex(name).getName(), session.getIndex(name).getName());
+                    if (name == null) continue;
+                    assertEquals(message, expected.isIndex(name), session.isIndex(name));
+                    assertEquals(message, expected.getCanonicName(name), session.getCanonicName(name));
+                }
+            }
+        }
+    }
+
 }
@@ -0,0 +1,244 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.cache;
+
+import com.yahoo.component.chain.Chain;
+import com.yahoo.container.jdisc.HttpRequest;
+import com.yahoo.jdisc.http.HttpRequest.Method;
+import com.yahoo.metrics.simple.MetricReceiver;
+import com.yahoo.search.Query;
+import com.yahoo.search.Result;
+import com.yahoo.search.Searcher;
+import com.yahoo.search.query.profile.QueryProfile;
+import com.yahoo.search.query.profile.compiled.CompiledQueryProfile;
+import com.yahoo.search.result.ErrorMessage;
+import com.yahoo.search.result.Hit;
+import com.yahoo.search.searchchain.Execution;
+import com.yahoo.search.searchers.CacheControlSearcher;
+import com.yahoo.test.ManualClock;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the result cache searcher
+ */
+public class ResultCacheSearcherTestCase {
+
+    private final ManualClock clock = new ManualClock();
+    private final BackendSearcher backend = new BackendSearcher();
+    private final ResultCacheSearcher cacheSearcher = new ResultCacheSearcher(createConfig(60), MetricReceiver.nullImplementation, clock);
+    private final Chain<Searcher> chain = new Chain<>(cacheSearcher, backend);
+
+    @Test
+    public void testEqualQueriesAreCached() {
+        Result first = search(new Query("?query=foo"));
+        Result second = search(new Query("?query=foo"));
+        assertEquals(1, backend.searches);
+        assertEquals(1, second.hits().size());
+        assertEquals("filled", second.hits().get(0).getField("summary"));
+        assertNotSame(first.hits().get(0), second.hits().get(0));
+
+        search(new Query("?query=bar"));
+        assertEquals(2, backend.searches);
+    }
+
+    @Test
+    public void testEquivalentQueryTreesShareCacheEntry() {
+        search(new Query("?query=foo%20bar"));
+        search(new Query("?query=foo%20%20bar&someIrrelevantProperty=1"));
+        assertEquals(1, backend.searches);
+
+        search(new Query("?query=foo%20bar&hits=5"));
+        search(new Query("?query=foo%20bar&ranking=other"));
+        search(new Query("?query=foo%20bar&presentation.summary=other"));
+        assertEquals(4, backend.searches);
+    }
+
+    @Test
+    public void testCachedResultIsNotChangedByCallers() {
+        Result first = search(new Query("?query=foo"));
+        first.hits().get(0).setField("summary", "changed");
+        first.getHeaders(true).put("X-Test", "value");
+        Result second = search(new Query("?query=foo"));
+        assertEquals("filled", second.hits().get(0).getField("summary"));
+        assertTrue(second.getHeaders(true).get("X-Test").isEmpty());
+    }
+
+    @Test
+    public void testNoCacheIsHonored() {
+        search(new Query("?query=foo&nocache=true"));
+        search(new Query("?query=foo&nocache=true"));
+        search(new Query("?query=foo&cachecontrol.nocache=true"));
+        search(new Query("?query=foo&cachecontrol.nocache=true"));
+        assertEquals(4, backend.searches);
+        assertEquals(0, cacheSearcher.cache().size());
+    }
+
+    @Test
+    public void testEntriesExpire() {
+        search(new Query("?query=foo"));
+        clock.advance(Duration.ofSeconds(59));
+        search(new Query("?query=foo"));
+        assertEquals(1, backend.searches);
+        clock.advance(Duration.ofSeconds(2));
+        search(new Query("?query=foo"));
+        assertEquals(2, backend.searches);
+    }
+
+    @Test
+    public void testMaxAgeLowersTimeToLive() {
+        search(new Query("?query=foo&cachecontrol.maxage=10"));
+        clock.advance(Duration.ofSeconds(11));
+        search(new Query("?query=foo&cachecontrol.maxage=10"));
+        assertEquals(2, backend.searches);
+    }
+
+    @Test
+    public void testCacheControlHeadersAreHonored() {
+        backend.cacheControlHeader = "no-cache";
+        search(new Query("?query=foo"));
+        search(new Query("?query=foo"));
+        assertEquals(2, backend.searches);
+
+        backend.cacheControlHeader = "max-age=5";
+        search(new Query("?query=bar"));
+        clock.advance(Duration.ofSeconds(4));
+        search(new Query("?query=bar"));
+        assertEquals(3, backend.searches);
+        clock.advance(Duration.ofSeconds(2));
+        search(new Query("?query=bar"));
+        assertEquals(4, backend.searches);
+    }
+
+    @Test
+    public void testErrorsAreNotCached() {
+        backend.error = true;
+        search(new Query("?query=foo"));
+        search(new Query("?query=foo"));
+        assertEquals(2, backend.searches);
+    }
+
+    @Test
+    public void testQueryProfileDimensionsArePartOfKey() {
+        QueryProfile profile = new QueryProfile("test");
+        profile.setDimensions(new String[] {"region"});
+        profile.set("ranking.profile", "usRanking", new String[] {"us"}, null);
+        CompiledQueryProfile compiledProfile = profile.compile(null);
+
+        search(new Query(HttpRequest.createTestRequest("?query=foo&region=us", Method.GET), compiledProfile));
+        search(new Query(HttpRequest.createTestRequest("?query=foo&region=us", Method.GET), compiledProfile));
+        assertEquals(1, backend.searches);
+        search(new Query(HttpRequest.createTestRequest("?query=foo&region=eu", Method.GET), compiledProfile));
+        search(new Query(HttpRequest.createTestRequest("?query=foo&region=no", Method.GET), compiledProfile));
+        assertEquals(3, backend.searches);
+    }
+
+    @Test
+    public void testQueryProfileDimensionsArePartOfKeyWithoutHttpRequest() {
+        QueryProfile profile = new QueryProfile("test");
+        profile.setDimensions(new String[] {"region"});
+        profile.set("ranking.profile", "usRanking", new String[] {"us"}, null);
+        CompiledQueryProfile compiledProfile = profile.compile(null);
+
+        search(new Query(null, requestMap("foo", "us"), compiledProfile));
+        search(new Query(null, requestMap("foo", "us"), compiledProfile));
+        assertEquals(1, backend.searches);
+        search(new Query(null, requestMap("foo", "eu"), compiledProfile));
+        assertEquals(2, backend.searches);
+
+        Query query = new Query(null, requestMap("foo", "eu"), compiledProfile);
+        query.properties().set("region", "no");
+        search(query);
+        assertEquals(3, backend.searches);
+    }
+
+    @Test
+    public void testCacheIsDisabledByDefault() {
+        ResultCacheSearcher searcher = new ResultCacheSearcher(new ResultCacheConfig(new ResultCacheConfig.Builder()),
+                                                               MetricReceiver.nullImplementation, clock);
+        Chain<Searcher> chain = new Chain<>(searcher, backend);
+        new Execution(chain, Execution.Context.createContextStub()).search(new Query("?query=foo"));
+        new Execution(chain, Execution.Context.createContextStub()).search(new Query("?query=foo"));
+        assertEquals(2, backend.searches);
+        assertNull(searcher.cache());
+    }
+
+    @Test
+    public void testResultCacheEvictsLeastRecentlyUsed() {
+        ResultCacheKey key1 = ResultCacheKey.from(new Query("?query=foo1"));
+        ResultCacheKey key2 = ResultCacheKey.from(new Query("?query=foo2"));
+        ResultCacheKey key3 = ResultCacheKey.from(new Query("?query=foo3"));
+        Result result = new Result(new Query("?query=foo"));
+        for (int i = 0; i < 10; i++)
+            result.hits().add(new Hit("hit" + i));
+        long size = key1.byteSize() + ResultCache.byteSizeOf(result.hits());
+        ResultCache cache = new ResultCache(size * 5 / 2, 50, clock); // room for two entries
+
+        assertTrue(cache.put(key1, result, 1000));
+        assertTrue(cache.put(key2, result, 1000));
+        cache.get(key1);
+        assertTrue(cache.put(key3, result, 1000));
+        assertEquals(2, cache.size());
+        assertNull(cache.get(key2));
+        assertEquals(result, cache.get(key1));
+        assertEquals(result, cache.get(key3));
+    }
+
+    private static Map<String, String> requestMap(String query, String region) {
+        Map<String, String> requestMap = new HashMap<>();
+        requestMap.put("query", query);
+        requestMap.put("region", region);
+        return requestMap;
+    }
+
+    private Result search(Query query) {
+        return new Execution(chain, Execution.Context.createContextStub()).search(query);
+    }
+
+    private static ResultCacheConfig createConfig(double timeToLive) {
+        ResultCacheConfig.Builder builder = new ResultCacheConfig.Builder();
+        builder.sizeMegaBytes(1);
+        builder.timeToLive(timeToLive);
+        return new ResultCacheConfig(builder);
+    }
+
+    private static class BackendSearcher extends Searcher {
+
+        int searches = 0;
+        boolean error = false;
+        String cacheControlHeader = null;
+
+        @Override
+        public Result search(Query query, Execution execution) {
+            searches++;
+            Result result = new Result(query);
+            if (error) {
+                result.hits().addError(ErrorMessage.createBackendCommunicationError("Test error"));
+                return result;
+            }
+            Hit hit = new Hit("hit:" + query.getModel().getQueryTree());
+            hit.setFillable();
+            result.hits().add(hit);
+            if (cacheControlHeader != null)
+                result.getHeaders(true).put(CacheControlSearcher.CACHE_CONTROL_HEADER, cacheControlHeader);
+            return result;
+        }
+
+        @Override
+        public void fill(Result result, String summaryClass, Execution execution) {
+            for (Hit hit : result.hits().asList()) {
+                hit.setField("summary", "filled");
+                hit.setFilled(summaryClass);
+            }
+        }
+
+    }
+
+}
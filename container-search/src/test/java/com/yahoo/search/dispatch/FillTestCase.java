@@ -9,16 +9,20 @@ import com.yahoo.prelude.fastsearch.DocumentDatabase;
 import com.yahoo.prelude.fastsearch.FastHit;
 import com.yahoo.search.Query;
 import com.yahoo.search.Result;
+import com.yahoo.search.searchers.test.MockMetric;
 import org.junit.Test;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 
 /**
@@ -121,6 +125,93 @@ public class FillTestCase {
         assertEquals("Malfunctioning", result.hits().getError().getDetailedMessage());
     }
 
+    @Test
+    public void testHedging() {
+        Map<Integer, Client.NodeConnection> nodes = new HashMap<>();
+        nodes.put(0, client.createConnection("host0", 123));
+        nodes.put(1, client.createConnection("host1", 123));
+        SearchCluster searchCluster = createUnpingedSearchCluster();
+        HedgingPolicy hedgingPolicy = new HedgingPolicy(90, 10, 1);
+        hedgingPolicy.responseTime(0);
+        MockMetric metric = new MockMetric();
+        Dispatcher dispatcher = new Dispatcher(searchCluster, nodes, client, hedgingPolicy, metric);
+
+        Result result = new Result(new Query());
+        result.hits().add(createHit(0, 0));
+        result.hits().add(createHit(1, 1));
+        client.setUnresponsive("host0");
+        client.setDocsumReponse("host1", 0, "summaryClass1", map("field1", "s.1.0", "field2", 0));
+        client.setDocsumReponse("host1", 1, "summaryClass1", map("field1", "s.1.1", "field2", 1));
+
+        dispatcher.fill(result, "summaryClass1", db(), CompressionType.valueOf("LZ4"));
+
+        assertNull(result.hits().getError());
+        assertEquals("s.1.0", result.hits().get("hit:0").getField("field1").toString());
+        assertEquals("s.1.1", result.hits().get("hit:1").getField("field1").toString());
+        assertEquals(1.0, metric.values(null).get(Dispatcher.HEDGES_METRIC).doubleValue(), 0.0001);
+        assertEquals(1.0, metric.values(null).get(Dispatcher.HEDGES_WON_METRIC).doubleValue(), 0.0001);
+    }
+
+    @Test
+    public void testHedgingKeepsRecordingResponseTimesWhenHedgesWin() {
+        Map<Integer, Client.NodeConnection> nodes = new HashMap<>();
+        nodes.put(0, client.createConnection("host0", 123));
+        nodes.put(1, client.createConnection("host1", 123));
+        SearchCluster searchCluster = createUnpingedSearchCluster();
+        List<Long> responseTimes = new ArrayList<>();
+        HedgingPolicy hedgingPolicy = new HedgingPolicy(90, 10, 1) {
+            @Override
+            synchronized void responseTime(long millis) {
+                responseTimes.add(millis);
+                super.responseTime(millis);
+            }
+        };
+        hedgingPolicy.responseTime(5);
+        assertEquals(5, hedgingPolicy.hedgeDelayMillis());
+        MockMetric metric = new MockMetric();
+        Dispatcher dispatcher = new Dispatcher(searchCluster, nodes, client, hedgingPolicy, metric);
+        client.setUnresponsive("host0");
+        client.setDocsumReponse("host1", 0, "summaryClass1", map("field1", "s.1.0", "field2", 0));
+
+        for (int i = 0; i < 20; i++) {
+            Result result = new Result(new Query());
+            result.hits().add(createHit(0, 0));
+            dispatcher.fill(result, "summaryClass1", db(), CompressionType.valueOf("LZ4"));
+            assertEquals("s.1.0", result.hits().get("hit:0").getField("field1").toString());
+        }
+
+        assertEquals(20.0, metric.values(null).get(Dispatcher.HEDGES_WON_METRIC).doubleValue(), 0.0001);
+        assertEquals(21, responseTimes.size());
+        for (long responseTime : responseTimes)
+            assertTrue(responseTime >= 5);
+        assertTrue(hedgingPolicy.hedgeDelayMillis() >= 5);
+    }
+
+    /**
+     * Returns a cluster of two nodes in different groups which are never pinged,
+     * such that the cluster monitor cannot mark them down while a test runs
+     */
+    private static SearchCluster createUnpingedSearchCluster() {
+        return new SearchCluster(88.0,
+                                 Arrays.asList(new SearchCluster.Node(0, "host0", 123, 0),
+                                               new SearchCluster.Node(1, "host1", 123, 1)),
+                                 null, 1, null) {
+            @Override
+            public void ping(SearchCluster.Node node, Executor executor) { }
+        };
+    }
+
+    @Test
+    public void testHedgingPolicy() {
+        HedgingPolicy policy = new HedgingPolicy(90, 10, 5);
+        for (int i = 1; i <= 4; i++)
+            policy.responseTime(i);
+        assertEquals(-1, policy.hedgeDelayMillis());
+        for (int i = 5; i <= 10; i++)
+            policy.responseTime(i);
+        assertEquals(9, policy.hedgeDelayMillis());
+    }
+
     private DocumentDatabase db() {
         List<DocsumField> fields = new ArrayList<>();
         fields.add(DocsumField.create("field1", "string"));
@@ -3,24 +3,31 @@ package com.yahoo.search.dispatch;
 
 import com.yahoo.search.dispatch.SearchCluster.Group;
 import com.yahoo.search.dispatch.SearchCluster.Node;
+import com.yahoo.search.searchers.test.MockMetric;
 import junit.framework.AssertionFailedError;
 import org.hamcrest.Matchers;
 import org.junit.Test;
 
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Random;
 
 import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 
 public class LoadBalancerTest {
     @Test
     public void requreThatLoadBalancerServesSingleNodeSetups() {
         Node n1 = new SearchCluster.Node(0, "test-node1", 0, 0);
         SearchCluster cluster = new SearchCluster(88.0, Arrays.asList(n1), null, 1, null);
-        LoadBalancer lb = new LoadBalancer(cluster);
+        LoadBalancer lb = new LoadBalancer(cluster, new MockMetric());
 
-        Optional<Group> grp = lb.getGroupForQuery(null);
+        Optional<Group> grp = lb.takeGroupForQuery(null);
         Group group = grp.orElseGet(() -> {
             throw new AssertionFailedError("Expected a SearchCluster.Group");
         });
@@ -28,37 +35,112 @@ public class LoadBalancerTest {
     }
 
     @Test
-    public void requreThatLoadBalancerIgnoresMultiGroupSetups() {
+    public void requreThatLoadBalancerServesMultiGroupSetups() {
         Node n1 = new SearchCluster.Node(0, "test-node1", 0, 0);
         Node n2 = new SearchCluster.Node(1, "test-node2", 1, 1);
         SearchCluster cluster = new SearchCluster(88.0, Arrays.asList(n1, n2), null, 1, null);
-        LoadBalancer lb = new LoadBalancer(cluster);
+        LoadBalancer lb = new LoadBalancer(cluster, new MockMetric());
 
-        Optional<Group> grp = lb.getGroupForQuery(null);
-        assertThat(grp.isPresent(), is(false));
+        Optional<Group> grp = lb.takeGroupForQuery(null);
+        assertThat(grp.isPresent(), is(true));
     }
 
     @Test
-    public void requreThatLoadBalancerIgnoresClusteredSingleGroup() {
+    public void requreThatLoadBalancerServesClusteredSingleGroup() {
         Node n1 = new SearchCluster.Node(0, "test-node1", 0, 0);
         Node n2 = new SearchCluster.Node(1, "test-node2", 1, 0);
         SearchCluster cluster = new SearchCluster(88.0, Arrays.asList(n1, n2), null, 2, null);
-        LoadBalancer lb = new LoadBalancer(cluster);
+        LoadBalancer lb = new LoadBalancer(cluster, new MockMetric());
 
-        Optional<Group> grp = lb.getGroupForQuery(null);
-        assertThat(grp.isPresent(), is(false));
+        Optional<Group> grp = lb.takeGroupForQuery(null);
+        assertThat(grp.isPresent(), is(true));
+        assertThat(grp.get().nodes().size(), Matchers.equalTo(2));
     }
 
     @Test
-    public void requreThatLoadBalancerIgnoresClusteredGroups() {
+    public void requreThatLoadBalancerServesClusteredGroups() {
         Node n1 = new SearchCluster.Node(0, "test-node1", 0, 0);
         Node n2 = new SearchCluster.Node(1, "test-node2", 1, 0);
         Node n3 = new SearchCluster.Node(0, "test-node3", 0, 1);
         Node n4 = new SearchCluster.Node(1, "test-node4", 1, 1);
         SearchCluster cluster = new SearchCluster(88.0, Arrays.asList(n1, n2, n3, n4), null, 2, null);
-        LoadBalancer lb = new LoadBalancer(cluster);
+        LoadBalancer lb = new LoadBalancer(cluster, new MockMetric());
 
-        Optional<Group> grp = lb.getGroupForQuery(null);
-        assertThat(grp.isPresent(), is(false));
+        Optional<Group> grp = lb.takeGroupForQuery(null);
+        assertThat(grp.isPresent(), is(true));
+        assertThat(grp.get().nodes().size(), Matchers.equalTo(2));
     }
+
+    @Test
+    public void requireThatSlowGroupsReceiveLessTraffic() {
+        SearchCluster cluster = createThreeGroupCluster();
+        LoadBalancer lb = new LoadBalancer(cluster, new MockMetric(), new Random(1));
+        Group slowGroup = cluster.groups().get(2);
+
+        Map<Integer, Integer> queriesPerGroup = new HashMap<>();
+        for (int i = 0; i < 3000; i++) {
+            Group group = lb.takeGroupForQuery(null).get();
+            queriesPerGroup.merge(group.id(), 1, Integer::sum);
+            lb.releaseGroup(group, true, group.equals(slowGroup) ? 50 : 5);
+        }
+        assertEquals(50.0, lb.averageSearchTime(slowGroup), 1.0);
+        assertTrue("The slow group receives less than a tenth of the traffic of the others",
+                   queriesPerGroup.get(2) * 10 < queriesPerGroup.get(0) + queriesPerGroup.get(1));
+    }
+
+    @Test
+    public void requireThatBusyGroupsReceiveLessTraffic() {
+        SearchCluster cluster = createThreeGroupCluster();
+        LoadBalancer lb = new LoadBalancer(cluster, new MockMetric(), new Random(1));
+
+        // Allocate a lot of queries to group 0 without releasing them
+        Group busyGroup = cluster.groups().get(0);
+        int busyQueries = 0;
+        for (int i = 0; i < 1000; i++) {
+            Group group = lb.takeGroupForQuery(null).get();
+            if (group.equals(busyGroup))
+                busyQueries++;
+            else
+                lb.releaseGroup(group, true, 5);
+        }
+        assertEquals(busyQueries, lb.queriesInFlight(busyGroup));
+        assertTrue("The busy group receives a small share of the traffic", busyQueries < 100);
+    }
+
+    @Test
+    public void requireThatGroupsWithoutWorkingNodesAreNotSelected() {
+        SearchCluster cluster = createThreeGroupCluster();
+        LoadBalancer lb = new LoadBalancer(cluster, new MockMetric(), new Random(1));
+        cluster.failed(cluster.groups().get(1).nodes().get(0));
+
+        for (int i = 0; i < 100; i++) {
+            Group group = lb.takeGroupForQuery(null).get();
+            assertFalse(group.id() == 1);
+            lb.releaseGroup(group, true, 5);
+        }
+    }
+
+    @Test
+    public void requireThatGroupMetricsAreReported() {
+        SearchCluster cluster = createThreeGroupCluster();
+        MockMetric metric = new MockMetric();
+        LoadBalancer lb = new LoadBalancer(cluster, metric, new Random(1));
+
+        Group group = lb.takeGroupForQuery(null).get();
+        Map<String, Number> groupMetrics = metric.values(metric.createContext("group", String.valueOf(group.id())));
+        assertEquals(1, groupMetrics.get(LoadBalancer.QUERIES_IN_FLIGHT_METRIC).intValue());
+
+        lb.releaseGroup(group, true, 7);
+        assertEquals(0, groupMetrics.get(LoadBalancer.QUERIES_IN_FLIGHT_METRIC).intValue());
+        assertEquals(7.0, groupMetrics.get(LoadBalancer.SEARCH_TIME_METRIC).doubleValue(), 0.0001);
+        assertEquals(1, groupMetrics.get(LoadBalancer.QUERIES_METRIC).intValue());
+    }
+
+    private SearchCluster createThreeGroupCluster() {
+        Node n1 = new SearchCluster.Node(0, "test-node1", 0, 0);
+        Node n2 = new SearchCluster.Node(1, "test-node2", 1, 1);
+        Node n3 = new SearchCluster.Node(2, "test-node3", 2, 2);
+        return new SearchCluster(88.0, Arrays.asList(n1, n2, n3), null, 1, null);
+    }
+
 }
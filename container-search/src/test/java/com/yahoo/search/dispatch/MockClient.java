@@ -14,8 +14,10 @@ import com.yahoo.slime.Slime;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * @author bratseth
@@ -24,11 +26,15 @@ public class MockClient implements Client {
 
     private final Map<DocsumKey, Map<String, Object>> docsums = new HashMap<>();
     private final Compressor compressor = new Compressor();
+    private final Set<String> unresponsiveNodes = new HashSet<>();
     private boolean malfunctioning = false;
 
     /** Set to true to cause this to produce an error instead of a regular response */
     public void setMalfunctioning(boolean malfunctioning) { this.malfunctioning = malfunctioning; }
 
+    /** Causes requests to the given node to never be responded to */
+    public void setUnresponsive(String nodeId) { unresponsiveNodes.add(nodeId); }
+
     @Override
     public NodeConnection createConnection(String hostname, int port) {
         return new MockNodeConnection(hostname, port);
@@ -42,6 +48,7 @@ public class MockClient implements Client {
             responseReceiver.receive(GetDocsumsResponseOrError.fromError("Malfunctioning"));
             return;
         }
+        if (unresponsiveNodes.contains(node.toString())) return;
 
         Inspector request = BinaryFormat.decode(compressor.decompress(compressedSlime, compression, uncompressedSize)).get();
         String docsumClass = request.field("class").asString();
@@ -170,6 +170,46 @@ public class GroupingExecutorTestCase {
         assertEquals(1, cnt.passList.get(2).intValue());
     }
 
+    @Test
+    public void requireThatPassResultsAreReusedWhenPaging() {
+        GroupingExecutor executor = new GroupingExecutor();
+        String request = "all(group(foo) each(group(bar) each(output(count()))))";
+
+        GroupingCounter cnt = new GroupingCounter();
+        newExecution(executor, cnt, new GroupingEchoer()).search(newPagedQuery(request));
+        assertEquals(Arrays.asList(1, 1, 1), cnt.passList);
+
+        cnt = new GroupingCounter();
+        Query query = newPagedQuery(request);
+        Result result = newExecution(executor, cnt, new GroupingEchoer()).search(query);
+        assertEquals(Arrays.asList(0), cnt.passList);
+        assertNotNull(GroupingRequest.getRequests(query).get(0).getResultGroup(result));
+
+        cnt = new GroupingCounter();
+        query = newPagedQuery(request);
+        query.setNoCache(true);
+        newExecution(executor, cnt, new GroupingEchoer()).search(query);
+        assertEquals(Arrays.asList(1, 1, 1), cnt.passList);
+    }
+
+    @Test
+    public void requireThatPassResultsAreNotReusedWithoutContinuations() {
+        GroupingExecutor executor = new GroupingExecutor();
+        for (int i = 0; i < 2; ++i) {
+            Query query = newQuery();
+            GroupingRequest req = GroupingRequest.newInstance(query);
+            req.setRootOperation(GroupingOperation.fromString("all(group(foo) each(group(bar) each(output(count()))))"));
+            GroupingCounter cnt = new GroupingCounter();
+            newExecution(executor, cnt, new GroupingEchoer()).search(query);
+            assertEquals(Arrays.asList(1, 1, 1), cnt.passList);
+        }
+
+        // Requests without continuations do not fill the cache either
+        GroupingCounter cnt = new GroupingCounter();
+        newExecution(executor, cnt, new GroupingEchoer()).search(newPagedQuery("all(group(foo) each(group(bar) each(output(count()))))"));
+        assertEquals(Arrays.asList(1, 1, 1), cnt.passList);
+    }
+
     @Test
     public void requireThatPassResultsAreMerged() {
         Query query = newQuery();
@@ -205,6 +245,33 @@ public class GroupingExecutorTestCase {
         assertEquals(9L, hit.getField("max(bar)"));
     }
 
+    @Test
+    public void requireThatLargePassResultsAreMergedInParallel() {
+        Query query = newQuery();
+        GroupingRequest reqA = GroupingRequest.newInstance(query);
+        reqA.setRootOperation(GroupingOperation.fromString("all(group(foo) max(2000) each(output(max(bar))))"));
+        GroupingRequest reqB = GroupingRequest.newInstance(query);
+        reqB.setRootOperation(GroupingOperation.fromString("all(group(baz) max(2000) each(output(max(bar))))"));
+
+        List<GroupingListHit> hits = new ArrayList<>();
+        for (int pass = 0; pass < 2; ++pass) {
+            List<Grouping> groupings = new ArrayList<>();
+            for (int id = 0; id < 2; ++id) {
+                com.yahoo.searchlib.aggregation.Group root = new com.yahoo.searchlib.aggregation.Group();
+                for (int i = 0; i < 1000; ++i)
+                    root.addChild(new com.yahoo.searchlib.aggregation.Group().setId(new StringResultNode("group" + i)).addAggregationResult(new MaxAggregationResult().setMax(new IntegerResultNode(i)).setTag(3)));
+                groupings.add(new Grouping(id).setRoot(root));
+            }
+            hits.add(new GroupingListHit(groupings, null));
+        }
+        Result result = newExecution(new GroupingExecutor(), new ResultProvider(hits)).search(query);
+        for (GroupingRequest req : Arrays.asList(reqA, reqB)) {
+            GroupList lst = (GroupList)req.getResultGroup(result).get(0);
+            assertEquals(1000, lst.size());
+            assertEquals(999L, lst.get("group:string:group999").getField("max(bar)"));
+        }
+    }
+
     @Test
     public void requireThatUnexpectedGroupingResultsAreIgnored() {
         Query query = newQuery();
@@ -560,6 +627,14 @@ public class GroupingExecutorTestCase {
         return new Query("?query=dummy");
     }
 
+    private static Query newPagedQuery(String groupingExpression) {
+        Query query = newQuery();
+        GroupingRequest req = GroupingRequest.newInstance(query);
+        req.setRootOperation(GroupingOperation.fromString(groupingExpression));
+        req.continuations().add(new OffsetContinuation(ResultId.valueOf(0), 0, 0, 0));
+        return query;
+    }
+
     private static Execution newExecution(Searcher... searchers) {
         return new Execution(new SearchChain(new ComponentId("foo"), Arrays.asList(searchers)),
                              Execution.Context.createContextStub());
@@ -681,6 +756,21 @@ public class GroupingExecutorTestCase {
         }
     }
 
+    @After (GroupingExecutor.COMPONENT_NAME)
+    private static class GroupingEchoer extends Searcher {
+
+        @Override
+        public Result search(Query query, Execution exec) {
+            List<Grouping> groupings = new ArrayList<>();
+            for (Grouping grp : GroupingExecutor.getGroupingList(query)) {
+                groupings.add(grp.clone());
+            }
+            Result res = exec.search(query);
+            res.hits().add(new GroupingListHit(groupings, null));
+            return res;
+        }
+    }
+
     private static class QueryMapper extends Searcher {
 
         final Map<Query, List<Hit>> hitsByQuery = new HashMap<>();
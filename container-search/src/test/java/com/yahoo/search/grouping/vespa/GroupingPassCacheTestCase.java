@@ -0,0 +1,94 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.grouping.vespa;
+
+import com.yahoo.document.GlobalId;
+import com.yahoo.search.Query;
+import com.yahoo.searchlib.aggregation.FS4Hit;
+import com.yahoo.searchlib.aggregation.Group;
+import com.yahoo.searchlib.aggregation.Grouping;
+import com.yahoo.searchlib.aggregation.GroupingLevel;
+import com.yahoo.searchlib.aggregation.HitsAggregationResult;
+import com.yahoo.searchlib.expression.AttributeNode;
+import com.yahoo.searchlib.expression.StringResultNode;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+public class GroupingPassCacheTestCase {
+
+    @Test
+    public void requireThatResultsAreCachedByQueryAndPassRequest() {
+        GroupingPassCache cache = new GroupingPassCache(10, 60 * 1000);
+        byte[] query = GroupingPassCache.encodeQuery(new Query("?query=foo"));
+        GroupingPassCache.Key key = cache.keyOf(query, newGrouping(0, "a"));
+        assertEquals(key, cache.keyOf(query, newGrouping(0, "a")));
+        assertNotEquals(key, cache.keyOf(query, newGrouping(1, "a")));
+        assertNotEquals(key, cache.keyOf(GroupingPassCache.encodeQuery(new Query("?query=bar")), newGrouping(0, "a")));
+
+        Grouping result = newGrouping(0, "a");
+        result.getRoot().addChild(new Group().setId(new StringResultNode("foo")));
+        cache.put(key, result);
+        Grouping cached = cache.get(key);
+        assertNotNull(cached);
+        assertNotSame(result, cached);
+        assertEquals(result, cached);
+        assertNull(cache.get(cache.keyOf(query, newGrouping(1, "a"))));
+    }
+
+    @Test
+    public void requireThatLevelsBelowThePassAreIgnored() {
+        GroupingPassCache cache = new GroupingPassCache(10, 60 * 1000);
+        byte[] query = GroupingPassCache.encodeQuery(new Query("?query=foo"));
+        Grouping grouping = newGrouping(0, "a").addLevel(new GroupingLevel().setMaxGroups(5));
+        Grouping paged = newGrouping(0, "a").addLevel(new GroupingLevel().setMaxGroups(10));
+        assertEquals(cache.keyOf(query, grouping), cache.keyOf(query, paged));
+        grouping.setLastLevel(2);
+        paged.setLastLevel(2);
+        assertNotEquals(cache.keyOf(query, grouping), cache.keyOf(query, paged));
+    }
+
+    @Test
+    public void requireThatResultsWithHitsAreNotCached() {
+        GroupingPassCache cache = new GroupingPassCache(10, 60 * 1000);
+        GroupingPassCache.Key key = cache.keyOf(GroupingPassCache.encodeQuery(new Query("?query=foo")), newGrouping(0, "a"));
+        Grouping result = newGrouping(0, "a");
+        result.getRoot().addAggregationResult(new HitsAggregationResult(1, "default").addHit(new FS4Hit(0, new GlobalId(new byte[GlobalId.LENGTH]), 1)));
+        cache.put(key, result);
+        assertNull(cache.get(key));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void requireThatResultsExpire() {
+        GroupingPassCache cache = new GroupingPassCache(10, -1);
+        GroupingPassCache.Key key = cache.keyOf(GroupingPassCache.encodeQuery(new Query("?query=foo")), newGrouping(0, "a"));
+        cache.put(key, newGrouping(0, "a"));
+        assertNull(cache.get(key));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void requireThatCacheIsBounded() {
+        GroupingPassCache cache = new GroupingPassCache(10, 60 * 1000);
+        byte[] query = GroupingPassCache.encodeQuery(new Query("?query=foo"));
+        for (int i = 0; i < 10; ++i)
+            cache.put(cache.keyOf(query, newGrouping(1, "attr" + i)), newGrouping(1, "attr" + i));
+        assertNotNull(cache.get(cache.keyOf(query, newGrouping(1, "attr0"))));
+        cache.put(cache.keyOf(query, newGrouping(1, "attr10")), newGrouping(1, "attr10"));
+        assertEquals(10, cache.size());
+        assertNotNull(cache.get(cache.keyOf(query, newGrouping(1, "attr0"))));
+        assertNull(cache.get(cache.keyOf(query, newGrouping(1, "attr1")))); // least recently used
+    }
+
+    private static Grouping newGrouping(int lastLevel, String attribute) {
+        Grouping grouping = new Grouping(0).addLevel(new GroupingLevel().setExpression(new AttributeNode(attribute)));
+        grouping.setFirstLevel(lastLevel);
+        grouping.setLastLevel(lastLevel);
+        return grouping;
+    }
+
+}
@@ -232,6 +232,11 @@ public class SearchHandlerTestCase {
         assertJsonResult("http://localhost?query=abc&format=json", driver);
     }
 
+    @Test
+    public void testNormalResultIncrementalJsonRendering() throws Exception {
+        assertJsonResult("http://localhost?query=abc&format=json&renderer.json.incremental=true", driver);
+    }
+
     @Test
     public void testNormalResultExplicitDefaultRenderingFullRendererName1() throws Exception {
         assertXmlResult("http://localhost?query=abc&format=DefaultRenderer", driver);
@@ -0,0 +1,92 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.query.profile.test;
+
+import com.google.common.collect.ImmutableMap;
+import com.yahoo.search.query.profile.DimensionBinding;
+import com.yahoo.search.query.profile.DimensionValues;
+import com.yahoo.search.query.profile.compiled.DimensionalMap;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests lookups in dimensional maps
+ */
+public class DimensionalMapTestCase {
+
+    private static final List<String> dimensions = Arrays.asList("x", "y");
+
+    @Test
+    public void testLookupsResolveToMostSpecificVariant() {
+        DimensionalMap.Builder<String, String> builder = new DimensionalMap.Builder<>();
+        builder.put("a", DimensionBinding.nullBinding, "a-default");
+        builder.put("a", binding("x1", null), "a-x1");
+        builder.put("a", binding("x1", "y1"), "a-x1-y1");
+        builder.put("b", binding(null, "y1"), "b-y1");
+        builder.put("c", DimensionBinding.nullBinding, "c-default");
+        DimensionalMap<String, String> map = builder.build();
+        map.prepare(ImmutableMap.of("x", "x1"));
+
+        for (int i = 0; i < 2; i++) { // the second round reads resolved values
+            assertEquals("a-default", map.get("a", null));
+            assertEquals("a-default", map.get("a", Collections.emptyMap()));
+            assertEquals("a-x1", map.get("a", ImmutableMap.of("x", "x1")));
+            assertEquals("a-x1", map.get("a", ImmutableMap.of("x", "x1", "y", "y2")));
+            assertEquals("a-x1-y1", map.get("a", ImmutableMap.of("x", "x1", "y", "y1", "z", "z1")));
+            assertEquals("b-y1", map.get("b", ImmutableMap.of("x", "x1", "y", "y1")));
+            assertNull(map.get("b", ImmutableMap.of("x", "x1")));
+            assertEquals("c-default", map.get("c", ImmutableMap.of("x", "x1", "y", "y1")));
+            assertNull(map.get("d", ImmutableMap.of("x", "x1")));
+        }
+    }
+
+    @Test
+    public void testManyDistinctContexts() {
+        DimensionalMap.Builder<String, String> builder = new DimensionalMap.Builder<>();
+        builder.put("a", DimensionBinding.nullBinding, "a-default");
+        builder.put("a", binding("x1", null), "a-x1");
+        DimensionalMap<String, String> map = builder.build();
+        for (int i = 0; i < 1000; i++) {
+            Map<String, String> context = ImmutableMap.of("x", "x1", "y", "y" + i);
+            assertEquals("a-x1", map.get("a", context));
+        }
+        assertEquals("a-default", map.get("a", ImmutableMap.of("y", "y1")));
+    }
+
+    @Test
+    public void testUnboundDimensionValuesShareResolvedValues() {
+        DimensionalMap.Builder<String, String> builder = new DimensionalMap.Builder<>();
+        builder.put("a", DimensionBinding.nullBinding, "a-default");
+        builder.put("a", binding("x1", null), "a-x1");
+        DimensionalMap<String, String> map = builder.build();
+
+        DimensionalMap<String, String>.Resolved unbound = map.resolve(Collections.emptyMap());
+        for (int i = 0; i < 1000; i++)
+            assertSame(unbound, map.resolve(ImmutableMap.of("x", "free text " + i)));
+        assertSame(map.resolve(ImmutableMap.of("x", "x1")), map.resolve(ImmutableMap.of("x", "x1", "y", "y1")));
+
+        Map<String, String> context = new HashMap<>();
+        context.put("x", "x1");
+        DimensionalMap<String, String>.Resolved resolved = map.resolve(context);
+        assertEquals("a-x1", resolved.get("a"));
+        context.put("x", "free text");
+        assertTrue(unbound.isResolvedFor(context));
+        assertFalse(resolved.isResolvedFor(context));
+        assertEquals("a-default", map.resolve(context).get("a"));
+    }
+
+    private static DimensionBinding binding(String x, String y) {
+        return DimensionBinding.createFrom(dimensions, DimensionValues.createFrom(new String[] { x, y }));
+    }
+
+}
@@ -1,9 +1,14 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.search.query.test;
 
+import com.yahoo.language.simple.SimpleLinguistics;
+import com.yahoo.prelude.IndexFacts;
 import com.yahoo.prelude.query.Item;
+import com.yahoo.prelude.query.parser.SpecialTokenRegistry;
 import com.yahoo.search.Query;
 import com.yahoo.search.query.Model;
+import com.yahoo.search.query.parser.ParsedQueryCache;
+import com.yahoo.search.searchchain.Execution;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -123,4 +128,30 @@ public class ModelTestCase {
         assertEquals(2,query.getModel().getRestrict().size());
     }
 
+    @Test
+    public void testParsedQueryTreesAreCached() {
+        ParsedQueryCache<Item> cache = new ParsedQueryCache<>(100, "test", null);
+        Execution.Context context = new Execution.Context(null, new IndexFacts(), new SpecialTokenRegistry(), null,
+                                                          new SimpleLinguistics());
+        context.setParsedQueryCache(cache);
+
+        Query q1 = new Query("?query=foo%20bar&type=all");
+        q1.getModel().setExecution(new Execution(context));
+        assertEquals("AND foo bar", q1.getModel().getQueryTree().toString());
+        assertEquals(0, cache.hits());
+        assertEquals(1, cache.misses());
+
+        Query q2 = new Query("?query=foo%20bar&type=all");
+        q2.getModel().setExecution(new Execution(context));
+        assertEquals("AND foo bar", q2.getModel().getQueryTree().toString());
+        assertEquals(1, cache.hits());
+        assertNotSame(q1.getModel().getQueryTree().getRoot(), q2.getModel().getQueryTree().getRoot());
+
+        Query q3 = new Query("?query=foo%20bar&type=any");
+        q3.getModel().setExecution(new Execution(context));
+        assertEquals("OR foo bar", q3.getModel().getQueryTree().toString());
+        assertEquals(1, cache.hits());
+        assertEquals(2, cache.misses());
+    }
+
 }
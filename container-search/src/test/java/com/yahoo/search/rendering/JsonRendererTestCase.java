@@ -31,6 +31,7 @@ import com.yahoo.search.grouping.result.GroupList;
 import com.yahoo.search.grouping.result.RootGroup;
 import com.yahoo.search.grouping.result.StringId;
 import com.yahoo.search.result.Coverage;
+import com.yahoo.search.result.DefaultErrorHit;
 import com.yahoo.search.result.ErrorMessage;
 import com.yahoo.search.result.Hit;
 import com.yahoo.search.result.HitGroup;
@@ -65,6 +66,7 @@ import java.util.Map;
 import java.util.concurrent.ExecutionException;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.times;
 
@@ -138,6 +140,58 @@ public class JsonRendererTestCase {
         return newEmptyResult(new String[] {"query=a"});
     }
 
+    @Test
+    public void testIncrementalRendering() throws IOException, InterruptedException, ExecutionException {
+        String expected = "{\n"
+                + "    \"root\": {\n"
+                + "        \"children\": [\n"
+                + "            {\n"
+                + "                \"id\": \"hit1\",\n"
+                + "                \"relevance\": 1.0\n"
+                + "            },\n"
+                + "            {\n"
+                + "                \"id\": \"hit2\",\n"
+                + "                \"relevance\": 1.0\n"
+                + "            }\n"
+                + "        ],\n"
+                + "        \"errors\": [\n"
+                + "            {\n"
+                + "                \"code\": 18,\n"
+                + "                \"summary\": \"Internal server error.\",\n"
+                + "                \"source\": \"test\",\n"
+                + "                \"message\": \"late\"\n"
+                + "            }\n"
+                + "        ],\n"
+                + "        \"fields\": {\n"
+                + "            \"totalCount\": 2\n"
+                + "        },\n"
+                + "        \"id\": \"toplevel\",\n"
+                + "        \"relevance\": 1.0\n"
+                + "    }\n"
+                + "}\n";
+        Result r = newEmptyResult();
+        HitGroup hits = HitGroup.createAsync("toplevel");
+        hits.setOrdered(true);
+        hits.setQuery(r.getQuery());
+        r.setHits(hits);
+        r.setTotalHitCount(2L);
+        hits.incoming().add(new Hit("hit1"));
+
+        ByteArrayOutputStream bs = new ByteArrayOutputStream();
+        ListenableFuture<Boolean> f = renderer.render(bs, r, new Execution(Execution.Context.createContextStub()), null);
+        String firstHit = "\"id\":\"hit1\"";
+        for (int i = 0; i < 6000 && ! Utf8.toString(bs.toByteArray()).contains(firstHit); i++)
+            Thread.sleep(10);
+        assertTrue("The first hit is rendered before the result is complete",
+                   Utf8.toString(bs.toByteArray()).contains(firstHit));
+        assertFalse(f.isDone());
+
+        hits.incoming().add(new Hit("hit2"));
+        hits.incoming().addLast(new DefaultErrorHit("test", ErrorMessage.createInternalServerError("late")));
+        assertTrue(f.get());
+        assertEqualJson(expected, Utf8.toString(bs.toByteArray()));
+    }
+
     @Test
     public void testDataTypes() throws IOException, InterruptedException, ExecutionException, JSONException {
         String expected = "{\n"
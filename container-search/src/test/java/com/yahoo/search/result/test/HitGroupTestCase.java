@@ -6,12 +6,18 @@ import com.yahoo.search.result.DefaultErrorHit;
 import com.yahoo.search.result.ErrorHit;
 import com.yahoo.search.result.ErrorMessage;
 import com.yahoo.search.result.Hit;
+import com.yahoo.search.query.Sorting;
 import com.yahoo.search.result.HitGroup;
+import com.yahoo.search.result.HitSortOrderer;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Random;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -245,6 +251,68 @@ public class HitGroupTestCase {
         assertTrue(hg.getFilled().isEmpty());
     }
     
+    @Test
+    public void testSortingByRelevanceIsStableAndMergesSortedLists() {
+        Random random = new Random(17);
+        for (int round = 0; round < 20; round++) {
+            HitGroup hits = new HitGroup();
+            for (int source = 0; source < 10; source++) { // Each source adds its hits in order
+                double relevance = 1.0;
+                for (int i = 0; i < 40; i++) {
+                    relevance -= random.nextInt(3) * 0.01;
+                    Hit hit = new Hit(source + ":" + i, i % 13 == 0 ? Double.NaN : relevance);
+                    hit.setAddNumber(random.nextInt(5));
+                    hits.add(hit);
+                }
+            }
+            List<Hit> expected = new ArrayList<>(hits.asUnorderedHits());
+            Collections.sort(expected);
+            assertEquals(expected, hits.asList());
+        }
+    }
+
+    @Test
+    public void testTrimOrdersOnlyTheHitsKept() {
+        Random random = new Random(17);
+        for (int round = 0; round < 20; round++) {
+            HitGroup hits = new HitGroup();
+            for (int i = 0; i < 100; i++)
+                hits.add(new Hit("hit:" + i, random.nextInt(20)));
+            List<Hit> expected = new ArrayList<>(hits.asUnorderedHits());
+            Collections.sort(expected);
+            hits.trim(5, 10);
+            assertEquals(expected.subList(5, 15), hits.asList());
+        }
+    }
+
+    @Test
+    public void testSortingByFields() {
+        Random random = new Random(17);
+        Sorting sorting = new Sorting("-a +b");
+        for (int round = 0; round < 20; round++) {
+            List<Hit> hits = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                Hit hit = random.nextInt(10) == 0 ? new HitGroup("group:" + i) : new Hit("hit:" + i);
+                if (random.nextInt(10) == 0)
+                    hit.setMeta(true);
+                hit.setField("a", random.nextInt(5));
+                hit.setField("b", "b" + random.nextInt(5));
+                hits.add(hit);
+            }
+            List<Hit> expected = new ArrayList<>(hits);
+            Collections.sort(expected, new HitSortOrderer(sorting).getComparator());
+
+            List<Hit> sorted = new ArrayList<>(hits);
+            new HitSortOrderer(sorting).order(sorted);
+            assertEquals(expected, sorted);
+
+            List<Hit> firstSorted = new ArrayList<>(hits);
+            new HitSortOrderer(sorting).orderFirst(firstSorted, 10);
+            assertEquals(expected.subList(0, 10), firstSorted.subList(0, 10));
+            assertEquals(new HashSet<>(hits), new HashSet<>(firstSorted));
+        }
+    }
+
     /** Returns the (first) error hit in the given list, or empty if none */
     private Optional<ErrorHit> errorHitIn(List<Hit> hits) {
         return hits.stream().filter(h -> h instanceof ErrorHit).map(ErrorHit.class::cast).findFirst();
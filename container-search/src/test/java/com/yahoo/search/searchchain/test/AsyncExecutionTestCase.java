@@ -8,16 +8,20 @@ import com.yahoo.search.Result;
 import com.yahoo.search.Searcher;
 import com.yahoo.search.result.Hit;
 import com.yahoo.search.searchchain.AsyncExecution;
+import com.yahoo.search.searchchain.AsyncExecutor;
 import com.yahoo.search.searchchain.Execution;
 import com.yahoo.search.searchchain.FutureResult;
+import com.yahoo.search.searchers.test.MockMetric;
 import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
@@ -165,4 +169,91 @@ public class AsyncExecutionTestCase {
         future.get(1, TimeUnit.MILLISECONDS);
     }
 
+    @Test
+    public void testOverloadedExecutorFailsFast() throws InterruptedException {
+        MockMetric metric = new MockMetric();
+        AsyncExecutor executor = new AsyncExecutor(0, 1, 0, metric);
+        CountDownLatch blocker = new CountDownLatch(1);
+        try {
+            Execution.Context context = Execution.Context.createContextStub();
+            context.setAsyncExecutor(executor);
+            BlockingSearcher blockingSearcher = new BlockingSearcher(blocker);
+            Chain<Searcher> blockingChain = new Chain<>(blockingSearcher);
+            Chain<Searcher> fastChain = new Chain<>(new ResultProducingSearcher());
+
+            FutureResult blocked = new AsyncExecution(blockingChain, context).search(new Query("?query=test"));
+            blockingSearcher.started.await();
+            FutureResult rejected = new AsyncExecution(fastChain, context).search(new Query("?query=test"));
+            assertTrue("Rejected executions complete immediately", rejected.isDone());
+            assertEquals(503, rejected.get().hits().getError().getCode());
+            assertEquals(1, metric.values(null).get("search_async_rejected").intValue());
+
+            Result result = new Result(new Query("?query=test"));
+            Result rejectedFill = new AsyncExecution(fastChain, context).fill(result, "default").get();
+            assertEquals(result, rejectedFill);
+            assertEquals(503, rejectedFill.hits().getError().getCode());
+
+            assertFalse(blocked.isDone());
+            blocker.countDown();
+            assertNull(blocked.get().hits().getError());
+            assertEquals(1, metric.values(null).get("search_async_active_threads").intValue());
+        }
+        finally {
+            blocker.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testQueuedExecution() throws InterruptedException {
+        AsyncExecutor executor = new AsyncExecutor(1, 1, 1, new MockMetric());
+        CountDownLatch blocker = new CountDownLatch(1);
+        try {
+            Execution.Context context = Execution.Context.createContextStub();
+            context.setAsyncExecutor(executor);
+            BlockingSearcher blockingSearcher = new BlockingSearcher(blocker);
+            Chain<Searcher> blockingChain = new Chain<>(blockingSearcher);
+            Chain<Searcher> fastChain = new Chain<>(new ResultProducingSearcher());
+
+            FutureResult blocked = new AsyncExecution(blockingChain, context).search(new Query("?query=test"));
+            blockingSearcher.started.await();
+            FutureResult queued = new AsyncExecution(fastChain, context).search(new Query("?query=test"));
+            FutureResult rejected = new AsyncExecution(fastChain, context).search(new Query("?query=test"));
+            assertEquals(503, rejected.get().hits().getError().getCode());
+            assertFalse(queued.isDone());
+
+            blocker.countDown();
+            List<Result> results = AsyncExecution.waitForAll(Arrays.asList(blocked, queued), 10000);
+            assertNull(results.get(0).hits().getError());
+            assertEquals("hello", results.get(1).hits().get(0).getField("test"));
+        }
+        finally {
+            blocker.countDown();
+            executor.shutdown();
+        }
+    }
+
+    private static class BlockingSearcher extends Searcher {
+
+        private final CountDownLatch blocker;
+        final CountDownLatch started = new CountDownLatch(1);
+
+        BlockingSearcher(CountDownLatch blocker) {
+            this.blocker = blocker;
+        }
+
+        @Override
+        public Result search(Query query, Execution execution) {
+            started.countDown();
+            try {
+                blocker.await();
+            }
+            catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            return new Result(query);
+        }
+
+    }
+
 }
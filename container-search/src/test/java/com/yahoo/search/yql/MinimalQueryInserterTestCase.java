@@ -16,6 +16,8 @@ import org.junit.Test;
 import com.yahoo.collections.Tuple2;
 import com.yahoo.component.Version;
 import com.yahoo.component.chain.Chain;
+import com.yahoo.prelude.IndexFacts;
+import com.yahoo.prelude.query.parser.SpecialTokenRegistry;
 import com.yahoo.search.Query;
 import com.yahoo.search.Result;
 import com.yahoo.search.Searcher;
@@ -26,6 +28,7 @@ import com.yahoo.search.query.Sorting.Order;
 import com.yahoo.search.query.Sorting.UcaSorter;
 import com.yahoo.search.result.ErrorMessage;
 import com.yahoo.search.searchchain.Execution;
+import com.yahoo.search.searchers.test.MockMetric;
 
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
@@ -55,6 +58,45 @@ public class MinimalQueryInserterTestCase {
         execution = null;
     }
 
+    @Test
+    public void requireThatParsedYqlIsCached() {
+        MockMetric metric = new MockMetric();
+        Execution execution = new Execution(new Chain<>(new MinimalQueryInserter(metric)), cachingContext());
+        String yql = "select foo from bar where baz contains 'cox' limit 7 offset 1 " +
+                     "| all(group(a) each(output(count())));";
+
+        Query first = new Query("search/?yql=" + encode(yql));
+        execution.search(first);
+        Query second = new Query("search/?yql=" + encode(yql));
+        execution.search(second);
+        assertEquals(1.0, metric.values(null).get("yql_parse_cache_misses"));
+        assertEquals(1.0, metric.values(null).get("yql_parse_cache_hits"));
+
+        assertEquals("baz:cox", second.getModel().getQueryTree().toString());
+        assertEquals(1, second.getOffset());
+        assertEquals(6, second.getHits());
+        assertGrouping("[[]all(group(a) each(output(count())))]", second);
+        assertNotSame(first.getModel().getQueryTree().getRoot(), second.getModel().getQueryTree().getRoot());
+        assertNotSame(GroupingRequest.getRequests(first).get(0).getRootOperation(),
+                      GroupingRequest.getRequests(second).get(0).getRootOperation());
+    }
+
+    @Test
+    public void requireThatYqlIncludingUserInputIsNotCached() {
+        MockMetric metric = new MockMetric();
+        Execution execution = new Execution(new Chain<>(new MinimalQueryInserter(metric)), cachingContext());
+        String yql = "select * from sources * where userInput(@foo);";
+
+        Query first = new Query("search/?foo=cox&yql=" + encode(yql));
+        execution.search(first);
+        assertEquals("default:cox", first.getModel().getQueryTree().toString());
+        Query second = new Query("search/?foo=box&yql=" + encode(yql));
+        execution.search(second);
+        assertEquals("default:box", second.getModel().getQueryTree().toString());
+        assertEquals(2.0, metric.values(null).get("yql_parse_cache_misses"));
+        assertNull(metric.values(null).get("yql_parse_cache_hits"));
+    }
+
     @Test
     public void requireThatGroupingStepsAreAttachedToQuery() {
         URIBuilder builder = new URIBuilder();
@@ -327,6 +369,11 @@ public class MinimalQueryInserterTestCase {
     }
 
 
+    /** Returns a context where the parser environment is the same for all queries, as in a container */
+    private static Execution.Context cachingContext() {
+        return new Execution.Context(null, new IndexFacts(), new SpecialTokenRegistry(), null, new SimpleLinguistics());
+    }
+
     private static void assertGrouping(String expected, Query query) {
         List<String> actual = new ArrayList<>();
         for (GroupingRequest request : query.getSelect().getGrouping())
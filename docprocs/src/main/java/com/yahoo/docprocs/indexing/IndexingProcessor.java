@@ -12,6 +12,7 @@ import com.yahoo.docproc.Processing;
 import com.yahoo.document.*;
 import com.yahoo.document.config.DocumentmanagerConfig;
 import com.yahoo.language.Linguistics;
+import com.yahoo.language.process.CachingLinguistics;
 import com.yahoo.log.LogLevel;
 import com.yahoo.vespa.configdefinition.IlscriptsConfig;
 import com.yahoo.vespa.indexinglanguage.AdapterFactory;
@@ -47,7 +48,8 @@ public class IndexingProcessor extends DocumentProcessor {
                              IlscriptsConfig ilscriptsConfig,
                              Linguistics linguistics) {
         docTypeMgr = DocumentTypeManagerConfigurer.configureNewManager(documentmanagerConfig);
-        scriptMgr = new ScriptManager(docTypeMgr, ilscriptsConfig, linguistics);
+        // Field values are mostly distinct, but short values such as tags and titles repeat across documents
+        scriptMgr = new ScriptManager(docTypeMgr, ilscriptsConfig, new CachingLinguistics(linguistics));
         adapterFactory = new SimpleAdapterFactory(new ExpressionSelector());
     }
 
@@ -12,6 +12,7 @@ import com.yahoo.document.serialization.DocumentWriter;
 import com.yahoo.document.serialization.FieldReader;
 import com.yahoo.document.serialization.FieldWriter;
 import com.yahoo.document.serialization.SerializationException;
+import com.yahoo.document.serialization.SerializationBufferPool;
 import com.yahoo.document.serialization.XmlSerializationHelper;
 import com.yahoo.document.serialization.XmlStream;
 import com.yahoo.io.GrowableByteBuffer;
@@ -131,9 +132,14 @@ public class Document extends StructuredFieldValue {
     }
 
     public int getSerializedSize() throws SerializationException {
-        DocumentSerializer data = DocumentSerializerFactory.create42(new GrowableByteBuffer(64 * 1024, 2.0f));
-        data.write(this);
-        return data.getBuf().position();
+        GrowableByteBuffer buffer = SerializationBufferPool.acquire();
+        try {
+            DocumentSerializer data = DocumentSerializerFactory.create42(buffer);
+            data.write(this);
+            return data.getBuf().position();
+        } finally {
+            SerializationBufferPool.release(buffer);
+        }
     }
 
     /**
@@ -143,25 +149,28 @@ public class Document extends StructuredFieldValue {
     public final int getApproxSize() { return 4096; }
 
     public void serialize(OutputStream out) throws SerializationException {
-        DocumentSerializer writer = DocumentSerializerFactory.create42(new GrowableByteBuffer(64 * 1024, 2.0f));
-        writer.write(this);
-        GrowableByteBuffer data = writer.getBuf();
-        byte[] array;
-        if (data.hasArray()) {
-            //just get the array
-            array = data.array();
-        } else {
-            //copy the bytebuffer into the array
-            array = new byte[data.position()];
-            int endPos = data.position();
-            data.position(0);
-            data.get(array);
-            data.position(endPos);
-        }
+        GrowableByteBuffer buffer = SerializationBufferPool.acquire();
         try {
+            DocumentSerializer writer = DocumentSerializerFactory.create42(buffer);
+            writer.write(this);
+            GrowableByteBuffer data = writer.getBuf();
+            byte[] array;
+            if (data.hasArray()) {
+                //just get the array
+                array = data.array();
+            } else {
+                //copy the bytebuffer into the array
+                array = new byte[data.position()];
+                int endPos = data.position();
+                data.position(0);
+                data.get(array);
+                data.position(endPos);
+            }
             out.write(array, 0, data.position());
         } catch (IOException ioe) {
             throw new SerializationException(ioe);
+        } finally {
+            SerializationBufferPool.release(buffer);
         }
     }
 
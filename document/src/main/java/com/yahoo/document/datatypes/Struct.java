@@ -5,10 +5,12 @@ import com.yahoo.collections.Hashlet;
 import com.yahoo.document.*;
 import com.yahoo.document.serialization.FieldReader;
 import com.yahoo.document.serialization.FieldWriter;
+import com.yahoo.document.serialization.SerializedFields;
 import com.yahoo.document.serialization.XmlSerializationHelper;
 import com.yahoo.document.serialization.XmlStream;
 import com.yahoo.vespa.objects.Ids;
 
+import java.nio.ByteBuffer;
 import java.util.*;
 
 /**
@@ -22,6 +24,9 @@ public class Struct extends StructuredFieldValue {
     private Hashlet<Integer, FieldValue> values = new Hashlet<>();
     private int [] order = null;
 
+    /** The serialized values of the fields which are null in values, as they are not yet deserialized */
+    private SerializedFields serializedFields = null;
+
     private int version;
 
     private int [] getInOrder() {
@@ -39,6 +44,43 @@ public class Struct extends StructuredFieldValue {
         order = null;
     }
 
+    /**
+     * Returns the value at the given index in values, deserializing it if necessary.
+     * Values of lazily deserialized structs are only accessed while holding the lock of this, as reading them
+     * may modify values, so that this may be read by multiple threads.
+     */
+    private FieldValue value(int index) {
+        SerializedFields fields = serializedFields;
+        if (fields == null) return values.value(index);
+
+        synchronized (this) {
+            FieldValue value = values.value(index);
+            if (value == null) {
+                value = fields.deserialize(values.key(index));
+                values.setValue(index, value);
+            }
+            return value;
+        }
+    }
+
+    private FieldValue get(int fieldId) {
+        int index = values.getIndexOfKey(fieldId);
+        return (index != -1) ? value(index) : null;
+    }
+
+    /**
+     * Returns values, after deserializing all of them. As each value is accessed through value(int), the values
+     * deserialized by other threads are also visible to the caller.
+     */
+    private Hashlet<Integer, FieldValue> allValues() {
+        if (serializedFields != null) {
+            for (int i = 0; i < values.size(); i++) {
+                value(i);
+            }
+        }
+        return values;
+    }
+
     public Struct(DataType type) {
         super((StructDataType) type);
         this.version = Document.SERIALIZED_VERSION;
@@ -83,8 +125,11 @@ public class Struct extends StructuredFieldValue {
         Struct struct = (Struct) super.clone();
         struct.values = new Hashlet<>();
         struct.values.reserve(values.size());
-        for (int i = 0; i < values.size(); i++) {
-            struct.values.put(values.key(i), values.value(i).clone());
+        synchronized (this) { // values may be deserialized by other threads
+            for (int i = 0; i < values.size(); i++) {
+                FieldValue value = values.value(i);
+                struct.values.put(values.key(i), value != null ? value.clone() : null);
+            }
         }
         return struct;
     }
@@ -92,9 +137,34 @@ public class Struct extends StructuredFieldValue {
     @Override
     public void clear() {
         values = new Hashlet<>();
+        serializedFields = null;
         invalidateOrder();
     }
 
+    /**
+     * Clears this and sets the given serialized values as the values of this. Each value is deserialized when
+     * it is first accessed. This is used by deserializers which read structs lazily.
+     */
+    public void setSerializedFields(SerializedFields fields) {
+        clear();
+        values.reserve(fields.size());
+        for (int i = 0; i < fields.size(); i++) {
+            values.put(fields.getField(i).getId(), null);
+        }
+        serializedFields = fields;
+    }
+
+    /**
+     * Returns the serialized value of the given field if this was deserialized lazily and the value has not been
+     * accessed since, and null otherwise.
+     */
+    public ByteBuffer getSerializedFieldValue(Field field) {
+        if (serializedFields == null) return null;
+        int index = values.getIndexOfKey(field.getId());
+        if (index == -1 || values.value(index) != null) return null;
+        return serializedFields.getSerializedValue(field.getId());
+    }
+
     @Override
     public Iterator<Map.Entry<Field, FieldValue>> iterator() {
         return new FieldSet().iterator();
@@ -119,7 +189,7 @@ public class Struct extends StructuredFieldValue {
 
     @Override
     public FieldValue getFieldValue(Field field) {
-        return values.get(field.getId());
+        return get(field.getId());
     }
 
 
@@ -167,7 +237,7 @@ public class Struct extends StructuredFieldValue {
 
     @Override
     public FieldValue removeFieldValue(Field field) {
-        FieldValue found = values.get(field.getId());
+        FieldValue found = get(field.getId());
         if (found != null) {
             Hashlet<Integer, FieldValue> copy = new Hashlet<>();
             copy.reserve(values.size() - 1);
@@ -215,13 +285,13 @@ public class Struct extends StructuredFieldValue {
         if (!super.equals(o)) return false;
 
         Struct struct = (Struct) o;
-        return values.equals(struct.values);
+        return allValues().equals(struct.allValues());
     }
 
     @Override
     public int hashCode() {
         int result = super.hashCode();
-        result = 31 * result + values.hashCode();
+        result = 31 * result + allValues().hashCode();
         return result;
     }
 
@@ -232,7 +302,7 @@ public class Struct extends StructuredFieldValue {
         int [] increasing = getInOrder();
         for (int i = 0; i < increasing.length; i++) {
             int id = increasing[i];
-            retVal.append(getDataType().getField(id)).append("=").append(values.get(id)).append(", ");
+            retVal.append(getDataType().getField(id)).append("=").append(get(id)).append(", ");
         }
         return retVal.toString();
     }
@@ -290,7 +360,7 @@ public class Struct extends StructuredFieldValue {
         }
 
         public FieldValue getValue() {
-            return values.get(id);
+            return get(id);
         }
 
         public FieldValue setValue(FieldValue value) {
@@ -304,7 +374,7 @@ public class Struct extends StructuredFieldValue {
                 values.put(id, value);
                 invalidateOrder();
             } else {
-                retVal = values.value(index);
+                retVal = value(index);
                 values.setValue(index, value);
             }
 
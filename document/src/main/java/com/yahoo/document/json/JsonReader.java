@@ -64,8 +64,8 @@ public class JsonReader {
         DocumentId docId = new DocumentId(docIdString);
         final DocumentParseInfo documentParseInfo;
         try {
-            DocumentParser documentParser = new DocumentParser(parser);
-            documentParseInfo = documentParser.parse(Optional.of(docId)).get();
+            DocumentParser documentParser = new DocumentParser(parser, typeManager);
+            documentParseInfo = documentParser.parse(Optional.of(docId), Optional.of(operationType)).get();
         } catch (IOException e) {
             state = END_OF_FEED;
             throw new RuntimeException(e);
@@ -93,7 +93,7 @@ public class JsonReader {
         }
         Optional<DocumentParseInfo> documentParseInfo;
         try {
-            documentParseInfo = parseDocument();
+            documentParseInfo = new DocumentParser(parser, typeManager).parse(Optional.empty());
         } catch (IOException r) {
             // Jackson is not able to recover from structural parse errors
             state = END_OF_FEED;
@@ -0,0 +1,87 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.document.json;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.common.base.Preconditions;
+
+import java.io.IOException;
+
+/**
+ * A token source which reads the tokens of one JSON object or array directly from the parser as they are consumed,
+ * instead of copying them into a {@link TokenBuffer} first. This does not allow lookahead, so it can only be used
+ * where the readers consume the tokens in the order they are parsed.
+ */
+public class StreamingTokenBuffer implements TokenSource {
+
+    private final JsonParser parser;
+    private JsonToken current;
+    private int nesting;
+
+    /**
+     * Creates a buffer of the object or array starting at the current token of the given parser.
+     * When the buffer is exhausted, the parser is positioned at the end of that object or array.
+     */
+    public StreamingTokenBuffer(JsonParser parser) {
+        this.parser = parser;
+        this.current = parser.currentToken();
+        Preconditions.checkArgument(current != null && current.isStructStart(),
+                                    "Expected start of object or array, got %s.", current);
+        nesting = 1;
+    }
+
+    @Override
+    public JsonToken next() {
+        if (current == null || nesting == 0) {
+            current = null;
+            return null;
+        }
+        try {
+            current = parser.nextValue();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        if (current.isStructStart())
+            nesting++;
+        else if (current.isStructEnd())
+            nesting--;
+        return current;
+    }
+
+    @Override
+    public JsonToken currentToken() { return current; }
+
+    @Override
+    public String currentName() {
+        if (current == null) return null;
+        try {
+            return parser.getCurrentName();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public String currentText() {
+        if (current == null) return null;
+        try {
+            return parser.getText();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /** Returns 1 while there is a current token, and 0 when the end of the object or array has been consumed */
+    @Override
+    public int size() { return current == null ? 0 : 1; }
+
+    @Override
+    public int nesting() { return nesting; }
+
+    /** Consumes the remaining tokens of the object or array, such that the parser is positioned at the end of it */
+    public void skipToEnd() {
+        while (current != null && nesting > 0)
+            next();
+    }
+
+}
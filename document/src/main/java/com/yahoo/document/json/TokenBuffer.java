@@ -15,7 +15,7 @@ import com.google.common.base.Preconditions;
  *
  * @author Steinar Knutsen
  */
-public class TokenBuffer {
+public class TokenBuffer implements TokenSource {
 
     public static final class Token {
         public final JsonToken token;
@@ -43,9 +43,7 @@ public class TokenBuffer {
         }
     }
 
-    /** Returns whether any tokens are available in this */
-    public boolean isEmpty() { return size() == 0; }
-
+    @Override
     public JsonToken next() {
         buffer.removeFirst();
         Token t = buffer.peekFirst();
@@ -57,6 +55,7 @@ public class TokenBuffer {
     }
 
     /** Returns the current token without changing position, or null if none */
+    @Override
     public JsonToken currentToken() {
         Token token = buffer.peekFirst();
         if (token == null) return null;
@@ -64,6 +63,7 @@ public class TokenBuffer {
     }
 
     /** Returns the current token name without changing position, or null if none */
+    @Override
     public String currentName() {
         Token token = buffer.peekFirst();
         if (token == null) return null;
@@ -71,12 +71,14 @@ public class TokenBuffer {
     }
 
     /** Returns the current token text without changing position, or null if none */
+    @Override
     public String currentText() {
         Token token = buffer.peekFirst();
         if (token == null) return null;
         return token.text;
     }
 
+    @Override
     public int size() {
         return buffer.size();
     }
@@ -146,6 +148,7 @@ public class TokenBuffer {
         nesting += nestingOffset(t);
     }
 
+    @Override
     public int nesting() {
         return nesting;
     }
@@ -0,0 +1,34 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.document.json;
+
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Read access to the tokens of a JSON object or array, consumed in order from a current token.
+ * This is all the readers of document field values need, so they can read from either a
+ * {@link TokenBuffer} or directly from the parser through a {@link StreamingTokenBuffer}.
+ */
+public interface TokenSource {
+
+    /** Advances to the next token and returns it, or null if there are no more tokens */
+    JsonToken next();
+
+    /** Returns the current token, or null if there are no more tokens */
+    JsonToken currentToken();
+
+    /** Returns the field name of the current token, or null if none */
+    String currentName();
+
+    /** Returns the text of the current token, or null if there are no more tokens */
+    String currentText();
+
+    /** Returns the number of objects and arrays the current token is inside, within the tokens of this */
+    int nesting();
+
+    /** Returns the number of tokens available in this, which is zero when all tokens are consumed */
+    int size();
+
+    /** Returns whether any tokens are available in this */
+    default boolean isEmpty() { return size() == 0; }
+
+}
@@ -3,8 +3,13 @@ package com.yahoo.document.json.document;
 
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonToken;
+import com.yahoo.document.Document;
 import com.yahoo.document.DocumentId;
+import com.yahoo.document.DocumentPut;
+import com.yahoo.document.DocumentType;
+import com.yahoo.document.DocumentTypeManager;
 import com.yahoo.document.json.readers.DocumentParseInfo;
+import com.yahoo.document.json.readers.VespaJsonDocumentReader;
 
 import java.io.IOException;
 import java.util.Optional;
@@ -27,10 +32,23 @@ public class DocumentParser {
     public static final String FIELDS = "fields";
     public static final String REMOVE = "remove";
     private final JsonParser parser;
+    private final DocumentTypeManager typeManager;
     private  long indentLevel;
 
+    /** Creates a parser which buffers the fields of all operations */
     public DocumentParser(JsonParser parser) {
+        this(parser, null);
+    }
+
+    /**
+     * Creates a parser which reads the fields of puts directly into the document when the id of the put
+     * is parsed before its fields, and buffers the fields otherwise.
+     *
+     * @param typeManager the document types to read fields of puts by, or null to buffer the fields of all operations
+     */
+    public DocumentParser(JsonParser parser, DocumentTypeManager typeManager) {
         this.parser = parser;
+        this.typeManager = typeManager;
     }
 
     /**
@@ -38,9 +56,22 @@ public class DocumentParser {
      * Returns empty is we have reached the end of the stream.
      */
     public Optional<DocumentParseInfo> parse(Optional<DocumentId> documentIdArg) throws IOException {
+        return parse(documentIdArg, Optional.empty());
+    }
+
+    /**
+     * Parses a single document and returns it.
+     * Returns empty is we have reached the end of the stream.
+     *
+     * @param documentIdArg the id of the document, if it is set externally
+     * @param operationTypeArg the type of the operation, if it is set externally
+     */
+    public Optional<DocumentParseInfo> parse(Optional<DocumentId> documentIdArg,
+                                             Optional<SupportedOperation> operationTypeArg) throws IOException {
         indentLevel = 0;
         DocumentParseInfo documentParseInfo = new DocumentParseInfo();
         documentIdArg.ifPresent(documentId -> documentParseInfo.documentId = documentId);
+        operationTypeArg.ifPresent(operationType -> documentParseInfo.operationType = operationType);
         boolean foundItems = false;
         do {
             foundItems |= parseOneItem(documentParseInfo, documentIdArg.isPresent() /* doc id set externally */);
@@ -126,7 +157,11 @@ public class DocumentParser {
             JsonToken currentToken = parser.getCurrentToken();
             // "fields" opens a dictionary and is therefore on level two which might be surprising.
             if (currentToken == JsonToken.START_OBJECT && FIELDS.equals(parser.getCurrentName())) {
-                documentParseInfo.fieldsBuffer.bufferObject(currentToken, parser);
+                DocumentType documentType = documentTypeOfPutToRead(documentParseInfo);
+                if (documentType != null)
+                    readPut(documentType, documentParseInfo);
+                else
+                    documentParseInfo.fieldsBuffer.bufferObject(currentToken, parser);
                 processIndent();
             }
         } catch (IOException e) {
@@ -134,6 +169,27 @@ public class DocumentParser {
         }
     }
 
+    /**
+     * Returns the document type of the put whose fields are at the current position of the parser, or null
+     * if the fields must be buffered, because this is not a put, or its id is not yet known
+     */
+    private DocumentType documentTypeOfPutToRead(DocumentParseInfo documentParseInfo) {
+        if (typeManager == null) return null;
+        if (documentParseInfo.operationType != SupportedOperation.PUT || documentParseInfo.documentId == null) return null;
+        if (documentParseInfo.put != null || documentParseInfo.putFailure != null) return null;
+        return typeManager.getDocumentType(documentParseInfo.documentId.getDocType());
+    }
+
+    private void readPut(DocumentType documentType, DocumentParseInfo documentParseInfo) {
+        DocumentPut put = new DocumentPut(new Document(documentType, documentParseInfo.documentId));
+        try {
+            new VespaJsonDocumentReader().readPut(parser, put);
+            documentParseInfo.put = put;
+        } catch (RuntimeException e) { // Thrown when the operation is created, as when the fields are buffered
+            documentParseInfo.putFailure = e;
+        }
+    }
+
     private static SupportedOperation operationNameToOperationType(String operationName) {
         switch (operationName) {
             case PUT:
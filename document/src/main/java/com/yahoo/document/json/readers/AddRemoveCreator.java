@@ -8,7 +8,7 @@ import com.yahoo.document.Field;
 import com.yahoo.document.datatypes.CollectionFieldValue;
 import com.yahoo.document.datatypes.FieldValue;
 import com.yahoo.document.datatypes.WeightedSet;
-import com.yahoo.document.json.TokenBuffer;
+import com.yahoo.document.json.TokenSource;
 import com.yahoo.document.update.FieldUpdate;
 
 import java.util.ArrayList;
@@ -22,21 +22,21 @@ public class AddRemoveCreator {
     // yes, this suppresswarnings ugliness is by intention, the code relies on
     // the contracts in the builders
     @SuppressWarnings({ "cast", "rawtypes", "unchecked" })
-    public static void createAdds(TokenBuffer buffer, Field field, FieldUpdate update) {
+    public static void createAdds(TokenSource buffer, Field field, FieldUpdate update) {
         createAddsOrRemoves(buffer, field, update, false);
     }
 
     // yes, this suppresswarnings ugliness is by intention, the code relies on
     // the contracts in the builders
     @SuppressWarnings({ "cast", "rawtypes", "unchecked" })
-    public static void createRemoves(TokenBuffer buffer, Field field, FieldUpdate update) {
+    public static void createRemoves(TokenSource buffer, Field field, FieldUpdate update) {
         createAddsOrRemoves(buffer, field, update, true);
     }
 
     // yes, this suppresswarnings ugliness is by intention, the code relies on
     // the contracts in the builders
     @SuppressWarnings({ "cast", "rawtypes", "unchecked" })
-    private static void createAddsOrRemoves(TokenBuffer buffer, Field field, FieldUpdate update, boolean isRemove) {
+    private static void createAddsOrRemoves(TokenSource buffer, Field field, FieldUpdate update, boolean isRemove) {
         FieldValue container = field.getDataType().createFieldValue();
         FieldUpdate singleUpdate;
         int initNesting = buffer.nesting();
@@ -4,7 +4,7 @@ package com.yahoo.document.json.readers;
 import com.yahoo.document.DataType;
 import com.yahoo.document.datatypes.CollectionFieldValue;
 import com.yahoo.document.datatypes.FieldValue;
-import com.yahoo.document.json.TokenBuffer;
+import com.yahoo.document.json.TokenSource;
 
 import java.util.List;
 
@@ -12,7 +12,7 @@ import static com.yahoo.document.json.readers.JsonParserHelpers.expectArrayStart
 import static com.yahoo.document.json.readers.SingleValueReader.readSingleValue;
 
 public class ArrayReader {
-    public static void fillArrayUpdate(TokenBuffer buffer, int initNesting, DataType valueType, List<FieldValue> arrayContents) {
+    public static void fillArrayUpdate(TokenSource buffer, int initNesting, DataType valueType, List<FieldValue> arrayContents) {
         while (buffer.nesting() >= initNesting) {
             arrayContents.add(readSingleValue(buffer, valueType));
             buffer.next();
@@ -20,7 +20,7 @@ public class ArrayReader {
     }
 
     @SuppressWarnings({ "unchecked", "rawtypes" })
-    public static void fillArray(TokenBuffer buffer, CollectionFieldValue parent, DataType valueType) {
+    public static void fillArray(TokenSource buffer, CollectionFieldValue parent, DataType valueType) {
         int initNesting = buffer.nesting();
         expectArrayStart(buffer.currentToken());
         buffer.next();
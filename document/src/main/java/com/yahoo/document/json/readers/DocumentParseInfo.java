@@ -2,6 +2,7 @@
 package com.yahoo.document.json.readers;
 
 import com.yahoo.document.DocumentId;
+import com.yahoo.document.DocumentPut;
 import com.yahoo.document.json.TokenBuffer;
 import com.yahoo.document.json.document.DocumentParser;
 
@@ -13,4 +14,8 @@ public class DocumentParseInfo {
     public Optional<String> condition = Optional.empty();
     public DocumentParser.SupportedOperation operationType = null;
     public TokenBuffer fieldsBuffer = new TokenBuffer();
+    /** The put whose fields were read while parsing, instead of being buffered, or null */
+    public DocumentPut put = null;
+    /** The failure to read the fields of the put, which is thrown when the operation is created, or null */
+    public RuntimeException putFailure = null;
 }
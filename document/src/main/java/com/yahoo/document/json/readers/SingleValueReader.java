@@ -7,7 +7,7 @@ import com.yahoo.document.DocumentId;
 import com.yahoo.document.PositionDataType;
 import com.yahoo.document.ReferenceDataType;
 import com.yahoo.document.datatypes.FieldValue;
-import com.yahoo.document.json.TokenBuffer;
+import com.yahoo.document.json.TokenSource;
 import com.yahoo.document.update.ValueUpdate;
 import org.apache.commons.codec.binary.Base64;
 
@@ -40,7 +40,7 @@ public class SingleValueReader {
         arithmeticExpressionPattern = Pattern.compile("^\\$\\w+\\s*([" + validSigns + "])\\s*(\\d+(.\\d+)?)$");
     }
 
-    public static FieldValue readSingleValue(TokenBuffer buffer, DataType expectedType) {
+    public static FieldValue readSingleValue(TokenSource buffer, DataType expectedType) {
         if (buffer.currentToken().isScalarValue()) {
             return readAtomic(buffer.currentText(), expectedType);
         } else {
@@ -51,7 +51,7 @@ public class SingleValueReader {
     }
 
     @SuppressWarnings("rawtypes")
-    public static ValueUpdate readSingleUpdate(TokenBuffer buffer, DataType expectedType, String action) {
+    public static ValueUpdate readSingleUpdate(TokenSource buffer, DataType expectedType, String action) {
         ValueUpdate update;
 
         switch (action) {
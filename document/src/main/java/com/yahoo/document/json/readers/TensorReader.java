@@ -2,7 +2,7 @@
 package com.yahoo.document.json.readers;
 
 import com.yahoo.document.datatypes.TensorFieldValue;
-import com.yahoo.document.json.TokenBuffer;
+import com.yahoo.document.json.TokenSource;
 import com.yahoo.tensor.MappedTensor;
 import com.yahoo.tensor.Tensor;
 
@@ -19,7 +19,7 @@ public class TensorReader {
     public static final String TENSOR_CELLS = "cells";
     public static final String TENSOR_VALUE = "value";
 
-    public static void fillTensor(TokenBuffer buffer, TensorFieldValue tensorFieldValue) {
+    public static void fillTensor(TokenSource buffer, TensorFieldValue tensorFieldValue) {
         Tensor.Builder tensorBuilder = Tensor.Builder.of(tensorFieldValue.getDataType().getTensorType());
         expectObjectStart(buffer.currentToken());
         int initNesting = buffer.nesting();
@@ -32,7 +32,7 @@ public class TensorReader {
         tensorFieldValue.assign(tensorBuilder.build());
     }
 
-    public static void readTensorCells(TokenBuffer buffer, Tensor.Builder tensorBuilder) {
+    public static void readTensorCells(TokenSource buffer, Tensor.Builder tensorBuilder) {
         expectArrayStart(buffer.currentToken());
         int initNesting = buffer.nesting();
         for (buffer.next(); buffer.nesting() >= initNesting; buffer.next())
@@ -40,7 +40,7 @@ public class TensorReader {
         expectCompositeEnd(buffer.currentToken());
     }
 
-    public static void readTensorCell(TokenBuffer buffer, Tensor.Builder tensorBuilder) {
+    public static void readTensorCell(TokenSource buffer, Tensor.Builder tensorBuilder) {
         expectObjectStart(buffer.currentToken());
         int initNesting = buffer.nesting();
         double cellValue = 0.0;
@@ -57,7 +57,7 @@ public class TensorReader {
         cellBuilder.value(cellValue);
     }
 
-    public static void readTensorAddress(TokenBuffer buffer, MappedTensor.Builder.CellBuilder cellBuilder) {
+    public static void readTensorAddress(TokenSource buffer, MappedTensor.Builder.CellBuilder cellBuilder) {
         expectObjectStart(buffer.currentToken());
         int initNesting = buffer.nesting();
         for (buffer.next(); buffer.nesting() >= initNesting; buffer.next()) {
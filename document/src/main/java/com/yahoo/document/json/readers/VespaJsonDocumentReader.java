@@ -1,6 +1,7 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.document.json.readers;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonToken;
 import com.google.common.base.Preconditions;
 import com.yahoo.document.Document;
@@ -17,7 +18,9 @@ import com.yahoo.document.fieldpathupdate.AssignFieldPathUpdate;
 import com.yahoo.document.fieldpathupdate.FieldPathUpdate;
 import com.yahoo.document.fieldpathupdate.RemoveFieldPathUpdate;
 import com.yahoo.document.json.JsonReaderException;
+import com.yahoo.document.json.StreamingTokenBuffer;
 import com.yahoo.document.json.TokenBuffer;
+import com.yahoo.document.json.TokenSource;
 import com.yahoo.document.update.FieldUpdate;
 
 import static com.yahoo.document.json.readers.AddRemoveCreator.createAdds;
@@ -43,6 +46,12 @@ public class VespaJsonDocumentReader {
         try {
             switch (documentParseInfo.operationType) {
                 case PUT:
+                    if (documentParseInfo.putFailure != null) throw documentParseInfo.putFailure;
+                    if (documentParseInfo.put != null) { // the fields were read while parsing
+                        Preconditions.checkState(documentParseInfo.fieldsBuffer.isEmpty(), "Dangling data at end of operation");
+                        documentOperation = documentParseInfo.put;
+                        break;
+                    }
                     documentOperation = new DocumentPut(new Document(documentType, documentParseInfo.documentId));
                     readPut(documentParseInfo.fieldsBuffer, (DocumentPut) documentOperation);
                     verifyEndState(documentParseInfo.fieldsBuffer, JsonToken.END_OBJECT);
@@ -71,8 +80,25 @@ public class VespaJsonDocumentReader {
         return documentOperation;
     }
 
+    /**
+     * Reads the fields of a put directly from the parser, which must be positioned at the start of the fields object.
+     * The parser is left at the end of the fields object also if reading fails.
+     *
+     * @throws RuntimeException if the fields could not be read
+     */
+    public void readPut(JsonParser parser, DocumentPut put) {
+        StreamingTokenBuffer buffer = new StreamingTokenBuffer(parser);
+        try {
+            readPut(buffer, put);
+            verifyEndState(buffer, JsonToken.END_OBJECT);
+        } catch (RuntimeException e) {
+            buffer.skipToEnd();
+            throw e;
+        }
+    }
+
     // Exposed for unit testing...
-    public void readPut(TokenBuffer buffer, DocumentPut put) {
+    public void readPut(TokenSource buffer, DocumentPut put) {
         try {
             if (buffer.isEmpty()) // no "fields" map
                 throw new IllegalArgumentException(put + " is missing a 'fields' map");
@@ -194,7 +220,7 @@ public class VespaJsonDocumentReader {
         return field.matches("^.*?[.\\[\\{].*$");
     }
 
-    private static void verifyEndState(TokenBuffer buffer, JsonToken expectedFinalToken) {
+    private static void verifyEndState(TokenSource buffer, JsonToken expectedFinalToken) {
         Preconditions.checkState(buffer.currentToken() == expectedFinalToken,
                 "Expected end of JSON struct (%s), got %s", expectedFinalToken, buffer.currentToken());
         Preconditions.checkState(buffer.nesting() == 0, "Nesting not zero at end of operation");
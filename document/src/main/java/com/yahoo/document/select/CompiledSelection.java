@@ -0,0 +1,642 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.document.select;
+
+import com.yahoo.document.Document;
+import com.yahoo.document.DocumentPut;
+import com.yahoo.document.DocumentRemove;
+import com.yahoo.document.DocumentType;
+import com.yahoo.document.DocumentUpdate;
+import com.yahoo.document.FieldPath;
+import com.yahoo.document.FieldPathEntry;
+import com.yahoo.document.datatypes.CompositeFieldValue;
+import com.yahoo.document.datatypes.FieldPathIteratorHandler;
+import com.yahoo.document.datatypes.FieldValue;
+import com.yahoo.document.datatypes.NumericFieldValue;
+import com.yahoo.document.select.rule.ArithmeticNode;
+import com.yahoo.document.select.rule.AttributeNode;
+import com.yahoo.document.select.rule.ComparisonNode;
+import com.yahoo.document.select.rule.DocumentNode;
+import com.yahoo.document.select.rule.EmbracedNode;
+import com.yahoo.document.select.rule.ExpressionNode;
+import com.yahoo.document.select.rule.IdNode;
+import com.yahoo.document.select.rule.LiteralNode;
+import com.yahoo.document.select.rule.LogicNode;
+import com.yahoo.document.select.rule.NegationNode;
+import com.yahoo.document.select.rule.NowNode;
+import com.yahoo.document.select.rule.SearchColumnNode;
+import com.yahoo.document.select.rule.VariableNode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Stack;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A document selection expression compiled into a tree of evaluators which are specialized to the nodes of the
+ * expression, such that accepting a document does not interpret the expression tree.
+ * <p>
+ * Field paths are resolved once per document type, regular expressions and numbers of literals are converted once,
+ * and the result lists of the logical operators are represented by the set of results they contain, which
+ * lets them be combined without allocation, and evaluation of <i>and</i> and <i>or</i> stop at the first operand
+ * which decides their result. This gives the same results as evaluating the expression tree, which the results
+ * of expressions containing variables depend on the variables of, so those are not compiled.
+ * <p>
+ * This is multithread safe.
+ */
+final class CompiledSelection {
+
+    /** The bits of the set of results of a result list */
+    private static final int TRUE = 1, FALSE = 2, INVALID = 4;
+
+    private final Condition condition;
+
+    private CompiledSelection(Condition condition) {
+        this.condition = condition;
+    }
+
+    /** Returns the compiled selection of the given expression, or null if it cannot be compiled */
+    static CompiledSelection compile(ExpressionNode expression) {
+        if (containsVariables(expression)) return null;
+        return new CompiledSelection(compileCondition(expression));
+    }
+
+    /** Returns whether the document of this context is accepted by this, as {@link DocumentSelector#accepts} */
+    Result accepts(Context context) {
+        return toResult(condition.evaluate(context));
+    }
+
+    private static boolean containsVariables(ExpressionNode node) {
+        if (node instanceof VariableNode) return true;
+        if (node instanceof EmbracedNode) return containsVariables(((EmbracedNode)node).getNode());
+        if (node instanceof NegationNode) return containsVariables(((NegationNode)node).getNode());
+        if (node instanceof ComparisonNode)
+            return containsVariables(((ComparisonNode)node).getLHS()) || containsVariables(((ComparisonNode)node).getRHS());
+        if (node instanceof LogicNode) {
+            for (LogicNode.NodeItem item : ((LogicNode)node).getItems())
+                if (containsVariables(item.getNode())) return true;
+        }
+        if (node instanceof ArithmeticNode) {
+            for (ArithmeticNode.NodeItem item : ((ArithmeticNode)node).getItems())
+                if (containsVariables(item.getNode())) return true;
+        }
+        if (node instanceof AttributeNode) {
+            for (AttributeNode.Item item : ((AttributeNode)node).getItems())
+                if (item.getName().contains("$")) return true; // A variable key or index in the field path
+            return containsVariables(((AttributeNode)node).getValue());
+        }
+        return false;
+    }
+
+    private static Result toResult(int results) {
+        if ((results & TRUE) != 0) return Result.TRUE;
+        if ((results & FALSE) != 0 || results == 0) return Result.FALSE;
+        return Result.INVALID;
+    }
+
+    private static int resultOf(Result result) {
+        if (result == Result.TRUE) return TRUE;
+        if (result == Result.FALSE) return FALSE;
+        return INVALID;
+    }
+
+    /** Returns the set of results of the result list of the given value, as {@link ResultList#toResultList} */
+    private static int resultsOf(Object value) {
+        if (value instanceof ResultList) {
+            int results = 0;
+            for (ResultList.ResultPair pair : ((ResultList)value).getResults())
+                results |= resultOf(pair.getResult());
+            return results;
+        }
+        if (value instanceof AttributeNode.VariableValueList)
+            return ((AttributeNode.VariableValueList)value).isEmpty() ? 0 : TRUE;
+        if (value instanceof ValueList)
+            return ((ValueList)value).isEmpty() ? 0 : TRUE;
+        if (value == null || value == Result.FALSE || value == Boolean.FALSE ||
+            (value instanceof Number && ((Number)value).doubleValue() == 0))
+            return FALSE;
+        if (value == Result.INVALID)
+            return INVALID;
+        return TRUE;
+    }
+
+    /** Returns the results of combining each of the given results by and, as {@link ResultList#combineAND} */
+    private static int and(int left, int right) {
+        int results = 0;
+        if ((left & TRUE) != 0 && (right & TRUE) != 0)
+            results |= TRUE;
+        if (((left & FALSE) != 0 && right != 0) || ((right & FALSE) != 0 && left != 0))
+            results |= FALSE;
+        if (((left & INVALID) != 0 && (right & (TRUE | INVALID)) != 0) || ((left & TRUE) != 0 && (right & INVALID) != 0))
+            results |= INVALID;
+        return results;
+    }
+
+    /** Returns the results of combining each of the given results by or, as {@link ResultList#combineOR} */
+    private static int or(int left, int right) {
+        int results = 0;
+        if (((left & TRUE) != 0 && right != 0) || ((right & TRUE) != 0 && left != 0))
+            results |= TRUE;
+        if ((left & FALSE) != 0 && (right & FALSE) != 0)
+            results |= FALSE;
+        if (((left & INVALID) != 0 && (right & (FALSE | INVALID)) != 0) || ((left & FALSE) != 0 && (right & INVALID) != 0))
+            results |= INVALID;
+        return results;
+    }
+
+    private static Condition compileCondition(ExpressionNode node) {
+        if (node instanceof LogicNode)
+            return compileLogic((LogicNode)node);
+        if (node instanceof EmbracedNode)
+            return compileCondition(((EmbracedNode)node).getNode());
+        if (node instanceof NegationNode) {
+            Condition negated = compileCondition(((NegationNode)node).getNode());
+            return context -> resultOf(Result.invert(toResult(negated.evaluate(context))));
+        }
+        if (node instanceof ComparisonNode)
+            return compileComparison((ComparisonNode)node);
+        Value value = compileValue(node);
+        if (value == null)
+            return context -> resultsOf(node.evaluate(context));
+        return context -> resultsOf(value.evaluate(context));
+    }
+
+    /** Combines the operands in the order of precedence used by {@link LogicNode#evaluate} */
+    private static Condition compileLogic(LogicNode node) {
+        Stack<Operand> operands = new Stack<>();
+        for (LogicNode.NodeItem item : node.getItems()) {
+            while ( ! operands.isEmpty() && operands.peek().operator > item.getOperator())
+                combine(operands);
+            operands.push(new Operand(item.getOperator(), compileCondition(item.getNode())));
+        }
+        while (operands.size() > 1)
+            combine(operands);
+        return operands.pop().condition;
+    }
+
+    private static void combine(Stack<Operand> operands) {
+        Operand right = operands.pop();
+        Operand left = operands.pop();
+        switch (right.operator) {
+            case LogicNode.AND:
+                operands.push(new Operand(left.operator, new And(left.condition, right.condition)));
+                break;
+            case LogicNode.OR:
+                operands.push(new Operand(left.operator, new Or(left.condition, right.condition)));
+                break;
+            default:
+                throw new IllegalStateException("Arithmetic operator " + right.operator + " not supported.");
+        }
+    }
+
+    private static Condition compileComparison(ComparisonNode node) {
+        Operator operator = Operator.fromString(node.getOperator());
+        Value left = compileValue(node.getLHS());
+        Value right = compileValue(node.getRHS());
+        if (operator == null || left == null || right == null)
+            return context -> resultsOf(node.evaluate(context));
+        return new Comparison(operator, left, right,
+                              Constant.compile(operator, node.getLHS()), Constant.compile(operator, node.getRHS()));
+    }
+
+    /**
+     * Returns the compiled value of a node, or null if it may evaluate to variable values, such that it is
+     * evaluated by the expression tree
+     */
+    private static Value compileValue(ExpressionNode node) {
+        if (node instanceof LiteralNode) {
+            Object value = ((LiteralNode)node).getValue();
+            return context -> value;
+        }
+        if (node instanceof DocumentNode || node instanceof IdNode || node instanceof NowNode ||
+            node instanceof SearchColumnNode)
+            return node::evaluate;
+        if (node instanceof EmbracedNode)
+            return compileValue(((EmbracedNode)node).getNode());
+        if (node instanceof AttributeNode)
+            return compileAttribute((AttributeNode)node);
+        return null;
+    }
+
+    /** Compiles the field paths and functions of an attribute into steps, as {@link AttributeNode#evaluate} */
+    private static Value compileAttribute(AttributeNode node) {
+        Value value = compileValue(node.getValue());
+        if (value == null) return null;
+
+        List<Step> steps = new ArrayList<>();
+        String position = node.getValue().toString();
+        StringBuilder fieldPath = new StringBuilder();
+        AttributeNode.Item fieldPathStart = null;
+        String fieldPathPosition = null;
+        for (AttributeNode.Item item : node.getItems()) {
+            if (item.getType() != AttributeNode.Item.FUNCTION) {
+                if (fieldPath.length() == 0) {
+                    fieldPathStart = item;
+                    fieldPathPosition = position;
+                }
+                else {
+                    fieldPath.append(".");
+                }
+                fieldPath.append(item.getName());
+            }
+            else {
+                if (fieldPath.length() > 0) {
+                    steps.add(new FieldPathStep(fieldPath.toString(), fieldPathStart, fieldPathPosition));
+                    fieldPath.setLength(0);
+                }
+                steps.add(new FunctionStep(item, position));
+            }
+            position = position + "." + item;
+        }
+        if (fieldPath.length() > 0)
+            steps.add(new FieldPathStep(fieldPath.toString(), fieldPathStart, fieldPathPosition));
+        return new Attribute(value, steps);
+    }
+
+    /** Returns the set of results of evaluating a condition in some context */
+    @FunctionalInterface
+    private interface Condition {
+
+        int evaluate(Context context);
+
+    }
+
+    /**
+     * Returns the value of some expression in a context. Multiple values of field paths are returned as a
+     * {@link ValueList}, or as the field value itself if there is one.
+     */
+    @FunctionalInterface
+    private interface Value {
+
+        Object evaluate(Context context);
+
+    }
+
+    /** A condition and the logical operator combining it with the previous */
+    private static final class Operand {
+
+        final int operator;
+        final Condition condition;
+
+        Operand(int operator, Condition condition) {
+            this.operator = operator;
+            this.condition = condition;
+        }
+
+    }
+
+    private static final class And implements Condition {
+
+        private final Condition left, right;
+
+        And(Condition left, Condition right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public int evaluate(Context context) {
+            int leftResults = left.evaluate(context);
+            if (leftResults == FALSE) return FALSE;
+            return and(leftResults, right.evaluate(context));
+        }
+
+    }
+
+    private static final class Or implements Condition {
+
+        private final Condition left, right;
+
+        Or(Condition left, Condition right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public int evaluate(Context context) {
+            int leftResults = left.evaluate(context);
+            if (leftResults == TRUE) return TRUE;
+            return or(leftResults, right.evaluate(context));
+        }
+
+    }
+
+    /** The values of a field path, or of a function of values */
+    private static final class ValueList extends ArrayList<Object> {
+
+        ValueList(int capacity) {
+            super(capacity);
+        }
+
+    }
+
+    private static boolean isList(Object value) {
+        return value instanceof ValueList || value instanceof FieldValue;
+    }
+
+    private static int sizeOf(Object list) {
+        return list instanceof ValueList ? ((ValueList)list).size() : 1;
+    }
+
+    private static Object get(Object list, int index) {
+        return list instanceof ValueList ? ((ValueList)list).get(index) : list;
+    }
+
+    private static final class Attribute implements Value {
+
+        private final Value value;
+        private final Step[] steps;
+
+        Attribute(Value value, List<Step> steps) {
+            this.value = value;
+            this.steps = steps.toArray(new Step[steps.size()]);
+        }
+
+        @Override
+        public Object evaluate(Context context) {
+            Object result = value.evaluate(context);
+            for (Step step : steps) {
+                if (result == null)
+                    throw new IllegalStateException("Can not invoke '" + step.item + "' on '" + step.position +
+                                                    "' because that term evaluated to null.");
+                result = step.evaluate(result);
+            }
+            return result;
+        }
+
+    }
+
+    private static abstract class Step {
+
+        /** The first item of this step, and the textual position of it, for error messages */
+        final AttributeNode.Item item;
+        final String position;
+
+        Step(AttributeNode.Item item, String position) {
+            this.item = item;
+            this.position = position;
+        }
+
+        abstract Object evaluate(Object value);
+
+    }
+
+    private static final class FunctionStep extends Step {
+
+        private final String function;
+
+        FunctionStep(AttributeNode.Item item, String position) {
+            super(item, position);
+            this.function = item.getName();
+        }
+
+        @Override
+        Object evaluate(Object value) {
+            if ( ! isList(value)) return AttributeNode.applyFunction(function, value);
+
+            int size = sizeOf(value);
+            ValueList result = new ValueList(size);
+            for (int i = 0; i < size; i++)
+                result.add(AttributeNode.applyFunction(function, get(value, i)));
+            return result;
+        }
+
+    }
+
+    private static final class FieldPathStep extends Step {
+
+        private final String fieldPath;
+
+        /** The field path resolved against the document type last seen */
+        private volatile ResolvedFieldPath resolved = null;
+
+        FieldPathStep(String fieldPath, AttributeNode.Item item, String position) {
+            super(item, position);
+            this.fieldPath = fieldPath;
+        }
+
+        @Override
+        Object evaluate(Object value) {
+            if (value instanceof DocumentPut) {
+                Document document = ((DocumentPut)value).getDocument();
+                FieldPath path = resolve(document.getDataType());
+                if (path.size() == 1 && path.get(0).getType() == FieldPathEntry.Type.STRUCT_FIELD) {
+                    FieldValue fieldValue = document.getFieldValue(path.get(0).getFieldRef());
+                    if (fieldValue == null) return null;
+                    if ( ! (fieldValue instanceof CompositeFieldValue)) return fieldValue;
+                }
+                ValueCollector collector = new ValueCollector();
+                document.iterateNested(path, 0, collector);
+                if (collector.values.isEmpty()) return null;
+                return collector.values.size() == 1 ? collector.values.get(0) : collector.values;
+            }
+            else if (value instanceof DocumentUpdate) {
+                return Result.INVALID;
+            }
+            else if (value instanceof DocumentRemove) {
+                return Result.INVALID;
+            }
+            return Result.FALSE;
+        }
+
+        private FieldPath resolve(DocumentType type) {
+            ResolvedFieldPath resolved = this.resolved;
+            if (resolved == null || resolved.type != type) {
+                resolved = new ResolvedFieldPath(type, type.buildFieldPath(fieldPath));
+                this.resolved = resolved;
+            }
+            return resolved.path;
+        }
+
+    }
+
+    private static final class ResolvedFieldPath {
+
+        final DocumentType type;
+        final FieldPath path;
+
+        ResolvedFieldPath(DocumentType type, FieldPath path) {
+            this.type = type;
+            this.path = path;
+        }
+
+    }
+
+    private static final class ValueCollector extends FieldPathIteratorHandler {
+
+        final ValueList values = new ValueList(1);
+
+        @Override
+        public void onPrimitive(FieldValue value) {
+            values.add(value);
+        }
+
+    }
+
+    private enum Operator {
+
+        EQUALS("=="), NOT_EQUALS("!="),
+        LESS("<"), LESS_OR_EQUAL("<="), GREATER(">"), GREATER_OR_EQUAL(">="),
+        REGEX("=~"), GLOB("=");
+
+        private final String string;
+
+        Operator(String string) {
+            this.string = string;
+        }
+
+        static Operator fromString(String string) {
+            for (Operator operator : values())
+                if (operator.string.equals(string)) return operator;
+            return null;
+        }
+
+    }
+
+    /** A comparison, as {@link ComparisonNode#evaluate} */
+    private static final class Comparison implements Condition {
+
+        private final Operator operator;
+        private final Value left, right;
+
+        /** The constant values of the sides of this which are literals, or null */
+        private final Constant leftConstant, rightConstant;
+
+        Comparison(Operator operator, Value left, Value right, Constant leftConstant, Constant rightConstant) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+            this.leftConstant = leftConstant;
+            this.rightConstant = rightConstant;
+        }
+
+        @Override
+        public int evaluate(Context context) {
+            Object leftValue = left.evaluate(context);
+            Object rightValue = right.evaluate(context);
+            if (leftValue == null || rightValue == null) {
+                switch (operator) {
+                    case EQUALS: case GLOB: return leftValue == rightValue ? TRUE : FALSE;
+                    case NOT_EQUALS: return leftValue != rightValue ? TRUE : FALSE;
+                    default: return INVALID;
+                }
+            }
+            if (leftValue == Result.INVALID || rightValue == Result.INVALID) return INVALID;
+
+            boolean leftIsList = isList(leftValue);
+            boolean rightIsList = isList(rightValue);
+            if (leftIsList && rightIsList) {
+                switch (operator) {
+                    case EQUALS: return listsAreEqual(leftValue, rightValue) ? TRUE : FALSE;
+                    case NOT_EQUALS: return listsAreEqual(leftValue, rightValue) ? FALSE : TRUE;
+                    default: return INVALID;
+                }
+            }
+            if (leftIsList)
+                return compareEach(leftValue, rightValue, rightConstant);
+            if (rightIsList) // The single side is compared as the right side also here
+                return compareEach(rightValue, leftValue, leftConstant);
+            return resultOf(compare(leftValue, rightValue, rightConstant));
+        }
+
+        private int compareEach(Object list, Object value, Constant constant) {
+            int results = 0;
+            int size = sizeOf(list);
+            for (int i = 0; i < size; i++)
+                results |= resultOf(compare(get(list, i), value, constant));
+            return results;
+        }
+
+        private Result compare(Object left, Object right, Constant constant) {
+            if (constant == null)
+                constant = new Constant(operator, right);
+            return constant.compareTo(left);
+        }
+
+        private boolean listsAreEqual(Object left, Object right) {
+            int size = sizeOf(left);
+            if (size != sizeOf(right)) return false;
+            for (int i = 0; i < size; i++)
+                if ( ! new Constant(Operator.EQUALS, get(right, i)).equalTo(get(left, i))) return false;
+            return true;
+        }
+
+    }
+
+    /** The right side value of a comparison, converted to the form it is compared in */
+    private static final class Constant {
+
+        private final Operator operator;
+        private final Object value;
+        private final String string;
+        private final double number;
+        private final Pattern pattern;
+
+        Constant(Operator operator, Object value) {
+            this.operator = operator;
+            this.value = value;
+            this.string = "" + value;
+            this.number = asNumber(value);
+            if (operator == Operator.REGEX)
+                pattern = Pattern.compile(string);
+            else if (operator == Operator.GLOB)
+                pattern = Pattern.compile(ComparisonNode.globToRegex(string));
+            else
+                pattern = null;
+        }
+
+        /**
+         * Returns the constant of the given node if it is a literal which is compared as a single value,
+         * or null otherwise
+         */
+        static Constant compile(Operator operator, ExpressionNode node) {
+            if ( ! (node instanceof LiteralNode)) return null;
+            Object value = ((LiteralNode)node).getValue();
+            if (value == null) return null;
+            try {
+                return new Constant(operator, value);
+            }
+            catch (PatternSyntaxException e) {
+                return null; // Fail on evaluation, as the expression tree does
+            }
+        }
+
+        Result compareTo(Object left) {
+            switch (operator) {
+                case EQUALS:
+                    return equalTo(left) ? Result.TRUE : Result.FALSE;
+                case NOT_EQUALS:
+                    return equalTo(left) ? Result.FALSE : Result.TRUE;
+                case REGEX: case GLOB:
+                    return pattern.matcher("" + left).find() ? Result.TRUE : Result.FALSE;
+                default:
+                    double leftNumber = asNumber(left);
+                    if (Double.isNaN(leftNumber) || Double.isNaN(number)) return Result.INVALID;
+                    switch (operator) {
+                        case LESS: return leftNumber < number ? Result.TRUE : Result.FALSE;
+                        case LESS_OR_EQUAL: return leftNumber <= number ? Result.TRUE : Result.FALSE;
+                        case GREATER: return leftNumber > number ? Result.TRUE : Result.FALSE;
+                        default: return leftNumber >= number ? Result.TRUE : Result.FALSE;
+                    }
+            }
+        }
+
+        boolean equalTo(Object left) {
+            if (left == null || value == null) return left == value;
+            double leftNumber = asNumber(left);
+            if (Double.isNaN(leftNumber) || Double.isNaN(number))
+                return left.toString().equals(string);
+            return leftNumber == number;
+        }
+
+        private static double asNumber(Object value) {
+            if (value instanceof Number)
+                return ((Number)value).doubleValue();
+            if (value instanceof NumericFieldValue)
+                return asNumber(((NumericFieldValue)value).getNumber());
+            return Double.NaN;
+        }
+
+    }
+
+}
@@ -21,6 +21,9 @@ public class DocumentSelector {
 
     private ExpressionNode expression;
 
+    /** The compiled expression used to accept documents, or null if it cannot be compiled */
+    private CompiledSelection compiled;
+
     /**
      * Creates a document selector from a Document Selection Language string
      *
@@ -32,6 +35,7 @@ public class DocumentSelector {
         try {
             SelectParser parser = new SelectParser(input);
             expression = parser.expression();
+            compiled = CompiledSelection.compile(expression);
         } catch (TokenMgrException e) {
             ParseException t = new ParseException("Tokenization error parsing document selector '" + selector + "'");
             throw (ParseException)t.initCause(e);
@@ -61,6 +65,7 @@ public class DocumentSelector {
      * @throws RuntimeException if the evaluation enters an illegal state
      */
     public Result accepts(Context context) {
+        if (compiled != null) return compiled.accepts(context);
         return Result.toResult(expression.evaluate(context));
     }
 
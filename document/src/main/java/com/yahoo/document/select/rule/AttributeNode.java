@@ -96,7 +96,15 @@ public class AttributeNode implements ExpressionNode {
         }
     }
 
-    private static Object applyFunction(String function, Object value) {
+    /**
+     * Returns the result of applying the given function to a single value.
+     *
+     * @param function The name of the function.
+     * @param value The value to apply the function to.
+     * @return The function value.
+     * @throws IllegalStateException if the function is not supported for this value.
+     */
+    public static Object applyFunction(String function, Object value) {
         if (function.equalsIgnoreCase("abs")) {
             if (Number.class.isInstance(value)) {
                 Number nValue = (Number)value;
@@ -399,7 +399,7 @@ public class ComparisonNode implements ExpressionNode {
      * @param glob The glob pattern.
      * @return The regex string.
      */
-    private String globToRegex(String glob) {
+    public static String globToRegex(String glob) {
         StringBuilder ret = new StringBuilder();
         ret.append("^");
         for (int i = 0; i < glob.length(); i++) {
@@ -416,7 +416,7 @@ public class ComparisonNode implements ExpressionNode {
      * @param glob The glob character.
      * @return The regex string.
      */
-    private String globToRegex(char glob) {
+    private static String globToRegex(char glob) {
         switch (glob) {
             case'*':
                 return ".*";
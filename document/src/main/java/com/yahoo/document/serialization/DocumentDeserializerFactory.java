@@ -19,6 +19,18 @@ public class DocumentDeserializerFactory {
         return new VespaDocumentDeserializerHead(manager, buf);
     }
 
+    /**
+     * Creates a de-serializer for the current head document format which deserializes the value of each
+     * struct field, including the fields of documents, when it is first accessed. Fields which are not accessed
+     * are serialized again by copying their serialized form.
+     * Data which can not be deserialized causes an exception when the field is accessed instead of when reading.
+     * As with eagerly deserialized documents, the documents read by this may be read by multiple threads
+     * concurrently, but must not be modified while they are read by other threads.
+     */
+    public static DocumentDeserializer createLazyHead(DocumentTypeManager manager, GrowableByteBuffer buf) {
+        return new VespaDocumentDeserializerHead(manager, buf, true);
+    }
+
     /**
      * Creates a de-serializer for the document format that was created on Vespa 4.2.
      */
@@ -0,0 +1,47 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.document.serialization;
+
+import com.yahoo.io.GrowableByteBuffer;
+
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+
+/**
+ * A per thread pool of buffers to serialize into, such that serializing a document does not allocate
+ * new buffers each time. A buffer acquired from this must be released by the same thread when its content is
+ * no longer needed, and must not be used after that. Buffers may be acquired again before they are released,
+ * e.g to serialize nested structs.
+ */
+public final class SerializationBufferPool {
+
+    /** The initial size of new buffers */
+    static final int initialSize = 8 * 1024;
+
+    /** Buffers which have grown larger than this are not kept when released */
+    static final int maxRetainedSize = 1024 * 1024;
+
+    /** The max number of released buffers kept by each thread */
+    static final int maxRetainedCount = 8;
+
+    private static final ThreadLocal<ArrayDeque<GrowableByteBuffer>> buffers = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private SerializationBufferPool() {}
+
+    /** Returns an empty buffer which is owned by the caller until it is released */
+    public static GrowableByteBuffer acquire() {
+        GrowableByteBuffer buffer = buffers.get().pollFirst();
+        return buffer != null ? buffer : new GrowableByteBuffer(initialSize, GrowableByteBuffer.DEFAULT_GROW_FACTOR);
+    }
+
+    /** Returns a buffer acquired by this thread to the pool */
+    public static void release(GrowableByteBuffer buffer) {
+        if (buffer.capacity() > maxRetainedSize) return;
+
+        ArrayDeque<GrowableByteBuffer> free = buffers.get();
+        if (free.size() >= maxRetainedCount) return;
+        buffer.clear();
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        free.addFirst(buffer);
+    }
+
+}
@@ -0,0 +1,79 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.document.serialization;
+
+import com.yahoo.document.DocumentTypeManager;
+import com.yahoo.document.Field;
+import com.yahoo.document.datatypes.FieldValue;
+import com.yahoo.io.GrowableByteBuffer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The serialized (and uncompressed) field values of a struct which was deserialized lazily, on the current
+ * head format. Each value is deserialized from this when it is first accessed. The data of this never changes,
+ * so it may be shared by clones of the struct.
+ */
+public final class SerializedFields {
+
+    private final DocumentTypeManager manager;
+    private final byte[] data;
+    private final Field[] fields;
+    private final int[] offsets;
+    private final int[] lengths;
+
+    /** The index of the last field looked up, as fields are mostly accessed in order. Only a hint, so racy updates are harmless */
+    private int lastIndex = -1;
+
+    SerializedFields(DocumentTypeManager manager, byte[] data, Field[] fields, int[] offsets, int[] lengths) {
+        this.manager = manager;
+        this.data = data;
+        this.fields = fields;
+        this.offsets = offsets;
+        this.lengths = lengths;
+    }
+
+    /** Returns the number of fields in this */
+    public int size() { return fields.length; }
+
+    /** Returns the field at the given index */
+    public Field getField(int index) { return fields[index]; }
+
+    /**
+     * Deserializes the value of the field with the given id. Structs in the value are deserialized lazily as well.
+     *
+     * @throws IllegalArgumentException if the field is not in this
+     * @throws DeserializationException if the value could not be deserialized
+     */
+    public FieldValue deserialize(int fieldId) {
+        int index = indexOf(fieldId);
+        Field field = fields[index];
+        VespaDocumentDeserializerHead reader =
+                new VespaDocumentDeserializerHead(manager, GrowableByteBuffer.wrap(data, offsets[index], lengths[index]), true);
+        FieldValue value = field.getDataType().createFieldValue();
+        value.deserialize(field, reader);
+        return value;
+    }
+
+    /**
+     * Returns a read only buffer of the serialized value of the field with the given id
+     *
+     * @throws IllegalArgumentException if the field is not in this
+     */
+    public ByteBuffer getSerializedValue(int fieldId) {
+        int index = indexOf(fieldId);
+        return ByteBuffer.wrap(data, offsets[index], lengths[index]).asReadOnlyBuffer();
+    }
+
+    private int indexOf(int fieldId) {
+        int start = lastIndex + 1;
+        for (int i = 0; i < fields.length; i++) {
+            int index = (start + i) % fields.length;
+            if (fields[index].getId() == fieldId) {
+                lastIndex = index;
+                return index;
+            }
+        }
+        throw new IllegalArgumentException("No serialized value of field with id " + fieldId);
+    }
+
+}
@@ -90,6 +90,7 @@ public class VespaDocumentDeserializer42 extends VespaDocumentSerializer42 imple
     private List<SpanNode> spanNodes;
     private List<Annotation> annotations;
     private int[] stringPositions;
+    private boolean lazy = false;
 
     VespaDocumentDeserializer42(DocumentTypeManager manager, GrowableByteBuffer header, GrowableByteBuffer body, short version) {
         super(header);
@@ -98,6 +99,14 @@ public class VespaDocumentDeserializer42 extends VespaDocumentSerializer42 imple
         this.version = version;
     }
 
+    /**
+     * Sets whether the field values of structs (including the header and body of documents) on the current
+     * format should be deserialized when they are accessed rather than when the struct is read.
+     */
+    void setLazy(boolean lazy) {
+        this.lazy = lazy;
+    }
+
     VespaDocumentDeserializer42(DocumentTypeManager manager, GrowableByteBuffer buf) {
         this(manager, buf, null, Document.SERIALIZED_VERSION);
     }
@@ -353,11 +362,16 @@ public class VespaDocumentDeserializer42 extends VespaDocumentSerializer42 imple
         // set position in original buffer to after data
         position(position() + dataSize);
 
+        StructDataType type = s.getDataType();
+        if (lazy && version == Document.SERIALIZED_VERSION) {
+            readLazily(s, type, destination, fieldIdsAndLengths);
+            return;
+        }
+
         // for a while: deserialize from this buffer instead:
         buf = GrowableByteBuffer.wrap(destination);
 
         s.clear();
-        StructDataType type = s.getDataType();
         for (int i=0; i<numberOfFields; ++i) {
             Field structField = type.getField(fieldIdsAndLengths.get(i).first, version);
             if (structField == null) {
@@ -377,6 +391,38 @@ public class VespaDocumentDeserializer42 extends VespaDocumentSerializer42 imple
         buf = bigBuf;
     }
 
+    private void readLazily(Struct s, StructDataType type, byte[] data, List<Tuple2<Integer, Long>> fieldIdsAndLengths) {
+        int knownFields = 0;
+        for (Tuple2<Integer, Long> fieldIdAndLength : fieldIdsAndLengths) {
+            if (type.getField(fieldIdAndLength.first, version) != null) {
+                knownFields++;
+            }
+        }
+        Field[] fields = new Field[knownFields];
+        int[] offsets = new int[knownFields];
+        int[] lengths = new int[knownFields];
+
+        long offset = 0;
+        int i = 0;
+        for (Tuple2<Integer, Long> fieldIdAndLength : fieldIdsAndLengths) {
+            long length = fieldIdAndLength.second;
+            if (length < 0 || offset + length > data.length) {
+                throw new DeserializationException("Field with id " + fieldIdAndLength.first + " of length " + length +
+                                                   " at offset " + offset + " exceeds the " + data.length +
+                                                   " bytes of struct data");
+            }
+            Field structField = type.getField(fieldIdAndLength.first, version);
+            if (structField != null) { // ignoring unknown fields
+                fields[i] = structField;
+                offsets[i] = (int)offset;
+                lengths[i] = (int)length;
+                i++;
+            }
+            offset += length;
+        }
+        s.setSerializedFields(new SerializedFields(manager, data, fields, offsets, lengths));
+    }
+
     public void read(FieldBase field, StructuredFieldValue value) {
         throw new IllegalArgumentException("read not implemented yet.");
     }
@@ -20,6 +20,14 @@ public class VespaDocumentDeserializerHead extends VespaDocumentDeserializer42 {
         super(manager, buffer);
     }
 
+    /**
+     * Creates a deserializer which, if lazy is true, deserializes the field values of structs when they are accessed
+     */
+    public VespaDocumentDeserializerHead(DocumentTypeManager manager, GrowableByteBuffer buffer, boolean lazy) {
+        super(manager, buffer);
+        setLazy(lazy);
+    }
+
     @Override
     public void read(DocumentUpdate update) {
         update.setId(new DocumentId(this));
@@ -1,6 +1,7 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.document.serialization;
 
+import com.yahoo.compress.CompressionType;
 import com.yahoo.compress.Compressor;
 import com.yahoo.document.*;
 import com.yahoo.document.annotation.*;
@@ -303,58 +304,73 @@ public class VespaDocumentSerializer42 extends BufferSerializer implements Docum
         //keep the buffer we're serializing everything into:
         GrowableByteBuffer bigBuffer = buf;
 
-        //create a new buffer and serialize into that for a while:
-        GrowableByteBuffer buffer = new GrowableByteBuffer(4096, 2.0f);
-        buf = buffer;
-
-        List<Integer> fieldIds = new LinkedList<>();
-        List<java.lang.Integer> fieldLengths = new LinkedList<>();
+        //serialize into a pooled buffer for a while:
+        GrowableByteBuffer buffer = SerializationBufferPool.acquire();
+        try {
+            buf = buffer;
+
+            int fieldCount = s.getFieldCount();
+            int[] fieldIds = new int[fieldCount];
+            int[] fieldLengths = new int[fieldCount];
+
+            int i = 0;
+            for (Map.Entry<Field, FieldValue> value : s.getFields()) {
+                int startPos = buffer.position();
+                ByteBuffer serializedValue = s.getSerializedFieldValue(value.getKey());
+                if (serializedValue != null) {
+                    buffer.put(serializedValue); // not accessed since lazy deserialization
+                } else {
+                    value.getValue().serialize(value.getKey(), this);
+                }
 
-        for (Map.Entry<Field, FieldValue> value : s.getFields()) {
+                fieldLengths[i] = buffer.position() - startPos;
+                fieldIds[i] = value.getKey().getId(s.getVersion());
+                i++;
+            }
 
-            int startPos = buffer.position();
-            value.getValue().serialize(value.getKey(), this);
+            // Switch buffers again:
+            buffer.flip();
+            buf = bigBuffer;
 
-            fieldLengths.add(buffer.position() - startPos);
-            fieldIds.add(value.getKey().getId(s.getVersion()));
-        }
+            int uncompressedSize = buffer.remaining();
+            Compressor compressor = s.getDataType().getCompressor();
+            // Compressing with NONE just copies the data, which we then don't use
+            Compressor.Compression compression = compressor.type() == CompressionType.NONE
+                    ? new Compressor.Compression(CompressionType.NONE, uncompressedSize, null)
+                    : compressor.compress(buffer.getByteBuffer().array(), uncompressedSize);
 
-        // Switch buffers again:
-        buffer.flip();
-        buf = bigBuffer;
+            // Actual serialization starts here.
+            int lenPos = buf.position();
+            putInt(null, 0); // Move back to this after compression is done.
+            buf.put(compression.type().getCode());
 
-        int uncompressedSize = buffer.remaining();
-        Compressor.Compression compression =
-            s.getDataType().getCompressor().compress(buffer.getByteBuffer().array(), buffer.remaining());
-
-        // Actual serialization starts here.
-        int lenPos = buf.position();
-        putInt(null, 0); // Move back to this after compression is done.
-        buf.put(compression.type().getCode());
+            if (compression.data() != null && compression.type().isCompressed()) {
+                buf.putInt2_4_8Bytes(uncompressedSize);
+            }
 
-        if (compression.data() != null && compression.type().isCompressed()) {
-            buf.putInt2_4_8Bytes(uncompressedSize);
-        }
+            buf.putInt1_4Bytes(fieldCount);
 
-        buf.putInt1_4Bytes(s.getFieldCount());
+            for (i = 0; i < fieldCount; ++i) {
+                putInt1_4Bytes(null, fieldIds[i]);
+                putInt2_4_8Bytes(null, fieldLengths[i]);
+            }
 
-        for (int i = 0; i < s.getFieldCount(); ++i) {
-            putInt1_4Bytes(null, fieldIds.get(i));
-            putInt2_4_8Bytes(null, fieldLengths.get(i));
-        }
+            int pos = buf.position();
+            if (compression.data() != null && compression.type().isCompressed()) {
+                put(null, compression.data());
+            } else {
+                put(null, buffer.getByteBuffer());
+            }
+            int dataLength = buf.position() - pos;
 
-        int pos = buf.position();
-        if (compression.data() != null && compression.type().isCompressed()) {
-            put(null, compression.data());
-        } else {
-            put(null, buffer.getByteBuffer());
+            int posNow = buf.position();
+            buf.position(lenPos);
+            putInt(null, dataLength);
+            buf.position(posNow);
+        } finally {
+            buf = bigBuffer;
+            SerializationBufferPool.release(buffer);
         }
-        int dataLength = buf.position() - pos;
-
-        int posNow = buf.position();
-        buf.position(lenPos);
-        putInt(null, dataLength);
-        buf.position(posNow);
     }
 
     /**
@@ -631,16 +647,21 @@ public class VespaDocumentSerializer42 extends BufferSerializer implements Docum
 
     /**
      * Returns the serialized size of the given {@link Document}. Please note that this method performs actual
-     * serialization of the document, but simply return the size of the final {@link GrowableByteBuffer}. If you need
-     * the buffer itself, do NOT use this method.
+     * serialization of the document (into a pooled buffer), but simply return the size of the result.
+     * If you need the serialized data itself, do NOT use this method.
      *
      * @param doc The Document whose size to calculate.
      * @return The size in bytes.
      */
     public static long getSerializedSize(Document doc) {
-        DocumentSerializer serializer = new VespaDocumentSerializerHead(new GrowableByteBuffer());
-        serializer.write(doc);
-        return serializer.getBuf().position();
+        GrowableByteBuffer buffer = SerializationBufferPool.acquire();
+        try {
+            DocumentSerializer serializer = new VespaDocumentSerializerHead(buffer);
+            serializer.write(doc);
+            return serializer.getBuf().position();
+        } finally {
+            SerializationBufferPool.release(buffer);
+        }
     }
 
     private static void writeValue(VespaDocumentSerializer42 serializer, DataType dataType, Object value) {
@@ -721,6 +721,41 @@ public class JsonReaderTestCase {
         controlBasicFeed(r);
     }
 
+    @Test
+    public final void testFeedIsReadPastPutWithInvalidField() {
+        String jsonData = inputJson(
+                "[",
+                "      {",
+                "          'put': 'id:unittest:testint::0',",
+                "          'fields': {",
+                "              'integerfield': ' 1',",
+                "              'other': { 'nested': [ 1, 2 ] }",
+                "          },",
+                "          'condition': 'testint.integerfield == 1'",
+                "      },",
+                "      {",
+                "          'put': 'id:unittest:testint::1',",
+                "          'fields': {",
+                "              'integerfield': 2",
+                "          }",
+                "      }",
+                "]");
+        JsonReader r = new JsonReader(types, jsonToInputStream(jsonData), parserFactory);
+        try {
+            r.next();
+            fail("Expected the invalid field to fail the first put");
+        }
+        catch (JsonReaderException e) {
+            assertEquals("Error in document 'id:unittest:testint::0' - could not parse field 'integerfield' of type 'int': " +
+                         "For input string: \" 1\"",
+                         e.getMessage());
+        }
+        DocumentPut put = (DocumentPut) r.next();
+        assertEquals("id:unittest:testint::1", put.getId().toString());
+        assertEquals(new IntegerFieldValue(2), put.getDocument().getFieldValue("integerfield"));
+        assertNull(r.next());
+    }
+
     @Test
     public final void testCompleteFeedWithCreateAndCondition() {
         InputStream rawDoc = new ByteArrayInputStream(
@@ -702,6 +702,25 @@ public class DocumentSelectorTestCase {
         assertEquals(Result.FALSE, evaluate("test.structarrmap{$x}.key == 17 AND test.stringweightedset{$x}", documents.get(1)));
     }
 
+    @Test
+    public void testLogicOnMultipleValues() throws ParseException {
+        List<DocumentPut> documents = createDocs();
+        // Each value of the array is combined with the invalid result, giving false and invalid
+        assertEquals(Result.FALSE, evaluate("test.intarray == 84 and test.hint > \"foo\"", documents.get(0)));
+        assertEquals(Result.TRUE, evaluate("not (test.intarray == 84 and test.hint > \"foo\")", documents.get(0)));
+        assertEquals(Result.TRUE, evaluate("test.intarray == 84 or test.hint > \"foo\"", documents.get(0)));
+        assertEquals(Result.INVALID, evaluate("test.intarray == 83 or test.hint > \"foo\" and test.hint == 24", documents.get(0)));
+        assertEquals(Result.TRUE, evaluate("test.hint > \"foo\" or test.content.uppercase() == \"BAR\"", documents.get(0)));
+    }
+
+    @Test
+    public void testLogicStopsAtDecidingOperand() throws ParseException {
+        List<DocumentPut> documents = createDocs();
+        assertEquals(Result.FALSE, new DocumentSelector("test.hint == 13 and id.user == 1234").accepts(documents.get(0)));
+        assertEquals(Result.TRUE, new DocumentSelector("test.hint == 24 or id.user == 1234").accepts(documents.get(0)));
+        assertError("test.hint == 24 and id.user == 1234", documents.get(0), "User identifier is null.");
+    }
+
     @Test
     public void testTicket1769674() {
         assertParseError("music.uri=\"junk",
@@ -825,7 +844,11 @@ public class DocumentSelectorTestCase {
     }
 
     private static Result evaluate(String expressionString, DocumentOperation op) throws ParseException {
-        return new DocumentSelector(expressionString).accepts(op);
+        DocumentSelector selector = new DocumentSelector(expressionString);
+        Result result = selector.accepts(op);
+        assertEquals("Compiled and interpreted evaluation of '" + expressionString + "'",
+                     selector.getMatchingResultList(op).toResult(), result);
+        return result;
     }
 
     private static void assertError(String expressionString, DocumentOperation op, String expectedError) {
@@ -0,0 +1,161 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.document.serialization;
+
+import com.yahoo.compress.CompressionType;
+import com.yahoo.document.ArrayDataType;
+import com.yahoo.document.CompressionConfig;
+import com.yahoo.document.DataType;
+import com.yahoo.document.Document;
+import com.yahoo.document.DocumentType;
+import com.yahoo.document.DocumentTypeManager;
+import com.yahoo.document.Field;
+import com.yahoo.document.StructDataType;
+import com.yahoo.document.datatypes.Array;
+import com.yahoo.document.datatypes.IntegerFieldValue;
+import com.yahoo.document.datatypes.StringFieldValue;
+import com.yahoo.document.datatypes.Struct;
+import com.yahoo.io.GrowableByteBuffer;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LazyDeserializationTestCase {
+
+    private final DocumentTypeManager manager = new DocumentTypeManager();
+    private final DocumentType docType = new DocumentType("lazy");
+    private final StructDataType nestedType = new StructDataType("nested");
+
+    public LazyDeserializationTestCase() {
+        nestedType.addField(new Field("str", DataType.STRING));
+        nestedType.addField(new Field("num", DataType.INT));
+        docType.addField(new Field("title", DataType.STRING));
+        docType.addField(new Field("count", DataType.INT));
+        docType.addField(new Field("tags", new ArrayDataType(DataType.STRING)));
+        docType.addField(new Field("nested", nestedType));
+        docType.addField(new Field("content", DataType.STRING, false));
+        manager.registerDocumentType(docType);
+    }
+
+    private Document createDocument() {
+        Document doc = new Document(docType, "id:ns:lazy::1");
+        doc.setFieldValue("title", new StringFieldValue("a title"));
+        doc.setFieldValue("count", new IntegerFieldValue(3));
+        Array<StringFieldValue> tags = new Array<>(docType.getField("tags").getDataType());
+        tags.add(new StringFieldValue("foo"));
+        tags.add(new StringFieldValue("bar"));
+        doc.setFieldValue("tags", tags);
+        Struct nested = new Struct(nestedType);
+        nested.setFieldValue("str", new StringFieldValue("nested string"));
+        nested.setFieldValue("num", new IntegerFieldValue(7));
+        doc.setFieldValue("nested", nested);
+        doc.setFieldValue("content", new StringFieldValue("the body content"));
+        return doc;
+    }
+
+    private static byte[] serialize(Document doc) {
+        GrowableByteBuffer buffer = new GrowableByteBuffer();
+        DocumentSerializerFactory.createHead(buffer).write(doc);
+        byte[] bytes = new byte[buffer.position()];
+        buffer.flip();
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private Document deserializeLazily(byte[] bytes) {
+        return new Document(DocumentDeserializerFactory.createLazyHead(manager, GrowableByteBuffer.wrap(bytes)));
+    }
+
+    private Document deserialize(byte[] bytes) {
+        return new Document(DocumentDeserializerFactory.createHead(manager, GrowableByteBuffer.wrap(bytes)));
+    }
+
+    @Test
+    public void lazily_deserialized_document_equals_original() {
+        Document doc = createDocument();
+        Document lazy = deserializeLazily(serialize(doc));
+        assertEquals(doc.getFieldCount(), lazy.getFieldCount());
+        assertEquals(doc, lazy);
+        assertEquals(doc.hashCode(), lazy.hashCode());
+    }
+
+    @Test
+    public void fields_are_deserialized_when_accessed() {
+        Document lazy = deserializeLazily(serialize(createDocument()));
+        Field title = docType.getField("title");
+        Field nested = docType.getField("nested");
+        assertNotNull(lazy.getHeader().getSerializedFieldValue(title));
+        assertNotNull(lazy.getHeader().getSerializedFieldValue(nested));
+
+        assertEquals(new StringFieldValue("a title"), lazy.getFieldValue(title));
+        assertNull(lazy.getHeader().getSerializedFieldValue(title));
+        assertNotNull(lazy.getHeader().getSerializedFieldValue(nested));
+
+        Struct nestedValue = (Struct)lazy.getFieldValue(nested);
+        assertNotNull(nestedValue.getSerializedFieldValue(nestedType.getField("str")));
+        assertEquals(new IntegerFieldValue(7), nestedValue.getFieldValue("num"));
+        assertNotNull(nestedValue.getSerializedFieldValue(nestedType.getField("str")));
+    }
+
+    @Test
+    public void unmodified_lazy_document_is_serialized_to_the_same_bytes() {
+        byte[] bytes = serialize(createDocument());
+        assertArrayEquals(bytes, serialize(deserializeLazily(bytes)));
+    }
+
+    @Test
+    public void modified_field_is_serialized_with_the_other_fields_copied() {
+        Document lazy = deserializeLazily(serialize(createDocument()));
+        lazy.setFieldValue("count", new IntegerFieldValue(4));
+
+        Document expected = createDocument();
+        expected.setFieldValue("count", new IntegerFieldValue(4));
+        assertEquals(expected, deserialize(serialize(lazy)));
+    }
+
+    @Test
+    public void compressed_structs_are_deserialized_lazily() {
+        docType.getHeaderType().setCompressionConfig(new CompressionConfig(CompressionType.LZ4));
+        Document doc = createDocument();
+        doc.setFieldValue("title", new StringFieldValue("repeated repeated repeated repeated repeated repeated"));
+        Document lazy = deserializeLazily(serialize(doc));
+        assertNotNull(lazy.getHeader().getSerializedFieldValue(docType.getField("title")));
+        assertEquals(doc, lazy);
+        assertEquals(doc, deserialize(serialize(deserializeLazily(serialize(doc)))));
+    }
+
+    @Test
+    public void lazy_document_may_be_read_concurrently() throws Exception {
+        Document doc = createDocument();
+        for (int attempt = 0; attempt < 100; attempt++) {
+            Document lazy = deserializeLazily(serialize(doc));
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++)
+                results.add(executor.submit(() -> doc.equals(lazy) && doc.getFieldValue("nested").equals(lazy.getFieldValue("nested"))));
+            for (Future<Boolean> result : results)
+                assertTrue(result.get());
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void clone_shares_serialized_values() {
+        Document lazy = deserializeLazily(serialize(createDocument()));
+        Document clone = lazy.clone();
+        clone.setFieldValue("title", new StringFieldValue("changed"));
+        assertEquals(new StringFieldValue("a title"), lazy.getFieldValue("title"));
+        assertEquals(new StringFieldValue("changed"), clone.getFieldValue("title"));
+        assertEquals(createDocument().getFieldValue("nested"), clone.getFieldValue("nested"));
+    }
+
+}
@@ -0,0 +1,49 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.document.serialization;
+
+import com.yahoo.io.GrowableByteBuffer;
+import org.junit.Test;
+
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class SerializationBufferPoolTestCase {
+
+    @Test
+    public void released_buffers_are_reused_empty() {
+        GrowableByteBuffer buffer = SerializationBufferPool.acquire();
+        buffer.putInt(42);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        SerializationBufferPool.release(buffer);
+
+        GrowableByteBuffer reused = SerializationBufferPool.acquire();
+        assertSame(buffer, reused);
+        assertEquals(0, reused.position());
+        assertEquals(ByteOrder.BIG_ENDIAN, reused.order());
+        SerializationBufferPool.release(reused);
+    }
+
+    @Test
+    public void buffers_acquired_before_release_are_distinct() {
+        GrowableByteBuffer outer = SerializationBufferPool.acquire();
+        GrowableByteBuffer inner = SerializationBufferPool.acquire();
+        assertNotSame(outer, inner);
+        SerializationBufferPool.release(inner);
+        SerializationBufferPool.release(outer);
+    }
+
+    @Test
+    public void large_buffers_are_not_retained() {
+        GrowableByteBuffer buffer = SerializationBufferPool.acquire();
+        buffer.put(new byte[SerializationBufferPool.maxRetainedSize + 1]);
+        SerializationBufferPool.release(buffer);
+
+        GrowableByteBuffer next = SerializationBufferPool.acquire();
+        assertNotSame(buffer, next);
+        SerializationBufferPool.release(next);
+    }
+
+}
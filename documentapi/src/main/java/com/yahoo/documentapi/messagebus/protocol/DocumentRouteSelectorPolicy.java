@@ -94,19 +94,22 @@ public class DocumentRouteSelectorPolicy
             return;
         }
 
-        // Invoke private select method for each candidate recipient.
+        // Invoke private select method for each candidate recipient. The config map is replaced, never modified, on
+        // reconfiguration, so the selectors are run without holding the lock.
+        Map<String, DocumentSelector> config;
         synchronized (this) {
             if (error != null) {
                 context.setError(DocumentProtocol.ERROR_POLICY_FAILURE, error);
                 return;
             }
-            for (int i = 0; i < context.getNumRecipients(); ++i) {
-                Route recipient = context.getRecipient(i);
-                String routeName = recipient.toString();
-                if (select(context, routeName)) {
-                    Route route = context.getMessageBus().getRoutingTable(DocumentProtocol.NAME).getRoute(routeName);
-                    context.addChild(route != null ? route : recipient);
-                }
+            config = this.config;
+        }
+        for (int i = 0; i < context.getNumRecipients(); ++i) {
+            Route recipient = context.getRecipient(i);
+            String routeName = recipient.toString();
+            if (select(context, config, routeName)) {
+                Route route = context.getMessageBus().getRoutingTable(DocumentProtocol.NAME).getRoute(routeName);
+                context.addChild(route != null ? route : recipient);
             }
         }
         context.setSelectOnRetry(false);
@@ -123,10 +126,11 @@ public class DocumentRouteSelectorPolicy
      * validates the location, this method returns true.
      *
      * @param context   The routing context that contains the necessary data.
+     * @param config    The selectors to use, by route name.
      * @param routeName The candidate route whose selector to run.
      * @return Whether or not to send to the given recipient.
      */
-    private boolean select(RoutingContext context, String routeName) {
+    private boolean select(RoutingContext context, Map<String, DocumentSelector> config, String routeName) {
         if (config == null) {
             return true;
         }
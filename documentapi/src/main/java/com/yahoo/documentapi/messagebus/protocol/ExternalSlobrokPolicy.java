@@ -20,9 +20,9 @@ import java.util.Map;
 public abstract class ExternalSlobrokPolicy extends AsyncInitializationPolicy implements ConfigSubscriber.SingleSubscriber<SlobroksConfig> {
     String error;
     Supervisor orb = null;
-    Mirror mirror = null;
+    volatile Mirror mirror = null;
     SlobrokList slobroks = null;
-    boolean firstTry = true;
+    volatile boolean firstTry = true;
     private ConfigSubscriber subscriber;
     String[] configSources = null;
     String slobrokConfigId = "admin/slobrok.0";
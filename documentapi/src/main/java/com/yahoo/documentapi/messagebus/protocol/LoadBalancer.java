@@ -11,6 +11,7 @@ import java.util.List;
 
 /**
  * Load balances over a set of nodes based on statistics gathered from those nodes.
+ * This is thread-safe, as messages may be routed by several messenger threads.
  *
  * @author thomasg
  */
@@ -80,7 +81,7 @@ public class LoadBalancer {
      * @param choices the node choices, represented as Slobrok entries
      * @return the chosen node, or null only if the given choices were zero
      */
-    public Node getRecipient(Mirror.Entry[] choices) {
+    public synchronized Node getRecipient(Mirror.Entry[] choices) {
         if (choices.length == 0) return null;
 
         double weightSum = 0.0;
@@ -135,7 +136,7 @@ public class LoadBalancer {
         }
     }
 
-    public void received(Node node, boolean busy) {
+    public synchronized void received(Node node, boolean busy) {
         if (busy) {
             double wantWeight = node.metrics.weight.get() - 0.01;
             if (wantWeight < 1.0) {
@@ -92,24 +92,28 @@ final class RoutableRepository {
                                     " (version " + version + ").");
             return new byte[0];
         }
-        DocumentSerializer out;
-
-        if (version.getMajor() >= 5) {
-            out = DocumentSerializerFactory.createHead(new GrowableByteBuffer(8192));
-        } else {
-            out = DocumentSerializerFactory.create42(new GrowableByteBuffer(8192));
-        }
+        GrowableByteBuffer buffer = SerializationBufferPool.acquire();
+        try {
+            DocumentSerializer out;
+            if (version.getMajor() >= 5) {
+                out = DocumentSerializerFactory.createHead(buffer);
+            } else {
+                out = DocumentSerializerFactory.create42(buffer);
+            }
 
-        out.putInt(null, type);
-        if (!factory.encode(obj, out)) {
-            log.log(LogLevel.ERROR, "Routable factory " + factory.getClass().getName() + " failed to serialize " +
-                                    "routable of type " + type + " (version " + version + ").");
-            return new byte[0];
+            out.putInt(null, type);
+            if (!factory.encode(obj, out)) {
+                log.log(LogLevel.ERROR, "Routable factory " + factory.getClass().getName() + " failed to serialize " +
+                                        "routable of type " + type + " (version " + version + ").");
+                return new byte[0];
+            }
+            byte[] ret = new byte[out.getBuf().position()];
+            out.getBuf().rewind();
+            out.getBuf().get(ret);
+            return ret;
+        } finally {
+            SerializationBufferPool.release(buffer);
         }
-        byte[] ret = new byte[out.getBuf().position()];
-        out.getBuf().rewind();
-        out.getBuf().get(ret);
-        return ret;
     }
 
     /**
@@ -56,7 +56,7 @@ public class StoragePolicy extends ExternalSlobrokPolicy {
         }
     }
 
-    /** Helper class to match a host pattern with node to use. */
+    /** Helper class to match a host pattern with node to use. This is thread-safe. */
     public abstract static class HostFetcher {
         private int requiredUpPercentageToSendToKnownGoodNodes = 60;
         private List<Integer> validRandomTargets = new ArrayList<>();
@@ -65,7 +65,7 @@ public class StoragePolicy extends ExternalSlobrokPolicy {
 
         public void setRequiredUpPercentageToSendToKnownGoodNodes(int percent) { this.requiredUpPercentageToSendToKnownGoodNodes = percent; }
 
-        public void updateValidTargets(ClusterState state) {
+        public synchronized void updateValidTargets(ClusterState state) {
             List<Integer> validRandomTargets = new ArrayList<>();
             for (int i=0; i<state.getNodeCount(NodeType.DISTRIBUTOR); ++i) {
                 if (state.getNodeState(new Node(NodeType.DISTRIBUTOR, i)).getState().oneOf(upStates)) validRandomTargets.add(i);
@@ -74,7 +74,7 @@ public class StoragePolicy extends ExternalSlobrokPolicy {
             this.totalTargets = state.getNodeCount(NodeType.DISTRIBUTOR);
         }
         public abstract String getTargetSpec(Integer distributor, RoutingContext context);
-        public String getRandomTargetSpec(RoutingContext context) {
+        public synchronized String getRandomTargetSpec(RoutingContext context) {
             // Try to use list of random targets, if at least X % of the nodes are up
             while (100 * validRandomTargets.size() / totalTargets >= requiredUpPercentageToSendToKnownGoodNodes) {
                 int randIndex = randomizer.nextInt(validRandomTargets.size());
@@ -272,14 +272,14 @@ public class StoragePolicy extends ExternalSlobrokPolicy {
 
     /** Class handling the logic of picking a distributor */
     public static class DistributorSelectionLogic {
-        /** Class that tracks a failure of a given type per node. */
+        /** Class that tracks a failure of a given type per node. This is thread-safe. */
         public static class InstabilityChecker {
             private List<Integer> nodeFailures = new ArrayList<>();
             private int failureLimit;
 
             public InstabilityChecker(int failureLimit) { this.failureLimit = failureLimit; }
 
-            public boolean tooManyFailures(int nodeIndex) {
+            public synchronized boolean tooManyFailures(int nodeIndex) {
                 if (nodeFailures.size() > nodeIndex && nodeFailures.get(nodeIndex) > failureLimit) {
                     nodeFailures.set(nodeIndex, 0);
                     return true;
@@ -288,7 +288,7 @@ public class StoragePolicy extends ExternalSlobrokPolicy {
                 }
             }
 
-            public void addFailure(Integer calculatedDistributor) {
+            public synchronized void addFailure(Integer calculatedDistributor) {
                 while (nodeFailures.size() <= calculatedDistributor) nodeFailures.add(0);
                 nodeFailures.set(calculatedDistributor, nodeFailures.get(calculatedDistributor) + 1);
             }
@@ -309,7 +309,7 @@ public class StoragePolicy extends ExternalSlobrokPolicy {
         private final HostFetcher hostFetcher;
         private final Distribution distribution;
         private final InstabilityChecker persistentFailureChecker;
-        private ClusterState cachedClusterState = null;
+        private volatile ClusterState cachedClusterState = null;
         private int oldClusterVersionGottenCount = 0;
         private final int maxOldClusterVersionBeforeSendingRandom; // Reset cluster version protection
 
@@ -327,6 +327,7 @@ public class StoragePolicy extends ExternalSlobrokPolicy {
         }
 
         public String getTargetSpec(RoutingContext context, BucketId bucketId) {
+            ClusterState cachedClusterState = this.cachedClusterState;
             String sendRandomReason = null;
             MessageContext messageContext = new MessageContext(cachedClusterState);
             context.setContext(messageContext);
@@ -362,7 +363,7 @@ public class StoragePolicy extends ExternalSlobrokPolicy {
                     return null;
                 } catch (Distribution.NoDistributorsAvailableException e) {
                     log.log(LogLevel.DEBUG, "No distributors available; clearing cluster state");
-                    cachedClusterState = null;
+                    this.cachedClusterState = null;
                     sendRandomReason = "No distributors available. Sending to random distributor.";
                 }
             } else {
@@ -383,7 +384,8 @@ public class StoragePolicy extends ExternalSlobrokPolicy {
             }
         }
 
-        public void handleWrongDistribution(WrongDistributionReply reply, RoutingContext routingContext) {
+        /** Updates the cached cluster state from the given reply. This is synchronized as replies may be merged concurrently. */
+        public synchronized void handleWrongDistribution(WrongDistributionReply reply, RoutingContext routingContext) {
             final MessageContext context = (MessageContext) routingContext.getContext();
             final Optional<ClusterState> replyState = clusterStateFromReply(reply);
             if (!replyState.isPresent()) {
@@ -492,7 +494,7 @@ public class StoragePolicy extends ExternalSlobrokPolicy {
     }
 
     private final BucketIdCalculator bucketIdCalculator = new BucketIdCalculator();
-    private DistributorSelectionLogic distributorSelectionLogic = null;
+    private volatile DistributorSelectionLogic distributorSelectionLogic = null;
     private Parameters parameters;
 
     /** Constructor used in production. */
@@ -9,6 +9,7 @@ import com.yahoo.jrt.slobrok.api.Mirror;
 import com.yahoo.jrt.slobrok.server.Slobrok;
 import com.yahoo.messagebus.*;
 import com.yahoo.messagebus.Error;
+import com.yahoo.messagebus.network.rpc.RPCNetworkParams;
 import com.yahoo.messagebus.network.rpc.test.TestServer;
 import com.yahoo.messagebus.routing.*;
 import com.yahoo.messagebus.test.Receptor;
@@ -16,8 +17,10 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.*;
 import static org.junit.Assert.assertEquals;
@@ -582,6 +585,56 @@ public class PolicyTestCase {
         assertSelect(frame, 1, Arrays.asList(frame.getNetwork().getConnectionSpec() + "/chain.default"));
     }
 
+    @Test
+    public void requireThatLoadBalancerBalancesWithSeveralMessengerThreads() throws Exception {
+        Slobrok slobrok = new Slobrok();
+        List<TestServer> servers = new ArrayList<>();
+        List<AtomicInteger> received = new ArrayList<>();
+        for (int i = 0; i < 3; ++i) {
+            TestServer server = new TestServer("docproc/cluster.default/" + i, null, slobrok, new DocumentProtocol(manager));
+            AtomicInteger count = new AtomicInteger();
+            DestinationSession[] session = new DestinationSession[1];
+            session[0] = server.mb.createDestinationSession("chain.default", true, msg -> {
+                count.incrementAndGet();
+                session[0].acknowledge(msg);
+            });
+            servers.add(server);
+            received.add(count);
+        }
+        TestServer src = new TestServer(new MessageBusParams().addProtocol(new DocumentProtocol(manager))
+                                                              .setNumMessengerThreads(4),
+                                        new RPCNetworkParams().setSlobrokConfigId(TestServer.getSlobrokConfig(slobrok)));
+        assertTrue(src.waitSlobrok("docproc/cluster.default/*/chain.default", 3));
+
+        int numSessions = 4, numMessagesPerSession = 150;
+        CountDownLatch replies = new CountDownLatch(numSessions * numMessagesPerSession);
+        List<Reply> failed = Collections.synchronizedList(new ArrayList<>());
+        ReplyHandler replyHandler = reply -> {
+            if (reply.hasErrors()) failed.add(reply);
+            replies.countDown();
+        };
+        List<SourceSession> sessions = new ArrayList<>();
+        for (int i = 0; i < numSessions; ++i)
+            sessions.add(src.mb.createSourceSession(new SourceSessionParams().setTimeout(TIMEOUT)
+                                                                             .setThrottlePolicy(null)
+                                                                             .setReplyHandler(replyHandler)));
+        Route route = Route.parse("[LoadBalancer:cluster=docproc/cluster.default;session=chain.default]");
+        for (int i = 0; i < numMessagesPerSession; ++i) {
+            for (SourceSession session : sessions) {
+                assertTrue(session.send(new RemoveDocumentMessage(new DocumentId("doc:scheme:" + i)), new Route(route)).isAccepted());
+            }
+        }
+        assertTrue(replies.await(TIMEOUT, TIMEOUT_UNIT));
+        assertTrue(failed.toString(), failed.isEmpty());
+        for (AtomicInteger count : received)
+            assertEquals("Messages are distributed evenly", numSessions * numMessagesPerSession / 3, count.get());
+
+        src.destroy();
+        for (TestServer server : servers)
+            server.destroy();
+        slobrok.stop();
+    }
+
     @Test
     public void testRoundRobin() {
         // Test select with proper address.
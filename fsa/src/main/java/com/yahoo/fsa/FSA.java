@@ -11,6 +11,7 @@ import java.nio.CharBuffer;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel.MapMode;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.NoSuchElementException;
 
 
@@ -62,6 +63,10 @@ public class FSA {
         }
 
         public void delta(char chr){
+            if (fsa._utf8) {
+                deltaUtf8(Character.isSurrogate(chr) ? '?' : chr);
+                return;
+            }
             CharBuffer chrbuf = CharBuffer.allocate(1);
             chrbuf.put(0,chr);
             ByteBuffer buf = fsa.encode(chrbuf);
@@ -72,21 +77,84 @@ public class FSA {
 
         /** Jumps ahead by string */
         public void delta(String string){
-            ByteBuffer buf = fsa.encode(string);
+            delta((CharSequence)string);
+        }
+
+        /**
+         * Jumps ahead by a sequence of characters. With utf-8 encoding this does not allocate,
+         * so it can be used to look up subsequences of a larger text by passing views of it.
+         */
+        public void delta(CharSequence chars){
+            if (fsa._utf8) {
+                deltaUtf8(chars);
+                return;
+            }
+            ByteBuffer buf = fsa.encode(CharBuffer.wrap(chars));
             while(state >0 && buf.position()<buf.limit()){
                 delta(buf.get());
             }
         }
 
+        /** Encodes to utf-8 while traversing, with the same replacement of unpaired surrogates as the charset */
+        private void deltaUtf8(CharSequence chars) {
+            int length = chars.length();
+            for (int i = 0; state > 0 && i < length; i++) {
+                char chr = chars.charAt(i);
+                if ( ! Character.isSurrogate(chr))
+                    deltaUtf8(chr);
+                else if (Character.isHighSurrogate(chr) && i + 1 < length && Character.isLowSurrogate(chars.charAt(i + 1)))
+                    deltaUtf8CodePoint(Character.toCodePoint(chr, chars.charAt(++i)));
+                else
+                    deltaUtf8('?');
+            }
+        }
+
+        /** Traverses by the utf-8 encoding of a character which is not a surrogate */
+        private void deltaUtf8(char chr) {
+            if (chr < 0x80) {
+                deltaIfValid((byte)chr);
+            }
+            else if (chr < 0x800) {
+                deltaIfValid((byte)(0xc0 | (chr >> 6)));
+                deltaIfValid((byte)(0x80 | (chr & 0x3f)));
+            }
+            else {
+                deltaIfValid((byte)(0xe0 | (chr >> 12)));
+                deltaIfValid((byte)(0x80 | ((chr >> 6) & 0x3f)));
+                deltaIfValid((byte)(0x80 | (chr & 0x3f)));
+            }
+        }
+
+        private void deltaUtf8CodePoint(int codePoint) {
+            deltaIfValid((byte)(0xf0 | (codePoint >> 18)));
+            deltaIfValid((byte)(0x80 | ((codePoint >> 12) & 0x3f)));
+            deltaIfValid((byte)(0x80 | ((codePoint >> 6) & 0x3f)));
+            deltaIfValid((byte)(0x80 | (codePoint & 0x3f)));
+        }
+
+        private void deltaIfValid(byte symbol) {
+            if (state > 0)
+                delta(symbol);
+        }
+
         /**
          * Jumps ahead by string if that puts us into a valid state, does nothing otherwise
          *
          * @return whether we jumped to a valid state (true) or di nothing (false)
          */
         public boolean tryDelta(String string){
+            return tryDelta((CharSequence)string);
+        }
+
+        /**
+         * Jumps ahead by a sequence of characters if that puts us into a valid state, does nothing otherwise
+         *
+         * @return whether we jumped to a valid state (true) or did nothing (false)
+         */
+        public boolean tryDelta(CharSequence chars){
             int lastHash=hash;
             int lastState=state;
-            delta(string);
+            delta(chars);
             if (isValid()) return true;
 
             hash=lastHash;
@@ -143,8 +211,12 @@ public class FSA {
         }
 
         public ByteBuffer lookup(String str){
+            return lookup((CharSequence)str);
+        }
+
+        public ByteBuffer lookup(CharSequence chars){
             start();
-            delta(str);
+            delta(chars);
             return fsa.data(state);
         }
 
@@ -319,6 +391,8 @@ public class FSA {
     private MappedByteBuffer _data;
     private MappedByteBuffer _phash;
     private Charset _charset;
+    private boolean _utf8;
+    private boolean _has_phash;
 
     /**
      * Loads an FSA from a resource file name, which is resolved from the class path of the
@@ -339,7 +413,7 @@ public class FSA {
         if ( ! "file".equals(fsaUrl.getProtocol()))
             throw new RuntimeException("Could not open non-file url '" + fsaUrl + "' as a file input stream: " +
                                        "The classloader of " + loadingClass + "' does not return file urls");
-        return new FSA(fsaUrl.getFile());
+        return FSARegistry.get(fsaUrl.getFile());
     }
 
     /**
@@ -371,17 +445,22 @@ public class FSA {
     }
 
     private void init(String filename, String charsetname){
-        try {
-            init(new FileInputStream(filename),charsetname);
+        // The mapped buffers stay valid after the file is closed
+        try (FileInputStream file = new FileInputStream(filename)) {
+            init(file,charsetname);
         }
         catch (FileNotFoundException e) {
             throw new IllegalArgumentException("Could not find FSA file '" + filename + "'",e);
         }
+        catch (IOException e) {
+            throw new RuntimeException("IO error while closing FSA file",e);
+        }
     }
 
     private void init(FileInputStream file, String charsetname) {
         try {
             _charset = Charset.forName(charsetname);
+            _utf8 = _charset.equals(StandardCharsets.UTF_8);
 
             _header = file.getChannel().map(MapMode.READ_ONLY,0,256);
             _header.order(ByteOrder.LITTLE_ENDIAN);
@@ -403,6 +482,7 @@ public class FSA {
                         4*h_size());
                 _phash.order(ByteOrder.LITTLE_ENDIAN);
             }
+            _has_phash = h_has_phash()==1;
             _ok=true;
         }
         catch (IOException e) {
@@ -508,7 +588,7 @@ public class FSA {
         if(s<0){
             s+=256;
         }
-        if(_ok && h_has_phash()==1 && s>0 && s<255){
+        if(_has_phash && s>0 && s<255){
             if(getSymbol(state+s)==s){
                 return _phash.getInt(4*(state+s));
             }
@@ -0,0 +1,99 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.fsa;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A registry of the automata loaded in this JVM, which lets all components using the same automaton file
+ * share one FSA instance instead of each loading their own. FSAs are read only memory mappings of their file,
+ * and may be used by any number of threads concurrently, each using its own {@link FSA.State}.
+ * <p>
+ * An automaton is loaded again if its file has changed since it was loaded, and is unmapped
+ * when it is no longer used by any component.
+ */
+public final class FSARegistry {
+
+    private static final Map<Key, WeakReference<FSA>> automata = new HashMap<>();
+
+    private FSARegistry() {}
+
+    /**
+     * Returns the FSA of the given file using utf-8 encoding, loading it if it is not already loaded
+     *
+     * @throws IllegalArgumentException if the file is not found
+     */
+    public static FSA get(String filename) {
+        return get(filename, "utf-8");
+    }
+
+    /**
+     * Returns the FSA of the given file using the given character encoding, loading it if it is not already loaded
+     *
+     * @throws IllegalArgumentException if the file is not found
+     */
+    public static FSA get(String filename, String charsetname) {
+        File file = new File(filename);
+        Key key = new Key(canonicalPath(file), Charset.forName(charsetname).name(), file.lastModified(), file.length());
+        synchronized (automata) {
+            removeUnused();
+            WeakReference<FSA> reference = automata.get(key);
+            FSA fsa = reference == null ? null : reference.get();
+            if (fsa == null) {
+                fsa = new FSA(filename, charsetname);
+                automata.put(key, new WeakReference<>(fsa));
+            }
+            return fsa;
+        }
+    }
+
+    private static void removeUnused() {
+        for (Iterator<WeakReference<FSA>> i = automata.values().iterator(); i.hasNext(); )
+            if (i.next().get() == null)
+                i.remove();
+    }
+
+    private static String canonicalPath(File file) {
+        try {
+            return file.getCanonicalPath();
+        }
+        catch (IOException e) {
+            return file.getAbsolutePath();
+        }
+    }
+
+    private static final class Key {
+
+        private final String path;
+        private final String charset;
+        private final long lastModified;
+        private final long length;
+
+        Key(String path, String charset, long lastModified, long length) {
+            this.path = path;
+            this.charset = charset;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+
+        @Override
+        public int hashCode() { return Objects.hash(path, charset, lastModified, length); }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) return true;
+            if ( ! (o instanceof Key)) return false;
+            Key other = (Key)o;
+            return this.lastModified == other.lastModified && this.length == other.length &&
+                   this.path.equals(other.path) && this.charset.equals(other.charset);
+        }
+
+    }
+
+}
@@ -13,6 +13,7 @@ import java.nio.channels.FileChannel.MapMode;
 import java.nio.charset.Charset;
 
 import com.yahoo.fsa.FSA;
+import com.yahoo.fsa.FSARegistry;
 
 
 /**
@@ -48,7 +49,7 @@ public class ConceptNet {
 
     _charset = Charset.forName(charsetname);
 
-    _fsa = new FSA(domain + ".fsa",charsetname);
+    _fsa = FSARegistry.get(domain + ".fsa",charsetname);
 
     if(!_fsa.isOk()){
       return;
@@ -5,6 +5,7 @@ import java.util.LinkedList;
 import java.util.ListIterator;
 
 import com.yahoo.fsa.FSA;
+import com.yahoo.fsa.FSARegistry;
 
 /**
  * API for accessing the Segmenter automata.
@@ -20,11 +21,11 @@ public class Segmenter {
   }
 
   public Segmenter(String filename) {
-    _fsa = new FSA(filename,"utf-8");
+    _fsa = FSARegistry.get(filename,"utf-8");
   }
 
   public Segmenter(String filename, String charsetname) {
-    _fsa = new FSA(filename,charsetname);
+    _fsa = FSARegistry.get(filename,charsetname);
   }
 
   public boolean isOk()
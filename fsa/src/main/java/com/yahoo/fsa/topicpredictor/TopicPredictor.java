@@ -17,6 +17,7 @@ import java.nio.channels.FileChannel.MapMode;
 import java.nio.charset.Charset;
 
 import com.yahoo.fsa.FSA;
+import com.yahoo.fsa.FSARegistry;
 import com.yahoo.fsa.MetaData;
 
 
@@ -46,7 +47,7 @@ public class TopicPredictor extends MetaData {
         }
 
         // Init the segment->'topic index' FSA
-        fsa = new FSA(fsafile);
+        fsa = FSARegistry.get(fsafile);
         if (!fsa.isOk()) {
             Logger.getLogger(packageName).
                 warning("Error initializing FSA with file " + fsafile);
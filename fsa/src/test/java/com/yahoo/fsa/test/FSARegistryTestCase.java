@@ -0,0 +1,49 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.fsa.test;
+
+import com.yahoo.fsa.FSA;
+import com.yahoo.fsa.FSARegistry;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class FSARegistryTestCase {
+
+    @Test
+    public void testAutomataAreShared() {
+        FSA fsa = FSARegistry.get("src/test/fsa/test-fsa.fsa");
+        assertTrue(fsa.isOk());
+        assertSame(fsa, FSARegistry.get("src/test/fsa/../fsa/test-fsa.fsa"));
+        assertSame(fsa, FSARegistry.get("src/test/fsa/test-fsa.fsa", "UTF-8"));
+        assertNotSame(fsa, FSARegistry.get("src/test/fsa/test-fsa.fsa", "iso-8859-1"));
+        assertNotSame(fsa, FSARegistry.get("src/test/fsa/test-data.fsa"));
+    }
+
+    @Test
+    public void testSharedAutomataCanBeTraversedIndependently() {
+        FSA.State first = FSARegistry.get("src/test/fsa/test-fsa.fsa").getState();
+        FSA.State second = FSARegistry.get("src/test/fsa/test-fsa.fsa").getState();
+        first.delta("this is a test");
+        second.delta("this is");
+        assertTrue(first.isFinal());
+        assertTrue(second.isValid());
+        assertFalse(second.isFinal());
+    }
+
+    @Test
+    public void testMissingFile() {
+        try {
+            FSARegistry.get("src/test/fsa/nosuchfile.fsa");
+            fail("Expected exception");
+        }
+        catch (IllegalArgumentException e) {
+            assertEquals("Could not find FSA file 'src/test/fsa/nosuchfile.fsa'", e.getMessage());
+        }
+    }
+
+}
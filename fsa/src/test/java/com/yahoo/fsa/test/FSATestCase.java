@@ -106,4 +106,14 @@ public class FSATestCase {
         assertTrue(state.isFinal());
     }
 
+    @Test
+    public void testCharSequenceDelta() {
+        StringBuilder text=new StringBuilder("xx this is a test xx");
+        state.delta(text.subSequence(3,17));
+        assertTrue(state.isValid());
+        assertTrue(state.isFinal());
+        assertTrue(state.lookup(text.subSequence(3,8))==null);
+        assertFalse(state.isFinal());
+    }
+
 }
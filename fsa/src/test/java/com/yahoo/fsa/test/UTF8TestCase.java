@@ -105,4 +105,23 @@ public class UTF8TestCase {
         assertFalse(itr.hasNext());
     }
 
+    @Test
+    public void testUtf8TraversalEqualsEncodedTraversal() {
+        for (String input : new String[] { word, prefix, "a" + word, "\u00e6\u00f8\u00e5", "\ud83d\ude00", "\ud83d", "x\ude00y" }) {
+            state.start();
+            state.delta(input);
+            int utf8State = stateOf(state);
+            state.start();
+            for (byte b : input.getBytes(charset)) {
+                if ( ! state.isValid()) break;
+                state.delta(b);
+            }
+            assertEquals(input, stateOf(state), utf8State);
+        }
+    }
+
+    private int stateOf(FSA.State state) {
+        return state.isValid() ? (state.isFinal() ? 2 : 1) : 0;
+    }
+
 }
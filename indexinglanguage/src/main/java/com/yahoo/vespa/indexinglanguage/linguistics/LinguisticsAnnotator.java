@@ -13,6 +13,7 @@ import com.yahoo.language.process.StemMode;
 import com.yahoo.language.process.Token;
 import com.yahoo.language.process.Tokenizer;
 
+import java.nio.CharBuffer;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -69,16 +70,15 @@ public class LinguisticsAnnotator {
         if (text.getSpanTree(SpanTrees.LINGUISTICS) != null) return true;  // Already annotated with LINGUISTICS.
 
         Tokenizer tokenizer = factory.getTokenizer();
-        String input = (text.getString().length() <=  config.getMaxTokenizeLength())
-                ? text.getString()
-                : text.getString().substring(0, config.getMaxTokenizeLength());
-        Iterable<Token> tokens = tokenizer.tokenize(input, config.getLanguage(), config.getStemMode(),
-                                                    config.getRemoveAccents());
+        String string = text.getString();
+        CharSequence input = (string.length() <= config.getMaxTokenizeLength())
+                ? string
+                : CharBuffer.wrap(string, 0, config.getMaxTokenizeLength()); // a view, not a copy
         TermOccurrences termOccurrences = new TermOccurrences(config.getMaxTermOccurrences());
         SpanTree tree = new SpanTree(SpanTrees.LINGUISTICS);
-        for (Token token : tokens) {
-            addAnnotationSpan(text.getString(), tree.spanList(), tokenizer, token, config.getStemMode(), termOccurrences);
-        }
+        tokenizer.tokenize(input, config.getLanguage(), config.getStemMode(), config.getRemoveAccents(),
+                           token -> addAnnotationSpan(string, tree.spanList(), tokenizer, token,
+                                                      config.getStemMode(), termOccurrences));
 
         if (tree.numAnnotations() == 0) return false;
         text.setSpanTree(tree);
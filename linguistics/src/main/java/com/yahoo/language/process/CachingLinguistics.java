@@ -0,0 +1,252 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.language.process;
+
+import com.yahoo.collections.Tuple2;
+import com.yahoo.component.Version;
+import com.yahoo.language.Language;
+import com.yahoo.language.Linguistics;
+import com.yahoo.language.detect.Detector;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Linguistics which remembers the results of stemming, normalizing and transforming terms
+ * done by the processors of another linguistics instance. Since those operations are pure functions
+ * of their input, a term seen before can be looked up instead of processed again.
+ * <p>
+ * Only inputs up to a max length are cached, so long texts, such as entire fields,
+ * are always passed to the wrapped processors. The processors not listed above are returned
+ * from the wrapped instance directly.
+ * <p>
+ * This is multithread safe, and the processors it returns have the same thread safety as the
+ * processors they wrap.
+ */
+public class CachingLinguistics implements Linguistics {
+
+    private final Linguistics linguistics;
+    private final int maxEntries;
+    private final int maxInputLength;
+
+    private final Map<StemKey, List<StemList>> stems = new ConcurrentHashMap<>();
+    private final Map<String, String> normalized = new ConcurrentHashMap<>();
+    private final Map<TransformKey, String> transformed = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong misses = new AtomicLong(0);
+
+    /** Creates a caching linguistics keeping up to 10000 results per operation, of inputs up to 64 characters */
+    public CachingLinguistics(Linguistics linguistics) {
+        this(linguistics, 10000, 64);
+    }
+
+    /**
+     * Creates a caching linguistics
+     *
+     * @param linguistics the linguistics to cache the results of
+     * @param maxEntries the max number of results of each operation to keep
+     * @param maxInputLength the max length of the inputs to cache the results of
+     */
+    public CachingLinguistics(Linguistics linguistics, int maxEntries, int maxInputLength) {
+        this.linguistics = Objects.requireNonNull(linguistics);
+        this.maxEntries = maxEntries;
+        this.maxInputLength = maxInputLength;
+    }
+
+    /** Returns the linguistics wrapped by this */
+    public Linguistics getWrapped() { return linguistics; }
+
+    /** Returns the number of operations which were answered from cache since this was created */
+    public long hits() { return hits.get(); }
+
+    /** Returns the number of operations which were passed to the wrapped processors since this was created */
+    public long misses() { return misses.get(); }
+
+    @Override
+    public Stemmer getStemmer() { return new CachingStemmer(); }
+
+    @Override
+    public Tokenizer getTokenizer() { return linguistics.getTokenizer(); }
+
+    @Override
+    public Normalizer getNormalizer() { return new CachingNormalizer(); }
+
+    @Override
+    public Transformer getTransformer() { return new CachingTransformer(); }
+
+    @Override
+    public Segmenter getSegmenter() { return linguistics.getSegmenter(); }
+
+    @Override
+    public Detector getDetector() { return linguistics.getDetector(); }
+
+    @Override
+    public GramSplitter getGramSplitter() { return linguistics.getGramSplitter(); }
+
+    @Override
+    public CharacterClasses getCharacterClasses() { return linguistics.getCharacterClasses(); }
+
+    @Override
+    public Tuple2<String, Version> getVersion(Component component) { return linguistics.getVersion(component); }
+
+    private boolean isCacheable(String input) {
+        return input != null && input.length() <= maxInputLength;
+    }
+
+    private <KEY, VALUE> VALUE lookup(Map<KEY, VALUE> cache, KEY key) {
+        VALUE value = cache.get(key);
+        if (value != null)
+            hits.incrementAndGet();
+        else
+            misses.incrementAndGet();
+        return value;
+    }
+
+    private <KEY, VALUE> void add(Map<KEY, VALUE> cache, KEY key, VALUE value) {
+        if (value == null) return;
+        if (cache.size() >= maxEntries)
+            cache.clear(); // Make room for the terms currently seen
+        cache.put(key, value);
+    }
+
+    private static List<StemList> copy(List<StemList> stems) {
+        List<StemList> copy = new ArrayList<>(stems.size());
+        for (StemList stemList : stems)
+            copy.add(new StemList(stemList.toArray(new String[stemList.size()])));
+        return copy;
+    }
+
+    private class CachingStemmer implements Stemmer {
+
+        /** The stemmer to use on cache misses, created when first needed */
+        private Stemmer stemmer = null;
+
+        @Override
+        public List<StemList> stem(String input, StemMode mode, Language language) {
+            if ( ! isCacheable(input)) return stemmer().stem(input, mode, language);
+
+            StemKey key = new StemKey(input, mode, language);
+            List<StemList> result = lookup(stems, key);
+            if (result == null) {
+                result = stemmer().stem(input, mode, language);
+                add(stems, key, Collections.unmodifiableList(copy(result)));
+                return result;
+            }
+            return copy(result);
+        }
+
+        private Stemmer stemmer() {
+            if (stemmer == null)
+                stemmer = linguistics.getStemmer();
+            return stemmer;
+        }
+
+    }
+
+    private class CachingNormalizer implements Normalizer {
+
+        private Normalizer normalizer = null;
+
+        @Override
+        public String normalize(String input) {
+            if ( ! isCacheable(input)) return normalizer().normalize(input);
+
+            String result = lookup(normalized, input);
+            if (result == null) {
+                result = normalizer().normalize(input);
+                add(normalized, input, result);
+            }
+            return result;
+        }
+
+        private Normalizer normalizer() {
+            if (normalizer == null)
+                normalizer = linguistics.getNormalizer();
+            return normalizer;
+        }
+
+    }
+
+    private class CachingTransformer implements Transformer {
+
+        private Transformer transformer = null;
+
+        @Override
+        public String accentDrop(String input, Language language) {
+            if ( ! isCacheable(input)) return transformer().accentDrop(input, language);
+
+            TransformKey key = new TransformKey(input, language);
+            String result = lookup(transformed, key);
+            if (result == null) {
+                result = transformer().accentDrop(input, language);
+                add(transformed, key, result);
+            }
+            return result;
+        }
+
+        private Transformer transformer() {
+            if (transformer == null)
+                transformer = linguistics.getTransformer();
+            return transformer;
+        }
+
+    }
+
+    private static final class StemKey {
+
+        private final String input;
+        private final StemMode mode;
+        private final Language language;
+        private final int hashCode;
+
+        StemKey(String input, StemMode mode, Language language) {
+            this.input = input;
+            this.mode = mode;
+            this.language = language;
+            this.hashCode = Objects.hash(input, mode, language);
+        }
+
+        @Override
+        public int hashCode() { return hashCode; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) return true;
+            if ( ! (o instanceof StemKey)) return false;
+            StemKey other = (StemKey)o;
+            return this.mode == other.mode && this.language == other.language && this.input.equals(other.input);
+        }
+
+    }
+
+    private static final class TransformKey {
+
+        private final String input;
+        private final Language language;
+        private final int hashCode;
+
+        TransformKey(String input, Language language) {
+            this.input = input;
+            this.language = language;
+            this.hashCode = Objects.hash(input, language);
+        }
+
+        @Override
+        public int hashCode() { return hashCode; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) return true;
+            if ( ! (o instanceof TransformKey)) return false;
+            TransformKey other = (TransformKey)o;
+            return this.language == other.language && this.input.equals(other.input);
+        }
+
+    }
+
+}
@@ -3,6 +3,8 @@ package com.yahoo.language.process;
 
 import com.yahoo.language.Language;
 
+import java.util.function.Consumer;
+
 /**
  * Language-sensitive tokenization of a text string.
  *
@@ -22,6 +24,28 @@ public interface Tokenizer {
      */
     Iterable<Token> tokenize(String input, Language language, StemMode stemMode, boolean removeAccents);
 
+    /**
+     * Passes the tokens produced from an input text to a consumer as they are produced.
+     * Implementations may pass the same token instance in each call to the consumer,
+     * only changing its content, so consumers must not keep references to the tokens they are passed.
+     * Implementations should avoid creating the strings of a token until they are requested from it.
+     * <p>
+     * This default implementation passes the tokens returned by
+     * {@link #tokenize(String, Language, StemMode, boolean)}.
+     *
+     * @param input the text to tokenize. May be arbitrarily large.
+     * @param language the language of the input text.
+     * @param stemMode the stem mode applied on the tokens
+     * @param removeAccents if true accents and similar are removed from the tokens
+     * @param consumer the receiver of the tokens of the input text
+     * @throws ProcessingException If the underlying library throws an Exception.
+     */
+    default void tokenize(CharSequence input, Language language, StemMode stemMode, boolean removeAccents,
+                          Consumer<Token> consumer) {
+        for (Token token : tokenize(input.toString(), language, stemMode, removeAccents))
+            consumer.accept(token);
+    }
+
     /**
      * Return a replacement for an input token string.
      * This accepts strings returned by Token.getTokenString
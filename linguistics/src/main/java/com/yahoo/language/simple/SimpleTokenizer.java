@@ -9,6 +9,7 @@ import com.yahoo.language.simple.kstem.KStemmer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * <p>A tokenizer which splits on whitespace, normalizes and transforms using the given implementations
@@ -44,23 +45,36 @@ public class SimpleTokenizer implements Tokenizer {
         if (input.isEmpty()) return Collections.emptyList();
 
         List<Token> tokens = new ArrayList<>();
-        int nextCode = input.codePointAt(0);
+        tokenize(input, language, stemMode, removeAccents,
+                 token -> tokens.add(new SimpleToken(token.getOrig()).setOffset(token.getOffset())
+                                                                      .setType(token.getType())
+                                                                      .setTokenString(token.getTokenString())));
+        return tokens;
+    }
+
+    /**
+     * Passes the tokens of the input to the consumer as a single reused token instance.
+     * The original and processed strings of a token are created only when requested.
+     */
+    @Override
+    public void tokenize(CharSequence input, Language language, StemMode stemMode, boolean removeAccents,
+                         Consumer<Token> consumer) {
+        if (input.length() == 0) return;
+
+        StreamedToken token = new StreamedToken(input, language, stemMode, removeAccents);
+        int nextCode = Character.codePointAt(input, 0);
         TokenType prevType = SimpleTokenType.valueOf(nextCode);
         for (int prev = 0, next = Character.charCount(nextCode); next <= input.length(); ) {
-            nextCode = next < input.length() ? input.codePointAt(next) : SPACE_CODE;
+            nextCode = next < input.length() ? Character.codePointAt(input, next) : SPACE_CODE;
             TokenType nextType = SimpleTokenType.valueOf(nextCode);
             if (!prevType.isIndexable() || !nextType.isIndexable()) {
-                String original = input.substring(prev, next);
-                String token = processToken(original, language, stemMode, removeAccents);
-                tokens.add(new SimpleToken(original).setOffset(prev)
-                                                .setType(prevType)
-                                                .setTokenString(token));
+                token.set(prev, next, prevType);
+                consumer.accept(token);
                 prev = next;
                 prevType = nextType;
             }
             next += Character.charCount(nextCode);
         }
-        return tokens;
     }
 
     private String processToken(String token, Language language, StemMode stemMode, boolean removeAccents) {
@@ -73,4 +87,81 @@ public class SimpleTokenizer implements Tokenizer {
         return token;
     }
 
+    /** A token of a text which is reused for each token of the text */
+    private class StreamedToken implements Token {
+
+        private final CharSequence input;
+        private final Language language;
+        private final StemMode stemMode;
+        private final boolean removeAccents;
+
+        private int start;
+        private int end;
+        private TokenType type;
+
+        /** The original and processed strings of this token, or null if not requested yet */
+        private String orig;
+        private String tokenString;
+
+        StreamedToken(CharSequence input, Language language, StemMode stemMode, boolean removeAccents) {
+            this.input = input;
+            this.language = language;
+            this.stemMode = stemMode;
+            this.removeAccents = removeAccents;
+        }
+
+        void set(int start, int end, TokenType type) {
+            this.start = start;
+            this.end = end;
+            this.type = type;
+            this.orig = null;
+            this.tokenString = null;
+        }
+
+        @Override
+        public TokenType getType() { return type; }
+
+        @Override
+        public String getOrig() {
+            if (orig == null)
+                orig = input.subSequence(start, end).toString();
+            return orig;
+        }
+
+        @Override
+        public int getNumStems() { return 1; }
+
+        @Override
+        public String getStem(int i) { return getTokenString(); }
+
+        @Override
+        public int getNumComponents() { return 0; }
+
+        @Override
+        public Token getComponent(int i) { throw new IndexOutOfBoundsException("This token has no components"); }
+
+        @Override
+        public long getOffset() { return start; }
+
+        @Override
+        public TokenScript getScript() { return TokenScript.UNKNOWN; }
+
+        @Override
+        public String getTokenString() {
+            if (tokenString == null)
+                tokenString = processToken(getOrig(), language, stemMode, removeAccents);
+            return tokenString;
+        }
+
+        @Override
+        public boolean isSpecialToken() { return false; }
+
+        @Override
+        public boolean isIndexable() { return type.isIndexable() && end > start; }
+
+        @Override
+        public String toString() { return "token '" + getOrig() + "' at " + start; }
+
+    }
+
 }
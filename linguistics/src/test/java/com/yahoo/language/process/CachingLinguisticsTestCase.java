@@ -0,0 +1,70 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.language.process;
+
+import com.yahoo.language.Language;
+import com.yahoo.language.simple.SimpleLinguistics;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+public class CachingLinguisticsTestCase {
+
+    @Test
+    public void requireThatStemsAreCachedByInputModeAndLanguage() {
+        CachingLinguistics linguistics = new CachingLinguistics(new SimpleLinguistics());
+        List<StemList> first = linguistics.getStemmer().stem("Cars", StemMode.ALL, Language.ENGLISH);
+        assertEquals("[[car]]", first.toString());
+        assertEquals(0, linguistics.hits());
+        assertEquals(1, linguistics.misses());
+
+        List<StemList> second = linguistics.getStemmer().stem("Cars", StemMode.ALL, Language.ENGLISH);
+        assertEquals(first, second);
+        assertEquals(1, linguistics.hits());
+
+        second.get(0).add("modified");
+        assertEquals("[[car]]", linguistics.getStemmer().stem("Cars", StemMode.ALL, Language.ENGLISH).toString());
+        assertEquals(2, linguistics.hits());
+
+        assertEquals("[[cars]]", linguistics.getStemmer().stem("Cars", StemMode.NONE, Language.ENGLISH).toString());
+        linguistics.getStemmer().stem("Cars", StemMode.ALL, Language.GERMAN);
+        assertEquals(2, linguistics.hits());
+        assertEquals(3, linguistics.misses());
+    }
+
+    @Test
+    public void requireThatNormalizingAndTransformingIsCached() {
+        CachingLinguistics linguistics = new CachingLinguistics(new SimpleLinguistics());
+        assertEquals("å", linguistics.getNormalizer().normalize("å"));
+        assertEquals("å", linguistics.getNormalizer().normalize("å"));
+        assertEquals("a", linguistics.getTransformer().accentDrop("å", Language.ENGLISH));
+        assertEquals("a", linguistics.getTransformer().accentDrop("å", Language.ENGLISH));
+        assertEquals(2, linguistics.hits());
+        assertEquals(2, linguistics.misses());
+    }
+
+    @Test
+    public void requireThatLongInputsAreNotCached() {
+        CachingLinguistics linguistics = new CachingLinguistics(new SimpleLinguistics(), 10, 5);
+        assertEquals("abcdef", linguistics.getNormalizer().normalize("abcdef"));
+        assertEquals("abcdef", linguistics.getNormalizer().normalize("abcdef"));
+        assertEquals(0, linguistics.hits());
+        assertEquals(0, linguistics.misses());
+    }
+
+    @Test
+    public void requireThatCacheIsBounded() {
+        CachingLinguistics linguistics = new CachingLinguistics(new SimpleLinguistics(), 10, 64);
+        Normalizer normalizer = linguistics.getNormalizer();
+        for (int i = 0; i < 100; i++)
+            assertEquals("term" + i, normalizer.normalize("term" + i));
+        normalizer.normalize("term99");
+        assertEquals(1, linguistics.hits());
+        normalizer.normalize("term0");
+        assertEquals(1, linguistics.hits());
+        assertNotSame(normalizer, linguistics.getNormalizer());
+    }
+
+}
@@ -1,10 +1,21 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.language.simple;
 
+import com.yahoo.language.Language;
 import com.yahoo.language.process.AbstractTokenizerTestCase;
 import com.yahoo.language.process.StemMode;
+import com.yahoo.language.process.Token;
 import org.junit.Test;
 
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
 /**
  * @author <a href="mailto:steinar@yahoo-inc.com">Steinar Knutsen</a>
  * @author bratseth
@@ -33,4 +44,22 @@ public class SimpleTokenizerTestCase extends AbstractTokenizerTestCase {
                             " ", "gods", ".", "running", ")");
     }
 
+    @Test
+    public void testStreamingTokensEqualListedTokens() {
+        String input = "a\u030a tralalala n4lle. \uD800\uDFC8 (old Persian gods.Running)";
+        SimpleTokenizer tokenizer = new SimpleTokenizer();
+        List<String> listed = new ArrayList<>();
+        for (Token token : tokenizer.tokenize(input, Language.ENGLISH, StemMode.ALL, true))
+            listed.add(token.getOffset() + ":" + token.getType() + ":" + token.getOrig() + ":" + token.getTokenString());
+
+        List<String> streamed = new ArrayList<>();
+        Set<Token> instances = Collections.newSetFromMap(new IdentityHashMap<>());
+        tokenizer.tokenize(CharBuffer.wrap(input), Language.ENGLISH, StemMode.ALL, true, token -> {
+            streamed.add(token.getOffset() + ":" + token.getType() + ":" + token.getOrig() + ":" + token.getTokenString());
+            instances.add(token);
+        });
+        assertEquals(listed, streamed);
+        assertEquals(1, instances.size());
+    }
+
 }
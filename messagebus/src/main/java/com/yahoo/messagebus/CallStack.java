@@ -39,6 +39,16 @@ public class CallStack {
         return frame.handler;
     }
 
+    /**
+     * Returns the handler of the top frame of this stack, without removing it.
+     *
+     * @return The top handler, or null if this is empty.
+     */
+    ReplyHandler peekHandler() {
+        StackFrame frame = stack.peek();
+        return frame != null ? frame.handler : null;
+    }
+
     /**
      * Swap the content of this and the argument stack.
      *
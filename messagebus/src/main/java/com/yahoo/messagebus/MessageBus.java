@@ -139,7 +139,8 @@ public class MessageBus implements ConfigHandler, NetworkOwner, MessageHandler,
             throw new IllegalStateException("Network failed to become ready in time.");
 
         // Start messenger.
-        msn = new Messenger();
+        msn = new Messenger(params.getNumMessengerThreads());
+        metrics.addMetric(msn.getMetrics());
 
         RetryPolicy retryPolicy = params.getRetryPolicy();
         if (retryPolicy != null) {
@@ -382,7 +383,8 @@ public class MessageBus implements ConfigHandler, NetworkOwner, MessageHandler,
             return;
         }
         SendProxy proxy = new SendProxy(this, net, resender);
-        msn.deliverMessage(msg, proxy);
+        ReplyHandler sender = msg.getCallStack().peekHandler(); // the session sending the message
+        msn.deliverMessage(msg, proxy, sender != null ? sender : proxy);
     }
 
     @Override
@@ -19,6 +19,7 @@ public class MessageBusParams {
     private RetryPolicy retryPolicy;
     private int maxPendingCount;
     private int maxPendingSize;
+    private int numMessengerThreads;
 
     /**
      * Constructs a new instance of this parameter object with default values for all members.
@@ -27,6 +28,7 @@ public class MessageBusParams {
         retryPolicy = new RetryTransientErrorsPolicy();
         maxPendingCount = 1024;
         maxPendingSize = 128 * 1024 * 1024;
+        numMessengerThreads = 1;
     }
 
     /**
@@ -39,6 +41,7 @@ public class MessageBusParams {
         retryPolicy = params.retryPolicy;
         maxPendingCount = params.maxPendingCount;
         maxPendingSize = params.maxPendingSize;
+        numMessengerThreads = params.numMessengerThreads;
     }
 
     /**
@@ -143,4 +146,28 @@ public class MessageBusParams {
         this.maxPendingSize = maxSize;
         return this;
     }
+
+    /**
+     * Returns the number of threads running the tasks of the messenger.
+     *
+     * @return The thread count.
+     */
+    public int getNumMessengerThreads() {
+        return numMessengerThreads;
+    }
+
+    /**
+     * Sets the number of threads running the tasks of the messenger. Messages are distributed over the threads by
+     * their sequence id, or by their source or destination session if they have none, while replies are distributed
+     * by their reply handler. With more than one thread, message handlers, reply handlers and routing policies may
+     * be invoked by several threads at once, so routing policies and other state shared between handlers must be
+     * thread-safe.
+     *
+     * @param numThreads The thread count to set, at least 1.
+     * @return This, to allow chaining.
+     */
+    public MessageBusParams setNumMessengerThreads(int numThreads) {
+        this.numMessengerThreads = numThreads;
+        return this;
+    }
 }
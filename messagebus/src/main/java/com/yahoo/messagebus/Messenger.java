@@ -2,9 +2,13 @@
 package com.yahoo.messagebus;
 
 import com.yahoo.log.LogLevel;
+import com.yahoo.messagebus.metrics.AverageMetric;
+import com.yahoo.messagebus.metrics.MetricSet;
+import com.yahoo.messagebus.metrics.ValueMetric;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.CountDownLatch;
@@ -12,29 +16,57 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Logger;
 
 /**
- * <p>This class implements a single thread that is able to process arbitrary
- * tasks. Tasks are enqueued using the synchronized {@link #enqueue(Task)}
- * method, and are run in the order they were enqueued.</p>
+ * <p>This class implements one or more threads that are able to process
+ * arbitrary tasks. Tasks are enqueued using the thread-safe {@link
+ * #enqueue(Task, long)} method, which assigns each task to a thread by its
+ * key. Tasks with the same key are run in the order they were enqueued.</p>
+ *
+ * <p>Messages are keyed by their sequence id if they have one, and otherwise
+ * by the session which sent them or the handler they are delivered to, while
+ * replies are keyed by their handler. This keeps the ordering guarantees of
+ * sequenced messages and of each session when several threads are used.
+ * Replies to different messages, and messages from different sessions, may be
+ * routed concurrently, so routing policies must be thread-safe, see
+ * {@link com.yahoo.messagebus.routing.RoutingPolicy}.</p>
  *
  * @author Simon Thoresen Hult
  */
-public class Messenger implements Runnable {
+public class Messenger {
 
     private static final Logger log = Logger.getLogger(Messenger.class.getName());
     private final AtomicBoolean destroyed = new AtomicBoolean(false);
     private final List<Task> children = new ArrayList<>();
-    private final Queue<Task> queue = new ArrayDeque<>();
-    private final Thread thread = new Thread(this, "Messenger");
+    private final Shard[] shards;
+    private final MetricSet metrics = new MetricSet("messenger");
 
     public Messenger() {
-        thread.setDaemon(true);
+        this(1);
+    }
+
+    /**
+     * <p>Creates a messenger which runs tasks in the given number of
+     * threads.</p>
+     *
+     * @param numThreads The number of threads to use, at least 1.
+     */
+    public Messenger(int numThreads) {
+        if (numThreads < 1) {
+            throw new IllegalArgumentException("A messenger needs at least one thread, got " + numThreads + ".");
+        }
+        shards = new Shard[numThreads];
+        for (int i = 0; i < numThreads; ++i) {
+            shards[i] = new Shard(numThreads == 1 ? "Messenger" : "Messenger-" + i,
+                                  i == 0 ? children : Collections.emptyList(),
+                                  new MetricSet("thread" + i));
+            metrics.addMetric(shards[i].metrics);
+        }
     }
 
     /**
      * <p>Adds a recurrent task to this that is to be run for every iteration of
-     * the main loop. This task must be very light-weight as to not block the
-     * messenger. Note that this method is NOT thread-safe, so it should NOT be
-     * used after calling {@link #start()}.</p>
+     * the main loop of the first thread. This task must be very light-weight as
+     * to not block the messenger. Note that this method is NOT thread-safe, so
+     * it should NOT be used after calling {@link #start()}.</p>
      *
      * @param task The task to add.
      */
@@ -43,13 +75,35 @@ public class Messenger implements Runnable {
     }
 
     /**
-     * <p>Starts the internal thread. This must be done AFTER all recurrent
+     * <p>Starts the internal threads. This must be done AFTER all recurrent
      * tasks have been added.</p>
      *
      * @see #addRecurrentTask(Task)
      */
     public void start() {
-        thread.start();
+        for (Shard shard : shards) {
+            shard.thread.start();
+        }
+    }
+
+    /**
+     * <p>Returns the number of threads running the tasks of this.</p>
+     *
+     * @return The thread count.
+     */
+    public int getNumThreads() {
+        return shards.length;
+    }
+
+    /**
+     * <p>Returns the metrics of this, which has the current queue size and the
+     * latency from enqueuing until a task is done, in milliseconds, for each
+     * thread.</p>
+     *
+     * @return The metric set.
+     */
+    public MetricSet getMetrics() {
+        return metrics;
     }
 
     /**
@@ -61,7 +115,26 @@ public class Messenger implements Runnable {
      * @param handler The handler to send to.
      */
     public void deliverMessage(final Message msg, final MessageHandler handler) {
-        enqueue(new MessageTask(msg, handler));
+        deliverMessage(msg, handler, handler);
+    }
+
+    /**
+     * <p>Convenience method to post a {@link Task} that delivers a {@link
+     * Message} to a {@link MessageHandler} to the queue of tasks to be
+     * executed. Unsequenced messages with the same owner are delivered in the
+     * order they are posted.</p>
+     *
+     * @param msg     The message to send.
+     * @param handler The handler to send to.
+     * @param owner   The object owning the message, such as the session which
+     *                sent it.
+     */
+    public void deliverMessage(final Message msg, final MessageHandler handler, final Object owner) {
+        long key = 0;
+        if (shards.length > 1) {
+            key = msg.hasSequenceId() ? msg.getSequenceId() : System.identityHashCode(owner);
+        }
+        enqueue(new MessageTask(msg, handler), key);
     }
 
     /**
@@ -73,40 +146,59 @@ public class Messenger implements Runnable {
      * @param handler The handler to return to.
      */
     public void deliverReply(final Reply reply, final ReplyHandler handler) {
-        enqueue(new ReplyTask(reply, handler));
+        enqueue(new ReplyTask(reply, handler), shards.length > 1 ? System.identityHashCode(handler) : 0);
     }
 
     /**
-     * <p>Enqueues the given task in the list of tasks that this worker is to
-     * process. If this thread has been destroyed previously, this method
-     * invokes {@link Messenger.Task#destroy()}.</p>
+     * <p>Enqueues the given task in the list of tasks that the first thread is
+     * to process. If this has been destroyed previously, this method invokes
+     * {@link Messenger.Task#destroy()}.</p>
      *
      * @param task The task to enqueue.
      */
     public void enqueue(final Task task) {
+        enqueue(task, 0);
+    }
+
+    /**
+     * <p>Enqueues the given task in the list of tasks of the thread given by
+     * the key. If this has been destroyed previously, this method invokes
+     * {@link Messenger.Task#destroy()}.</p>
+     *
+     * @param task The task to enqueue.
+     * @param key  The key deciding which thread runs the task.
+     */
+    public void enqueue(final Task task, final long key) {
         if (destroyed.get()) {
             task.destroy();
             return;
         }
-        synchronized (this) {
-            queue.offer(task);
-            if (queue.size() == 1) {
-                notify();
-            }
+        shards[shardOf(key)].enqueue(task);
+    }
+
+    private int shardOf(long key) {
+        if (shards.length == 1) {
+            return 0;
         }
+        int hash = Long.hashCode(key);
+        hash ^= (hash >>> 16);
+        return Math.floorMod(hash, shards.length);
     }
 
     /**
-     * <p>Handshakes with the internal thread. If this method is called using
-     * the messenger thread, this will deadlock.</p>
+     * <p>Handshakes with the internal threads. This waits for all tasks
+     * enqueued before this was called. Handshaking with the thread calling this
+     * is skipped.</p>
      */
     public void sync() {
-        if (Thread.currentThread() == thread) {
-            return; // no need to wait for self
+        for (Shard shard : shards) {
+            if (Thread.currentThread() == shard.thread) {
+                continue; // no need to wait for self
+            }
+            final SyncTask task = new SyncTask();
+            shard.enqueue(task);
+            task.await();
         }
-        final SyncTask task = new SyncTask();
-        enqueue(task);
-        task.await();
     }
 
     /**
@@ -119,15 +211,14 @@ public class Messenger implements Runnable {
      */
     public boolean destroy() {
         boolean done = false;
-        enqueue(Terminate.INSTANCE);
+        for (Shard shard : shards) {
+            shard.enqueue(Terminate.INSTANCE);
+        }
         if (!destroyed.getAndSet(true)) {
             try {
-                synchronized (this) {
-                    while (!queue.isEmpty()) {
-                        wait();
-                    }
+                for (Shard shard : shards) {
+                    shard.awaitTermination();
                 }
-                thread.join();
             } catch (final InterruptedException e) {
                 // ignore
             }
@@ -136,52 +227,109 @@ public class Messenger implements Runnable {
         return done;
     }
 
-    @Override
-    public void run() {
-        while (true) {
-            Task task = null;
+    /**
+     * <p>One of the threads of this, having its own queue of tasks.</p>
+     */
+    private static class Shard implements Runnable {
+
+        final Queue<Entry> queue = new ArrayDeque<>();
+        final Thread thread;
+        final List<Task> children;
+        final MetricSet metrics;
+        final ValueMetric<Integer> queueSize;
+        final AverageMetric latency;
+
+        Shard(String name, List<Task> children, MetricSet metrics) {
+            this.thread = new Thread(this, name);
+            this.children = children;
+            this.metrics = metrics;
+            this.queueSize = new ValueMetric<>("queuesize", 0, metrics);
+            this.latency = new AverageMetric("latency", metrics);
+            thread.setDaemon(true);
+        }
+
+        void enqueue(final Task task) {
+            final Entry entry = new Entry(task, System.nanoTime());
             synchronized (this) {
-                if (queue.isEmpty()) {
+                queue.offer(entry);
+                queueSize.set(queue.size());
+                if (queue.size() == 1) {
+                    notify();
+                }
+            }
+        }
+
+        void awaitTermination() throws InterruptedException {
+            synchronized (this) {
+                while (!queue.isEmpty()) {
+                    wait();
+                }
+            }
+            thread.join();
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Entry entry = null;
+                synchronized (this) {
+                    if (queue.isEmpty()) {
+                        try {
+                            wait(100);
+                        } catch (final InterruptedException e) {
+                            continue;
+                        }
+                    }
+                    if (queue.size() > 0) {
+                        entry = queue.poll();
+                        queueSize.set(queue.size());
+                    }
+                }
+                if (entry != null && entry.task == Terminate.INSTANCE) {
+                    break;
+                }
+                if (entry != null) {
+                    final Task task = entry.task;
                     try {
-                        wait(100);
-                    } catch (final InterruptedException e) {
-                        continue;
+                        task.run();
+                    } catch (final Exception e) {
+                        log.log(LogLevel.ERROR, "An exception was thrown while running " + task.getClass().getName(), e);
                     }
+                    try {
+                        task.destroy();
+                    } catch (final Exception e) {
+                        log.warning("An exception was thrown while destroying " + task.getClass().getName() + ": " +
+                                    e.toString());
+                        log.warning("Someone, somewhere might have to wait indefinetly for something.");
+                    }
+                    latency.addValue((System.nanoTime() - entry.enqueued) / 1_000_000.0);
                 }
-                if (queue.size() > 0) {
-                    task = queue.poll();
+                for (final Task child : children) {
+                    child.run();
                 }
             }
-            if (task == Terminate.INSTANCE) {
-                break;
+            for (final Task child : children) {
+                child.destroy();
             }
-            if (task != null) {
-                try {
-                    task.run();
-                } catch (final Exception e) {
-                    log.log(LogLevel.ERROR, "An exception was thrown while running " + task.getClass().getName(), e);
-                }
-                try {
+            synchronized (this) {
+                while (!queue.isEmpty()) {
+                    final Task task = queue.poll().task;
                     task.destroy();
-                } catch (final Exception e) {
-                    log.warning("An exception was thrown while destroying " + task.getClass().getName() + ": " +
-                                e.toString());
-                    log.warning("Someone, somewhere might have to wait indefinetly for something.");
                 }
-            }
-            for (final Task child : children) {
-                child.run();
+                queueSize.set(0);
+                notify();
             }
         }
-        for (final Task child : children) {
-            child.destroy();
-        }
-        synchronized (this) {
-            while (!queue.isEmpty()) {
-                final Task task = queue.poll();
-                task.destroy();
-            }
-            notify();
+    }
+
+    private static class Entry {
+
+        final Task task;
+        final long enqueued;
+
+        Entry(final Task task, final long enqueued) {
+            this.task = task;
+            this.enqueued = enqueued;
         }
     }
 
@@ -72,6 +72,10 @@ public class ProtocolRepository {
             return ret;
         }
         synchronized (this) {
+            ret = routingPolicyCache.get(cacheKey); // may have been created by another thread
+            if (ret != null) {
+                return ret;
+            }
             Protocol protocol = getProtocol(protocolName);
             if (protocol == null) {
                 log.log(LogLevel.ERROR, "Protocol '" + protocolName + "' not supported.");
@@ -16,6 +16,11 @@ package com.yahoo.messagebus.routing;
  * </ul>
  * <p>
  * This class is pluggable per template point in the address of a hop.
+ * <p>
+ * A policy instance is shared by all messages routed through it. When the messenger runs more than one thread (see
+ * {@link com.yahoo.messagebus.MessageBusParams#setNumMessengerThreads}), {@link #select} and {@link #merge} may be
+ * called concurrently on the same instance, so policies must be thread-safe. State which is specific to one message
+ * should be kept in the routing context rather than in the policy.
  *
  * @author bratseth
  * @author Simon Thoresen Hult
@@ -1,11 +1,19 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.messagebus;
 
+import com.yahoo.messagebus.test.SimpleMessage;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -95,6 +103,91 @@ public class MessengerTestCase {
         assertTrue(tryMessenger(msn));
     }
 
+    @Test
+    public void requireThatTasksWithSameKeyRunInOrder() throws InterruptedException {
+        Messenger msn = new Messenger(4);
+        msn.start();
+        Map<Long, List<Integer>> order = new ConcurrentHashMap<>();
+        for (int i = 0; i < 1000; ++i) {
+            final long key = i % 10;
+            final int value = i;
+            msn.enqueue(new Messenger.Task() {
+                @Override
+                public void run() {
+                    order.computeIfAbsent(key, k -> new ArrayList<>()).add(value);
+                }
+
+                @Override
+                public void destroy() {
+
+                }
+            }, key);
+        }
+        msn.sync();
+        assertEquals(10, order.size());
+        for (Map.Entry<Long, List<Integer>> entry : order.entrySet()) {
+            List<Integer> values = entry.getValue();
+            assertEquals(100, values.size());
+            for (int i = 0; i < values.size(); ++i) {
+                assertEquals(entry.getKey() + i * 10, (long)values.get(i));
+            }
+        }
+        assertTrue(msn.destroy());
+    }
+
+    @Test
+    public void requireThatMessagesWithSameOwnerRunInOrder() {
+        Messenger msn = new Messenger(4);
+        msn.start();
+        Object owner = new Object();
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < 1000; ++i) {
+            final int value = i;
+            msn.deliverMessage(new SimpleMessage("foo"), msg -> order.add(value), owner);
+        }
+        msn.sync();
+        assertEquals(1000, order.size());
+        for (int i = 0; i < order.size(); ++i) {
+            assertEquals(i, (int)order.get(i));
+        }
+        assertTrue(msn.destroy());
+    }
+
+    @Test
+    public void requireThatSyncWaitsForAllThreads() throws InterruptedException {
+        Messenger msn = new Messenger(3);
+        msn.start();
+        AtomicInteger done = new AtomicInteger();
+        for (int i = 0; i < 30; ++i) {
+            msn.enqueue(new Messenger.Task() {
+                @Override
+                public void run() {
+                    done.incrementAndGet();
+                }
+
+                @Override
+                public void destroy() {
+
+                }
+            }, i);
+        }
+        msn.sync();
+        assertEquals(30, done.get());
+        assertEquals(3, msn.getMetrics().getMetrics().size());
+        assertTrue(msn.destroy());
+    }
+
+    @Test
+    public void requireThatTasksAreDestroyedAfterDestroy() {
+        Messenger msn = new Messenger(2);
+        msn.start();
+        assertTrue(msn.destroy());
+        MyTask task = new MyTask();
+        msn.enqueue(task, 1);
+        assertEquals(1, task.runLatch.getCount());
+        assertEquals(0, task.destroyLatch.getCount());
+    }
+
     private static boolean tryMessenger(Messenger msn) {
         MyTask task = new MyTask();
         msn.enqueue(task);